@@ -16,6 +16,7 @@ import soot.jimple.Stmt;
 import soot.jimple.infoflow.InfoflowConfiguration.CallgraphAlgorithm;
 import soot.jimple.infoflow.InfoflowConfiguration.CodeEliminationMode;
 import soot.jimple.infoflow.InfoflowConfiguration.DataFlowSolver;
+import soot.jimple.infoflow.InfoflowConfiguration.SchedulerMode;
 import soot.jimple.infoflow.aliasing.*;
 import soot.jimple.infoflow.cfg.BiDirICFGFactory;
 import soot.jimple.infoflow.codeOptimization.DeadCodeEliminator;
@@ -41,16 +42,25 @@ import soot.jimple.infoflow.problems.BackwardsInfoflowProblem;
 import soot.jimple.infoflow.problems.InfoflowProblem;
 import soot.jimple.infoflow.problems.TaintPropagationResults;
 import soot.jimple.infoflow.problems.TaintPropagationResults.OnTaintPropagationResultAdded;
+import soot.jimple.infoflow.results.InfoflowPerformanceData;
+import soot.jimple.infoflow.results.InfoflowPerformanceData.Phase;
+import soot.jimple.infoflow.results.InfoflowPerformanceData.PhaseTimer;
 import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.results.ResultSinkInfo;
 import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.results.xml.StreamingResultsSerializer;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
 import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.FrozenInterproceduralCFG;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.solver.executors.DedupPoolExecutor;
 import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
-import soot.jimple.infoflow.solver.executors.SetPoolExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
+import soot.jimple.infoflow.solver.executors.WorkStealingExecutor;
+import soot.jimple.infoflow.solver.fastSolver.CompressedJumpFunctionStore;
 import soot.jimple.infoflow.solver.fastSolver.IFDSSolver;
+import soot.jimple.infoflow.solver.fastSolver.SpillingJumpFunctionStore;
 import soot.jimple.infoflow.solver.memory.DefaultMemoryManagerFactory;
 import soot.jimple.infoflow.solver.memory.IMemoryManager;
 import soot.jimple.infoflow.solver.memory.IMemoryManagerFactory;
@@ -58,15 +68,18 @@ import soot.jimple.infoflow.source.IOneSourceAtATimeManager;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.DataFlowGraphQuery;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolver;
-import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.CompactDFGIndex;
 import soot.jimple.infoflow.sparseOptimization.problem.BackwardsSparseInfoflowProblem;
 import soot.jimple.infoflow.sparseOptimization.problem.SparseInfoflowProblem;
+import soot.jimple.infoflow.sparseOptimization.store.DFGStore;
 import soot.jimple.infoflow.sparseOptimization.summary.SummaryQuery;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.infoflow.util.SystemClassHandler;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
 import soot.options.Options;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -89,7 +102,9 @@ public class Infoflow extends AbstractInfoflow {
 	private IMemoryManagerFactory memoryManagerFactory = new DefaultMemoryManagerFactory();
 
 	private long maxMemoryConsumption = -1;
+	private InfoflowPerformanceData performanceData = null;
 	private FlowDroidMemoryWatcher memoryWatcher = null;
+	private StreamingResultsSerializer streamingResults = null;
 
 	private Set<Stmt> collectedSources = null;
 	private Set<Stmt> collectedSinks = null;
@@ -233,6 +248,10 @@ public class Infoflow extends AbstractInfoflow {
 		try {
 			// Clear the data from previous runs
 			maxMemoryConsumption = -1;
+			performanceData = new InfoflowPerformanceData();
+			PhaseTimer totalTimer = performanceData.startPhase(Phase.TOTAL);
+			TimingCounter.resetAll();
+			SummaryQuery.resetStatistics();
 			// results = null;
 			results = new InfoflowResults();
 
@@ -246,11 +265,12 @@ public class Infoflow extends AbstractInfoflow {
 				memoryWatcher = null;
 			}
 			memoryWatcher = new FlowDroidMemoryWatcher(results);
+			memoryWatcher.setSpillToDiskEnabled(config.isSpillToDiskEnabled());
 
 			// Build the callgraph
-			long beforeCallgraph = System.nanoTime();
+			PhaseTimer callgraphTimer = performanceData.startPhase(Phase.CALLGRAPH_CONSTRUCTION);
 			constructCallgraph();
-			logger.info("Callgraph construction took " + (System.nanoTime() - beforeCallgraph) / 1E9 + " seconds");
+			logger.info("Callgraph construction took " + callgraphTimer.stop() / 1E9 + " seconds");
 
 			// Initialize the source sink manager
 			if (sourcesSinks != null)
@@ -258,9 +278,9 @@ public class Infoflow extends AbstractInfoflow {
 
 			// Perform constant propagation and remove dead code
 			if (config.getCodeEliminationMode() != CodeEliminationMode.NoCodeElimination) {
-				long currentMillis = System.nanoTime();
+				PhaseTimer eliminationTimer = performanceData.startPhase(Phase.CODE_ELIMINATION);
 				eliminateDeadCode(sourcesSinks);
-				logger.info("Dead code elimination took " + (System.nanoTime() - currentMillis) / 1E9 + " seconds");
+				logger.info("Dead code elimination took " + eliminationTimer.stop() / 1E9 + " seconds");
 			}
 
 			// After constant value propagation, we might find more call edges
@@ -280,6 +300,8 @@ public class Infoflow extends AbstractInfoflow {
 			logger.info("Starting Taint Analysis");
 			IInfoflowCFG iCfg = icfgFactory.buildBiDirICFG(config.getCallgraphAlgorithm(),
 					config.getEnableExceptionTracking());
+			if (config.isFrozenIcfgEnabled())
+				iCfg = freezeICFG(iCfg);
 
 			if(config.isSparseOptEnabled()) {
 				if(config.getDataFlowSolver() != DataFlowSolver.ContextFlowSensitive)
@@ -287,21 +309,62 @@ public class Infoflow extends AbstractInfoflow {
 
 				logger.info("Starting Data Flow Graph building!");
 				InnerBBFastBuildDFGSolver dfgSolver = new InnerBBFastBuildDFGSolver(iCfg);
-				long beforeDfgBuild = System.nanoTime();
-				dfgSolver.solve();
-				logger.info("Data Flow Graph building took " + (System.nanoTime() - beforeDfgBuild) / 1E9
-						+ " seconds");
+				String dfgStoreFile = config.getDfgStoreFile();
+				DFGStore dfgStore = null;
+				if (dfgStoreFile != null) {
+					dfgStore = DFGStore.open(dfgStoreFile, config.isSummaryOptEnabled());
+					dfgSolver.setDFGStore(dfgStore);
+				}
+				PhaseTimer dfgTimer = performanceData.startPhase(Phase.DFG_BUILD);
+				if (config.isParallelDfgBuildEnabled())
+					dfgSolver.solveParallel(getNumWorkerThreads());
+				else
+					dfgSolver.solve();
+				logger.info("Data Flow Graph building took " + dfgTimer.stop() / 1E9 + " seconds");
 				logger.info("Data Flow Graph building memory consumption " + (getUsedMemory()) / 1E6
 						+ " MB");
 				DataFlowGraphQuery.newInitialize(iCfg, dfgSolver.getNewDfg(), dfgSolver.getNewBackwardDfg(), dfgSolver.getUnitOrderComputingMap());
-				beforeDfgBuild = System.nanoTime();
-				dfgSolver.solveSummary();
-				logger.info("Intra-procedural Summary building took " + (System.nanoTime() - beforeDfgBuild) / 1E9
-						+ " seconds");
-				logger.info("Intra-procedural Summary building memory consumption " + (getUsedMemory()) / 1E6
-						+ " MB");
+				performanceData.setDfgSize(dfgSolver.getNewDfg().size() + dfgSolver.getNewBackwardDfg().size(),
+						dfgSolver.getDataFlowNodeCount());
+				// Every reachable method gets summaries, so only build them if
+				// the solver is going to use them
+				if (config.isSummaryOptEnabled()) {
+					PhaseTimer summaryTimer = performanceData.startPhase(Phase.SUMMARY_BUILD);
+					if (config.isParallelSummaryBuildEnabled())
+						dfgSolver.solveSummaryParallel(getNumWorkerThreads());
+					else
+						dfgSolver.solveSummary();
+					logger.info("Intra-procedural Summary building took " + summaryTimer.stop() / 1E9 + " seconds");
+					logger.info("Intra-procedural Summary building memory consumption " + (getUsedMemory()) / 1E6
+							+ " MB");
+				}
+				if (dfgStore != null) {
+					performanceData.setDfgStoreStatistics(dfgStore.getHits(), dfgStore.getMisses());
+					logger.info("DFG store: {} methods loaded, {} methods rebuilt", dfgStore.getHits(),
+							dfgStore.getMisses());
+					dfgSolver.saveToDFGStore();
+					try {
+						dfgStore.save();
+					} catch (IOException e) {
+						logger.error("Could not write DFG store " + dfgStoreFile, e);
+					}
+				}
+				if (config.isCompactDfgIndexEnabled()) {
+					// Measure the live heap around the swap, an estimate from
+					// object sizes does not tell what the JVM actually frees
+					System.gc();
+					long heapBefore = getUsedMemory();
+					CompactDFGIndex compactIndex = DataFlowGraphQuery.v().useCompactIndex();
+					dfgSolver.releaseDataFlowGraph();
+					System.gc();
+					long heapAfter = getUsedMemory();
+					logger.info("Compact DFG index holds {} entries, used heap went from {} MB to {} MB",
+							compactIndex.size(), heapBefore / 1E6, heapAfter / 1E6);
+				}
 				//DataFlowGraphQuery.initialize(iCfg, dfgSolver.getDfg(), dfgSolver.getBackwardDfg(), dfgSolver.getUnitOrderComputingMap());
 				SummaryQuery.newInitialize(iCfg, dfgSolver.getForwardSummary(), dfgSolver.getBackwardsSummary(), dfgSolver.getUnitOrderComputingMap());
+				performanceData.setSummaryCounts(dfgSolver.getForwardSummary().size(),
+						dfgSolver.getBackwardsSummary().size());
 //				Map<SootMethod, Map<Value, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>>>
 //						dfg = dfgSolver.getDfg();
 //				manager.setDfg(dfg);
@@ -319,6 +382,12 @@ public class Infoflow extends AbstractInfoflow {
 				oneSourceAtATime.resetCurrentSource();
 			boolean hasMoreSources = oneSourceAtATime == null || oneSourceAtATime.hasNextSource();
 
+			// Open the file into which the results are written while they are
+			// being computed
+			if (config.getStreamingResultsFile() != null)
+				streamingResults = new StreamingResultsSerializer(config.getStreamingResultsFile(),
+						config.getStreamingResultsFormat(), iCfg, config);
+
 			while (hasMoreSources) {
 				// Fetch the next source
 				if (oneSourceAtATime != null)
@@ -326,8 +395,8 @@ public class Infoflow extends AbstractInfoflow {
 
 				// Create the executor that takes care of the workers
 				int numThreads = Runtime.getRuntime().availableProcessors();
-				InterruptableExecutor executor = createExecutor(numThreads, true);
-				logger.info("Total number of current running threads : " + executor.getCorePoolSize());
+				ISolverExecutor executor = createSolverExecutor();
+				logger.info("Total number of current running threads : " + executor.getNumThreads());
 
 
 				// Initialize the memory manager
@@ -455,20 +524,12 @@ public class Infoflow extends AbstractInfoflow {
 					if (config.getIncrementalResultReporting())
 						initializeIncrementalResultReporting(propagationResults, builder);
 
-					long beforeFsolver = System.nanoTime();
+					PhaseTimer propagationTimer = performanceData.startPhase(Phase.TAINT_PROPAGATION);
 					forwardSolver.solve();
-					logger.info("Taint OPfSolver took " + (System.nanoTime() - beforeFsolver) / 1E9
-							+ " seconds");
-					logger.info("Hash DataFlowGraphQuery took: " + DataFlowGraphQuery.count / 1E9);
-					logger.info("Set usedef took: " + DataFlowNode.count / 1E9);
-					logger.info("Forward Normal took: " + SparseInfoflowProblem.countNormal1 / 1E9);
-					logger.info("Forward Normal2 took: " + SparseInfoflowProblem.countNormal2 / 1E9);
-					logger.info("Forward Normal3 took: " + SparseInfoflowProblem.countNormal3 / 1E9);
-					logger.info("Backward Normal1 took: " + BackwardsSparseInfoflowProblem.countNormal1 / 1E9);
-					logger.info("Backward Normal2 took: " + BackwardsSparseInfoflowProblem.countNormal2 / 1E9);
-					logger.info("IFDS Normal took: " + IFDSSolver.countNormal / 1E9);
-					logger.info("IFDS Call took: " + IFDSSolver.countCall / 1E9);
-					logger.info("IFDS Exit took: " + IFDSSolver.countExit / 1E9);
+					logger.info("Taint OPfSolver took " + propagationTimer.stop() / 1E9 + " seconds");
+					for (TimingCounter counter : TimingCounter.values())
+						if (counter.get() > 0)
+							logger.info(counter.getDescription() + " took: " + counter.get() / 1E9);
 
 					maxMemoryConsumption = Math.max(maxMemoryConsumption, getUsedMemory());
 
@@ -513,6 +574,12 @@ public class Infoflow extends AbstractInfoflow {
 							forwardSolver.getPropagationCount(), aliasingStrategy.getSolver() == null ? 0
 									: aliasingStrategy.getSolver().getPropagationCount(),
 							res == null ? 0 : res.size());
+					performanceData.addPropagationCounts(forwardSolver.getPropagationCount(),
+							aliasingStrategy.getSolver() == null ? 0 : aliasingStrategy.getSolver().getPropagationCount());
+					performanceData.updateJumpFunctionCounts(getJumpFunctionCount(forwardSolver),
+							getJumpFunctionCount(aliasingStrategy.getSolver()));
+					if (config.isSparseOptEnabled())
+						performanceData.setSummaryLookups(SummaryQuery.v().getHits(), SummaryQuery.v().getMisses());
 
 					// Force a cleanup. Everything we need is reachable through
 					// the
@@ -553,6 +620,7 @@ public class Infoflow extends AbstractInfoflow {
 					// Do the normal result computation in the end unless we
 					// have used
 					// incremental path building
+					PhaseTimer pathTimer = performanceData.startPhase(Phase.PATH_RECONSTRUCTION);
 					if (config.getIncrementalResultReporting()) {
 						// After the last intermediate result has been computed,
 						// we need to
@@ -585,6 +653,7 @@ public class Infoflow extends AbstractInfoflow {
 							this.results.addAll(builder.getResults());
 					}
 					resultExecutor.shutdown();
+					pathTimer.stop();
 
 					// If the path builder was aborted, we warn the user
 					if (builder.isKilled())
@@ -615,11 +684,20 @@ public class Infoflow extends AbstractInfoflow {
 				Runtime.getRuntime().gc();
 				logger.info("Memory consumption after path building: " + (getUsedMemory() / 1000 / 1000) + " MB");
 			}
+			closeStreamingResults();
 
 			// Execute the post-processors
 			for (PostAnalysisHandler handler : this.postProcessors)
 				results = handler.onResultsAvailable(results, iCfg);
 
+			maxMemoryConsumption = Math.max(maxMemoryConsumption, getUsedMemory());
+			totalTimer.stop();
+			performanceData.captureTimingCounters();
+			performanceData.setMaxMemoryConsumption(maxMemoryConsumption);
+			performanceData.setResultCount(results == null ? 0 : results.size());
+			if (results != null)
+				results.setPerformanceData(performanceData);
+
 			if (results == null || results.getResults().isEmpty())
 				logger.warn("No results found.");
 			else
@@ -646,11 +724,15 @@ public class Infoflow extends AbstractInfoflow {
 			if (config.getWriteOutputFiles())
 				PackManager.v().writeOutput();
 
-			maxMemoryConsumption = Math.max(maxMemoryConsumption, getUsedMemory());
 			System.out.println("Maximum memory consumption: " + maxMemoryConsumption / 1E6 + " MB");
 		} catch (Exception ex) {
 			ex.printStackTrace(); // add by wanglei
+			closeStreamingResults();
 			results.addException(ex.getClass().getName() + ": " + ex.getMessage());
+			if (performanceData != null) {
+				performanceData.captureTimingCounters();
+				results.setPerformanceData(performanceData);
+			}
 		}
 	}
 
@@ -684,6 +766,16 @@ public class Infoflow extends AbstractInfoflow {
 								handler2.onSingleResultAvailable(source, sink);
 							}
 						}
+
+						// If the result has been written out already, we do
+						// not need to keep its path in memory
+						StreamingResultsSerializer streaming = streamingResults;
+						if (streaming != null) {
+							streaming.onSingleResultAvailable(source, sink);
+							if (source.getPath() != null)
+								source = new ResultSourceInfo(source.getAccessPath(), source.getSource(),
+										source.getUserData(), null, null);
+						}
 						results.addResult(sink, source);
 					}
 
@@ -697,6 +789,23 @@ public class Infoflow extends AbstractInfoflow {
 		});
 	}
 
+	/**
+	 * Finishes and closes the file into which the results have been streamed,
+	 * if any
+	 */
+	private void closeStreamingResults() {
+		if (streamingResults == null)
+			return;
+		try {
+			streamingResults.close();
+			logger.info("Wrote {} results to {}", streamingResults.getResultCount(),
+					config.getStreamingResultsFile());
+		} catch (IOException e) {
+			logger.error("Could not close result file " + config.getStreamingResultsFile(), e);
+		}
+		streamingResults = null;
+	}
+
 	/**
 	 * Checks the configuration of the data flow solver for errors and
 	 * automatically fixes some common issues
@@ -706,6 +815,10 @@ public class Infoflow extends AbstractInfoflow {
 			throw new RuntimeException("Static field tracking must be disabled " + "if the access path length is zero");
 		if (config.getAccessPathLength() < 0)
 			throw new RuntimeException("The access path length may not be negative");
+		if (config.getStreamingResultsFile() != null && !config.getIncrementalResultReporting()) {
+			config.setIncrementalResultReporting(true);
+			logger.info("Enabled incremental result reporting for streaming the results");
+		}
 		if (config.getDataFlowSolver() == DataFlowSolver.FlowInsensitive) {
 			config.setFlowSensitiveAliasing(false);
 			config.setEnableTypeChecking(false);
@@ -754,7 +867,7 @@ public class Infoflow extends AbstractInfoflow {
 	 */
 	@SuppressWarnings("deprecation")
 	private IAliasingStrategy createAliasAnalysis(final ISourceSinkManager sourcesSinks, IInfoflowCFG iCfg,
-			InterruptableExecutor executor, IMemoryManager<Abstraction, Unit> memoryManager) {
+			ISolverExecutor executor, IMemoryManager<Abstraction, Unit> memoryManager) {
 		IAliasingStrategy aliasingStrategy;
 		IInfoflowSolver backSolver = null;
 		BackwardsInfoflowProblem backProblem = null;
@@ -767,7 +880,8 @@ public class Infoflow extends AbstractInfoflow {
 			// We need to create the right data flow solver
 			switch (config.getDataFlowSolver()) {
 			case Heros:
-				backSolver = new soot.jimple.infoflow.solver.heros.InfoflowSolver(backProblem, executor);
+				backSolver = new soot.jimple.infoflow.solver.heros.InfoflowSolver(backProblem,
+						(InterruptableExecutor) executor);
 				break;
 			case ContextFlowSensitive:
 				if(config.isSparseOptEnabled())
@@ -790,6 +904,8 @@ public class Infoflow extends AbstractInfoflow {
 			// backSolver.setEnableMergePointChecking(true);
 			backSolver.setSingleJoinPointAbstraction(config.getSingleJoinPointAbstraction());
 			backSolver.setSolverId(false);
+			configureJumpFunctionStore(backSolver);
+			configureBatchedPropagation(backSolver);
 			backProblem.setTaintPropagationHandler(backwardsPropagationHandler);
 			backProblem.setTaintWrapper(taintWrapper);
 			if (nativeCallHandler != null)
@@ -847,14 +963,15 @@ public class Infoflow extends AbstractInfoflow {
 	 * @return The solver that solves the forward taint analysis problem
 	 */
 	@SuppressWarnings("deprecation")
-	private IInfoflowSolver createForwardSolver(InterruptableExecutor executor, AbstractInfoflowProblem forwardProblem) {
+	private IInfoflowSolver createForwardSolver(ISolverExecutor executor, AbstractInfoflowProblem forwardProblem) {
 		// Depending on the configured solver algorithm, we have to create a
 		// different solver object
 		IInfoflowSolver forwardSolver;
 		switch (config.getDataFlowSolver()) {
 		case Heros:
 			logger.info("Using legacy Heros-based data flow solver");
-			forwardSolver = new soot.jimple.infoflow.solver.heros.InfoflowSolver(forwardProblem, executor);
+			forwardSolver = new soot.jimple.infoflow.solver.heros.InfoflowSolver(forwardProblem,
+					(InterruptableExecutor) executor);
 			break;
 		case ContextFlowSensitive:
 			logger.info("Using context- and flow-sensitive solver");
@@ -879,6 +996,8 @@ public class Infoflow extends AbstractInfoflow {
 		forwardSolver.setSolverId(true);
 		forwardSolver.setJumpPredecessors(!pathBuilderFactory.supportsPathReconstruction());
 		forwardSolver.setSingleJoinPointAbstraction(config.getSingleJoinPointAbstraction());
+		configureJumpFunctionStore(forwardSolver);
+		configureBatchedPropagation(forwardSolver);
 
 		return forwardSolver;
 	}
@@ -908,6 +1027,46 @@ public class Infoflow extends AbstractInfoflow {
 		dce.run(dceManager, Scene.v().getEntryPoints(), sourcesSinks, taintWrapper);
 	}
 
+	/**
+	 * Replaces the jump function store of the given solver with the compressed
+	 * one if this is enabled in the configuration and supported by the solver
+	 * 
+	 * @param solver
+	 *            The solver to configure
+	 */
+	@SuppressWarnings("unchecked")
+	private void configureJumpFunctionStore(IInfoflowSolver solver) {
+		if (!config.isCompressedJumpFunctionsEnabled() && !config.isSpillToDiskEnabled())
+			return;
+		if (!(solver instanceof IFDSSolver)) {
+			logger.warn("The selected data flow solver does not support compressed jump functions");
+			return;
+		}
+		IFDSSolver<Unit, Abstraction, ?> ifdsSolver = (IFDSSolver<Unit, Abstraction, ?>) solver;
+		if (config.isSpillToDiskEnabled())
+			ifdsSolver.setJumpFunctionStore(new SpillingJumpFunctionStore<Unit, Abstraction>(
+					solver.getTabulationProblem().interproceduralCFG()));
+		else
+			ifdsSolver.setJumpFunctionStore(new CompressedJumpFunctionStore<Unit, Abstraction>());
+	}
+
+	/**
+	 * Makes the given solver process the edges of one target statement in
+	 * batches if this is enabled in the configuration and supported by the
+	 * solver
+	 * 
+	 * @param solver
+	 *            The solver to configure
+	 */
+	private void configureBatchedPropagation(IInfoflowSolver solver) {
+		if (!config.isBatchedPropagationEnabled())
+			return;
+		if (solver instanceof IFDSSolver)
+			((IFDSSolver<?, ?, ?>) solver).setBatchedPropagation(true);
+		else
+			logger.warn("The selected data flow solver does not support batched propagation");
+	}
+
 	/**
 	 * Creates a new executor object for spawning worker threads
 	 * 
@@ -920,7 +1079,7 @@ public class Infoflow extends AbstractInfoflow {
 	 */
 	private InterruptableExecutor createExecutor(int numThreads, boolean allowSetSemantics) {
 		if (allowSetSemantics) {
-			return new SetPoolExecutor(
+			return new DedupPoolExecutor(
 					config.getMaxThreadNum() == -1 ? numThreads : Math.min(config.getMaxThreadNum(), numThreads),
 					Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 		} else {
@@ -930,6 +1089,73 @@ public class Infoflow extends AbstractInfoflow {
 		}
 	}
 
+	/**
+	 * Creates the executor on which the data flow solvers schedule their path
+	 * edges. The legacy Heros solver always uses a thread pool. The number of
+	 * threads is the same as for the other parallel phases of the analysis.
+	 * 
+	 * @return The generated executor
+	 */
+	private ISolverExecutor createSolverExecutor() {
+		int numThreads = getNumWorkerThreads();
+		if (config.getSchedulerMode() == SchedulerMode.WorkStealing
+				&& config.getDataFlowSolver() != DataFlowSolver.Heros)
+			return new WorkStealingExecutor(numThreads, true);
+		return createExecutor(numThreads, true);
+	}
+
+	/**
+	 * Gets the number of worker threads to use for the parallel phases of the
+	 * analysis, i.e., the number of available processors capped by the
+	 * configured maximum thread number
+	 * 
+	 * @return The number of worker threads to use
+	 */
+	private int getNumWorkerThreads() {
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		return config.getMaxThreadNum() == -1 ? numThreads : Math.min(config.getMaxThreadNum(), numThreads);
+	}
+
+	/**
+	 * Gets the number of jump functions that the given solver has recorded
+	 * 
+	 * @param solver
+	 *            The solver, may be null
+	 * @return The number of jump functions, or -1 if the solver does not
+	 *         provide this information
+	 */
+	private long getJumpFunctionCount(IInfoflowSolver solver) {
+		if (solver instanceof IFDSSolver)
+			return ((IFDSSolver<?, ?, ?>) solver).getJumpFunctionCount();
+		return -1;
+	}
+
+	/**
+	 * Takes an immutable, array-based snapshot of the given interprocedural
+	 * control-flow graph for the data flow solvers
+	 * 
+	 * @param iCfg
+	 *            The control-flow graph to freeze
+	 * @return The frozen control-flow graph, or the given one if there is no
+	 *         callgraph from which to get the reachable methods
+	 */
+	private IInfoflowCFG freezeICFG(IInfoflowCFG iCfg) {
+		if (!Scene.v().hasCallGraph()) {
+			logger.warn("Cannot freeze the control-flow graph without a callgraph");
+			return iCfg;
+		}
+
+		long beforeFreeze = System.nanoTime();
+		List<SootMethod> methods = new ArrayList<SootMethod>();
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener(); iter.hasNext();)
+			methods.add(iter.next().method());
+		FrozenInterproceduralCFG frozen = new FrozenInterproceduralCFG(iCfg, methods);
+		logger.info("Froze control-flow graph with {} units in {} methods in {} seconds, {} fall back to Soot",
+				frozen.getUnitCount(), frozen.getMethodCount(), (System.nanoTime() - beforeFreeze) / 1E9,
+				frozen.getFallbackCount());
+		return new InfoflowCFG(frozen);
+	}
+
 	private Collection<SootMethod> getMethodsForSeeds(IInfoflowCFG icfg) {
 		List<SootMethod> seeds = new LinkedList<SootMethod>();
 		// If we have a callgraph, we retrieve the reachable methods. Otherwise,
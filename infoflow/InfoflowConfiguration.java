@@ -94,6 +94,45 @@ public class InfoflowConfiguration {
 		FlowInsensitive
 	}
 	
+	/**
+	 * Enumeration containing the supported schedulers for the path edges of
+	 * the data flow solvers
+	 */
+	public enum SchedulerMode {
+		/**
+		 * Use a thread pool with a single shared work queue
+		 */
+		ThreadPool,
+		
+		/**
+		 * Use per-worker deques with work stealing. Edges of the same method
+		 * are kept on the same worker. The legacy Heros solver always uses
+		 * the thread pool.
+		 */
+		WorkStealing
+	}
+	
+	/**
+	 * Enumeration containing the supported formats for writing the data flow
+	 * results while they are being computed
+	 */
+	public enum StreamingResultsFormat {
+		/**
+		 * Use the same XML schema as the InfoflowResultsSerializer
+		 */
+		Xml,
+		
+		/**
+		 * Write one JSON object per result and line
+		 */
+		JsonLines,
+		
+		/**
+		 * Use the compact binary format of the BinaryResultsWriter
+		 */
+		Binary
+	}
+	
 	private int accessPathLength = 5;
 	private boolean useRecursiveAccessPaths = false;
 	//private boolean useRecursiveAccessPaths = true;
@@ -148,6 +187,18 @@ public class InfoflowConfiguration {
 
 	private boolean sparseOptEnabled = true;
 	private boolean intraProcSummaryOptEnabled = true;
+	private boolean parallelDfgBuildEnabled = false;
+	private boolean parallelSummaryBuildEnabled = false;
+	private boolean parallelConstantPropagationEnabled = false;
+	private String dfgStoreFile = null;
+	private boolean compactDfgIndexEnabled = false;
+	private SchedulerMode schedulerMode = SchedulerMode.ThreadPool;
+	private boolean compressedJumpFunctionsEnabled = false;
+	private boolean spillToDiskEnabled = false;
+	private boolean batchedPropagationEnabled = false;
+	private boolean frozenIcfgEnabled = false;
+	private String streamingResultsFile = null;
+	private StreamingResultsFormat streamingResultsFormat = StreamingResultsFormat.Xml;
 
 
 
@@ -198,6 +249,18 @@ public class InfoflowConfiguration {
 		this.dataFlowTimeout = config.dataFlowTimeout;
 		this.pathReconstructionTimeout = config.pathReconstructionTimeout;
 		this.oneSourceAtATime = config.oneSourceAtATime;
+		this.parallelDfgBuildEnabled = config.parallelDfgBuildEnabled;
+		this.parallelSummaryBuildEnabled = config.parallelSummaryBuildEnabled;
+		this.parallelConstantPropagationEnabled = config.parallelConstantPropagationEnabled;
+		this.dfgStoreFile = config.dfgStoreFile;
+		this.compactDfgIndexEnabled = config.compactDfgIndexEnabled;
+		this.schedulerMode = config.schedulerMode;
+		this.compressedJumpFunctionsEnabled = config.compressedJumpFunctionsEnabled;
+		this.spillToDiskEnabled = config.spillToDiskEnabled;
+		this.batchedPropagationEnabled = config.batchedPropagationEnabled;
+		this.frozenIcfgEnabled = config.frozenIcfgEnabled;
+		this.streamingResultsFile = config.streamingResultsFile;
+		this.streamingResultsFormat = config.streamingResultsFormat;
 	}
 	
 	/**
@@ -946,6 +1009,248 @@ public class InfoflowConfiguration {
 		this.intraProcSummaryOptEnabled = intraProcSummaryOptEnabled;
 	}
 
+	/**
+	 * Gets whether the sparse data flow graphs shall be built in parallel
+	 * over all available worker threads
+	 * @return True if the data flow graphs shall be built in parallel,
+	 * otherwise false
+	 */
+	public boolean isParallelDfgBuildEnabled() {
+		return parallelDfgBuildEnabled;
+	}
+
+	/**
+	 * Sets whether the sparse data flow graphs shall be built in parallel
+	 * over all available worker threads
+	 * @param parallelDfgBuildEnabled True if the data flow graphs shall be
+	 * built in parallel, otherwise false
+	 */
+	public void setParallelDfgBuildEnabled(boolean parallelDfgBuildEnabled) {
+		this.parallelDfgBuildEnabled = parallelDfgBuildEnabled;
+	}
+
+	/**
+	 * Gets whether the intra-procedural summaries shall be computed in
+	 * parallel, one task per method and base
+	 * @return True if the summaries shall be computed in parallel, otherwise
+	 * false
+	 */
+	public boolean isParallelSummaryBuildEnabled() {
+		return parallelSummaryBuildEnabled;
+	}
+
+	/**
+	 * Sets whether the intra-procedural summaries shall be computed in
+	 * parallel, one task per method and base
+	 * @param parallelSummaryBuildEnabled True if the summaries shall be
+	 * computed in parallel, otherwise false
+	 */
+	public void setParallelSummaryBuildEnabled(boolean parallelSummaryBuildEnabled) {
+		this.parallelSummaryBuildEnabled = parallelSummaryBuildEnabled;
+	}
+
+	/**
+	 * Gets whether the interprocedural constant propagation of the code
+	 * optimizer shall process the methods on its worklist in parallel
+	 * @return True if constants shall be propagated in parallel, otherwise
+	 * false
+	 */
+	public boolean isParallelConstantPropagationEnabled() {
+		return parallelConstantPropagationEnabled;
+	}
+
+	/**
+	 * Sets whether the interprocedural constant propagation of the code
+	 * optimizer shall process the methods on its worklist in parallel over
+	 * all available worker threads
+	 * @param parallelConstantPropagationEnabled True if constants shall be
+	 * propagated in parallel, otherwise false
+	 */
+	public void setParallelConstantPropagationEnabled(boolean parallelConstantPropagationEnabled) {
+		this.parallelConstantPropagationEnabled = parallelConstantPropagationEnabled;
+	}
+
+	/**
+	 * Gets the file in which the sparse data flow graphs and intra-procedural
+	 * summaries are persisted across runs
+	 * @return The file of the DFG store, or null if no store shall be used
+	 */
+	public String getDfgStoreFile() {
+		return dfgStoreFile;
+	}
+
+	/**
+	 * Sets the file in which the sparse data flow graphs and intra-procedural
+	 * summaries are persisted across runs. Methods whose Jimple body is
+	 * identical to one in the store are loaded instead of being rebuilt.
+	 * @param dfgStoreFile The file of the DFG store, or null if no store shall
+	 * be used
+	 */
+	public void setDfgStoreFile(String dfgStoreFile) {
+		this.dfgStoreFile = dfgStoreFile;
+	}
+
+	/**
+	 * Gets whether the data flow graph lookups shall use a compact index with a
+	 * single open-addressing table instead of the DFGEntryKey-based hash maps
+	 * @return True if the compact index shall be used, otherwise false
+	 */
+	public boolean isCompactDfgIndexEnabled() {
+		return compactDfgIndexEnabled;
+	}
+
+	/**
+	 * Sets whether the data flow graph lookups shall use a compact index with a
+	 * single open-addressing table instead of the DFGEntryKey-based hash maps
+	 * @param compactDfgIndexEnabled True if the compact index shall be used,
+	 * otherwise false
+	 */
+	public void setCompactDfgIndexEnabled(boolean compactDfgIndexEnabled) {
+		this.compactDfgIndexEnabled = compactDfgIndexEnabled;
+	}
+
+	/**
+	 * Gets how the path edges of the data flow solvers shall be scheduled
+	 * on the worker threads
+	 * @return The scheduler for the path edges
+	 */
+	public SchedulerMode getSchedulerMode() {
+		return schedulerMode;
+	}
+
+	/**
+	 * Sets how the path edges of the data flow solvers shall be scheduled
+	 * on the worker threads
+	 * @param schedulerMode The scheduler for the path edges
+	 */
+	public void setSchedulerMode(SchedulerMode schedulerMode) {
+		this.schedulerMode = schedulerMode;
+	}
+
+	/**
+	 * Gets whether the data flow solvers shall store their jump functions as
+	 * packed integer IDs instead of keeping a PathEdge object per edge
+	 * @return True if the compressed jump function store shall be used,
+	 * otherwise false
+	 */
+	public boolean isCompressedJumpFunctionsEnabled() {
+		return compressedJumpFunctionsEnabled;
+	}
+
+	/**
+	 * Sets whether the data flow solvers shall store their jump functions as
+	 * packed integer IDs instead of keeping a PathEdge object per edge
+	 * @param compressedJumpFunctionsEnabled True if the compressed jump
+	 * function store shall be used, otherwise false
+	 */
+	public void setCompressedJumpFunctionsEnabled(boolean compressedJumpFunctionsEnabled) {
+		this.compressedJumpFunctionsEnabled = compressedJumpFunctionsEnabled;
+	}
+
+	/**
+	 * Gets whether the jump functions, end summaries and incoming edges of
+	 * methods that have not been used recently shall be written to disk when the memory runs low, instead of
+	 * terminating the data flow analysis
+	 * @return True if solver state shall be spilled to disk, otherwise false
+	 */
+	public boolean isSpillToDiskEnabled() {
+		return spillToDiskEnabled;
+	}
+
+	/**
+	 * Sets whether the jump functions, end summaries and incoming edges of
+	 * methods that have not been used recently shall be written to disk when the memory runs low, instead of
+	 * terminating the data flow analysis. This implies compressed jump
+	 * functions.
+	 * @param spillToDiskEnabled True if solver state shall be spilled to
+	 * disk, otherwise false
+	 */
+	public void setSpillToDiskEnabled(boolean spillToDiskEnabled) {
+		this.spillToDiskEnabled = spillToDiskEnabled;
+	}
+
+	/**
+	 * Gets whether the solvers shall process all pending edges that end at the
+	 * same statement together
+	 * @return True if edges shall be processed in batches, otherwise false
+	 */
+	public boolean isBatchedPropagationEnabled() {
+		return batchedPropagationEnabled;
+	}
+
+	/**
+	 * Sets whether the solvers shall process all pending edges that end at the
+	 * same statement together. The normal flow function is then only looked
+	 * up once per batch, but it is still applied to every fact on its own.
+	 * The edges of one statement are handled by a single task, which keeps
+	 * them on the same worker.
+	 * @param batchedPropagationEnabled True if edges shall be processed in
+	 * batches, otherwise false
+	 */
+	public void setBatchedPropagationEnabled(boolean batchedPropagationEnabled) {
+		this.batchedPropagationEnabled = batchedPropagationEnabled;
+	}
+
+	/**
+	 * Gets whether the solvers shall run on an immutable, array-based snapshot
+	 * of the interprocedural control-flow graph
+	 * @return True if the control-flow graph is frozen before the taint
+	 * analysis, otherwise false
+	 */
+	public boolean isFrozenIcfgEnabled() {
+		return frozenIcfgEnabled;
+	}
+
+	/**
+	 * Sets whether the solvers shall run on an immutable, array-based snapshot
+	 * of the interprocedural control-flow graph. The snapshot is taken once
+	 * after the callgraph has been built and saves the cache lookups of the
+	 * Soot control-flow graph on every propagation step. It is not available
+	 * with the on-demand callgraph.
+	 * @param frozenIcfgEnabled True if the control-flow graph shall be frozen
+	 * before the taint analysis, otherwise false
+	 */
+	public void setFrozenIcfgEnabled(boolean frozenIcfgEnabled) {
+		this.frozenIcfgEnabled = frozenIcfgEnabled;
+	}
+
+	/**
+	 * Gets the file into which the data flow results are written as soon as
+	 * the path builder has reconstructed them
+	 * @return The result file, or null if the results are not streamed
+	 */
+	public String getStreamingResultsFile() {
+		return streamingResultsFile;
+	}
+
+	/**
+	 * Sets the file into which the data flow results are written as soon as
+	 * the path builder has reconstructed them. This implies incremental result
+	 * reporting. The taint propagation paths are then only written to the
+	 * file and not kept in the in-memory results.
+	 * @param streamingResultsFile The result file, or null to disable the
+	 * streaming of results
+	 */
+	public void setStreamingResultsFile(String streamingResultsFile) {
+		this.streamingResultsFile = streamingResultsFile;
+	}
+
+	/**
+	 * Gets the format in which the data flow results are streamed
+	 * @return The format of the streamed results
+	 */
+	public StreamingResultsFormat getStreamingResultsFormat() {
+		return streamingResultsFormat;
+	}
+
+	/**
+	 * Sets the format in which the data flow results are streamed
+	 * @param streamingResultsFormat The format of the streamed results
+	 */
+	public void setStreamingResultsFormat(StreamingResultsFormat streamingResultsFormat) {
+		this.streamingResultsFormat = streamingResultsFormat;
+	}
+
 
 
 	/**
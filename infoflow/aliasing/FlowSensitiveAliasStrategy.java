@@ -70,15 +70,15 @@ public class FlowSensitiveAliasStrategy extends AbstractBulkAliasStrategy {
 		DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindBackwardDataFlowGraph(value, stmt);
 		AccessPath ap = abs.getAccessPath();
 		SootField firstField = ap.getFirstField();
-		if(dataFlowNode != null && dataFlowNode.getSuccs() != null) {
-			Set<DataFlowNode> next = dataFlowNode.getSuccs().get(DataFlowNode.baseField);
+		if(dataFlowNode != null && dataFlowNode.hasSuccs()) {
+			DataFlowNode[] next = dataFlowNode.getSuccsOf(DataFlowNode.baseField);
 			if(next != null)
 				for(DataFlowNode d : next) {
 					res.add(d.getStmt());
 				}
 
 			if(firstField != null) {
-				Set<DataFlowNode> next1 = dataFlowNode.getSuccs().get(firstField);
+				DataFlowNode[] next1 = dataFlowNode.getSuccsOf(firstField);
 				if(next1 != null)
 					for(DataFlowNode d : next1) {
 						res.add(d.getStmt());
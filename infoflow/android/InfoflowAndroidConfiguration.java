@@ -48,6 +48,9 @@ public class InfoflowAndroidConfiguration extends InfoflowConfiguration {
 	private boolean iccResultsPurify = true;
 	
 	private boolean useExistingSootInstance = false;
+	private boolean lazyResourceTableEnabled = false;
+	private boolean parallelLayoutParsingEnabled = false;
+	private boolean incrementalCallbackAnalysisEnabled = false;
 	
 	public InfoflowAndroidConfiguration() {
 		// We need to adapt some of the defaults. Most people don't care about
@@ -83,6 +86,9 @@ public class InfoflowAndroidConfiguration extends InfoflowConfiguration {
 			this.iccModel = androidConfig.iccModel;
 			
 			this.useExistingSootInstance = androidConfig.useExistingSootInstance;
+			this.lazyResourceTableEnabled = androidConfig.lazyResourceTableEnabled;
+			this.parallelLayoutParsingEnabled = androidConfig.parallelLayoutParsingEnabled;
+			this.incrementalCallbackAnalysisEnabled = androidConfig.incrementalCallbackAnalysisEnabled;
 		}
 	}
 	
@@ -306,6 +312,78 @@ public class InfoflowAndroidConfiguration extends InfoflowConfiguration {
 		return this.useExistingSootInstance;
 	}
 	
+	/**
+	 * Sets whether the resource table of the app shall be loaded lazily. In
+	 * this mode, only an index of the resource table is built when the app is
+	 * loaded, and resources are decoded when the analysis looks them up. This
+	 * saves time and memory for apps with large, heavily localized resource
+	 * tables.
+	 * @param lazyResourceTableEnabled True if the resource table shall be
+	 * loaded lazily, false to decode all resources upfront
+	 */
+	public void setLazyResourceTableEnabled(boolean lazyResourceTableEnabled) {
+		this.lazyResourceTableEnabled = lazyResourceTableEnabled;
+	}
+	
+	/**
+	 * Gets whether the resource table of the app shall be loaded lazily. In
+	 * this mode, only an index of the resource table is built when the app is
+	 * loaded, and resources are decoded when the analysis looks them up.
+	 * @return True if the resource table shall be loaded lazily, false to
+	 * decode all resources upfront
+	 */
+	public boolean isLazyResourceTableEnabled() {
+		return this.lazyResourceTableEnabled;
+	}
+	
+	/**
+	 * Sets whether the layout XML files of the app shall be parsed in
+	 * parallel. The number of threads is limited by the maximum number of
+	 * threads of the data flow analysis.
+	 * @param parallelLayoutParsingEnabled True if the layout XML files shall
+	 * be parsed in parallel, false to parse them one after another
+	 */
+	public void setParallelLayoutParsingEnabled(boolean parallelLayoutParsingEnabled) {
+		this.parallelLayoutParsingEnabled = parallelLayoutParsingEnabled;
+	}
+	
+	/**
+	 * Gets whether the layout XML files of the app shall be parsed in
+	 * parallel
+	 * @return True if the layout XML files shall be parsed in parallel, false
+	 * to parse them one after another
+	 */
+	public boolean isParallelLayoutParsingEnabled() {
+		return this.parallelLayoutParsingEnabled;
+	}
+	
+	/**
+	 * Sets whether the callback analysis shall extend the existing callgraph
+	 * when it finds new callbacks instead of rebuilding it. In this mode, only
+	 * the code that becomes reachable through the new callbacks is added to
+	 * the callgraph, and every method is only scanned once per component. The
+	 * calls in the added code are resolved based on the class hierarchy. Once
+	 * no more callbacks are found this way, the callgraph is rebuilt and all
+	 * code is scanned once more, so callbacks that the extended callgraph
+	 * missed are still found. The incremental mode saves callgraph builds
+	 * while the callback set grows, but does not change the result.
+	 * @param incrementalCallbackAnalysisEnabled True if the callgraph shall be
+	 * extended incrementally, false to rebuild it for every new callback
+	 */
+	public void setIncrementalCallbackAnalysisEnabled(boolean incrementalCallbackAnalysisEnabled) {
+		this.incrementalCallbackAnalysisEnabled = incrementalCallbackAnalysisEnabled;
+	}
+	
+	/**
+	 * Gets whether the callback analysis shall extend the existing callgraph
+	 * when it finds new callbacks instead of rebuilding it
+	 * @return True if the callgraph shall be extended incrementally, false to
+	 * rebuild it for every new callback
+	 */
+	public boolean isIncrementalCallbackAnalysisEnabled() {
+		return this.incrementalCallbackAnalysisEnabled;
+	}
+	
 	/**
 	 * Sets whether the callback analysis algorithm should follow paths that
 	 * contain threads. If this option is disabled, callbacks only registered in
@@ -377,6 +377,7 @@ public class SetupApplication {
 		// Parse the resource file
 		long beforeARSC = System.nanoTime();
 		this.resources = new ARSCFileParser();
+		this.resources.setLazyLoading(config.isLazyResourceTableEnabled());
 		this.resources.parse(apkFileLocation);
 		logger.info("ARSC file parsing took " + (System.nanoTime() - beforeARSC) / 1E9 + " seconds");
 	}
@@ -422,6 +423,11 @@ public class SetupApplication {
 				logger.warn("Callback definition file is empty, disabling callbacks");
 			} else {
 				lfp = new LayoutFileParser(this.manifest.getPackageName(), this.resources);
+				if (config.isParallelLayoutParsingEnabled()) {
+					int numThreads = Runtime.getRuntime().availableProcessors();
+					lfp.setNumThreads(config.getMaxThreadNum() == -1 ? numThreads
+							: Math.min(config.getMaxThreadNum(), numThreads));
+				}
 				switch (config.getCallbackAnalyzer()) {
 				case Fast:
 					calculateCallbackMethodsFast(lfp, entryPoint);
@@ -570,6 +576,8 @@ public class SetupApplication {
 			}
 		}
 
+		boolean incremental = config.isIncrementalCallbackAnalysisEnabled();
+		boolean callgraphOutdated = false;
 		try {
 			int depthIdx = 0;
 			boolean hasChanged = true;
@@ -583,8 +591,14 @@ public class SetupApplication {
 						break;
 				}
 
+				// In incremental mode, the callback analyzer extends the
+				// existing callgraph, so we only build it in the first
+				// iteration
+				boolean rebuildCallgraph = isInitial || !incremental;
+
 				// Create the new iteration of the main method
-				createMainMethod(component);
+				if (rebuildCallgraph)
+					createMainMethod(component);
 
 				// Since the gerenation of the main method can take some time,
 				// we check again whether we need to stop.
@@ -594,7 +608,7 @@ public class SetupApplication {
 				}
 
 				// Reset the callgraph
-				if (!isInitial || config.getUseExistingSootInstance()) {
+				if (rebuildCallgraph && (!isInitial || config.getUseExistingSootInstance())) {
 					releaseCallgraph();
 				}
 
@@ -610,7 +624,11 @@ public class SetupApplication {
 				isInitial = false;
 
 				// Run the soot-based operations
-				constructCallgraphInternal();
+				if (rebuildCallgraph) {
+					constructCallgraphInternal();
+					callgraphOutdated = false;
+				} else
+					callgraphOutdated = true;
 				PackManager.v().getPack("wjtp").apply();
 
 				// Creating all callgraph takes time and memory. Check whether
@@ -648,6 +666,17 @@ public class SetupApplication {
 					}
 				}
 
+				// The extended callgraph has no points-to information for the
+				// added code and may thus miss callbacks. Once the incremental
+				// fixpoint has been reached, we rebuild the callgraph and scan
+				// everything once more. If this finds new callbacks, we
+				// continue without the incremental mode.
+				if (!hasChanged && incremental && callgraphOutdated) {
+					incremental = false;
+					hasChanged = true;
+					jimpleClass.rescanAllCallbacks();
+				}
+
 				// Check depth limiting
 				depthIdx++;
 				if (config.getMaxAnalysisCallbackDepth() > 0 && depthIdx >= config.getMaxAnalysisCallbackDepth())
@@ -661,6 +690,16 @@ public class SetupApplication {
 				memoryWatcher.close();
 		}
 
+		// If the callback analysis stopped before its final pass, the
+		// callgraph that has been extended by the callback analyzer is only
+		// an approximation. The data flow analysis needs a proper one for the
+		// final set of callbacks.
+		if (callgraphOutdated) {
+			createMainMethod(component);
+			releaseCallgraph();
+			constructCallgraphInternal();
+		}
+
 		// Filter out callbacks that belong to fragments that are not used by
 		// the host activity
 		AlienFragmentFilter fragmentFilter = new AlienFragmentFilter(invertMap(fragmentClasses));
@@ -1139,6 +1178,21 @@ public class SetupApplication {
 	 *             Thrown if the Android manifest file could not be read.
 	 */
 	public InfoflowResults runInfoflow(String sourceSinkFile) throws IOException, XmlPullParserException {
+		return runInfoflow(createSourceSinkProvider(sourceSinkFile));
+	}
+
+	/**
+	 * Parses the given file with the definitions of the sources and sinks.
+	 * The format is chosen by the file extension.
+	 * 
+	 * @param sourceSinkFile
+	 *            The full path and file name of the file containing the
+	 *            sources and sinks
+	 * @return The provider for the sources and sinks in the given file
+	 * @throws IOException
+	 *             Thrown if the given source/sink file could not be read.
+	 */
+	public static ISourceSinkDefinitionProvider createSourceSinkProvider(String sourceSinkFile) throws IOException {
 		ISourceSinkDefinitionProvider parser = null;
 
 		String fileExtension = sourceSinkFile.substring(sourceSinkFile.lastIndexOf("."));
@@ -1156,8 +1210,7 @@ public class SetupApplication {
 		} catch (SAXException ex) {
 			throw new IOException("Could not read XML file", ex);
 		}
-
-		return runInfoflow(parser);
+		return parser;
 	}
 
 	/**
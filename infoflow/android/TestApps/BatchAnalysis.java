@@ -0,0 +1,317 @@
+package soot.jimple.infoflow.android.TestApps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import soot.jimple.infoflow.android.InfoflowAndroidConfiguration;
+import soot.jimple.infoflow.android.SetupApplication;
+import soot.jimple.infoflow.android.callbacks.AbstractCallbackAnalyzer;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.xml.InfoflowResultsSerializer;
+import soot.jimple.infoflow.source.data.ISourceSinkDefinitionProvider;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+
+/**
+ * Batch driver that analyzes all APK files in a directory.
+ *
+ * Soot keeps its state in global singletons, so two apps can never be
+ * analyzed in the same JVM at the same time. The driver therefore starts a
+ * number of worker JVMs, each of which analyzes one app at a time. A worker
+ * parses the source/sink definitions, the taint wrapper file and the
+ * callback list only once when it starts, and reuses them for all apps it is
+ * given. Every app gets its own copy of the taint wrapper, so that the
+ * caches of one app do not leak into the next one.
+ *
+ * The memory limit is enforced through the heap size of the worker JVMs.
+ * The time limit is passed to the data flow solvers. If an app exceeds
+ * twice the time limit nevertheless, e.g., during callgraph construction,
+ * its worker is killed and replaced.
+ *
+ * Usage: BatchAnalysis apk-directory android-jar-directory [--threads n]
+ * [--timeout seconds] [--maxmem megabytes] [--sourcessinks file]
+ * [--taintwrapper file] [--callbacks file] [--output directory]
+ *
+ * @author wanglei
+ *
+ */
+public class BatchAnalysis {
+
+	/**
+	 * Prefix of the lines by which a worker reports to the driver. All other
+	 * output of the worker is only logging and is dropped.
+	 */
+	private static final String STATUS_PREFIX = "BATCH:";
+
+	private static final String WORKER_FLAG = "--worker";
+
+	private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	private long timeout = 600;
+	private long maxMemory = 4096;
+	private String sourceSinkFile = "SourcesAndSinks.txt";
+	private String taintWrapperFile = "EasyTaintWrapperSource.txt";
+	private String callbackFile = "AndroidCallbacks.txt";
+	private String outputDir = "batch-results";
+	private String androidJar;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		boolean worker = args.length > 0 && args[0].equals(WORKER_FLAG);
+		if (worker)
+			args = Arrays.copyOfRange(args, 1, args.length);
+		if (args.length < 2) {
+			printUsage();
+			return;
+		}
+
+		BatchAnalysis batch = new BatchAnalysis();
+		batch.parseOptions(args);
+		if (worker)
+			batch.runWorker();
+		else
+			batch.runBatch(new File(args[0]));
+	}
+
+	void parseOptions(String[] args) {
+		androidJar = args[1];
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equalsIgnoreCase("--threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equalsIgnoreCase("--timeout"))
+				timeout = Long.parseLong(args[++i]);
+			else if (args[i].equalsIgnoreCase("--maxmem"))
+				maxMemory = Long.parseLong(args[++i]);
+			else if (args[i].equalsIgnoreCase("--sourcessinks"))
+				sourceSinkFile = args[++i];
+			else if (args[i].equalsIgnoreCase("--taintwrapper"))
+				taintWrapperFile = args[++i];
+			else if (args[i].equalsIgnoreCase("--callbacks"))
+				callbackFile = args[++i];
+			else if (args[i].equalsIgnoreCase("--output"))
+				outputDir = args[++i];
+			else
+				throw new RuntimeException("Unknown option: " + args[i]);
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Incorrect arguments: [0] = apk-directory, [1] = android-jar-directory");
+		System.out.println("Optional further parameters:");
+		System.out.println("\t--THREADS n Analyze n apps at the same time");
+		System.out.println("\t--TIMEOUT n Time out after n seconds per app");
+		System.out.println("\t--MAXMEM n Use at most n MB of heap per app");
+		System.out.println("\t--SOURCESSINKS file Read the sources and sinks from the given file");
+		System.out.println("\t--TAINTWRAPPER file Read the taint wrapper rules from the given file");
+		System.out.println("\t--CALLBACKS file Read the Android callback interfaces from the given file");
+		System.out.println("\t--OUTPUT dir Write the results into the given directory");
+	}
+
+	/**
+	 * Distributes the APK files in the given directory over the worker JVMs
+	 * and waits until all of them have been analyzed
+	 * @param apkDir The directory that contains the APK files
+	 */
+	void runBatch(File apkDir) throws InterruptedException {
+		File[] apks = apkDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.toLowerCase().endsWith(".apk");
+			}
+
+		});
+		if (apks == null || apks.length == 0) {
+			System.err.println("No APK files found in " + apkDir);
+			return;
+		}
+		new File(outputDir).mkdirs();
+
+		final ConcurrentLinkedQueue<File> queue = new ConcurrentLinkedQueue<>(Arrays.asList(apks));
+		final long beforeBatch = System.nanoTime();
+		List<Thread> drivers = new ArrayList<>();
+		for (int i = 0; i < Math.min(threads, apks.length); i++) {
+			Thread driver = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					driveWorker(queue);
+				}
+
+			}, "BatchDriver-" + i);
+			driver.start();
+			drivers.add(driver);
+		}
+		for (Thread driver : drivers)
+			driver.join();
+		System.out.println(STATUS_PREFIX + " Analyzed " + apks.length + " apps in "
+				+ (System.nanoTime() - beforeBatch) / 1E9 + " seconds");
+	}
+
+	/**
+	 * Creates the command line that starts a worker JVM
+	 * @return The command line
+	 */
+	List<String> createWorkerCommand() {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-Xmx" + maxMemory + "m");
+		command.add("-XX:+ExitOnOutOfMemoryError");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BatchAnalysis.class.getName());
+		// The worker does not need the APK directory, it gets the apps on its
+		// standard input
+		command.add(WORKER_FLAG);
+		command.add("");
+		command.add(androidJar);
+		command.addAll(Arrays.asList("--timeout", Long.toString(timeout), "--sourcessinks", sourceSinkFile,
+				"--taintwrapper", taintWrapperFile, "--callbacks", callbackFile, "--output", outputDir));
+		return command;
+	}
+
+	/**
+	 * A worker JVM together with the thread that collects its status lines
+	 */
+	private class WorkerProcess {
+
+		private final Process process;
+		private final PrintWriter input;
+		private final BlockingQueue<String> status = new LinkedBlockingQueue<>();
+
+		WorkerProcess() throws IOException {
+			ProcessBuilder pb = new ProcessBuilder(createWorkerCommand());
+			pb.redirectErrorStream(true);
+			process = pb.start();
+			input = new PrintWriter(process.getOutputStream(), true);
+
+			Thread reader = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try (BufferedReader rdr = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+						String line;
+						while ((line = rdr.readLine()) != null) {
+							if (line.startsWith(STATUS_PREFIX))
+								status.add(line.substring(STATUS_PREFIX.length()).trim());
+						}
+					} catch (IOException e) {
+						// The worker is gone
+					}
+				}
+
+			});
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		void destroy() {
+			input.close();
+			process.destroyForcibly();
+		}
+
+	}
+
+	/**
+	 * Hands the apps from the queue to one worker JVM after another and
+	 * replaces the worker if it crashes or exceeds the time limit
+	 * @param queue The apps that still need to be analyzed
+	 */
+	private void driveWorker(ConcurrentLinkedQueue<File> queue) {
+		WorkerProcess worker = null;
+		File apk;
+		while ((apk = queue.poll()) != null) {
+			try {
+				if (worker == null)
+					worker = new WorkerProcess();
+				worker.input.println(apk.getAbsolutePath());
+
+				// The solvers stop by themselves after the timeout, so we
+				// only kill the worker if it hangs somewhere else. An
+				// out-of-memory error terminates the worker without a status
+				// line.
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout * 2 + 60);
+				String result = null;
+				while (result == null && System.nanoTime() < deadline) {
+					result = worker.status.poll(1, TimeUnit.SECONDS);
+					if (result == null && !worker.process.isAlive()) {
+						result = worker.status.poll(1, TimeUnit.SECONDS);
+						if (result == null)
+							result = "CRASHED";
+					}
+				}
+				if (result == null)
+					result = "TIMEOUT";
+				System.out.println(STATUS_PREFIX + " " + apk.getName() + " " + result);
+
+				if (result.equals("TIMEOUT") || !worker.process.isAlive()) {
+					worker.destroy();
+					worker = null;
+				}
+			} catch (IOException e) {
+				System.err.println("Could not start worker for " + apk.getName() + ": " + e.getMessage());
+				return;
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		if (worker != null) {
+			worker.input.close();
+			try {
+				worker.process.waitFor(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// We are shutting down anyway
+			}
+			worker.destroy();
+		}
+	}
+
+	/**
+	 * Reads APK files from standard input and analyzes them one after another,
+	 * reusing the inputs that are the same for all apps. The status lines are
+	 * written to standard output together with the analysis' own logging. The
+	 * driver only picks up the lines that start with the status prefix.
+	 */
+	private void runWorker() throws IOException {
+		ISourceSinkDefinitionProvider sourcesAndSinks = SetupApplication.createSourceSinkProvider(sourceSinkFile);
+		EasyTaintWrapper taintWrapper = new EasyTaintWrapper(taintWrapperFile);
+		Set<String> callbackClasses = AbstractCallbackAnalyzer.loadAndroidCallbacks(callbackFile);
+
+		BufferedReader rdr = new BufferedReader(new InputStreamReader(System.in));
+		String apk;
+		while ((apk = rdr.readLine()) != null) {
+			if (apk.isEmpty())
+				continue;
+			long beforeRun = System.nanoTime();
+			try {
+				InfoflowAndroidConfiguration config = new InfoflowAndroidConfiguration();
+				config.setDataFlowTimeout(timeout);
+				config.setPathReconstructionTimeout(timeout);
+
+				SetupApplication app = new SetupApplication(androidJar, apk);
+				app.setConfig(config);
+				app.setTaintWrapper(taintWrapper.clone());
+				app.setCallbackClasses(callbackClasses);
+				InfoflowResults results = app.runInfoflow(sourcesAndSinks);
+
+				String resultFile = new File(outputDir, new File(apk).getName() + ".xml").getPath();
+				new InfoflowResultsSerializer().serialize(results, resultFile);
+				System.out.println(STATUS_PREFIX + " DONE " + results.size() + " leaks in "
+						+ (System.nanoTime() - beforeRun) / 1E9 + " seconds");
+			} catch (Exception | StackOverflowError e) {
+				System.out.println(STATUS_PREFIX + " FAILED " + e.getClass().getSimpleName() + ": " + e.getMessage());
+			}
+			System.out.flush();
+		}
+	}
+
+}
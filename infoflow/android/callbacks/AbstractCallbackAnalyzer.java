@@ -102,7 +102,7 @@ public abstract class AbstractCallbackAnalyzer {
 	 * @return A set containing the names of the interfaces that are used to
 	 * implement Android callback handlers
 	 */
-	private static Set<String> loadAndroidCallbacks(String androidCallbackFile) throws IOException {
+	public static Set<String> loadAndroidCallbacks(String androidCallbackFile) throws IOException {
 		Set<String> androidCallbacks = new HashSet<String>();
 		BufferedReader rdr = null;
 		try {
@@ -144,6 +144,16 @@ public abstract class AbstractCallbackAnalyzer {
 		//
 	}
 	
+	/**
+	 * Makes the next run scan all code that is reachable from the components
+	 * and the callbacks found so far once more, instead of only the code of
+	 * the new callbacks. For analyses that do not skip any code, this method
+	 * does nothing.
+	 */
+	public void rescanAllCallbacks() {
+		//
+	}
+	
 	/**
 	 * Analyzes the given method and looks for callback registrations
 	 * @param lifecycleElement The lifecycle element (activity, etc.) with which
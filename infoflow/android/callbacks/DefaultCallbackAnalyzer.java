@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import soot.FastHierarchy;
 import soot.Kind;
 import soot.MethodOrMethodContext;
 import soot.PackManager;
@@ -19,11 +20,14 @@ import soot.SceneTransformer;
 import soot.SootClass;
 import soot.SootMethod;
 import soot.Transform;
+import soot.Type;
 import soot.Unit;
 import soot.Value;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.IntConstant;
 import soot.jimple.InvokeExpr;
+import soot.jimple.SpecialInvokeExpr;
+import soot.jimple.StaticInvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.android.InfoflowAndroidConfiguration;
 import soot.jimple.infoflow.android.callbacks.CallbackDefinition.CallbackType;
@@ -31,6 +35,7 @@ import soot.jimple.infoflow.entryPointCreators.AndroidEntryPointConstants;
 import soot.jimple.infoflow.entryPointCreators.AndroidEntryPointUtils;
 import soot.jimple.infoflow.memory.IMemoryBoundedSolver;
 import soot.jimple.infoflow.util.SystemClassHandler;
+import soot.jimple.toolkits.callgraph.CallGraph;
 import soot.jimple.toolkits.callgraph.Edge;
 import soot.jimple.toolkits.callgraph.EdgePredicate;
 import soot.jimple.toolkits.callgraph.Filter;
@@ -56,6 +61,10 @@ public class DefaultCallbackAnalyzer extends AbstractCallbackAnalyzer implements
 	private Set<IMemoryBoundedSolverStatusNotification> notificationListeners = new HashSet<>();
 	private boolean isKilled = false;
 	
+	private final MultiMap<SootClass, SootMethod> scannedMethods = new HashMultiMap<>();
+	private final Set<SootMethod> extendedMethods = new HashSet<>();
+	private boolean rescanning = false;
+	
 	public DefaultCallbackAnalyzer(InfoflowAndroidConfiguration config,
 			Set<SootClass> entryPointClasses) throws IOException {
 		super(config, entryPointClasses);
@@ -238,6 +247,12 @@ public class DefaultCallbackAnalyzer extends AbstractCallbackAnalyzer implements
 						List<MethodOrMethodContext> methods = new ArrayList
 								<MethodOrMethodContext>(getLifecycleMethods(sc));
 						
+						// When everything is scanned again, the callbacks we
+						// already know are entry points as well
+						if (rescanning)
+							for (CallbackDefinition cd : callbackMethods.get(sc))
+								methods.add(cd.getTargetMethod());
+						
 						// Check for callbacks registered in the code
 						analyzeRechableMethods(sc, methods);
 	
@@ -271,6 +286,11 @@ public class DefaultCallbackAnalyzer extends AbstractCallbackAnalyzer implements
 						for (SootMethod sm : callbacks)
 							entryClasses.add(sm);
 						
+						// If the callgraph has not been rebuilt for the new
+						// callbacks, we need to add them ourselves
+						if (isIncremental())
+							extendCallgraph(callbacks);
+						
 						analyzeRechableMethods(componentClass, entryClasses);
 						classIt.remove();
 					}
@@ -357,12 +377,110 @@ public class DefaultCallbackAnalyzer extends AbstractCallbackAnalyzer implements
 				break;
 
 			SootMethod method = reachableMethods.next().method();
+			
+			// If the callgraph is only extended, the points-to information
+			// does not change either, so scanning a method again for the same
+			// component cannot find anything new
+			if (isIncremental() && !scannedMethods.put(lifecycleElement, method))
+				continue;
+			
 			analyzeMethodForCallbackRegistrations(lifecycleElement, method);
 			analyzeMethodForDynamicBroadcastReceiver(method);
 			analyzeMethodForFragmentTransaction(lifecycleElement, method);
 		}
 	}
 	
+	/**
+	 * Gets whether the callgraph is currently only extended instead of being
+	 * rebuilt for new callbacks
+	 * @return True if the callgraph is extended incrementally, otherwise false
+	 */
+	private boolean isIncremental() {
+		return config.isIncrementalCallbackAnalysisEnabled() && !rescanning;
+	}
+	
+	/**
+	 * Scans all code that is reachable from the components and the callbacks
+	 * found so far once more in the next run. The incremental mode is left,
+	 * since the next run works on a callgraph that has been rebuilt for all
+	 * callbacks, and all later runs get a rebuilt callgraph as well.
+	 */
+	@Override
+	public void rescanAllCallbacks() {
+		rescanning = true;
+		scannedMethods.clear();
+		extendedMethods.clear();
+		callbackWorklist = null;
+	}
+	
+	/**
+	 * Adds the given callback methods and the code that is reachable from them
+	 * to the existing callgraph. Methods that are already part of the callgraph
+	 * keep their edges. The calls in all other methods are resolved based on
+	 * the class hierarchy.
+	 * @param callbacks The callback methods to add to the callgraph
+	 */
+	private void extendCallgraph(Collection<SootMethod> callbacks) {
+		CallGraph cg = Scene.v().getCallGraph();
+		ReachableMethods rm = Scene.v().getReachableMethods();
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		
+		List<SootMethod> worklist = new ArrayList<>(callbacks);
+		int edgeCount = 0;
+		while (!worklist.isEmpty()) {
+			SootMethod sm = worklist.remove(worklist.size() - 1);
+			if (rm.contains(sm) || !extendedMethods.add(sm))
+				continue;
+			if (!sm.isConcrete() || SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
+				continue;
+			
+			for (Unit u : sm.retrieveActiveBody().getUnits()) {
+				Stmt stmt = (Stmt) u;
+				if (!stmt.containsInvokeExpr())
+					continue;
+				for (SootMethod callee : getCallees(fh, stmt.getInvokeExpr())) {
+					// We do not look for callbacks in system classes anyway
+					if (SystemClassHandler.isClassInSystemPackage(callee.getDeclaringClass().getName()))
+						continue;
+					if (cg.addEdge(new Edge(sm, stmt, callee)))
+						edgeCount++;
+					worklist.add(callee);
+				}
+			}
+		}
+		logger.info("Added {} edges to the callgraph for {} callbacks", edgeCount, callbacks.size());
+	}
+	
+	/**
+	 * Gets the possible targets of the given call based on the class hierarchy
+	 * @param fh The class hierarchy
+	 * @param iexpr The invocation expression
+	 * @return The methods that the given call may invoke
+	 */
+	private Collection<SootMethod> getCallees(FastHierarchy fh, InvokeExpr iexpr) {
+		if (iexpr instanceof StaticInvokeExpr || iexpr instanceof SpecialInvokeExpr)
+			return Collections.singleton(iexpr.getMethod());
+		if (!(iexpr instanceof InstanceInvokeExpr))
+			return Collections.emptySet();
+		
+		SootMethod callee = iexpr.getMethod();
+		Type baseType = ((InstanceInvokeExpr) iexpr).getBase().getType();
+		if (!(baseType instanceof RefType))
+			return Collections.singleton(callee);
+		SootClass baseClass = ((RefType) baseType).getSootClass();
+		if (baseClass.isPhantom())
+			return Collections.singleton(callee);
+		try {
+			return fh.resolveAbstractDispatch(baseClass, callee);
+		} catch (RuntimeException ex) {
+			// The dispatch fails if a superclass or interface in the
+			// hierarchy is phantom. The final callgraph is built by SPARK
+			// anyway, so the declared callee is good enough.
+			logger.debug("Could not resolve the targets of {}, using the declared callee", iexpr, ex);
+			return Collections.singleton(callee);
+		}
+	}
+	
 	@Override
 	protected boolean checkAndAddMethod(SootMethod method, SootClass baseClass,
 			CallbackType callbackType) {
@@ -436,7 +554,8 @@ public class DefaultCallbackAnalyzer extends AbstractCallbackAnalyzer implements
 	@Override
 	public void excludeEntryPoint(SootClass entryPoint) {
 		super.excludeEntryPoint(entryPoint);
-		this.callbackWorklist.remove(entryPoint);
+		if (this.callbackWorklist != null)
+			this.callbackWorklist.remove(entryPoint);
 		this.callbackMethods.remove(entryPoint);
 	}
 	
@@ -10,9 +10,15 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.resources;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -239,6 +245,11 @@ public class ARSCFileParser extends AbstractResourceParser {
 	private final Map<Integer, String> stringTable = new HashMap<Integer, String>();
 	private final List<ResPackage> packages = new ArrayList<ResPackage>();
 	
+	private boolean lazyLoading = false;
+	private ByteBuffer resourceData = null;
+	private StringPool lazyStringTable = null;
+	private final Map<Integer, AbstractResource> lazyResources = new HashMap<Integer, AbstractResource>();
+	
 	public class ResPackage {
 		private int packageId;
 		private String packageName;
@@ -266,12 +277,26 @@ public class ARSCFileParser extends AbstractResourceParser {
 		private int id;
 		private String typeName;
 		private List<ResConfig> configurations = new ArrayList<ResConfig>();
+		
+		// Only used in the lazy mode
+		private int packageId;
+		private StringPool keyStrings;
+		private List<Integer> typeChunks;
+		private volatile boolean configurationsLoaded = false;
 
 		public String getTypeName() {
 			return this.typeName;
 		}
 		
 		public List<ResConfig> getConfigurations() {
+			if (this.typeChunks != null) {
+				synchronized (this) {
+					if (!this.configurationsLoaded) {
+						loadConfigurations(this);
+						this.configurationsLoaded = true;
+					}
+				}
+			}
 			return this.configurations;
 		}
 		
@@ -283,7 +308,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 */
 		public Collection<AbstractResource> getAllResources() {
 			Map<String, AbstractResource> resources = new HashMap<String, AbstractResource>();
-			for (ResConfig rc : this.configurations)
+			for (ResConfig rc : getConfigurations())
 				for (AbstractResource res : rc.getResources())
 					if (!resources.containsKey(res.resourceName))
 						resources.put(res.resourceName, res);
@@ -298,7 +323,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 * resource exists
 		 */
 		public AbstractResource getResourceByName(String resourceName) {
-			for (ResConfig rc : this.configurations)
+			for (ResConfig rc : getConfigurations())
 				for (AbstractResource res : rc.getResources())
 					if (res.getResourceName().equals(resourceName))
 						return res;
@@ -312,7 +337,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 * null
 		 */
 		public AbstractResource getFirstResource(String resourceName) {
-			for (ResConfig rc : this.configurations)
+			for (ResConfig rc : getConfigurations())
 				for (AbstractResource res : rc.getResources())
 					if (res.resourceName.equals(resourceName))
 						return res;
@@ -326,7 +351,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 * null
 		 */
 		public AbstractResource getFirstResource(int resourceID) {
-			for (ResConfig rc : this.configurations)
+			for (ResConfig rc : getConfigurations())
 				for (AbstractResource res : rc.getResources())
 					if (res.resourceID == resourceID)
 						return res;
@@ -1077,6 +1102,22 @@ public class ARSCFileParser extends AbstractResourceParser {
 	public ARSCFileParser() {
 	}
 	
+	/**
+	 * Sets whether the resource table shall be loaded lazily. In the lazy
+	 * mode, the resource table is extracted from the APK file once and mapped
+	 * into memory. Parsing only builds an index of the packages, types, and
+	 * configuration chunks. Resource entries and strings are decoded when they
+	 * are requested, either through {@link #findResource(int)} or when the
+	 * configurations of a type are accessed. Resource IDs are then derived
+	 * from the entry index as in aapt, i.e., entries with duplicate names in
+	 * the same type do not share an ID.
+	 * @param lazyLoading True if the resource table shall be loaded lazily,
+	 * false to decode all resources when parsing the file
+	 */
+	public void setLazyLoading(boolean lazyLoading) {
+		this.lazyLoading = lazyLoading;
+	}
+	
 	/**
 	 * Parses the resource definition file in the given APK 
 	 * @param apkFile The APK file in which to parse the resource definition file
@@ -1102,12 +1143,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 	}
 	
 	public void parse(InputStream stream) throws IOException {
-		readResourceHeader(stream);
+		if (lazyLoading)
+			mapResourceFile(stream);
+		else
+			readResourceHeader(stream);
 	}
 
 	private void readResourceHeader(InputStream stream) throws IOException {
-		final int BLOCK_SIZE = 2048;
-		
 		ResTable_Header resourceHeader = new ResTable_Header();
 		readChunkHeader(stream, resourceHeader.header);
 		resourceHeader.packageCount = readUInt32(stream);
@@ -1123,15 +1165,61 @@ public class ARSCFileParser extends AbstractResourceParser {
 		byte[] remainingData = new byte[remainingSize];
 		int totalBytesRead = 0;
 		while (totalBytesRead < remainingSize) {
-			byte[] block = new byte[Math.min(BLOCK_SIZE, remainingSize - totalBytesRead)];
-			int bytesRead = stream.read(block);
+			int bytesRead = stream.read(remainingData, totalBytesRead, remainingSize - totalBytesRead);
 			if (bytesRead < 0) {
 				System.err.println("Could not read block from resource file");
 				return;
 			}
-			System.arraycopy(block, 0, remainingData, totalBytesRead, bytesRead);
 			totalBytesRead += bytesRead;
 		}
+		readResourceTable(ByteBuffer.wrap(remainingData));
+	}
+	
+	/**
+	 * Copies the resource table into a temporary file and maps it into memory
+	 * for the lazy mode
+	 * @param stream The stream from which to read the resource table
+	 * @throws IOException Thrown if the resource table cannot be read
+	 */
+	private void mapResourceFile(InputStream stream) throws IOException {
+		File arscFile = File.createTempFile("resources", ".arsc");
+		try {
+			Files.copy(stream, arscFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			try (FileChannel channel = FileChannel.open(arscFile.toPath(), StandardOpenOption.READ)) {
+				// The mapping stays valid after the channel has been closed
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				
+				ResTable_Header resourceHeader = new ResTable_Header();
+				readChunkHeader(resourceHeader.header, buffer, 0);
+				resourceHeader.packageCount = readUInt32(buffer, 8);
+				
+				int remainingSize = Math.min(resourceHeader.header.size, buffer.limit())
+						- resourceHeader.header.headerSize;
+				if (remainingSize <= 0)
+					return;
+				
+				// Make the offsets relative to the end of the header as they are
+				// in the eager mode
+				buffer.position(resourceHeader.header.headerSize);
+				buffer.limit(resourceHeader.header.headerSize + remainingSize);
+				readResourceTable(buffer.slice());
+			}
+		}
+		finally {
+			// On some platforms, mapped files cannot be deleted
+			if (!arscFile.delete())
+				arscFile.deleteOnExit();
+		}
+	}
+	
+	/**
+	 * Reads the chunks of the resource table. In the lazy mode, only the
+	 * string pools and the offsets of the type chunks are recorded.
+	 * @param remainingData The resource table without its header
+	 * @throws IOException Thrown if the resource table cannot be read
+	 */
+	private void readResourceTable(ByteBuffer remainingData) throws IOException {
+		int remainingSize = remainingData.limit();
 		int offset = 0;
 		int beforeBlock = 0;
 		
@@ -1139,7 +1227,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		int packageCtr = 0;
 		Map<Integer, String> keyStrings = new HashMap<Integer, String>();
 		Map<Integer, String> typeStrings = new HashMap<Integer, String>();
-		while (offset < remainingData.length - 1) {
+		while (offset < remainingData.limit() - 1) {
 			beforeBlock = offset;
 			ResChunk_Header nextChunkHeader = new ResChunk_Header();
 			offset = readChunkHeader(nextChunkHeader, remainingData, offset);
@@ -1150,9 +1238,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 				offset = parseStringPoolHeader(stringPoolHeader, remainingData, offset);
 				
 				// Read the string data
-				offset = readStringTable(remainingData, offset, beforeBlock,
-						stringPoolHeader, this.stringTable);
-				assert this.stringTable.size() == stringPoolHeader.stringCount;
+				if (lazyLoading)
+					this.lazyStringTable = new StringPool(remainingData, offset, beforeBlock, stringPoolHeader);
+				else {
+					offset = readStringTable(remainingData, offset, beforeBlock,
+							stringPoolHeader, this.stringTable);
+					assert this.stringTable.size() == stringPoolHeader.stringCount;
+				}
 			}
 			else if (nextChunkHeader.type == RES_TABLE_PACKAGE_TYPE) {
 				// Read the package header
@@ -1174,6 +1266,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 				resPackage.packageId = packageTable.id;
 				resPackage.packageName = packageTable.name;
 				
+				StringPool lazyKeyStrings = null;
 				{
 				// Find the type strings
 				int typeStringsOffset = beforeBlock + packageTable.typeStrings;
@@ -1206,8 +1299,11 @@ public class ARSCFileParser extends AbstractResourceParser {
 				
 				// Attention: String offset starts at the beginning of the StringPool
 				// block, not the at the beginning of the Package block referring to it.
-				readStringTable(remainingData, keyStringsOffset, beforeStringBlock,
-						keyPool, keyStrings);
+				if (lazyLoading)
+					lazyKeyStrings = new StringPool(remainingData, keyStringsOffset, beforeStringBlock, keyPool);
+				else
+					readStringTable(remainingData, keyStringsOffset, beforeStringBlock,
+							keyPool, keyStrings);
 
 				// Jump to the end of the string block
 				offset = beforeStringBlock + keyPoolHeader.size;
@@ -1230,6 +1326,12 @@ public class ARSCFileParser extends AbstractResourceParser {
 						tp.id = typeSpecTable.id;
 						tp.typeName = typeStrings.get(typeSpecTable.id - 1);
 						resPackage.types.add(tp);
+						
+						if (lazyLoading) {
+							tp.packageId = packageTable.id;
+							tp.keyStrings = lazyKeyStrings;
+							tp.typeChunks = new ArrayList<Integer>();
+						}
 
 						// Normally, we also have a set of configurations following, but
 						// we don't implement that at the moment
@@ -1238,20 +1340,29 @@ public class ARSCFileParser extends AbstractResourceParser {
 						// Type resource entries. The id field maps to the type
 						// for which we have a record. We create a mapping from
 						// type IDs to declare resources.
-						ResTable_Type typeTable = new ResTable_Type();
-						typeTable.header = innerHeader;
-						offset = readTypeTable(typeTable, remainingData, offset);
-						assert offset == beforeInnerBlock + typeTable.header.headerSize;
-						
-						// Create the data object
+						int typeId = readUInt8(remainingData, offset);
 						ResType resType = null;
 						for (ResType rt : resPackage.types)
-							if (rt.id == typeTable.id) {
+							if (rt.id == typeId) {
 								resType = rt;
 								break;
 							}
 						if (resType == null)
 							throw new RuntimeException("Reference to undeclared type found");
+						
+						// In the lazy mode, we only remember where the entries are
+						if (lazyLoading) {
+							resType.typeChunks.add(beforeInnerBlock);
+							offset = beforeInnerBlock + innerHeader.size;
+							continue;
+						}
+						
+						ResTable_Type typeTable = new ResTable_Type();
+						typeTable.header = innerHeader;
+						offset = readTypeTable(typeTable, remainingData, offset);
+						assert offset == beforeInnerBlock + typeTable.header.headerSize;
+						
+						// Create the data object
 						ResConfig config = new ResConfig();
 						config.config = typeTable.config;
 						resType.configurations.add(config);
@@ -1269,30 +1380,10 @@ public class ARSCFileParser extends AbstractResourceParser {
 							ResTable_Entry entry = readEntryTable(remainingData, entryOffset);
 							entryOffset += entry.size;
 							
-							AbstractResource res;
-							
-							// If this is a simple entry, the data structure is
-							// followed by RES_VALUE
-							if (entry.flagsComplex) {
-								ComplexResource cmpRes = new ComplexResource();
-								res = cmpRes;
-								
-								for (int j = 0; j < ((ResTable_Map_Entry) entry).count; j++) {
-									ResTable_Map map = new ResTable_Map();
-									entryOffset = readComplexValue(map, remainingData, entryOffset);
-									cmpRes.value.put(map.name + "", parseValue(map.value));
-								}
-							}
-							else {
-								Res_Value val = new Res_Value();
-								entryOffset = readValue(val, remainingData, entryOffset);
-								res = parseValue(val);
-								if (res == null) {
-									System.err.println("Could not parse resource " + keyStrings.get(entry.key)
-											+ " of type " + Integer.toHexString(val.dataType) + ", skipping entry");
-									continue;
-								}
-							}
+							AbstractResource res = readEntryValue(entry, keyStrings.get(entry.key),
+									remainingData, entryOffset);
+							if (res == null)
+								continue;
 							
 							// Create the data object. For finding the correct ID, we
 							// must check whether the entry is really new - if so, it
@@ -1325,9 +1416,9 @@ public class ARSCFileParser extends AbstractResourceParser {
 				for (ResType resType : resPackage.types) {
 					if (DEBUG) {
 						System.out.println("\t\tType " + resType.typeName + " " + (resType.id - 1) + ", configCount="
-							+ resType.configurations.size() + ", entryCount="
-							+ (resType.configurations.size() > 0 ? resType.configurations.get(0).resources.size() : 0));
-						for (ResConfig resConfig : resType.configurations) {
+							+ resType.getConfigurations().size() + ", entryCount="
+							+ (resType.getConfigurations().size() > 0 ? resType.getConfigurations().get(0).resources.size() : 0));
+						for (ResConfig resConfig : resType.getConfigurations()) {
 							System.out.println("\t\t\tconfig");
 							for (AbstractResource res : resConfig.resources)
 								System.out.println("\t\t\t\tresource " + Integer.toHexString(res.resourceID)
@@ -1342,6 +1433,176 @@ public class ARSCFileParser extends AbstractResourceParser {
 			offset = beforeBlock + nextChunkHeader.size;
 			remainingSize -= nextChunkHeader.size;
 		}
+		
+		if (lazyLoading)
+			this.resourceData = remainingData;
+	}
+	
+	/**
+	 * Reads the value of a resource entry
+	 * @param entry The entry header
+	 * @param resourceName The name of the resource for error messages
+	 * @param data The resource table
+	 * @param entryOffset The offset right behind the entry header
+	 * @return The resource, without name and ID, or null if the value could
+	 * not be parsed
+	 * @throws IOException Thrown if the resource table cannot be read
+	 */
+	private AbstractResource readEntryValue(ResTable_Entry entry, String resourceName,
+			ByteBuffer data, int entryOffset) throws IOException {
+		// If this is a simple entry, the data structure is
+		// followed by RES_VALUE
+		if (entry.flagsComplex) {
+			ComplexResource cmpRes = new ComplexResource();
+			for (int j = 0; j < ((ResTable_Map_Entry) entry).count; j++) {
+				ResTable_Map map = new ResTable_Map();
+				entryOffset = readComplexValue(map, data, entryOffset);
+				cmpRes.value.put(map.name + "", parseValue(map.value));
+			}
+			return cmpRes;
+		}
+		
+		Res_Value val = new Res_Value();
+		readValue(val, data, entryOffset);
+		AbstractResource res = parseValue(val);
+		if (res == null)
+			System.err.println("Could not parse resource " + resourceName
+					+ " of type " + Integer.toHexString(val.dataType) + ", skipping entry");
+		return res;
+	}
+	
+	/**
+	 * Decodes all configurations of a type whose entries have not been read
+	 * yet in the lazy mode
+	 * @param resType The type to decode
+	 */
+	private void loadConfigurations(ResType resType) {
+		try {
+			for (int chunkOffset : resType.typeChunks) {
+				ResTable_Type typeTable = readLazyTypeTable(chunkOffset);
+				ResConfig config = new ResConfig();
+				config.config = typeTable.config;
+				resType.configurations.add(config);
+				
+				for (int i = 0; i < typeTable.entryCount; i++) {
+					AbstractResource res = readLazyEntry(resType, chunkOffset, typeTable, i);
+					if (res != null)
+						config.resources.add(res);
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new RuntimeException("Could not read resources of type " + resType.typeName, ex);
+		}
+	}
+	
+	/**
+	 * Decodes a single resource in the lazy mode. The first configuration that
+	 * contains the resource wins, as in {@link ResType#getFirstResource(int)}.
+	 * @param resType The type of the resource
+	 * @param itemIndex The index of the resource within its type
+	 * @return The resource if it exists, otherwise null
+	 */
+	private AbstractResource findLazyResource(ResType resType, int itemIndex) {
+		try {
+			for (int chunkOffset : resType.typeChunks) {
+				ResTable_Type typeTable = readLazyTypeTable(chunkOffset);
+				if (itemIndex < typeTable.entryCount) {
+					AbstractResource res = readLazyEntry(resType, chunkOffset, typeTable, itemIndex);
+					if (res != null)
+						return res;
+				}
+			}
+			return null;
+		}
+		catch (IOException ex) {
+			throw new RuntimeException("Could not read resources of type " + resType.typeName, ex);
+		}
+	}
+	
+	private ResTable_Type readLazyTypeTable(int chunkOffset) throws IOException {
+		ResTable_Type typeTable = new ResTable_Type();
+		typeTable.header = new ResChunk_Header();
+		int offset = readChunkHeader(typeTable.header, resourceData, chunkOffset);
+		readTypeTable(typeTable, resourceData, offset);
+		return typeTable;
+	}
+	
+	/**
+	 * Decodes one entry of a type chunk in the lazy mode
+	 * @param resType The type to which the entry belongs
+	 * @param chunkOffset The offset of the type chunk
+	 * @param typeTable The header of the type chunk
+	 * @param itemIndex The index of the entry
+	 * @return The resource, or null if there is no such entry or it cannot be
+	 * parsed
+	 * @throws IOException Thrown if the resource table cannot be read
+	 */
+	private AbstractResource readLazyEntry(ResType resType, int chunkOffset,
+			ResTable_Type typeTable, int itemIndex) throws IOException {
+		int entryOffset = readUInt32(resourceData, chunkOffset + typeTable.header.headerSize + itemIndex * 4);
+		if (entryOffset == 0xFFFFFFFF)	// NoEntry
+			return null;
+		
+		entryOffset += chunkOffset + typeTable.entriesStart;
+		ResTable_Entry entry = readEntryTable(resourceData, entryOffset);
+		String resourceName = resType.keyStrings.get(entry.key);
+		AbstractResource res = readEntryValue(entry, resourceName, resourceData, entryOffset + entry.size);
+		if (res == null)
+			return null;
+		
+		res.resourceName = resourceName == null ? "<INVALID RESOURCE>" : resourceName;
+		res.resourceID = (resType.packageId << 24) + (resType.id << 16) + itemIndex;
+		return res;
+	}
+	
+	/**
+	 * A string pool of the resource table that is only decoded on demand. It
+	 * replaces the string maps in the lazy mode.
+	 */
+	private class StringPool {
+		
+		private final ByteBuffer data;
+		private final int indexOffset;
+		private final int blockStart;
+		private final ResStringPool_Header header;
+		private final String[] strings;
+		
+		StringPool(ByteBuffer data, int indexOffset, int blockStart, ResStringPool_Header header) {
+			this.data = data;
+			this.indexOffset = indexOffset;
+			this.blockStart = blockStart;
+			this.header = header;
+			this.strings = new String[header.stringCount];
+		}
+		
+		String get(int idx) {
+			if (idx < 0 || idx >= strings.length)
+				return null;
+			
+			// Concurrent readers decode the same string at worst
+			String str = strings[idx];
+			if (str == null) {
+				try {
+					int stringIdx = readUInt32(data, indexOffset + idx * 4)
+							+ header.stringsStart + blockStart;
+					if (header.flagsUTF8)
+						str = readStringUTF8(data, stringIdx).trim();
+					else
+						str = readString(data, stringIdx).trim();
+				}
+				catch (IOException ex) {
+					throw new RuntimeException("Could not read string " + idx + " from resource table", ex);
+				}
+				strings[idx] = str;
+			}
+			return str;
+		}
+		
+		int size() {
+			return strings.length;
+		}
+		
 	}
 
 	/**
@@ -1388,7 +1649,8 @@ public class ARSCFileParser extends AbstractResourceParser {
 				res = new AttributeResource(val.data);
 				break;
 			case TYPE_STRING :
-				res = new StringResource(stringTable.get(val.data));
+				res = new StringResource(lazyStringTable != null
+						? lazyStringTable.get(val.data) : stringTable.get(val.data));
 				break;
 			case TYPE_INT_DEC:
 			case TYPE_INT_HEX:
@@ -1428,7 +1690,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readComplexValue
 			(ResTable_Map map,
-			byte[] remainingData,
+			ByteBuffer remainingData,
 			int offset) throws IOException {
 		map.name = readUInt32(remainingData, offset);
 		offset += 4;
@@ -1438,7 +1700,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readValue
 			(Res_Value val,
-			byte[] remainingData,
+			ByteBuffer remainingData,
 			int offset) throws IOException {
 		int initialOffset = offset;
 		
@@ -1462,7 +1724,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private ResTable_Entry readEntryTable(byte[] data, int offset) throws IOException {
+	private ResTable_Entry readEntryTable(ByteBuffer data, int offset) throws IOException {
 		// The exact type of entry depends on the size
 		int size = readUInt16(data, offset);
 		offset += 2;
@@ -1496,7 +1758,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readTypeTable
 			(ResTable_Type typeTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		typeTable.id = readUInt8(data, offset);
 		offset += 1;
@@ -1522,7 +1784,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readConfigTable
 			(ResTable_Config config,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		config.size = readUInt32(data, offset);
 		offset += 4;
@@ -1533,12 +1795,12 @@ public class ARSCFileParser extends AbstractResourceParser {
 		config.mnc = readUInt16(data, offset);
 		offset += 2;
 
-		config.language[0] = (char) data[offset];
-		config.language[1] = (char) data[offset + 1];
+		config.language[0] = (char) data.get(offset);
+		config.language[1] = (char) data.get(offset + 1);
 		offset += 2;
 		
-		config.country[0] = (char) data[offset];
-		config.country[1] = (char) data[offset + 1];
+		config.country[0] = (char) data.get(offset);
+		config.country[1] = (char) data.get(offset + 1);
 		offset += 2;
 		
 		config.orientation = readUInt8(data, offset);
@@ -1586,13 +1848,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 			return offset;
 
 		for (int i = 0; i < 4; i++)
-			config.localeScript[i] = (char) data[offset + i];
+			config.localeScript[i] = (char) data.get(offset + i);
 		offset += 4;
 		if (config.size <= 40)
 			return offset;
 		
 		for (int i = 0; i < 8; i++)
-			config.localeVariant[i] = (char) data[offset + i];
+			config.localeVariant[i] = (char) data.get(offset + i);
 		offset += 8;
 		if (config.size <= 48)
 			return offset;
@@ -1601,8 +1863,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		// Otherwise, we print a warning.
 		int remainingSize = config.size - 48;
 		if (remainingSize > 0) {
-			byte[] remainingBytes = new byte[remainingSize];
-			System.arraycopy(data, offset, remainingBytes, 0, remainingSize);
+			byte[] remainingBytes = readBytes(data, offset, remainingSize);
 			if (!(new BigInteger(1, remainingBytes).equals(BigInteger.ZERO))) {
 				logger.warn("Excessive non-null bytes in ResTable_Config ignored");
 				assert false;
@@ -1615,7 +1876,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readTypeSpecTable
 			(ResTable_TypeSpec typeSpecTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		typeSpecTable.id = readUInt8(data, offset);
 		offset += 1;
@@ -1637,7 +1898,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	}
 
 	private int readStringTable
-			(byte[] remainingData,
+			(ByteBuffer remainingData,
 			int offset,
 			int blockStart,
 			ResStringPool_Header stringPoolHeader,
@@ -1661,7 +1922,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int parsePackageTable
 			(ResTable_Package packageTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		packageTable.id = readUInt32(data, offset);
 		offset += 4;
@@ -1690,29 +1951,27 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private String readString(byte[] remainingData, int stringIdx) throws IOException {
+	private String readString(ByteBuffer remainingData, int stringIdx) throws IOException {
 		int strLen = readUInt16(remainingData, stringIdx);
 		if (strLen == 0)
 			return "";
 		stringIdx += 2;
-		byte[] str = new byte[strLen * 2];
-		System.arraycopy(remainingData, stringIdx, str, 0, strLen * 2);
-		return new String(remainingData, stringIdx, strLen * 2, "UTF-16LE");
+		return new String(readBytes(remainingData, stringIdx, strLen * 2), "UTF-16LE");
 	}
 
-	private String readStringUTF8(byte[] remainingData, int stringIdx) throws IOException {
+	private String readStringUTF8(ByteBuffer remainingData, int stringIdx) throws IOException {
 		// skip the length, will usually be 0x1A1A
 		// int strLen = readUInt16(remainingData, stringIdx);
 		// the length here is somehow weird
 		int strLen = readUInt8(remainingData, stringIdx + 1);
 		stringIdx += 2;
-		String str = new String(remainingData, stringIdx, strLen, "UTF-8");
+		String str = new String(readBytes(remainingData, stringIdx, strLen), "UTF-8");
 		return str;
 	}
 
 	private int parseStringPoolHeader
 			(ResStringPool_Header stringPoolHeader,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		stringPoolHeader.stringCount = readUInt32(data, offset);
 		stringPoolHeader.styleCount = readUInt32(data, offset + 4);
@@ -1738,7 +1997,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 			ResChunk_Header nextChunkHeader) throws IOException {
 		byte[] header = new byte[8];
 		stream.read(header);
-		readChunkHeader(nextChunkHeader, header, 0);
+		readChunkHeader(nextChunkHeader, ByteBuffer.wrap(header), 0);
 	}
 
 	/**
@@ -1751,7 +2010,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	 */
 	private int readChunkHeader
 			(ResChunk_Header nextChunkHeader,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		nextChunkHeader.type = readUInt16(data, offset);
 		offset += 2;
@@ -1765,33 +2024,52 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private int readUInt8(byte[] uint16, int offset) throws IOException {
-		int b0 = uint16[0 + offset] & 0x000000FF;
+	private int readUInt8(ByteBuffer uint16, int offset) throws IOException {
+		int b0 = uint16.get(0 + offset) & 0x000000FF;
 		return b0;
 	}
 
-	private int readUInt16(byte[] uint16, int offset) throws IOException {
-		int b0 = uint16[0 + offset] & 0x000000FF;
-		int b1 = uint16[1 + offset] & 0x000000FF;
+	private int readUInt16(ByteBuffer uint16, int offset) throws IOException {
+		int b0 = uint16.get(0 + offset) & 0x000000FF;
+		int b1 = uint16.get(1 + offset) & 0x000000FF;
 		return (b1 << 8) + b0;
 	}
 
 	private int readUInt32(InputStream stream) throws IOException {
 		byte[] uint32 = new byte[4];
 		stream.read(uint32);
-		return readUInt32(uint32, 0);
+		return readUInt32(ByteBuffer.wrap(uint32), 0);
 	}
 
-	private int readUInt32(byte[] uint32, int offset) throws IOException {
-		int b0 = uint32[0 + offset] & 0x000000FF;
-		int b1 = uint32[1 + offset] & 0x000000FF;
-		int b2 = uint32[2 + offset] & 0x000000FF;
-		int b3 = uint32[3 + offset] & 0x000000FF;
+	private int readUInt32(ByteBuffer uint32, int offset) throws IOException {
+		int b0 = uint32.get(0 + offset) & 0x000000FF;
+		int b1 = uint32.get(1 + offset) & 0x000000FF;
+		int b2 = uint32.get(2 + offset) & 0x000000FF;
+		int b3 = uint32.get(3 + offset) & 0x000000FF;
 		return (Math.abs(b3) << 24) + (Math.abs(b2) << 16)
 				+ (Math.abs(b1) << 8) + Math.abs(b0);
 	}
+
+	/**
+	 * Copies a range of bytes out of the resource data. Only absolute reads
+	 * are used, so that the same buffer can be shared between threads.
+	 * @param data The resource data
+	 * @param offset The offset of the first byte to copy
+	 * @param length The number of bytes to copy
+	 * @return The copied bytes
+	 */
+	private byte[] readBytes(ByteBuffer data, int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = data.get(offset + i);
+		return bytes;
+	}
 	
 	public Map<Integer, String> getGlobalStringPool() {
+		// In the lazy mode, we need to decode all strings now
+		if (lazyStringTable != null && stringTable.size() < lazyStringTable.size())
+			for (int i = 0; i < lazyStringTable.size(); i++)
+				stringTable.put(i, lazyStringTable.get(i));
 		return this.stringTable;
 	}
 	
@@ -1813,6 +2091,19 @@ public class ARSCFileParser extends AbstractResourceParser {
 			if (resPackage.packageId == id.packageId) {
 				for (ResType resType : resPackage.types)
 					if (resType.id == id.typeId) {
+						// In the lazy mode, we only decode the requested entry as
+						// long as nobody needs the complete type
+						if (resType.typeChunks != null && !resType.configurationsLoaded) {
+							synchronized (lazyResources) {
+								AbstractResource res = lazyResources.get(resourceId);
+								if (res == null) {
+									res = findLazyResource(resType, id.itemIndex);
+									if (res != null)
+										lazyResources.put(resourceId, res);
+								}
+								return res;
+							}
+						}
 						return resType.getFirstResource(resourceId);
 					}
 				break;
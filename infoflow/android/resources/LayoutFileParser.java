@@ -10,11 +10,21 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.resources;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import pxb.android.axml.AxmlVisitor;
 import soot.PackManager;
@@ -56,6 +66,13 @@ public class LayoutFileParser extends AbstractResourceParser {
 	private SootClass scViewGroup = null;
 	private SootClass scView = null;
 	private SootClass scWebView = null;
+	private int numThreads = 1;
+	
+	private final Map<String, SootClass> layoutClasses = new ConcurrentHashMap<>();
+	private final Set<String> unknownLayoutClasses = Collections.newSetFromMap(
+			new ConcurrentHashMap<String, Boolean>());
+	private final Map<SootClass, Boolean> viewClasses = new ConcurrentHashMap<>();
+	private final LayoutCollector directCollector = new LayoutCollector();
 	
 	private final static int TYPE_NUMBER_VARIATION_PASSWORD = 0x00000010;
 	private final static int TYPE_TEXT_VARIATION_PASSWORD = 0x00000080;
@@ -73,7 +90,29 @@ public class LayoutFileParser extends AbstractResourceParser {
 		return !(sc.isPhantom() && sc.getMethodCount() == 0 && sc.getFieldCount() == 0);
 	}
 	
+	/**
+	 * Gets the class for the given name from a layout file. Every name is only
+	 * resolved once, later lookups are answered from a table.
+	 * @param className The class name as it appears in the layout file
+	 * @return The class with the given name, or null if no such class exists
+	 */
 	private SootClass getLayoutClass(String className) {
+		SootClass sc = layoutClasses.get(className);
+		if (sc != null || unknownLayoutClasses.contains(className))
+			return sc;
+		
+		// Soot is not thread-safe
+		synchronized (layoutClasses) {
+			sc = resolveLayoutClass(className);
+			if (sc == null)
+				unknownLayoutClasses.add(className);
+			else
+				layoutClasses.put(className, sc);
+		}
+		return sc;
+	}
+	
+	private SootClass resolveLayoutClass(String className) {
 		// If the class name is a file name
 		
 		// Cut off some junk returned by the parser
@@ -134,6 +173,22 @@ public class LayoutFileParser extends AbstractResourceParser {
    		return false;
 	}
 	
+	/**
+	 * Checks whether the given class is a layout class or a view class. The
+	 * result is memoized for every class.
+	 * @param theClass The class to check
+	 * @return True if the given class is a layout or view class, otherwise
+	 * false
+	 */
+	private boolean isLayoutOrViewClass(SootClass theClass) {
+		Boolean isView = viewClasses.get(theClass);
+		if (isView == null) {
+			isView = isLayoutClass(theClass) || isViewClass(theClass);
+			viewClasses.put(theClass, isView);
+		}
+		return isView;
+	}
+	
 	/**
 	 * Checks whether the given namespace belongs to the Android operating system
 	 * @param ns The namespace to check
@@ -157,7 +212,8 @@ public class LayoutFileParser extends AbstractResourceParser {
 	 */
 	private void addCallbackMethod(String layoutFile, String callback) {
 		layoutFile = layoutFile.replace("/layout-large/", "/layout/");
-		callbackMethods.put(layoutFile, callback);
+		if (!callbackMethods.put(layoutFile, callback))
+			return;
 		
 		// Recursively process any dependencies we might have collected before
 		// we have processed the target
@@ -177,7 +233,8 @@ public class LayoutFileParser extends AbstractResourceParser {
 			return;
 		
 		layoutFile = layoutFile.replace("/layout-large/", "/layout/");
-		fragments.put(layoutFile, fragment);
+		if (!fragments.put(layoutFile, fragment))
+			return;
 		
 		// Recursively process any dependencies we might have collected before
 		// we have processed the target
@@ -209,6 +266,16 @@ public class LayoutFileParser extends AbstractResourceParser {
 	 * @param fileName The APK file in which to look for user controls
 	 */
 	public void parseLayoutFileDirect(final String fileName) {
+		// The classes may have been reloaded since the last run
+		layoutClasses.clear();
+		unknownLayoutClasses.clear();
+		viewClasses.clear();
+		
+		if (numThreads > 1) {
+			parseLayoutFilesParallel(fileName);
+			return;
+		}
+		
 		handleAndroidResourceFiles(fileName, /*classes,*/ null, new IResourceHandler() {
 				
 			@Override
@@ -245,7 +312,7 @@ public class LayoutFileParser extends AbstractResourceParser {
 				
 				try {
 					AXmlHandler handler = new AXmlHandler(stream, new AXML20Parser());
-					parseLayoutNode(fileName, handler.getDocument().getRootNode());
+					parseLayoutNode(fileName, handler.getDocument().getRootNode(), directCollector);
 					if (!userControls.isEmpty())
 						System.out.println("Found " + userControls.size() + " layout controls in file "
 								+ fileName);
@@ -258,12 +325,331 @@ public class LayoutFileParser extends AbstractResourceParser {
 		});
 	}
 
+	/**
+	 * Parses all layout XML files in the given APK file on multiple threads.
+	 * The files are read from the APK one after another, but decoded and
+	 * walked in parallel. Since Soot is not thread-safe, the view classes are
+	 * resolved in between, once per class name. Inclusions are only resolved
+	 * once all files have been parsed, so that the result does not depend on
+	 * the order of the files in the APK.
+	 * @param fileName The APK file in which to look for user controls
+	 */
+	private void parseLayoutFilesParallel(String fileName) {
+		final List<String> layoutFiles = new ArrayList<>();
+		final List<byte[]> layoutData = new ArrayList<>();
+		handleAndroidResourceFiles(fileName, null, new IResourceHandler() {
+			
+			@Override
+			public void handleResourceFile(String fileName, Set<String> fileNameFilter, InputStream stream) {
+				// We only process valid layout XML files
+				if (!fileName.startsWith("res/layout"))
+					return;
+				if (!fileName.endsWith(".xml")) {
+					System.err.println("Skipping file " + fileName + " in layout folder...");
+					return;
+				}
+				
+				try {
+					layoutData.add(readFully(stream));
+					layoutFiles.add(fileName);
+				}
+				catch (IOException ex) {
+					System.err.println("Could not read layout file " + fileName + ": " + ex.getMessage());
+				}
+			}
+		});
+		if (layoutFiles.isEmpty())
+			return;
+		
+		// Initialize the Soot classes
+		scViewGroup = Scene.v().getSootClassUnsafe("android.view.ViewGroup");
+		scView = Scene.v().getSootClassUnsafe("android.view.View");
+		scWebView = Scene.v().getSootClassUnsafe("android.webkit.WebView");
+		
+		AXmlNode[] rootNodes = new AXmlNode[layoutFiles.size()];
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			Set<String> classNames = pool.invoke(new DecodeLayoutTask(layoutFiles, layoutData, rootNodes,
+					0, rootNodes.length));
+			layoutData.clear();
+			
+			// Resolve all classes up front, the workers then only read the
+			// memoized results
+			for (String className : classNames) {
+				SootClass sc = getLayoutClass(className);
+				if (sc != null)
+					isLayoutOrViewClass(sc);
+			}
+			
+			mergeLayoutResults(pool.invoke(new ParseLayoutTask(layoutFiles, rootNodes, 0, rootNodes.length)));
+		}
+		finally {
+			pool.shutdown();
+		}
+		
+		if (!userControls.isEmpty())
+			System.out.println("Found " + userControls.size() + " layout controls in "
+					+ layoutFiles.size() + " layout files");
+	}
+	
+	/**
+	 * Reads the given stream to its end
+	 * @param stream The stream to read
+	 * @return The data read from the stream
+	 * @throws IOException Thrown if the stream cannot be read
+	 */
+	private byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+		while ((len = stream.read(buffer)) != -1)
+			bos.write(buffer, 0, len);
+		return bos.toByteArray();
+	}
+	
+	/**
+	 * Collects the names of all classes that the given layout node and its
+	 * children refer to, in the same way in which {@link #parseLayoutNode}
+	 * looks them up
+	 * @param node The node from where to start collecting
+	 * @param classNames The set to which to add the class names
+	 */
+	private void collectLayoutClassNames(AXmlNode node, Set<String> classNames) {
+		if (node.getTag() == null || node.getTag().isEmpty())
+			return;
+		
+		String tname = node.getTag().trim();
+		if (tname.equals("fragment")) {
+			final AXmlAttribute<?> attr = node.getAttribute("name");
+			if (attr != null && attr.getValue() != null)
+				classNames.add(attr.getValue().toString());
+		}
+		else if (!tname.equals("dummy") && !tname.equals("include") && !tname.equals("merge"))
+			classNames.add(tname);
+		
+		for (AXmlNode childNode : node.getChildren())
+			collectLayoutClassNames(childNode, classNames);
+	}
+	
+	/**
+	 * Adds the results of the parallel parsing to the result maps and resolves
+	 * the inclusions between the layout files
+	 * @param res The results of all layout files
+	 */
+	private void mergeLayoutResults(PartialLayoutCollector res) {
+		// Record all inclusions first, so that the callbacks and fragments of
+		// an included file reach the including file regardless of the order
+		// in which the files have been parsed
+		for (String targetFile : res.includes.keySet())
+			for (String layoutFile : res.includes.get(targetFile))
+				includeDependencies.put(targetFile, layoutFile);
+		
+		for (String layoutFile : res.controls.keySet())
+			for (LayoutControl control : res.controls.get(layoutFile))
+				userControls.put(layoutFile, control);
+		for (String layoutFile : res.callbacks.keySet())
+			for (String callback : res.callbacks.get(layoutFile))
+				addCallbackMethod(layoutFile, callback);
+		for (String layoutFile : res.foundFragments.keySet())
+			for (SootClass fragment : res.foundFragments.get(layoutFile))
+				addFragment(layoutFile, fragment);
+	}
+	
+	/**
+	 * Receives the user controls, callbacks, fragments, and inclusions found
+	 * while walking a layout file. This implementation directly adds them to
+	 * the results of the parser.
+	 */
+	private class LayoutCollector {
+		
+		void addUserControl(String layoutFile, LayoutControl control) {
+			userControls.put(layoutFile, control);
+		}
+		
+		void addCallback(String layoutFile, String callback) {
+			addCallbackMethod(layoutFile, callback);
+		}
+		
+		void addLayoutFragment(String layoutFile, SootClass fragment) {
+			addFragment(layoutFile, fragment);
+		}
+		
+		void addInclude(String layoutFile, String targetFile) {
+			// If we have already processed the target file, we can
+			// simply copy the callbacks we have found there
+			if (callbackMethods.containsKey(targetFile))
+				for (String callback : callbackMethods.get(targetFile))
+					addCallbackMethod(layoutFile, callback);
+			else {
+				// We need to record a dependency to resolve later
+				includeDependencies.put(targetFile, layoutFile);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Collects the results of a part of the layout files in maps of its own,
+	 * so that several files can be walked at the same time
+	 */
+	private class PartialLayoutCollector extends LayoutCollector {
+		
+		final MultiMap<String, LayoutControl> controls = new HashMultiMap<>();
+		final MultiMap<String, String> callbacks = new HashMultiMap<>();
+		final MultiMap<String, SootClass> foundFragments = new HashMultiMap<>();
+		final MultiMap<String, String> includes = new HashMultiMap<>();
+		
+		@Override
+		void addUserControl(String layoutFile, LayoutControl control) {
+			controls.put(layoutFile, control);
+		}
+		
+		@Override
+		void addCallback(String layoutFile, String callback) {
+			callbacks.put(layoutFile, callback);
+		}
+		
+		@Override
+		void addLayoutFragment(String layoutFile, SootClass fragment) {
+			if (fragment != null)
+				foundFragments.put(layoutFile, fragment);
+		}
+		
+		@Override
+		void addInclude(String layoutFile, String targetFile) {
+			includes.put(targetFile, layoutFile);
+		}
+		
+		void merge(PartialLayoutCollector other) {
+			for (String layoutFile : other.controls.keySet())
+				for (LayoutControl control : other.controls.get(layoutFile))
+					controls.put(layoutFile, control);
+			for (String layoutFile : other.callbacks.keySet())
+				for (String callback : other.callbacks.get(layoutFile))
+					callbacks.put(layoutFile, callback);
+			for (String layoutFile : other.foundFragments.keySet())
+				for (SootClass fragment : other.foundFragments.get(layoutFile))
+					foundFragments.put(layoutFile, fragment);
+			for (String targetFile : other.includes.keySet())
+				for (String layoutFile : other.includes.get(targetFile))
+					includes.put(targetFile, layoutFile);
+		}
+		
+	}
+	
+	/**
+	 * Splits the layout files into halves until the shard is small enough and
+	 * decodes the binary XML files of one shard. Returns the names of all
+	 * classes referenced in the shard.
+	 */
+	private class DecodeLayoutTask extends RecursiveTask<Set<String>> {
+		
+		private static final int THRESHOLD = 16;
+		
+		private final List<String> layoutFiles;
+		private final List<byte[]> layoutData;
+		private final AXmlNode[] rootNodes;
+		private final int from;
+		private final int to;
+		
+		DecodeLayoutTask(List<String> layoutFiles, List<byte[]> layoutData, AXmlNode[] rootNodes,
+				int from, int to) {
+			this.layoutFiles = layoutFiles;
+			this.layoutData = layoutData;
+			this.rootNodes = rootNodes;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Set<String> compute() {
+			if (to - from <= THRESHOLD) {
+				Set<String> classNames = new LinkedHashSet<>();
+				for (int i = from; i < to; i++) {
+					try {
+						AXmlHandler handler = new AXmlHandler(new ByteArrayInputStream(layoutData.get(i)),
+								new AXML20Parser());
+						rootNodes[i] = handler.getDocument().getRootNode();
+						collectLayoutClassNames(rootNodes[i], classNames);
+					}
+					catch (Exception ex) {
+						System.err.println("Could not read binary XML file " + layoutFiles.get(i) + ": "
+								+ ex.getMessage());
+						ex.printStackTrace();
+						rootNodes[i] = null;
+					}
+				}
+				return classNames;
+			}
+			
+			int mid = (from + to) >>> 1;
+			DecodeLayoutTask left = new DecodeLayoutTask(layoutFiles, layoutData, rootNodes, from, mid);
+			DecodeLayoutTask right = new DecodeLayoutTask(layoutFiles, layoutData, rootNodes, mid, to);
+			right.fork();
+			Set<String> classNames = left.compute();
+			classNames.addAll(right.join());
+			return classNames;
+		}
+		
+	}
+	
+	/**
+	 * Splits the decoded layout files into halves until the shard is small
+	 * enough and walks the files of one shard
+	 */
+	private class ParseLayoutTask extends RecursiveTask<PartialLayoutCollector> {
+		
+		private static final int THRESHOLD = 16;
+		
+		private final List<String> layoutFiles;
+		private final AXmlNode[] rootNodes;
+		private final int from;
+		private final int to;
+		
+		ParseLayoutTask(List<String> layoutFiles, AXmlNode[] rootNodes, int from, int to) {
+			this.layoutFiles = layoutFiles;
+			this.rootNodes = rootNodes;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected PartialLayoutCollector compute() {
+			if (to - from <= THRESHOLD) {
+				PartialLayoutCollector res = new PartialLayoutCollector();
+				for (int i = from; i < to; i++) {
+					if (rootNodes[i] == null)
+						continue;
+					try {
+						parseLayoutNode(layoutFiles.get(i), rootNodes[i], res);
+					}
+					catch (Exception ex) {
+						System.err.println("Could not read binary XML file " + layoutFiles.get(i) + ": "
+								+ ex.getMessage());
+						ex.printStackTrace();
+					}
+				}
+				return res;
+			}
+			
+			int mid = (from + to) >>> 1;
+			ParseLayoutTask left = new ParseLayoutTask(layoutFiles, rootNodes, from, mid);
+			ParseLayoutTask right = new ParseLayoutTask(layoutFiles, rootNodes, mid, to);
+			right.fork();
+			PartialLayoutCollector res = left.compute();
+			res.merge(right.join());
+			return res;
+		}
+		
+	}
+
 	/**
 	 * Parses the layout file with the given root node
 	 * @param layoutFile The full path and file name of the file being parsed
 	 * @param rootNode The root node from where to start parsing
+	 * @param collector The collector that receives the results
 	 */
-	private void parseLayoutNode(String layoutFile, AXmlNode rootNode) {
+	private void parseLayoutNode(String layoutFile, AXmlNode rootNode, LayoutCollector collector) {
 		if (rootNode.getTag() == null || rootNode.getTag().isEmpty()) {
 			System.err.println("Encountered a null or empty node name "
 					+ "in file " + layoutFile + ", skipping node...");
@@ -276,7 +662,7 @@ public class LayoutFileParser extends AbstractResourceParser {
 		}
 		// Check for inclusions
 		else if (tname.equals("include")) {
-			parseIncludeAttributes(layoutFile, rootNode);
+			parseIncludeAttributes(layoutFile, rootNode, collector);
 		}
 		// The "merge" tag merges the next hierarchy level into the current
 		// one for flattening hierarchies.
@@ -290,7 +676,7 @@ public class LayoutFileParser extends AbstractResourceParser {
 			if (attr == null)
 				System.err.println("Fragment without class name or id detected");
 			else {
-				addFragment(layoutFile, getLayoutClass(attr.getValue().toString()));
+				collector.addLayoutFragment(layoutFile, getLayoutClass(attr.getValue().toString()));
 				if (attr.getType() != AxmlVisitor.TYPE_STRING)
 					System.err.println("Invalid target resource "+ attr.getValue()
 							+ "for fragment class value");
@@ -299,21 +685,22 @@ public class LayoutFileParser extends AbstractResourceParser {
 		}
 		else {
 			final SootClass childClass = getLayoutClass(tname);
-			if (childClass != null && (isLayoutClass(childClass) || isViewClass(childClass)))
-				parseLayoutAttributes(layoutFile, childClass, rootNode);
+			if (childClass != null && isLayoutOrViewClass(childClass))
+				parseLayoutAttributes(layoutFile, childClass, rootNode, collector);
 		}
 
 		// Parse the child nodes
 		for (AXmlNode childNode : rootNode.getChildren())
-			parseLayoutNode(layoutFile, childNode);
+			parseLayoutNode(layoutFile, childNode, collector);
 	}
 	
 	/**
 	 * Parses the attributes required for a layout file inclusion
 	 * @param layoutFile The full path and file name of the file being parsed
 	 * @param rootNode The AXml node containing the attributes
+	 * @param collector The collector that receives the inclusion
 	 */
-	private void parseIncludeAttributes(String layoutFile, AXmlNode rootNode) {
+	private void parseIncludeAttributes(String layoutFile, AXmlNode rootNode, LayoutCollector collector) {
 		for (Entry<String, AXmlAttribute<?>> entry : rootNode.getAttributes().entrySet()) {
 			String attrName = entry.getKey().trim();
 			AXmlAttribute<?> attr = entry.getValue();
@@ -333,16 +720,7 @@ public class LayoutFileParser extends AbstractResourceParser {
     					return;
     				}
     				String targetFile = ((StringResource) targetRes).getValue();
-    				
-    				// If we have already processed the target file, we can
-    				// simply copy the callbacks we have found there
-        			if (callbackMethods.containsKey(targetFile))
-        				for (String callback : callbackMethods.get(targetFile))
-        					addCallbackMethod(layoutFile, callback);
-        			else {
-        				// We need to record a dependency to resolve later
-        				includeDependencies.put(targetFile, layoutFile);
-        			}
+    				collector.addInclude(layoutFile, targetFile);
     			}
     		}
 		}
@@ -353,8 +731,10 @@ public class LayoutFileParser extends AbstractResourceParser {
 	 * @param layoutFile The full path and file name of the file being parsed
 	 * @param layoutClass The class for the attributes are parsed
 	 * @param rootNode The AXml node containing the attributes
+	 * @param collector The collector that receives the results
 	 */
-	private void parseLayoutAttributes(String layoutFile, SootClass layoutClass, AXmlNode rootNode) {
+	private void parseLayoutAttributes(String layoutFile, SootClass layoutClass, AXmlNode rootNode,
+			LayoutCollector collector) {
 		boolean isSensitive = false;
 		int id = -1;
 		Map<String, Object> additionalAttributes = loadAdditionalAttributes
@@ -398,7 +778,7 @@ public class LayoutFileParser extends AbstractResourceParser {
 					&& attr.getType() == AxmlVisitor.TYPE_STRING
 					&& attr.getValue() instanceof String) {
 				String strData = ((String) attr.getValue()).trim();
-				addCallbackMethod(layoutFile, strData);
+				collector.addCallback(layoutFile, strData);
 			}
 			else if (attr.getType() == AxmlVisitor.TYPE_STRING && attrName.equals("text")) {
 				// To avoid unrecognized attribute for "text" field
@@ -413,7 +793,7 @@ public class LayoutFileParser extends AbstractResourceParser {
 		
 		// Register the new user control
 		if (!loadOnlySensitiveControls || isSensitive)
-				this.userControls.put(layoutFile, new LayoutControl(id, layoutClass,
+				collector.addUserControl(layoutFile, new LayoutControl(id, layoutClass,
 						isSensitive, additionalAttributes));
 	}
 
@@ -500,4 +880,13 @@ public class LayoutFileParser extends AbstractResourceParser {
 		this.loadAdditionalAttributes = loadAdditionalAttributes;
 	}
 	
+	/**
+	 * Sets the number of threads with which to parse the layout XML files.
+	 * With more than one thread, the files are decoded and walked in parallel.
+	 * @param numThreads The number of threads to use
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+	
 }
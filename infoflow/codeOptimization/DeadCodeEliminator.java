@@ -76,6 +76,11 @@ public class DeadCodeEliminator implements ICodeOptimizer {
 		ipcvp.setRemoveSideEffectFreeMethods(config.getCodeEliminationMode()
 				== CodeEliminationMode.RemoveSideEffectFreeCode && !config.getEnableImplicitFlows());
 		ipcvp.setExcludeSystemClasses(config.getIgnoreFlowsInSystemPackages());
+		if (config.isParallelConstantPropagationEnabled()) {
+			int numThreads = Runtime.getRuntime().availableProcessors();
+			ipcvp.setNumThreads(config.getMaxThreadNum() == -1 ? numThreads
+					: Math.min(config.getMaxThreadNum(), numThreads));
+		}
 		ipcvp.transform();
 		
 		// Get rid of all dead code
@@ -6,10 +6,14 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +83,7 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	private final ITaintPropagationWrapper taintWrapper;
 	private boolean removeSideEffectFreeMethods = true;
 	private boolean excludeSystemClasses = true;
+	private int numThreads = 1;
 	
 	protected final Map<SootMethod, Boolean> methodSideEffects = new ConcurrentHashMap<>();
 	protected final Map<SootMethod, Boolean> methodSinks = new ConcurrentHashMap<>();
@@ -87,8 +92,10 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	protected SootClass exceptionClass = null;
 	protected final Map<SootClass, SootMethod> exceptionThrowers = new HashMap<>();
 	
-	private final List<SootMethod> propagationWorklist = new ArrayList<>();
-	private final Set<Pair<SootMethod, Integer>> propagatedParameters = new HashSet<>();
+	private final Set<SootMethod> propagationWorklist =
+			Collections.synchronizedSet(new LinkedHashSet<SootMethod>());
+	private final Set<Pair<SootMethod, Integer>> propagatedParameters =
+			Collections.newSetFromMap(new ConcurrentHashMap<Pair<SootMethod, Integer>, Boolean>());
 	
 	/**
 	 * Creates a new instance of the {@link InterproceduralConstantValuePropagator}
@@ -144,6 +151,19 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		this.excludeSystemClasses = excludeSystemClasses;
 	}
 	
+	/**
+	 * Sets the number of threads with which the methods on the worklist shall
+	 * be processed. With more than one thread, the worklist is processed in
+	 * rounds. In every round, the constants are first computed for all methods
+	 * on the worklist in parallel. The resulting rewrites are then grouped by
+	 * the method body they modify and applied in parallel, one task per body.
+	 * @param numThreads The number of threads to use. With one thread, the
+	 * worklist is processed sequentially.
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+	
 	/**
 	 * Checks whether optimizations are possible for the given method and, if
 	 * so, adds it to the global worklist
@@ -160,9 +180,36 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 				&& SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
 			return;
 		
-		if (sm.getReturnType() != VoidType.v() || sm.getParameterCount() > 0) {
-			if (!propagationWorklist.contains(sm))
-				propagationWorklist.add(sm);
+		if (sm.getReturnType() != VoidType.v() || sm.getParameterCount() > 0)
+			propagationWorklist.add(sm);
+	}
+	
+	/**
+	 * Removes the oldest method from the worklist
+	 * @return The oldest method on the worklist, or null if the worklist is
+	 * empty
+	 */
+	private SootMethod pollWorklist() {
+		synchronized (propagationWorklist) {
+			Iterator<SootMethod> it = propagationWorklist.iterator();
+			if (!it.hasNext())
+				return null;
+			SootMethod sm = it.next();
+			it.remove();
+			return sm;
+		}
+	}
+	
+	/**
+	 * Removes all methods from the worklist
+	 * @return The methods that were on the worklist in the order in which
+	 * they were added
+	 */
+	private List<SootMethod> drainWorklist() {
+		synchronized (propagationWorklist) {
+			List<SootMethod> methods = new ArrayList<>(propagationWorklist);
+			propagationWorklist.clear();
+			return methods;
 		}
 	}
 	
@@ -184,16 +231,19 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 			checkAndAddMethod(sm);
 		}
 		
-		while (!propagationWorklist.isEmpty()) {
-			SootMethod sm = propagationWorklist.remove(0);
-			
-			// Propagate constants from caller into callee
-			if (sm.getParameterCount() > 0)
-				propagateConstantsIntoCallee(sm);
-			
-			// Propagate constant return values from callee to caller
-			if (typeSupportsConstants(sm.getReturnType()))
-				propagateReturnValueIntoCallers(sm);
+		if (numThreads > 1)
+			propagateConstantsParallel();
+		else {
+			SootMethod sm;
+			while ((sm = pollWorklist()) != null) {
+				// Propagate constants from caller into callee
+				if (sm.getParameterCount() > 0)
+					propagateConstantsIntoCallee(sm);
+				
+				// Propagate constant return values from callee to caller
+				if (typeSupportsConstants(sm.getReturnType()))
+					propagateReturnValueIntoCallers(sm);
+			}
 		}
 		
 		// Check for calls we can remove altogether
@@ -272,6 +322,321 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		}
 	}
 	
+	/**
+	 * Processes the worklist in rounds over multiple threads. Every round
+	 * consists of two phases. First, the constant arguments and return values
+	 * of all methods on the worklist are computed in parallel without modifying
+	 * any code. The resulting rewrites are then grouped by the method body they
+	 * modify, so that every body is only touched by a single task, and only
+	 * needs to be folded once per round. Changes to the callgraph are collected
+	 * and applied after all bodies have been rewritten. Methods that might
+	 * profit from the new constants are put on the worklist for the next round.
+	 */
+	private void propagateConstantsParallel() {
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		int rounds = 0;
+		try {
+			List<SootMethod> methods;
+			while (!(methods = drainWorklist()).isEmpty()) {
+				rounds++;
+				
+				// Compute the constants
+				List<MethodPlan> plans = pool.invoke(new PlanTask(methods, 0, methods.size()));
+				
+				// Group the rewrites by the body they modify
+				Map<SootMethod, BodyRewrites> rewritesByMethod = new LinkedHashMap<>();
+				for (MethodPlan plan : plans) {
+					if (plan.parameterValues != null)
+						getBodyRewrites(rewritesByMethod, plan.method).parameterValues = plan.parameterValues;
+					if (plan.callSites != null)
+						for (AssignStmt assign : plan.callSites) {
+							SootMethod caller = manager.getICFG().getMethodOf(assign);
+							BodyRewrites rewrites = getBodyRewrites(rewritesByMethod, caller);
+							if (plan.keepCalls)
+								rewrites.keptCalls.add(new Pair<>(assign, plan.returnValue));
+							else
+								rewrites.removedCalls.add(new Pair<>(assign, plan.returnValue));
+						}
+				}
+				if (rewritesByMethod.isEmpty())
+					continue;
+				
+				// Adding classes and methods to the Scene is not thread-safe,
+				// so the exception throwers for the removed calls are
+				// created before the bodies are rewritten
+				List<BodyRewrites> rewrites = new ArrayList<>(rewritesByMethod.values());
+				for (BodyRewrites rewrite : rewrites)
+					for (Pair<AssignStmt, Constant> call : rewrite.removedCalls)
+						if (rewrite.method.getActiveBody().getUnits().contains(call.getO1()))
+							for (Trap t : getCatchingTraps(rewrite.method, call.getO1(), new HashSet<SootClass>()))
+								getExceptionThrower(t);
+				
+				// Rewrite the bodies
+				CallgraphUpdates updates = pool.invoke(new RewriteTask(rewrites, 0, rewrites.size()));
+				
+				// Fix the callgraph
+				if (Scene.v().hasCallGraph()) {
+					for (Unit callSite : updates.removedCallSites)
+						Scene.v().getCallGraph().removeAllEdgesOutOf(callSite);
+					for (Pair<Unit, Unit> swap : updates.swappedCallSites)
+						Scene.v().getCallGraph().swapEdgesOutOf(swap.getO1(), swap.getO2());
+				}
+				
+				// Constant parameters might lead to more opportunities of
+				// constant propagation. We only look at the callees once the
+				// callgraph is up to date.
+				for (SootMethod sm : updates.changedMethods)
+					addCalleesToWorklist(sm);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		logger.info("Interprocedural constant propagation finished after " + rounds
+				+ " rounds on " + numThreads + " threads");
+	}
+	
+	private BodyRewrites getBodyRewrites(Map<SootMethod, BodyRewrites> rewritesByMethod, SootMethod sm) {
+		BodyRewrites rewrites = rewritesByMethod.get(sm);
+		if (rewrites == null) {
+			rewrites = new BodyRewrites(sm);
+			rewritesByMethod.put(sm, rewrites);
+		}
+		return rewrites;
+	}
+	
+	/**
+	 * Computes the constants that can be propagated out of and into the given
+	 * method without modifying any code
+	 * @param sm The method to check
+	 * @return The constants that can be propagated
+	 */
+	private MethodPlan planPropagation(SootMethod sm) {
+		MethodPlan plan = new MethodPlan(sm);
+		
+		// Propagate constants from caller into callee. As in the sequential
+		// mode, nothing is propagated into excluded methods.
+		if (sm.getParameterCount() > 0
+				&& (excludedMethods == null || !excludedMethods.contains(sm)))
+			plan.parameterValues = getConstantArguments(sm);
+		
+		// Propagate constant return values from callee to caller
+		if (typeSupportsConstants(sm.getReturnType())) {
+			Constant value = getConstantReturnValue(sm);
+			if (value != null) {
+				for (Unit callSite : manager.getICFG().getCallersOf(sm))
+					if (callSite instanceof AssignStmt && canReplaceReturnValue((AssignStmt) callSite)) {
+						if (plan.callSites == null)
+							plan.callSites = new ArrayList<>();
+						plan.callSites.add((AssignStmt) callSite);
+					}
+				if (plan.callSites != null) {
+					plan.returnValue = value;
+					plan.keepCalls = hasSideEffectsOrCallsSink(sm);
+				}
+			}
+		}
+		return plan;
+	}
+	
+	/**
+	 * Applies all rewrites that have been planned for one method body in the
+	 * current round. This only modifies the given body, so the bodies of
+	 * different methods can be rewritten concurrently.
+	 * @param rewrites The rewrites to apply
+	 * @return The changes to the callgraph that are necessary due to the
+	 * rewrites
+	 */
+	private CallgraphUpdates applyRewrites(BodyRewrites rewrites) {
+		CallgraphUpdates updates = new CallgraphUpdates();
+		SootMethod sm = rewrites.method;
+		Body body = sm.getActiveBody();
+		boolean excluded = excludedMethods != null && excludedMethods.contains(sm);
+		List<Unit> temporary = new ArrayList<>();
+		
+		// Assign the constant parameters. Excluded methods are not folded, so
+		// their parameters must not be marked as propagated either.
+		boolean parametersChanged = false;
+		if (rewrites.parameterValues != null && !excluded) {
+			List<Unit> inserted = insertConstantParameters(sm, rewrites.parameterValues);
+			if (inserted != null) {
+				temporary.addAll(inserted);
+				parametersChanged = true;
+			}
+		}
+		
+		// We don't have side effects, so we can just change a = b.foo() into
+		// a = 0.
+		boolean returnValuesReplaced = false;
+		for (Pair<AssignStmt, Constant> call : rewrites.removedCalls) {
+			AssignStmt assign = call.getO1();
+			if (!body.getUnits().contains(assign))
+				continue;
+			
+			// If this method threw an exception, we have to make up for it
+			fixExceptions(sm, assign);
+			body.getUnits().swapWith(assign, Jimple.v().newAssignStmt(assign.getLeftOp(), call.getO2()));
+			updates.removedCallSites.add(assign);
+			returnValuesReplaced = true;
+		}
+		
+		// We have side effects, so we need to keep the method call. Change
+		// a = b.foo() into b.foo(); a = 0;
+		List<AssignStmt> keptCalls = new ArrayList<>();
+		for (Pair<AssignStmt, Constant> call : rewrites.keptCalls) {
+			AssignStmt assign = call.getO1();
+			if (!body.getUnits().contains(assign))
+				continue;
+			
+			Unit assignConst = Jimple.v().newAssignStmt(assign.getLeftOp(), call.getO2());
+			body.getUnits().insertAfter(assignConst, assign);
+			temporary.add(assignConst);
+			keptCalls.add(assign);
+		}
+		
+		// Fold all constants of this round at once
+		if (!excluded && (returnValuesReplaced || !temporary.isEmpty()))
+			ConstantPropagatorAndFolder.v().transform(body);
+		for (Unit u : temporary)
+			body.getUnits().remove(u);
+		for (AssignStmt assign : keptCalls) {
+			Stmt inv = Jimple.v().newInvokeStmt(assign.getInvokeExpr());
+			body.getUnits().swapWith(assign, inv);
+			updates.swappedCallSites.add(new Pair<Unit, Unit>(assign, inv));
+		}
+		
+		// The folded body might return a constant now. In the sequential
+		// mode, the return value is checked right after the parameters.
+		if (!excluded && (returnValuesReplaced || !keptCalls.isEmpty()))
+			checkAndAddMethod(sm);
+		if (parametersChanged) {
+			updates.changedMethods.add(sm);
+			if (typeSupportsConstants(sm.getReturnType()))
+				checkAndAddMethod(sm);
+		}
+		return updates;
+	}
+	
+	/**
+	 * The constants that can be propagated out of and into a single method
+	 */
+	private static class MethodPlan {
+		final SootMethod method;
+		Constant[] parameterValues = null;
+		Constant returnValue = null;
+		List<AssignStmt> callSites = null;
+		boolean keepCalls = false;
+		
+		MethodPlan(SootMethod method) {
+			this.method = method;
+		}
+	}
+	
+	/**
+	 * All rewrites of a single method body within one round
+	 */
+	private static class BodyRewrites {
+		final SootMethod method;
+		Constant[] parameterValues = null;
+		final List<Pair<AssignStmt, Constant>> removedCalls = new ArrayList<>();
+		final List<Pair<AssignStmt, Constant>> keptCalls = new ArrayList<>();
+		
+		BodyRewrites(SootMethod method) {
+			this.method = method;
+		}
+	}
+	
+	/**
+	 * The changes to the callgraph that are collected while the bodies are
+	 * rewritten, and the methods that received new constant parameters
+	 */
+	private static class CallgraphUpdates {
+		final List<Unit> removedCallSites = new ArrayList<>();
+		final List<Pair<Unit, Unit>> swappedCallSites = new ArrayList<>();
+		final List<SootMethod> changedMethods = new ArrayList<>();
+		
+		void merge(CallgraphUpdates other) {
+			removedCallSites.addAll(other.removedCallSites);
+			swappedCallSites.addAll(other.swappedCallSites);
+			changedMethods.addAll(other.changedMethods);
+		}
+	}
+	
+	/**
+	 * Splits the worklist into halves until the shard is small enough and
+	 * computes the constants of one shard sequentially
+	 */
+	private class PlanTask extends RecursiveTask<List<MethodPlan>> {
+		
+		private static final int THRESHOLD = 16;
+		
+		private final List<SootMethod> methods;
+		private final int from;
+		private final int to;
+		
+		PlanTask(List<SootMethod> methods, int from, int to) {
+			this.methods = methods;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected List<MethodPlan> compute() {
+			if (to - from <= THRESHOLD) {
+				List<MethodPlan> plans = new ArrayList<>(to - from);
+				for (int i = from; i < to; i++)
+					plans.add(planPropagation(methods.get(i)));
+				return plans;
+			}
+			
+			int mid = (from + to) >>> 1;
+			PlanTask left = new PlanTask(methods, from, mid);
+			PlanTask right = new PlanTask(methods, mid, to);
+			right.fork();
+			List<MethodPlan> plans = left.compute();
+			plans.addAll(right.join());
+			return plans;
+		}
+		
+	}
+	
+	/**
+	 * Splits the rewrites into halves until the shard is small enough and
+	 * applies the rewrites of one shard sequentially
+	 */
+	private class RewriteTask extends RecursiveTask<CallgraphUpdates> {
+		
+		private static final int THRESHOLD = 4;
+		
+		private final List<BodyRewrites> rewrites;
+		private final int from;
+		private final int to;
+		
+		RewriteTask(List<BodyRewrites> rewrites, int from, int to) {
+			this.rewrites = rewrites;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected CallgraphUpdates compute() {
+			if (to - from <= THRESHOLD) {
+				CallgraphUpdates updates = new CallgraphUpdates();
+				for (int i = from; i < to; i++)
+					updates.merge(applyRewrites(rewrites.get(i)));
+				return updates;
+			}
+			
+			int mid = (from + to) >>> 1;
+			RewriteTask left = new RewriteTask(rewrites, from, mid);
+			RewriteTask right = new RewriteTask(rewrites, mid, to);
+			right.fork();
+			CallgraphUpdates updates = left.compute();
+			updates.merge(right.join());
+			return updates;
+		}
+		
+	}
+	
 	/**
 	 * Gets the number of non-constant arguments to the given method call
 	 * @param s A call site
@@ -369,49 +734,15 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	 * @param sm The method whose value to propagate
 	 */
 	private void propagateReturnValueIntoCallers(SootMethod sm) {		
-		// We need to make sure that all exit nodes agree on the same
-		// constant value
-		Constant value = null;
-		for (Unit retSite : manager.getICFG().getEndPointsOf(sm)) {
-			// Skip exceptional exits
-			if (!(retSite instanceof ReturnStmt))
-				continue;
-			
-			ReturnStmt retStmt = (ReturnStmt) retSite;
-			if (!(retStmt.getOp() instanceof Constant))
-				return;
-			
-			if (value != null && retStmt.getOp() != value)
-				return;
-			value = (Constant) retStmt.getOp();
-		}
-		
 		// Propagate the return value into the callers
+		Constant value = getConstantReturnValue(sm);
 		if (value != null)
 			for (Unit callSite : manager.getICFG().getCallersOf(sm))
 				if (callSite instanceof AssignStmt) {
 					AssignStmt assign = (AssignStmt) callSite;
-					
-					// If we have a taint wrapper, we need to keep the stub untouched since we
-					// don't know what artificial taint the wrapper will come up with
-					if (taintWrapper != null && taintWrapper.supportsCallee(assign))
+					if (!canReplaceReturnValue(assign))
 						continue;
-					
-					// If this is a call to a source method, we do not propagate
-					// constants out of the callee for not destroying data flows
-					if (sourceSinkManager != null
-							&& sourceSinkManager.getSourceInfo(assign, manager) != null)
-						continue;
-					
-					// Make sure that we don't access anything we have already removed
 					SootMethod caller = manager.getICFG().getMethodOf(assign);
-					if (!caller.getActiveBody().getUnits().contains(assign))
-						continue;
-					
-					// If the call site has multiple callees, we cannot propagate a
-					// single constant
-					if (manager.getICFG().getCalleesOfCallAt(callSite).size() > 1)
-						continue;
 					
 					// If the call has no side effects, we can remove it altogether,
 					// otherwise we can just propagate the return value
@@ -452,83 +783,170 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 				}
 	}
 	
+	/**
+	 * Gets the constant value that the given method returns on all of its
+	 * normal exits
+	 * @param sm The method whose return value to check
+	 * @return The constant that is returned by the given method, or null if
+	 * the exits do not agree on a single constant
+	 */
+	private Constant getConstantReturnValue(SootMethod sm) {
+		// We need to make sure that all exit nodes agree on the same
+		// constant value
+		Constant value = null;
+		for (Unit retSite : manager.getICFG().getEndPointsOf(sm)) {
+			// Skip exceptional exits
+			if (!(retSite instanceof ReturnStmt))
+				continue;
+			
+			ReturnStmt retStmt = (ReturnStmt) retSite;
+			if (!(retStmt.getOp() instanceof Constant))
+				return null;
+			
+			if (value != null && retStmt.getOp() != value)
+				return null;
+			value = (Constant) retStmt.getOp();
+		}
+		return value;
+	}
+	
+	/**
+	 * Checks whether the result of the given call may be replaced by the
+	 * constant return value of the callee
+	 * @param assign The call site that assigns the return value
+	 * @return True if the return value may be replaced, otherwise false
+	 */
+	private boolean canReplaceReturnValue(AssignStmt assign) {
+		// If we have a taint wrapper, we need to keep the stub untouched since we
+		// don't know what artificial taint the wrapper will come up with
+		if (taintWrapper != null && taintWrapper.supportsCallee(assign))
+			return false;
+		
+		// If this is a call to a source method, we do not propagate
+		// constants out of the callee for not destroying data flows
+		if (sourceSinkManager != null
+				&& sourceSinkManager.getSourceInfo(assign, manager) != null)
+			return false;
+		
+		// Make sure that we don't access anything we have already removed
+		SootMethod caller = manager.getICFG().getMethodOf(assign);
+		if (!caller.getActiveBody().getUnits().contains(assign))
+			return false;
+		
+		// If the call site has multiple callees, we cannot propagate a
+		// single constant
+		if (manager.getICFG().getCalleesOfCallAt(assign).size() > 1)
+			return false;
+		
+		return true;
+	}
+	
 	private void fixExceptions(SootMethod caller, Unit callSite) {
 		fixExceptions(caller, callSite, new HashSet<SootClass>());
 	}
 	
 	private void fixExceptions(SootMethod caller, Unit callSite, Set<SootClass> doneSet) {
+		for (final Trap t : getCatchingTraps(caller, callSite, doneSet)) {
+			SootMethod thrower = getExceptionThrower(t);
+			
+			// Call the exception thrower after the old call site
+			Stmt throwCall = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(thrower.makeRef()));
+			caller.getActiveBody().getUnits().insertBefore(throwCall, callSite);
+		}
+	}
+	
+	/**
+	 * Gets the traps of the caller that catch an exception which the given
+	 * call site might throw
+	 * @param caller The method that contains the call site
+	 * @param callSite The call site to check
+	 * @param doneSet The exceptions that have already been handled. Traps for
+	 * these exceptions are skipped, the exceptions of the returned traps are
+	 * added.
+	 * @return The traps that catch an exception of the given call site
+	 */
+	private List<Trap> getCatchingTraps(SootMethod caller, Unit callSite, Set<SootClass> doneSet) {
 		ThrowAnalysis ta = Options.v().src_prec() == Options.src_prec_apk
 				? DalvikThrowAnalysis.v() : UnitThrowAnalysis.v();
 		ThrowableSet throwSet = ta.mightThrow(callSite);
 		
+		List<Trap> traps = new ArrayList<>();
 		for (final Trap t : caller.getActiveBody().getTraps())
 			if (doneSet.add(t.getException())
-					&& throwSet.catchableAs(t.getException().getType())) {
-				SootMethod thrower = exceptionThrowers.get(t.getException());
-				if (thrower == null) {
-					if (exceptionClass == null) {
-						exceptionClass = new SootClass("FLOWDROID_EXCEPTIONS", Modifier.PUBLIC);
-						Scene.v().addClass(exceptionClass);
-					}
+					&& throwSet.catchableAs(t.getException().getType()))
+				traps.add(t);
+		return traps;
+	}
+	
+	/**
+	 * Gets the method that throws the exception caught by the given trap,
+	 * creating it if necessary. In the parallel mode, all throwers are created
+	 * before the bodies are rewritten, so the rewrite tasks only look them up.
+	 * @param t The trap whose exception shall be thrown
+	 * @return The method that throws the exception of the given trap
+	 */
+	private SootMethod getExceptionThrower(final Trap t) {
+		SootMethod thrower = exceptionThrowers.get(t.getException());
+		if (thrower == null) {
+			if (exceptionClass == null) {
+				exceptionClass = new SootClass("FLOWDROID_EXCEPTIONS", Modifier.PUBLIC);
+				Scene.v().addClass(exceptionClass);
+			}
+			
+			// Create the new method
+			thrower = Scene.v().makeSootMethod("throw" + exceptionThrowers.size(),
+					Collections.<Type>emptyList(), VoidType.v());
+			thrower.setModifiers(Modifier.PUBLIC | Modifier.STATIC);
+			
+			final Body body = Jimple.v().newBody(thrower);
+			thrower.setActiveBody(body);
+			final SootMethod meth = thrower;
+			
+			IEntryPointCreator epc = new BaseEntryPointCreator() {
+
+				@Override
+				public Collection<String> getRequiredClasses() {
+					return Collections.emptySet();
+				}
+
+				@Override
+				protected SootMethod createDummyMainInternal(SootMethod emptySootMethod) {
+			 		LocalGenerator generator = new LocalGenerator(body);
 					
-					// Create the new method
-					thrower = Scene.v().makeSootMethod("throw" + exceptionThrowers.size(),
-							Collections.<Type>emptyList(), VoidType.v());
-					thrower.setModifiers(Modifier.PUBLIC | Modifier.STATIC);
+			 		// Create the counter used for the opaque predicate
+					int conditionCounter = 0;
+					Value intCounter = generator.generateLocal(IntType.v());
+					AssignStmt assignStmt = new JAssignStmt(intCounter, IntConstant.v(conditionCounter));
+					body.getUnits().add(assignStmt);
 					
-					final Body body = Jimple.v().newBody(thrower);
-					thrower.setActiveBody(body);
-					final SootMethod meth = thrower;
+					Stmt afterEx = Jimple.v().newNopStmt();
+					IfStmt ifStmt = Jimple.v().newIfStmt(Jimple.v().newEqExpr(intCounter,
+							IntConstant.v(conditionCounter)), afterEx);
+					body.getUnits().add(ifStmt);
+					conditionCounter++;
 					
-					IEntryPointCreator epc = new BaseEntryPointCreator() {
-		
-						@Override
-						public Collection<String> getRequiredClasses() {
-							return Collections.emptySet();
-						}
-		
-						@Override
-						protected SootMethod createDummyMainInternal(SootMethod emptySootMethod) {
-					 		LocalGenerator generator = new LocalGenerator(body);
-							
-					 		// Create the counter used for the opaque predicate
-							int conditionCounter = 0;
-							Value intCounter = generator.generateLocal(IntType.v());
-							AssignStmt assignStmt = new JAssignStmt(intCounter, IntConstant.v(conditionCounter));
-							body.getUnits().add(assignStmt);
-							
-							Stmt afterEx = Jimple.v().newNopStmt();
-							IfStmt ifStmt = Jimple.v().newIfStmt(Jimple.v().newEqExpr(intCounter,
-									IntConstant.v(conditionCounter)), afterEx);
-							body.getUnits().add(ifStmt);
-							conditionCounter++;
-							
-							Local lcEx = generator.generateLocal(t.getException().getType());
-							AssignStmt assignNewEx = Jimple.v().newAssignStmt(lcEx,
-									Jimple.v().newNewExpr(t.getException().getType()));
-							body.getUnits().add(assignNewEx);
-	
-							InvokeStmt consNewEx = Jimple.v().newInvokeStmt(Jimple.v().newVirtualInvokeExpr(lcEx,
-									Scene.v().makeConstructorRef(exceptionClass, Collections.<Type>emptyList())));
-							body.getUnits().add(consNewEx);
-							
-							ThrowStmt throwNewEx = Jimple.v().newThrowStmt(lcEx);
-							body.getUnits().add(throwNewEx);
-							
-							body.getUnits().add(afterEx);
-							return meth;
-						}
-										
-					};
-					epc.createDummyMain(thrower);
-					exceptionThrowers.put(t.getException(), thrower);
-					exceptionClass.addMethod(thrower);
+					Local lcEx = generator.generateLocal(t.getException().getType());
+					AssignStmt assignNewEx = Jimple.v().newAssignStmt(lcEx,
+							Jimple.v().newNewExpr(t.getException().getType()));
+					body.getUnits().add(assignNewEx);
+	
+					InvokeStmt consNewEx = Jimple.v().newInvokeStmt(Jimple.v().newVirtualInvokeExpr(lcEx,
+							Scene.v().makeConstructorRef(exceptionClass, Collections.<Type>emptyList())));
+					body.getUnits().add(consNewEx);
+					
+					ThrowStmt throwNewEx = Jimple.v().newThrowStmt(lcEx);
+					body.getUnits().add(throwNewEx);
+					
+					body.getUnits().add(afterEx);
+					return meth;
 				}
-				
-				// Call the exception thrower after the old call site
-				Stmt throwCall = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(thrower.makeRef()));
-				caller.getActiveBody().getUnits().insertBefore(throwCall, callSite);
-			}
+								
+			};
+			epc.createDummyMain(thrower);
+			exceptionThrowers.put(t.getException(), thrower);
+			exceptionClass.addMethod(thrower);
+		}
+		return thrower;
 	}
 
 	/**
@@ -747,9 +1165,34 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	 * @param sm The method for which to look for call sites.
 	 */
 	private void propagateConstantsIntoCallee(SootMethod sm) {		
+		Constant[] values = getConstantArguments(sm);
+		if (values == null)
+			return;
+		
+		// Propagate the constant inside the callee
+		List<Unit> inserted = insertConstantParameters(sm, values);
+		if (inserted != null) {
+			ConstantPropagatorAndFolder.v().transform(sm.getActiveBody());
+			for (Unit u : inserted)
+				sm.getActiveBody().getUnits().remove(u);
+			
+			// This might lead to more opportunities of constant propagation
+			addCalleesToWorklist(sm);
+		}
+	}
+	
+	/**
+	 * Checks whether all call sites for a specific callee agree on the same
+	 * constant value for one or more arguments
+	 * @param sm The method for which to look for call sites.
+	 * @return An array with the constant value of every parameter, or null
+	 * entries for the parameters that are not constant. If the method has no
+	 * call sites outside of the excluded methods, null is returned.
+	 */
+	private Constant[] getConstantArguments(SootMethod sm) {
 		Collection<Unit> callSites = manager.getICFG().getCallersOf(sm);
 		if (callSites.isEmpty())
-			return;
+			return null;
 		
 		boolean[] isConstant = new boolean[sm.getParameterCount()];
 		Constant[] values = new Constant[sm.getParameterCount()];
@@ -795,35 +1238,49 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 			}
 		}
 		
-		if (hasCallSites) {
-			// Get the constant parameters
-			List<Unit> inserted = null;
-			for (int i = 0; i < isConstant.length; i++) {
-				if (isConstant[i] && propagatedParameters.add(new Pair<>(sm, i))) {
-					// Propagate the constant into the callee
-					Local paramLocal = sm.getActiveBody().getParameterLocal(i);
-					Unit point = getFirstNonIdentityStmt(sm);
-					Unit assignConst = Jimple.v().newAssignStmt(paramLocal, values[i]);
-					sm.getActiveBody().getUnits().insertBefore(assignConst, point);
-					
-					if (inserted == null)
-						inserted = new ArrayList<Unit>();
-					inserted.add(assignConst);
-				}
-			}
-			
-			// Propagate the constant inside the callee
-			if (inserted != null) {
-				ConstantPropagatorAndFolder.v().transform(sm.getActiveBody());
-				for (Unit u : inserted)
-					sm.getActiveBody().getUnits().remove(u);
+		if (!hasCallSites)
+			return null;
+		for (int i = 0; i < isConstant.length; i++)
+			if (!isConstant[i])
+				values[i] = null;
+		return values;
+	}
+	
+	/**
+	 * Assigns the given constants to the parameter locals at the beginning of
+	 * the given method. Every parameter is only propagated once.
+	 * @param sm The method into which to propagate the constants
+	 * @param values The constant values of the parameters, or null for the
+	 * parameters that are not constant
+	 * @return The assignments that have been inserted, or null if no new
+	 * constant has been propagated
+	 */
+	private List<Unit> insertConstantParameters(SootMethod sm, Constant[] values) {
+		List<Unit> inserted = null;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null && propagatedParameters.add(new Pair<>(sm, i))) {
+				// Propagate the constant into the callee
+				Local paramLocal = sm.getActiveBody().getParameterLocal(i);
+				Unit point = getFirstNonIdentityStmt(sm);
+				Unit assignConst = Jimple.v().newAssignStmt(paramLocal, values[i]);
+				sm.getActiveBody().getUnits().insertBefore(assignConst, point);
 				
-				// This might lead to more opportunities of constant propagation
-				for (Unit u : sm.getActiveBody().getUnits())
-					for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(u))
-						checkAndAddMethod(callee);
+				if (inserted == null)
+					inserted = new ArrayList<Unit>();
+				inserted.add(assignConst);
 			}
 		}
+		return inserted;
+	}
+	
+	/**
+	 * Adds all methods called by the given method to the worklist
+	 * @param sm The method whose callees to add
+	 */
+	private void addCalleesToWorklist(SootMethod sm) {
+		for (Unit u : sm.getActiveBody().getUnits())
+			for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(u))
+				checkAndAddMethod(callee);
 	}
 	
 	/**
@@ -22,6 +22,9 @@ public class FlowDroidMemoryWatcher {
 	
 	private final Set<IMemoryBoundedSolver> solvers = new ConcurrentHashSet<>();
 	private final InfoflowResults results;
+	private volatile boolean spillToDiskEnabled = false;
+	
+	private static final double WARNING_THRESHOLD = 0.9d;
 	
 	/**
 	 * Creates a new instance of the {@link FlowDroidMemoryWatcher} class
@@ -40,6 +43,11 @@ public class FlowDroidMemoryWatcher {
 			
 			@Override
 			public void onThresholdReached(long usedMemory, long maxMemory) {
+				// Try to keep the analysis running by moving solver state to
+				// disk first
+				if (spillToDiskEnabled && spillSolverState())
+					return;
+				
 				// Add the incident to the result object
 				if (results != null)
 					results.addException("Memory threshold reached");
@@ -51,10 +59,49 @@ public class FlowDroidMemoryWatcher {
 			}
 		
 		});
-		MemoryWarningSystem.setWarningThreshold(0.9d);
+		MemoryWarningSystem.setWarningThreshold(WARNING_THRESHOLD);
 		this.results = res;
 	}
 	
+	/**
+	 * Sets whether the solvers shall write their cold state to disk when the
+	 * memory threshold is reached. The solvers are only terminated if this
+	 * does not bring the memory consumption back below the threshold.
+	 * @param spillToDiskEnabled True if solver state shall be spilled to disk
+	 * before terminating the solvers, otherwise false
+	 */
+	public void setSpillToDiskEnabled(boolean spillToDiskEnabled) {
+		this.spillToDiskEnabled = spillToDiskEnabled;
+	}
+	
+	/**
+	 * Asks all solvers that support it to write their cold state to disk
+	 * @return True if the memory consumption is below the warning threshold
+	 * afterwards, false if the solvers need to be terminated
+	 */
+	private boolean spillSolverState() {
+		long spilled = 0;
+		for (IMemoryBoundedSolver solver : solvers)
+			if (solver instanceof ISpillableSolver)
+				spilled += ((ISpillableSolver) solver).spillColdState();
+		if (spilled == 0) {
+			logger.warn("Running out of memory and no solver state could be spilled to disk");
+			return false;
+		}
+		
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+		if (usedMemory >= runtime.maxMemory() * WARNING_THRESHOLD) {
+			logger.warn("Spilled {} solver entries to disk, but the memory consumption is still {} MB", spilled,
+					usedMemory / 1000 / 1000);
+			return false;
+		}
+		logger.warn("Running out of memory, spilled {} solver entries to disk, now using {} MB", spilled,
+				usedMemory / 1000 / 1000);
+		return true;
+	}
+	
 	/**
 	 * Adds a solver that shall be terminated when the memory threshold is reached
 	 * @param solver A solver that shall be terminated when the memory threshold
@@ -0,0 +1,20 @@
+package soot.jimple.infoflow.memory;
+
+/**
+ * Interface for solvers that can move parts of their state to disk when the
+ * memory runs low instead of being terminated
+ * 
+ * @author wanglei
+ *
+ */
+public interface ISpillableSolver {
+
+	/**
+	 * Writes the state that has not been used recently to disk and frees the
+	 * corresponding memory. The state is read back when it is needed again.
+	 * @return The number of entries that have been written to disk, or 0 if
+	 * this solver has nothing it can spill
+	 */
+	public long spillColdState();
+
+}
@@ -0,0 +1,367 @@
+package soot.jimple.infoflow.results;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import soot.jimple.infoflow.util.TimingCounter;
+
+/**
+ * Performance data of one analysis run. The data is attached to the
+ * {@link InfoflowResults} of the run, so that result handlers can read it,
+ * and can be exported as JSON. Values that have not been recorded in a run,
+ * e.g. the DFG statistics of a run without the sparse optimization, are -1.
+ *
+ * @author wanglei
+ *
+ */
+public class InfoflowPerformanceData {
+
+	/**
+	 * The phases of an analysis run
+	 */
+	public enum Phase {
+		CALLGRAPH_CONSTRUCTION,
+		CODE_ELIMINATION,
+		DFG_BUILD,
+		SUMMARY_BUILD,
+		TAINT_PROPAGATION,
+		PATH_RECONSTRUCTION,
+		TOTAL
+	}
+
+	/**
+	 * Measures the wall clock and CPU time of one execution of a phase
+	 */
+	public class PhaseTimer {
+
+		private final Phase phase;
+		private final long startWallTime;
+		private final long startCpuTime;
+
+		private PhaseTimer(Phase phase) {
+			this.phase = phase;
+			this.startWallTime = System.nanoTime();
+			this.startCpuTime = getProcessCpuTime();
+		}
+
+		/**
+		 * Stops the timer and adds the measured times to the phase
+		 * @return The wall clock time of the phase in nanoseconds
+		 */
+		public long stop() {
+			long wallTime = System.nanoTime() - startWallTime;
+			long cpuTime = startCpuTime < 0 ? -1 : getProcessCpuTime() - startCpuTime;
+			addPhaseTime(phase, wallTime, cpuTime);
+			return wallTime;
+		}
+
+	}
+
+	private final long[] wallTimes = new long[Phase.values().length];
+	private final long[] cpuTimes = new long[Phase.values().length];
+
+	private long forwardPropagationCount = -1;
+	private long backwardPropagationCount = -1;
+	private long forwardJumpFunctionCount = -1;
+	private long backwardJumpFunctionCount = -1;
+
+	private long dfgEntryCount = -1;
+	private long dfgNodeCount = -1;
+	private long dfgStoreHits = -1;
+	private long dfgStoreMisses = -1;
+
+	private long forwardSummaryCount = -1;
+	private long backwardsSummaryCount = -1;
+	private long summaryHits = -1;
+	private long summaryMisses = -1;
+
+	private long maxMemoryConsumption = -1;
+	private long resultCount = -1;
+
+	private final Map<TimingCounter, Long> timingCounters = new EnumMap<>(TimingCounter.class);
+
+	public InfoflowPerformanceData() {
+		Arrays.fill(wallTimes, -1);
+		Arrays.fill(cpuTimes, -1);
+	}
+
+	/**
+	 * Gets the CPU time that all threads of this process have used so far
+	 * @return The CPU time in nanoseconds, or -1 if the JVM does not provide
+	 * it
+	 */
+	public static long getProcessCpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		return -1;
+	}
+
+	/**
+	 * Starts measuring an execution of the given phase
+	 * @param phase The phase that is executed
+	 * @return The timer to stop once the phase is done
+	 */
+	public PhaseTimer startPhase(Phase phase) {
+		return new PhaseTimer(phase);
+	}
+
+	/**
+	 * Adds the given times to the given phase. If a phase is executed more
+	 * than once, e.g. when running with one source at a time, the times of
+	 * all executions are summed up.
+	 * @param phase The phase
+	 * @param wallTime The wall clock time in nanoseconds
+	 * @param cpuTime The CPU time of all threads in nanoseconds, or -1 if
+	 * unknown
+	 */
+	public synchronized void addPhaseTime(Phase phase, long wallTime, long cpuTime) {
+		int idx = phase.ordinal();
+		wallTimes[idx] = Math.max(wallTimes[idx], 0) + wallTime;
+		if (cpuTime >= 0)
+			cpuTimes[idx] = Math.max(cpuTimes[idx], 0) + cpuTime;
+	}
+
+	/**
+	 * Gets the wall clock time of the given phase
+	 * @param phase The phase
+	 * @return The wall clock time in nanoseconds, or -1 if the phase was not
+	 * executed
+	 */
+	public synchronized long getWallTime(Phase phase) {
+		return wallTimes[phase.ordinal()];
+	}
+
+	/**
+	 * Gets the CPU time that all threads used during the given phase
+	 * @param phase The phase
+	 * @return The CPU time in nanoseconds, or -1 if the phase was not executed
+	 */
+	public synchronized long getCpuTime(Phase phase) {
+		return cpuTimes[phase.ordinal()];
+	}
+
+	/**
+	 * Adds the number of edges that a forward and a backward solver
+	 * propagated
+	 * @param forward The number of forward propagations
+	 * @param backward The number of backward propagations
+	 */
+	public void addPropagationCounts(long forward, long backward) {
+		this.forwardPropagationCount = Math.max(this.forwardPropagationCount, 0) + forward;
+		this.backwardPropagationCount = Math.max(this.backwardPropagationCount, 0) + backward;
+	}
+
+	public long getForwardPropagationCount() {
+		return forwardPropagationCount;
+	}
+
+	public long getBackwardPropagationCount() {
+		return backwardPropagationCount;
+	}
+
+	/**
+	 * Records the size of the jump function tables of a forward and a
+	 * backward solver. Only the largest size over all solver runs is kept.
+	 * @param forward The number of forward jump functions, or -1 if unknown
+	 * @param backward The number of backward jump functions, or -1 if unknown
+	 */
+	public void updateJumpFunctionCounts(long forward, long backward) {
+		this.forwardJumpFunctionCount = Math.max(this.forwardJumpFunctionCount, forward);
+		this.backwardJumpFunctionCount = Math.max(this.backwardJumpFunctionCount, backward);
+	}
+
+	public long getForwardJumpFunctionCount() {
+		return forwardJumpFunctionCount;
+	}
+
+	public long getBackwardJumpFunctionCount() {
+		return backwardJumpFunctionCount;
+	}
+
+	/**
+	 * Records the size of the sparse data flow graphs
+	 * @param entryCount The number of entries in the forward and backward
+	 * lookup maps
+	 * @param nodeCount The number of distinct data flow nodes
+	 */
+	public void setDfgSize(long entryCount, long nodeCount) {
+		this.dfgEntryCount = entryCount;
+		this.dfgNodeCount = nodeCount;
+	}
+
+	public long getDfgEntryCount() {
+		return dfgEntryCount;
+	}
+
+	public long getDfgNodeCount() {
+		return dfgNodeCount;
+	}
+
+	public void setDfgStoreStatistics(long hits, long misses) {
+		this.dfgStoreHits = hits;
+		this.dfgStoreMisses = misses;
+	}
+
+	public long getDfgStoreHits() {
+		return dfgStoreHits;
+	}
+
+	public long getDfgStoreMisses() {
+		return dfgStoreMisses;
+	}
+
+	public void setSummaryCounts(long forward, long backwards) {
+		this.forwardSummaryCount = forward;
+		this.backwardsSummaryCount = backwards;
+	}
+
+	public long getForwardSummaryCount() {
+		return forwardSummaryCount;
+	}
+
+	public long getBackwardsSummaryCount() {
+		return backwardsSummaryCount;
+	}
+
+	/**
+	 * Records how many summary lookups during the taint propagation found a
+	 * summary
+	 * @param hits The number of lookups that found a summary
+	 * @param misses The number of lookups that did not find a summary
+	 */
+	public void setSummaryLookups(long hits, long misses) {
+		this.summaryHits = hits;
+		this.summaryMisses = misses;
+	}
+
+	public long getSummaryHits() {
+		return summaryHits;
+	}
+
+	public long getSummaryMisses() {
+		return summaryMisses;
+	}
+
+	/**
+	 * Gets the share of summary lookups that found a summary
+	 * @return The hit rate between 0 and 1, or -1 if no lookups were recorded
+	 */
+	public double getSummaryHitRate() {
+		if (summaryHits < 0 || summaryHits + summaryMisses == 0)
+			return -1;
+		return (double) summaryHits / (summaryHits + summaryMisses);
+	}
+
+	public void setMaxMemoryConsumption(long maxMemoryConsumption) {
+		this.maxMemoryConsumption = maxMemoryConsumption;
+	}
+
+	/**
+	 * Gets the highest memory consumption that was observed during the run.
+	 * The heap is only sampled at the end of some analysis phases, so this is
+	 * not a true peak. The heap may have been larger in between.
+	 * @return The highest sampled memory consumption in bytes
+	 */
+	public long getMaxMemoryConsumption() {
+		return maxMemoryConsumption;
+	}
+
+	public void setResultCount(long resultCount) {
+		this.resultCount = resultCount;
+	}
+
+	public long getResultCount() {
+		return resultCount;
+	}
+
+	/**
+	 * Copies the current values of all timing counters into this object
+	 */
+	public void captureTimingCounters() {
+		for (TimingCounter counter : TimingCounter.values())
+			timingCounters.put(counter, counter.get());
+	}
+
+	/**
+	 * Gets the accumulated time of the given hot code path
+	 * @param counter The counter
+	 * @return The time in nanoseconds, or -1 if the counters have not been
+	 * captured
+	 */
+	public long getTimingCounter(TimingCounter counter) {
+		Long time = timingCounters.get(counter);
+		return time == null ? -1 : time;
+	}
+
+	/**
+	 * Writes this performance data as a JSON object
+	 * @param writer The writer to which to write the JSON data
+	 * @throws IOException Thrown if the data cannot be written
+	 */
+	public synchronized void writeJson(Writer writer) throws IOException {
+		writer.write("{\n");
+		writer.write("  \"phases\": {\n");
+		Phase[] phases = Phase.values();
+		for (int i = 0; i < phases.length; i++) {
+			writer.write("    \"" + phases[i].name() + "\": { \"wallTimeNanos\": " + wallTimes[i]
+					+ ", \"cpuTimeNanos\": " + cpuTimes[i] + " }");
+			writer.write(i < phases.length - 1 ? ",\n" : "\n");
+		}
+		writer.write("  },\n");
+
+		writer.write("  \"solvers\": {\n");
+		writeField(writer, "forwardPropagationCount", forwardPropagationCount, true);
+		writeField(writer, "backwardPropagationCount", backwardPropagationCount, true);
+		writeField(writer, "forwardJumpFunctionCount", forwardJumpFunctionCount, true);
+		writeField(writer, "backwardJumpFunctionCount", backwardJumpFunctionCount, false);
+		writer.write("  },\n");
+
+		writer.write("  \"sparse\": {\n");
+		writeField(writer, "dfgEntryCount", dfgEntryCount, true);
+		writeField(writer, "dfgNodeCount", dfgNodeCount, true);
+		writeField(writer, "dfgStoreHits", dfgStoreHits, true);
+		writeField(writer, "dfgStoreMisses", dfgStoreMisses, true);
+		writeField(writer, "forwardSummaryCount", forwardSummaryCount, true);
+		writeField(writer, "backwardsSummaryCount", backwardsSummaryCount, true);
+		writeField(writer, "summaryHits", summaryHits, true);
+		writeField(writer, "summaryMisses", summaryMisses, false);
+		writer.write("  },\n");
+
+		writer.write("  \"timingCountersNanos\": {\n");
+		TimingCounter[] counters = TimingCounter.values();
+		for (int i = 0; i < counters.length; i++)
+			writeField(writer, counters[i].name(), getTimingCounter(counters[i]), i < counters.length - 1);
+		writer.write("  },\n");
+
+		writer.write("  \"maxMemoryConsumptionBytes\": " + maxMemoryConsumption + ",\n");
+		writer.write("  \"resultCount\": " + resultCount + "\n");
+		writer.write("}\n");
+	}
+
+	private void writeField(Writer writer, String name, long value, boolean hasNext) throws IOException {
+		writer.write("    \"" + name + "\": " + value + (hasNext ? ",\n" : "\n"));
+	}
+
+	/**
+	 * Gets this performance data as a JSON string
+	 * @return The JSON representation of this performance data
+	 */
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeJson(writer);
+		} catch (IOException e) {
+			// StringWriter does not throw
+			throw new RuntimeException(e);
+		}
+		return writer.toString();
+	}
+
+}
@@ -52,6 +52,21 @@ public class InfoflowResults {
 		exceptions.add(ex);
 	}
 	
+	private InfoflowPerformanceData performanceData = null;
+	
+	/**
+	 * Gets the performance data of the analysis run that produced these
+	 * results
+	 * @return The performance data, or null if none has been recorded
+	 */
+	public InfoflowPerformanceData getPerformanceData() {
+		return performanceData;
+	}
+	
+	public void setPerformanceData(InfoflowPerformanceData performanceData) {
+		this.performanceData = performanceData;
+	}
+	
 	public InfoflowResults() {
 		
 	}
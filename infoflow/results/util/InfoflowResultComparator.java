@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import javax.xml.stream.XMLStreamException;
 
+import soot.jimple.infoflow.results.xml.BinaryResultsReader;
 import soot.jimple.infoflow.results.xml.InfoflowResultsReader;
 import soot.jimple.infoflow.results.xml.SerializedInfoflowResults;
 
@@ -24,7 +25,8 @@ public class InfoflowResultComparator {
 	}
 	
 	/**
-	 * Checks whether the data flow results in two given files are equal
+	 * Checks whether the data flow results in two given files are equal. Each
+	 * file may either be an XML file or a binary result file.
 	 * @param file1 The full path and file name of the fist file
 	 * @param file2 The full path and file name of the second file
 	 * @return True if the two files encode the same data flows, otherwise
@@ -35,12 +37,27 @@ public class InfoflowResultComparator {
 	 */
 	public boolean resultEquals(String file1, String file2)
 			throws XMLStreamException, IOException {
-		InfoflowResultsReader rdr = new InfoflowResultsReader();
-		SerializedInfoflowResults results1 = rdr.readResults(file1);
-		SerializedInfoflowResults results2 = rdr.readResults(file2);
+		SerializedInfoflowResults results1 = readResults(file1);
+		SerializedInfoflowResults results2 = readResults(file2);
 		return results1.equals(results2);
 	}
 	
+	/**
+	 * Reads the data flow results from the given file, which may either be an
+	 * XML file or a binary result file
+	 * @param fileName The full path and file name of the file to read
+	 * @return The data flow results in the given file
+	 * @throws XMLStreamException Thrown if the XML file is syntactically
+	 * invalid
+	 * @throws IOException Thrown if the file cannot be opened
+	 */
+	public SerializedInfoflowResults readResults(String fileName)
+			throws XMLStreamException, IOException {
+		if (BinaryResultsReader.isBinaryResultFile(fileName))
+			return BinaryResultsReader.readResults(fileName);
+		return new InfoflowResultsReader().readResults(fileName);
+	}
+	
 	public static void main(String[] args) throws XMLStreamException, IOException {
 		if (args.length != 2) {
 			System.err.println("Usage: InfoflowResultComparator <file1> <file2>");
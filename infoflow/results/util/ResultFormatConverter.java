@@ -0,0 +1,65 @@
+package soot.jimple.infoflow.results.util;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.results.xml.BinaryResultsReader;
+import soot.jimple.infoflow.results.xml.BinaryResultsWriter;
+import soot.jimple.infoflow.results.xml.InfoflowResultsReader;
+import soot.jimple.infoflow.results.xml.InfoflowResultsSerializer;
+import soot.jimple.infoflow.results.xml.SerializedInfoflowResults;
+
+/**
+ * Utility class for converting data flow results between the XML format and
+ * the binary format. The direction is determined from the input file.
+ * 
+ * @author wanglei
+ *
+ */
+public class ResultFormatConverter {
+	
+	/**
+	 * Converts an XML result file into a binary result file
+	 * @param xmlFile The full path and file name of the XML file to read
+	 * @param binaryFile The full path and file name of the binary file to
+	 * write
+	 * @throws XMLStreamException Thrown if the XML file is syntactically
+	 * invalid
+	 * @throws IOException Thrown if one of the two files cannot be opened
+	 */
+	public static void xmlToBinary(String xmlFile, String binaryFile)
+			throws XMLStreamException, IOException {
+		SerializedInfoflowResults results = new InfoflowResultsReader().readResults(xmlFile);
+		try (BinaryResultsWriter writer = new BinaryResultsWriter(binaryFile,
+				results.getFileFormatVersion())) {
+			writer.writeResults(results);
+		}
+	}
+	
+	/**
+	 * Converts a binary result file into an XML result file
+	 * @param binaryFile The full path and file name of the binary file to read
+	 * @param xmlFile The full path and file name of the XML file to write
+	 * @throws XMLStreamException Thrown if the XML data cannot be written
+	 * @throws IOException Thrown if one of the two files cannot be opened
+	 */
+	public static void binaryToXml(String binaryFile, String xmlFile)
+			throws XMLStreamException, IOException {
+		SerializedInfoflowResults results = BinaryResultsReader.readResults(binaryFile);
+		new InfoflowResultsSerializer().serialize(results, xmlFile);
+	}
+	
+	public static void main(String[] args) throws XMLStreamException, IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ResultFormatConverter <input file> <output file>");
+			return;
+		}
+		
+		if (BinaryResultsReader.isBinaryResultFile(args[0]))
+			binaryToXml(args[0], args[1]);
+		else
+			xmlToBinary(args[0], args[1]);
+	}
+
+}
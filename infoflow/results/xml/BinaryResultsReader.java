@@ -0,0 +1,226 @@
+package soot.jimple.infoflow.results.xml;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for reading data flow results that have been written by the
+ * {@link BinaryResultsWriter}.
+ *
+ * The file is memory-mapped and decoded one result at a time, so callers
+ * that only iterate over the results do not need to build the complete
+ * result object. Files that end without an end marker, e.g., because the
+ * analysis that streamed them was killed, are read up to the last complete
+ * result.
+ *
+ * @author wanglei
+ *
+ */
+public class BinaryResultsReader implements Closeable {
+
+	private final FileInputStream in;
+	private final MappedByteBuffer buffer;
+	private final int fileFormatVersion;
+	private final List<String> stringTable = new ArrayList<>();
+
+	private SerializedSinkInfo sink = null;
+	private SerializedSourceInfo source = null;
+
+	/**
+	 * Opens the given binary result file
+	 * @param fileName The file from which to read the data flows
+	 * @throws IOException Thrown if the file could not be read or is not a
+	 * binary result file
+	 */
+	public BinaryResultsReader(String fileName) throws IOException {
+		this.in = new FileInputStream(fileName);
+		try {
+			FileChannel channel = in.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 4 || buffer.getInt() != BinaryResultsWriter.MAGIC)
+				throw new IOException(fileName + " is not a binary result file");
+			int version = readVarInt();
+			if (version != BinaryResultsWriter.VERSION)
+				throw new IOException("Unsupported binary result version " + version + " in " + fileName);
+			this.fileFormatVersion = buffer.getInt();
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks whether the given file has been written by the
+	 * {@link BinaryResultsWriter}
+	 * @param fileName The file to check
+	 * @return True if the given file is a binary result file, false if it is
+	 * not, e.g., because it is an XML file
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	public static boolean isBinaryResultFile(String fileName) throws IOException {
+		if (new File(fileName).length() < 4)
+			return false;
+		try (DataInputStream rdr = new DataInputStream(new FileInputStream(fileName))) {
+			return rdr.readInt() == BinaryResultsWriter.MAGIC;
+		}
+	}
+
+	/**
+	 * Gets the version of the result format as stored in the XML files
+	 * @return The file format version
+	 */
+	public int getFileFormatVersion() {
+		return this.fileFormatVersion;
+	}
+
+	/**
+	 * Advances to the next source-to-sink connection in the file
+	 * @return True if there is another result, which can then be obtained
+	 * through {@link #getSink()} and {@link #getSource()}, false if the end of
+	 * the file has been reached
+	 * @throws IOException Thrown if the file is corrupt
+	 */
+	public boolean next() throws IOException {
+		sink = null;
+		source = null;
+		if (!buffer.hasRemaining())
+			return false;
+
+		int pos = buffer.position();
+		try {
+			int record = buffer.get();
+			if (record == BinaryResultsWriter.RECORD_END)
+				return false;
+			if (record != BinaryResultsWriter.RECORD_RESULT)
+				throw new IOException("Invalid record type " + record + " at offset " + pos);
+
+			// Sinks, sources, and path elements share the same layout
+			SerializedPathElement sinkData = readElement();
+			SerializedPathElement sourceData = readElement();
+
+			List<SerializedPathElement> path = null;
+			int pathLength = readVarInt();
+			if (pathLength > 0) {
+				path = new ArrayList<>(pathLength - 1);
+				for (int i = 0; i < pathLength - 1; i++)
+					path.add(readElement());
+			}
+
+			sink = new SerializedSinkInfo(sinkData.getAccessPath(), sinkData.getStatement(),
+					sinkData.getMethod());
+			source = new SerializedSourceInfo(sourceData.getAccessPath(), sourceData.getStatement(),
+					sourceData.getMethod(), path);
+			return true;
+		} catch (BufferUnderflowException e) {
+			// The file has been truncated in the middle of a result
+			buffer.position(buffer.limit());
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the sink of the current result
+	 * @return The sink of the current result
+	 */
+	public SerializedSinkInfo getSink() {
+		return this.sink;
+	}
+
+	/**
+	 * Gets the source of the current result, including its propagation path,
+	 * if any
+	 * @return The source of the current result
+	 */
+	public SerializedSourceInfo getSource() {
+		return this.source;
+	}
+
+	/**
+	 * Reads all remaining results into a data object
+	 * @return The data flow result object
+	 * @throws IOException Thrown if the file is corrupt
+	 */
+	public SerializedInfoflowResults readAll() throws IOException {
+		SerializedInfoflowResults results = new SerializedInfoflowResults();
+		results.setFileFormatVersion(fileFormatVersion);
+		while (next())
+			results.addResult(source, sink);
+		return results;
+	}
+
+	/**
+	 * Reads a binary result file into a data object
+	 * @param fileName The file from which to read the data flows
+	 * @return The data flow result object read from the given file
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	public static SerializedInfoflowResults readResults(String fileName) throws IOException {
+		try (BinaryResultsReader rdr = new BinaryResultsReader(fileName)) {
+			return rdr.readAll();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private SerializedPathElement readElement() throws IOException {
+		String statement = readString();
+		String method = readString();
+		return new SerializedPathElement(readAccessPath(), statement, method);
+	}
+
+	private SerializedAccessPath readAccessPath() throws IOException {
+		String base = readString();
+		String baseType = readString();
+		boolean taintSubFields = buffer.get() != 0;
+		int fieldCount = readVarInt();
+		String[] fields = new String[fieldCount];
+		String[] types = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			fields[i] = readString();
+			types[i] = readString();
+		}
+		return new SerializedAccessPath(base, baseType, taintSubFields, fields, types);
+	}
+
+	private String readString() throws IOException {
+		int ref = readVarInt();
+		if (ref == BinaryResultsWriter.STRING_NULL)
+			return null;
+		if (ref == BinaryResultsWriter.STRING_NEW) {
+			byte[] bytes = new byte[readVarInt()];
+			buffer.get(bytes);
+			String value = new String(bytes, StandardCharsets.UTF_8);
+			stringTable.add(value);
+			return value;
+		}
+
+		int index = ref - BinaryResultsWriter.STRING_FIRST_INDEX;
+		if (index >= stringTable.size())
+			throw new IOException("Invalid string reference " + index + " at offset " + buffer.position());
+		return stringTable.get(index);
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed variable-length integer at offset " + buffer.position());
+	}
+
+}
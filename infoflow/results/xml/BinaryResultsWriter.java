@@ -0,0 +1,177 @@
+package soot.jimple.infoflow.results.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class for writing data flow results in a compact binary format that can be
+ * read back with the {@link BinaryResultsReader}.
+ *
+ * The file starts with a header, followed by one record per source-to-sink
+ * connection and an end marker. Numbers are written as variable-length
+ * integers. Strings such as statements, method signatures, and types are
+ * only written out the first time they occur. Afterwards, they are referenced
+ * by their index in the string table that the reader builds up while reading,
+ * so the file can be written and read in a single pass.
+ *
+ * Record layout:
+ * <pre>
+ * result   := RESULT sink source
+ * sink     := string(statement) string(method) accessPath
+ * source   := string(statement) string(method) accessPath
+ *             varint(pathLength + 1, or 0 for no path) element*
+ * element  := string(statement) string(method) accessPath
+ * accessPath := string(base) string(baseType) byte(taintSubFields)
+ *             varint(fieldCount) (string(field) string(type))*
+ * string   := varint(0) for null | varint(1) varint(length) utf8 for a new
+ *             string | varint(index + 2) for a known string
+ * </pre>
+ *
+ * @author wanglei
+ *
+ */
+public class BinaryResultsWriter implements Closeable {
+
+	static final int MAGIC = 0x46445242;
+	static final int VERSION = 1;
+
+	static final int RECORD_END = 0;
+	static final int RECORD_RESULT = 1;
+
+	static final int STRING_NULL = 0;
+	static final int STRING_NEW = 1;
+	static final int STRING_FIRST_INDEX = 2;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> stringTable = new HashMap<>();
+	private boolean closed = false;
+
+	/**
+	 * Creates a new binary result file
+	 * @param fileName The target file name
+	 * @param fileFormatVersion The version of the result format, as stored in
+	 * the XML files, so that it survives the conversion to binary and back
+	 * @throws IOException Thrown if the target file cannot be written
+	 */
+	public BinaryResultsWriter(String fileName, int fileFormatVersion) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		out.writeInt(MAGIC);
+		writeVarInt(VERSION);
+		out.writeInt(fileFormatVersion);
+	}
+
+	/**
+	 * Writes all data flows of the given result object
+	 * @param results The results to write out
+	 * @throws IOException Thrown if the data cannot be written
+	 */
+	public void writeResults(SerializedInfoflowResults results) throws IOException {
+		for (SerializedSinkInfo sink : results.getResults().keySet())
+			for (SerializedSourceInfo source : results.getResults().get(sink))
+				writeResult(sink, source);
+	}
+
+	/**
+	 * Writes a single connection between a source and a sink
+	 * @param sink The sink at which the data flow ends
+	 * @param source The source at which the data flow starts, including the
+	 * propagation path, if any
+	 * @throws IOException Thrown if the data cannot be written
+	 */
+	public synchronized void writeResult(SerializedSinkInfo sink, SerializedSourceInfo source) throws IOException {
+		if (closed)
+			throw new IOException("Result file has already been closed");
+
+		out.writeByte(RECORD_RESULT);
+		writeSourceSink(sink);
+		writeSourceSink(source);
+
+		List<SerializedPathElement> path = source.getPropagationPath();
+		if (path == null)
+			writeVarInt(0);
+		else {
+			writeVarInt(path.size() + 1);
+			for (SerializedPathElement element : path)
+				writeSourceSink(element);
+		}
+	}
+
+	/**
+	 * Writes all buffered data to the file
+	 * @throws IOException Thrown if the data cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Writes the end marker and closes the file
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			out.writeByte(RECORD_END);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeSourceSink(AbstractSerializedSourceSink element) throws IOException {
+		writeString(element.getStatement());
+		writeString(element.getMethod());
+		writeAccessPath(element.getAccessPath());
+	}
+
+	private void writeAccessPath(SerializedAccessPath ap) throws IOException {
+		writeString(ap.getBase());
+		writeString(ap.getBaseType());
+		out.writeByte(ap.getTaintSubFields() ? 1 : 0);
+
+		String[] fields = ap.getFields();
+		String[] types = ap.getTypes();
+		int fieldCount = fields == null ? 0 : fields.length;
+		writeVarInt(fieldCount);
+		for (int i = 0; i < fieldCount; i++) {
+			writeString(fields[i]);
+			writeString(types[i]);
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			writeVarInt(STRING_NULL);
+			return;
+		}
+
+		Integer index = stringTable.get(value);
+		if (index != null) {
+			writeVarInt(index + STRING_FIRST_INDEX);
+			return;
+		}
+
+		stringTable.put(value, stringTable.size());
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(STRING_NEW);
+		writeVarInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+}
@@ -52,8 +52,10 @@ public class InfoflowResultsReader {
 			List<String> apTypes = new ArrayList<>();
 			SerializedAccessPath ap = null;
 			SerializedSinkInfo sink = null;
-			SerializedSourceInfo source = null;
-			List<SerializedPathElement> pathElements = new ArrayList<>();
+			SerializedAccessPath sourceAp = null;
+			String sourceStatement = null;
+			String sourceMethod = null;
+			List<SerializedPathElement> pathElements = null;
 			
 			Stack<State> stateStack = new Stack<>();
 			stateStack.push(State.init);
@@ -91,6 +93,8 @@ public class InfoflowResultsReader {
 					// Read the attributes
 					statement = getAttributeByName(reader,
 							XmlConstants.Attributes.statement);
+					method = getAttributeByName(reader,
+							XmlConstants.Attributes.method);
 				}
 				else if (reader.getLocalName().equals(XmlConstants.Tags.accessPath) 
 						&& reader.isStartElement()) {
@@ -121,7 +125,7 @@ public class InfoflowResultsReader {
 					String type = getAttributeByName(reader, XmlConstants.Attributes.type);
 					if (value != null && !value.isEmpty() && type != null && !type.isEmpty()) {
 						apFields.add(value);
-						apTypes.add(value);
+						apTypes.add(type);
 					}
 				}
 				else if (reader.getLocalName().equals(XmlConstants.Tags.sources) 
@@ -134,24 +138,27 @@ public class InfoflowResultsReader {
 						&& stateStack.peek() == State.sources) {
 					stateStack.push(State.source);
 					
-					// Read the attributes
-					statement = getAttributeByName(reader,
+					// Read the attributes. The path elements overwrite the
+					// current statement, so we keep the source separately.
+					sourceStatement = getAttributeByName(reader,
 							XmlConstants.Attributes.statement);
-					method = getAttributeByName(reader,
+					sourceMethod = getAttributeByName(reader,
 							XmlConstants.Attributes.method);
+					sourceAp = null;
+					pathElements = null;
 				}
 				else if (reader.getLocalName().equals(XmlConstants.Tags.taintPath) 
 						&& reader.isStartElement()
 						&& stateStack.peek() == State.source) {
 					stateStack.push(State.taintPath);
 					
-					// Clear the old state
-					pathElements.clear();
+					// Every source gets its own path
+					pathElements = new ArrayList<>();
 				}
 				else if (reader.getLocalName().equals(XmlConstants.Tags.pathElement) 
 						&& reader.isStartElement()
-						&& stateStack.peek() == State.source) {
-					stateStack.push(State.taintPath);
+						&& stateStack.peek() == State.taintPath) {
+					stateStack.push(State.pathElement);
 					
 					// Read the attributes
 					statement = getAttributeByName(reader,
@@ -162,16 +169,18 @@ public class InfoflowResultsReader {
 				else if (reader.isEndElement()) {
 					stateStack.pop();
 					
-					if (reader.getLocalName().equals(XmlConstants.Tags.accessPath))
+					if (reader.getLocalName().equals(XmlConstants.Tags.accessPath)) {
 						ap = new SerializedAccessPath(apValue, apValueType, apTaintSubFields,
 								apFields.toArray(new String[apFields.size()]),
 								apTypes.toArray(new String[apTypes.size()]));
+						if (stateStack.peek() == State.source)
+							sourceAp = ap;
+					}
 					else if (reader.getLocalName().equals(XmlConstants.Tags.sink))
 						sink = new SerializedSinkInfo(ap, statement, method);
 					else if (reader.getLocalName().equals(XmlConstants.Tags.source))
-						source = new SerializedSourceInfo(ap, statement, method, pathElements);
-					else if (reader.getLocalName().equals(XmlConstants.Tags.result))
-						results.addResult(source, sink);
+						results.addResult(new SerializedSourceInfo(sourceAp, sourceStatement,
+								sourceMethod, pathElements), sink);
 					else if (reader.getLocalName().equals(XmlConstants.Tags.pathElement))
 						pathElements.add(new SerializedPathElement(ap, statement, method));
 				}
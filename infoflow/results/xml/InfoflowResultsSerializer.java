@@ -2,6 +2,7 @@ package soot.jimple.infoflow.results.xml;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 
 
@@ -80,6 +81,110 @@ public class InfoflowResultsSerializer {
 		writer.close();
 	}
 	
+	/**
+	 * Serializes data flow results that have been read back from a file, e.g.,
+	 * by the {@link BinaryResultsReader}, into the given XML file
+	 * @param results The result object to serialize
+	 * @param fileName The target file name
+	 * @throws IOException Thrown if target file cannot be used
+	 * @throws XMLStreamException Thrown if the XML data cannot be written
+	 */
+	public void serialize(SerializedInfoflowResults results, String fileName)
+			throws IOException, XMLStreamException {
+		try (OutputStream out = new FileOutputStream(fileName)) {
+			XMLOutputFactory factory = XMLOutputFactory.newInstance();
+			XMLStreamWriter writer = factory.createXMLStreamWriter(out, "UTF-8");
+			writeSerializedResults(results, writer);
+		}
+	}
+	
+	/**
+	 * Writes the given serialized data flow results as a complete XML document
+	 * into the given XML stream writer
+	 * @param results The results to write out
+	 * @param writer The stream writer into which to write the results
+	 * @throws XMLStreamException Thrown if the XML data cannot be written
+	 */
+	private void writeSerializedResults(SerializedInfoflowResults results,
+			XMLStreamWriter writer) throws XMLStreamException {
+		
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement(XmlConstants.Tags.root);
+		writer.writeAttribute(XmlConstants.Attributes.fileFormatVersion,
+				results.getFileFormatVersion() + "");
+		
+		writer.writeStartElement(XmlConstants.Tags.results);
+		for (SerializedSinkInfo sink : results.getResults().keySet()) {
+			writer.writeStartElement(XmlConstants.Tags.result);
+			
+			writer.writeStartElement(XmlConstants.Tags.sink);
+			writeSerializedSourceSink(sink, writer);
+			writer.writeEndElement();
+			
+			writer.writeStartElement(XmlConstants.Tags.sources);
+			for (SerializedSourceInfo src : results.getResults().get(sink)) {
+				writer.writeStartElement(XmlConstants.Tags.source);
+				writeSerializedSourceSink(src, writer);
+				if (serializeTaintPath && src.getPropagationPath() != null) {
+					writer.writeStartElement(XmlConstants.Tags.taintPath);
+					for (SerializedPathElement element : src.getPropagationPath()) {
+						writer.writeStartElement(XmlConstants.Tags.pathElement);
+						writeSerializedSourceSink(element, writer);
+						writer.writeEndElement();
+					}
+					writer.writeEndElement();
+				}
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+			
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+		
+		writer.writeEndDocument();
+		writer.close();
+	}
+	
+	/**
+	 * Writes the attributes and the access path of the given serialized
+	 * source, sink, or path element into the given XML stream writer
+	 * @param element The element to write out
+	 * @param writer The stream writer into which to write the data
+	 * @throws XMLStreamException Thrown if the XML data cannot be written
+	 */
+	private void writeSerializedSourceSink(AbstractSerializedSourceSink element,
+			XMLStreamWriter writer) throws XMLStreamException {
+		writer.writeAttribute(XmlConstants.Attributes.statement,
+				element.getStatement());
+		if (element.getMethod() != null && !element.getMethod().isEmpty())
+			writer.writeAttribute(XmlConstants.Attributes.method,
+					element.getMethod());
+		
+		SerializedAccessPath ap = element.getAccessPath();
+		writer.writeStartElement(XmlConstants.Tags.accessPath);
+		if (ap.getBase() != null && !ap.getBase().isEmpty())
+			writer.writeAttribute(XmlConstants.Attributes.value, ap.getBase());
+		if (ap.getBaseType() != null && !ap.getBaseType().isEmpty())
+			writer.writeAttribute(XmlConstants.Attributes.type, ap.getBaseType());
+		writer.writeAttribute(XmlConstants.Attributes.taintSubFields,
+				ap.getTaintSubFields() ? XmlConstants.Values.TRUE
+						: XmlConstants.Values.FALSE);
+		if (ap.getFields() != null && ap.getFields().length > 0) {
+			writer.writeStartElement(XmlConstants.Tags.fields);
+			for (int i = 0; i < ap.getFields().length; i++) {
+				writer.writeStartElement(XmlConstants.Tags.field);
+				writer.writeAttribute(XmlConstants.Attributes.value,
+						ap.getFields()[i]);
+				writer.writeAttribute(XmlConstants.Attributes.type,
+						ap.getTypes()[i]);
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+	
 	/**
 	 * Writes the given data flow results into the given XML stream writer
 	 * @param results The results to write out
@@ -111,7 +216,7 @@ public class InfoflowResultsSerializer {
 	 * @param writer The stream writer into which to write the results
 	 * @throws XMLStreamException Thrown if the XML data cannot be written
 	 */
-	private void writeSourceInfo(ResultSourceInfo source, XMLStreamWriter writer)
+	protected void writeSourceInfo(ResultSourceInfo source, XMLStreamWriter writer)
 			throws XMLStreamException {
 		writer.writeStartElement(XmlConstants.Tags.source);
 		writer.writeAttribute(XmlConstants.Attributes.statement,
@@ -153,7 +258,7 @@ public class InfoflowResultsSerializer {
 	 * @param writer The stream writer into which to write the results
 	 * @throws XMLStreamException Thrown if the XML data cannot be written
 	 */
-	private void writeSinkInfo(ResultSinkInfo sink, XMLStreamWriter writer)
+	protected void writeSinkInfo(ResultSinkInfo sink, XMLStreamWriter writer)
 			throws XMLStreamException {
 		writer.writeStartElement(XmlConstants.Tags.sink);
 		writer.writeAttribute(XmlConstants.Attributes.statement,
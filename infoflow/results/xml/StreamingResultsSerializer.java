@@ -0,0 +1,299 @@
+package soot.jimple.infoflow.results.xml;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.InfoflowConfiguration.StreamingResultsFormat;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.handlers.ResultsAvailableHandler2;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Result handler that writes every data flow result into a file as soon as
+ * the path builder has reconstructed it, instead of serializing the complete
+ * result object at the end of the analysis. Together with incremental result
+ * reporting, the taint propagation paths never need to be kept in memory all
+ * at once, and consumers can start reading the file while the analysis is
+ * still running.
+ *
+ * In the XML format, every source-to-sink connection becomes a result element
+ * of its own, so a sink that is reached from several sources appears more
+ * than once. The {@link InfoflowResultsReader} merges these elements again.
+ * The closing tags are only written when the serializer is closed. In the
+ * JSON format, every line is a complete JSON object. The binary format is the
+ * one of the {@link BinaryResultsWriter}.
+ *
+ * @author wanglei
+ *
+ */
+public class StreamingResultsSerializer extends InfoflowResultsSerializer
+		implements ResultsAvailableHandler2, Closeable {
+
+	private final StreamingResultsFormat format;
+	private final Writer out;
+	private final XMLStreamWriter xmlWriter;
+	private final BinaryResultsWriter binaryWriter;
+
+	private long resultCount = 0;
+	private boolean closed = false;
+
+	/**
+	 * Creates a new instance of the StreamingResultsSerializer class and opens
+	 * the target file
+	 * @param fileName The target file name
+	 * @param format The format in which to write the results
+	 * @param cfg The control flow graph to be used for obtaining the methods
+	 * containing the source, sink, and path statements
+	 * @param config The configuration of the data flow analysis
+	 * @throws IOException Thrown if the target file cannot be opened
+	 */
+	public StreamingResultsSerializer(String fileName, StreamingResultsFormat format, IInfoflowCFG cfg,
+			InfoflowConfiguration config) throws IOException {
+		super(cfg, config);
+		this.format = format;
+		this.startTime = System.currentTimeMillis();
+
+		if (format == StreamingResultsFormat.Binary) {
+			this.out = null;
+			this.xmlWriter = null;
+			this.binaryWriter = new BinaryResultsWriter(fileName, FILE_FORMAT_VERSION);
+			return;
+		}
+		this.binaryWriter = null;
+		this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
+
+		if (format == StreamingResultsFormat.Xml) {
+			try {
+				xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+				xmlWriter.writeStartDocument("UTF-8", "1.0");
+				xmlWriter.writeStartElement(XmlConstants.Tags.root);
+				xmlWriter.writeAttribute(XmlConstants.Attributes.fileFormatVersion, FILE_FORMAT_VERSION + "");
+				xmlWriter.writeStartElement(XmlConstants.Tags.results);
+				xmlWriter.flush();
+			} catch (XMLStreamException e) {
+				out.close();
+				throw new IOException("Could not write XML header", e);
+			}
+		} else
+			xmlWriter = null;
+	}
+
+	@Override
+	public synchronized boolean onSingleResultAvailable(ResultSourceInfo source, ResultSinkInfo sink) {
+		if (closed)
+			return true;
+		try {
+			if (format == StreamingResultsFormat.Xml) {
+				xmlWriter.writeStartElement(XmlConstants.Tags.result);
+				writeSinkInfo(sink, xmlWriter);
+				xmlWriter.writeStartElement(XmlConstants.Tags.sources);
+				writeSourceInfo(source, xmlWriter);
+				xmlWriter.writeEndElement();
+				xmlWriter.writeEndElement();
+				xmlWriter.flush();
+				out.flush();
+			} else if (format == StreamingResultsFormat.JsonLines) {
+				writeJsonResult(source, sink);
+				out.write('\n');
+				out.flush();
+			} else {
+				binaryWriter.writeResult(toSerializedSink(sink), toSerializedSource(source));
+				binaryWriter.flush();
+			}
+			resultCount++;
+		} catch (IOException | XMLStreamException e) {
+			throw new RuntimeException("Could not write data flow result", e);
+		}
+		return true;
+	}
+
+	@Override
+	public void onResultsAvailable(IInfoflowCFG cfg, InfoflowResults results) {
+		// All results have already been written one by one
+		try {
+			close();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not close result file", e);
+		}
+	}
+
+	/**
+	 * Writes the closing tags of the XML document, if any, and closes the
+	 * target file. Results that arrive afterwards are ignored.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		if (binaryWriter != null) {
+			binaryWriter.close();
+			return;
+		}
+		try {
+			if (xmlWriter != null) {
+				xmlWriter.writeEndElement();
+				xmlWriter.writeEndDocument();
+				xmlWriter.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not finish XML document", e);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Gets the number of results that have been written so far
+	 * @return The number of written results
+	 */
+	public synchronized long getResultCount() {
+		return resultCount;
+	}
+
+	private SerializedSinkInfo toSerializedSink(ResultSinkInfo sink) {
+		return new SerializedSinkInfo(toSerializedAccessPath(sink.getAccessPath()), sink.getSink().toString(),
+				getMethodSignature(sink.getSink()));
+	}
+
+	private SerializedSourceInfo toSerializedSource(ResultSourceInfo source) {
+		List<SerializedPathElement> path = null;
+		if (serializeTaintPath && source.getPath() != null) {
+			path = new ArrayList<>(source.getPath().length);
+			for (int i = 0; i < source.getPath().length; i++) {
+				Stmt stmt = source.getPath()[i];
+				path.add(new SerializedPathElement(toSerializedAccessPath(source.getPathAccessPaths()[i]),
+						stmt.toString(), getMethodSignature(stmt)));
+			}
+		}
+		return new SerializedSourceInfo(toSerializedAccessPath(source.getAccessPath()),
+				source.getSource().toString(), getMethodSignature(source.getSource()), path);
+	}
+
+	/**
+	 * Converts the given access path into its serialized form. Missing values
+	 * become empty strings, as they do when reading an XML file, so that both
+	 * formats compare equal.
+	 */
+	private SerializedAccessPath toSerializedAccessPath(AccessPath accessPath) {
+		String[] fields = new String[accessPath.getFieldCount()];
+		String[] types = new String[accessPath.getFieldCount()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = accessPath.getFields()[i].toString();
+			types[i] = accessPath.getFieldTypes()[i].toString();
+		}
+		return new SerializedAccessPath(
+				accessPath.getPlainValue() == null ? "" : accessPath.getPlainValue().toString(),
+				accessPath.getBaseType() == null ? "" : accessPath.getBaseType().toString(),
+				accessPath.getTaintSubFields(), fields, types);
+	}
+
+	private String getMethodSignature(Stmt stmt) {
+		return icfg == null ? "" : icfg.getMethodOf(stmt).getSignature();
+	}
+
+	private void writeJsonResult(ResultSourceInfo source, ResultSinkInfo sink) throws IOException {
+		out.write("{\"sink\":");
+		writeJsonStmt(sink.getSink(), sink.getAccessPath());
+		out.write(",\"source\":");
+		writeJsonStmt(source.getSource(), source.getAccessPath());
+		if (serializeTaintPath && source.getPath() != null) {
+			out.write(",\"path\":[");
+			for (int i = 0; i < source.getPath().length; i++) {
+				if (i > 0)
+					out.write(',');
+				writeJsonStmt(source.getPath()[i], source.getPathAccessPaths()[i]);
+			}
+			out.write(']');
+		}
+		out.write('}');
+	}
+
+	private void writeJsonStmt(Stmt stmt, AccessPath accessPath) throws IOException {
+		out.write("{\"statement\":");
+		writeJsonString(stmt.toString());
+		if (icfg != null) {
+			out.write(",\"method\":");
+			writeJsonString(icfg.getMethodOf(stmt).getSignature());
+		}
+		out.write(",\"accessPath\":");
+		writeJsonAccessPath(accessPath);
+		out.write('}');
+	}
+
+	private void writeJsonAccessPath(AccessPath accessPath) throws IOException {
+		out.write('{');
+		if (accessPath.getPlainValue() != null) {
+			out.write("\"value\":");
+			writeJsonString(accessPath.getPlainValue().toString());
+			out.write(',');
+		}
+		if (accessPath.getBaseType() != null) {
+			out.write("\"type\":");
+			writeJsonString(accessPath.getBaseType().toString());
+			out.write(',');
+		}
+		out.write("\"taintSubFields\":" + accessPath.getTaintSubFields());
+		if (accessPath.getFieldCount() > 0) {
+			out.write(",\"fields\":[");
+			for (int i = 0; i < accessPath.getFieldCount(); i++) {
+				if (i > 0)
+					out.write(',');
+				out.write("{\"value\":");
+				writeJsonString(accessPath.getFields()[i].toString());
+				out.write(",\"type\":");
+				writeJsonString(accessPath.getFieldTypes()[i].toString());
+				out.write('}');
+			}
+			out.write(']');
+		}
+		out.write('}');
+	}
+
+	private void writeJsonString(String value) throws IOException {
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				out.write("\\\"");
+				break;
+			case '\\':
+				out.write("\\\\");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					out.write(String.format("\\u%04x", (int) c));
+				else
+					out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+}
@@ -0,0 +1,490 @@
+package soot.jimple.infoflow.solver.cfg;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * Immutable snapshot of an interprocedural control-flow graph for the data
+ * flow solvers.
+ *
+ * When the snapshot is created, every unit of the given methods gets a dense
+ * int ID. The successors, predecessors, callees, return sites and the owning
+ * method of each unit are then stored in flat arrays, as are the start
+ * points, end points and callers of each method. A query only needs one
+ * identity hash lookup for the unit and some array accesses, instead of the
+ * cache and map lookups of the Soot ICFG.
+ *
+ * The snapshot must be taken after all code transformations. Units and
+ * methods that are not part of the snapshot, as well as the rarely used
+ * queries, are answered by the original ICFG.
+ *
+ * @author wanglei
+ *
+ */
+public class FrozenInterproceduralCFG implements BiDiInterproceduralCFG<Unit, SootMethod> {
+
+	private static final byte FLAG_CALL = 1;
+	private static final byte FLAG_EXIT = 2;
+	private static final byte FLAG_START = 4;
+	private static final byte FLAG_RETURN_SITE = 8;
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> delegate;
+
+	private final IdentityIndex<Unit> unitIndex;
+	private final IdentityIndex<SootMethod> methodIndex;
+	private final Unit[] units;
+	private final SootMethod[] methods;
+	private final int numBodyMethods;
+	private final boolean[] fallbackUnits;
+	private final boolean[] fallbackMethods;
+	private final int fallbackCount;
+
+	// Per unit
+	private final int[] methodOf;
+	private final byte[] flags;
+	private final int[] succStart;
+	private final int[] succs;
+	private final int[] predStart;
+	private final int[] preds;
+	private final int[] calleeStart;
+	private final int[] callees;
+	private final int[] returnSiteStart;
+	private final int[] returnSites;
+
+	// Per method
+	private final int[] startPointStart;
+	private final int[] startPoints;
+	private final int[] endPointStart;
+	private final int[] endPoints;
+	private final int[] callerStart;
+	private final int[] callers;
+
+	/**
+	 * Creates a snapshot of the given ICFG
+	 * @param delegate The ICFG to take the snapshot of
+	 * @param reachableMethods The methods to include in the snapshot. Methods
+	 * without an active body are skipped.
+	 */
+	public FrozenInterproceduralCFG(BiDiInterproceduralCFG<Unit, SootMethod> delegate,
+			Collection<SootMethod> reachableMethods) {
+		this.delegate = delegate;
+
+		// Number the methods and units
+		Set<SootMethod> methodSet = new LinkedHashSet<>();
+		List<Unit> unitList = new ArrayList<>();
+		List<Integer> owners = new ArrayList<>();
+		for (SootMethod m : reachableMethods) {
+			if (!m.hasActiveBody() || !methodSet.add(m))
+				continue;
+			int methodId = methodSet.size() - 1;
+			for (Unit u : m.getActiveBody().getUnits()) {
+				unitList.add(u);
+				owners.add(methodId);
+			}
+		}
+		this.numBodyMethods = methodSet.size();
+		this.units = unitList.toArray(new Unit[unitList.size()]);
+		this.unitIndex = new IdentityIndex<>(units);
+
+		int numUnits = units.length;
+		this.methodOf = new int[numUnits];
+		this.flags = new byte[numUnits];
+		List<Collection<SootMethod>> calleeSets = new ArrayList<>(numUnits);
+		for (int i = 0; i < numUnits; i++) {
+			methodOf[i] = owners.get(i);
+			Unit u = units[i];
+			byte f = 0;
+			if (delegate.isCallStmt(u))
+				f |= FLAG_CALL;
+			if (delegate.isExitStmt(u))
+				f |= FLAG_EXIT;
+			if (delegate.isStartPoint(u))
+				f |= FLAG_START;
+			if (delegate.isReturnSite(u))
+				f |= FLAG_RETURN_SITE;
+			flags[i] = f;
+
+			// Callees without a body, e.g., native methods, are numbered as
+			// well, since the solvers need to see them. We ask for all units,
+			// since the callgraph also has edges for static initializers.
+			Collection<SootMethod> calleesOfUnit = delegate.getCalleesOfCallAt(u);
+			methodSet.addAll(calleesOfUnit);
+			calleeSets.add(calleesOfUnit);
+		}
+		this.methods = methodSet.toArray(new SootMethod[methodSet.size()]);
+		this.methodIndex = new IdentityIndex<>(methods);
+
+		// Intraprocedural edges
+		Adjacency adjSuccs = new Adjacency(numUnits);
+		for (int i = 0; i < numUnits; i++)
+			adjSuccs.addAll(i, unitIndex, delegate.getSuccsOf(units[i]));
+		this.succStart = adjSuccs.start;
+		this.succs = adjSuccs.finish();
+
+		Adjacency adjPreds = new Adjacency(numUnits);
+		for (int i = 0; i < numUnits; i++)
+			adjPreds.addAll(i, unitIndex, delegate.getPredsOf(units[i]));
+		this.predStart = adjPreds.start;
+		this.preds = adjPreds.finish();
+
+		// Call edges
+		Adjacency calleeAdj = new Adjacency(numUnits);
+		Adjacency returnAdj = new Adjacency(numUnits);
+		for (int i = 0; i < numUnits; i++) {
+			calleeAdj.addAll(i, methodIndex, calleeSets.get(i));
+			returnAdj.addAll(i, unitIndex, delegate.getReturnSitesOfCallAt(units[i]));
+		}
+		this.calleeStart = calleeAdj.start;
+		this.callees = calleeAdj.finish();
+		this.returnSiteStart = returnAdj.start;
+		this.returnSites = returnAdj.finish();
+
+		// Per-method data. The methods without a body are left to the
+		// original ICFG.
+		Adjacency startAdj = new Adjacency(numBodyMethods);
+		Adjacency endAdj = new Adjacency(numBodyMethods);
+		Adjacency callerAdj = new Adjacency(numBodyMethods);
+		for (int i = 0; i < numBodyMethods; i++) {
+			startAdj.addAll(i, unitIndex, delegate.getStartPointsOf(methods[i]));
+			endAdj.addAll(i, unitIndex, delegate.getEndPointsOf(methods[i]));
+			callerAdj.addAll(i, unitIndex, delegate.getCallersOf(methods[i]));
+		}
+		this.startPointStart = startAdj.start;
+		this.startPoints = startAdj.finish();
+		this.endPointStart = endAdj.start;
+		this.endPoints = endAdj.finish();
+		this.callerStart = callerAdj.start;
+		this.callers = callerAdj.finish();
+
+		// Rows that refer to code outside the snapshot are answered by the
+		// original ICFG
+		this.fallbackUnits = new boolean[numUnits];
+		this.fallbackMethods = new boolean[numBodyMethods];
+		int fallbacks = 0;
+		for (int i = 0; i < numUnits; i++)
+			if (adjSuccs.incomplete[i] || adjPreds.incomplete[i] || calleeAdj.incomplete[i]
+					|| returnAdj.incomplete[i]) {
+				fallbackUnits[i] = true;
+				fallbacks++;
+			}
+		for (int i = 0; i < numBodyMethods; i++)
+			if (startAdj.incomplete[i] || endAdj.incomplete[i] || callerAdj.incomplete[i]) {
+				fallbackMethods[i] = true;
+				fallbacks++;
+			}
+		this.fallbackCount = fallbacks;
+	}
+
+	/**
+	 * Gets the number of units and methods whose edges lead out of the
+	 * snapshot and are therefore answered by the original ICFG
+	 * @return The number of units and methods that are not fully frozen
+	 */
+	public int getFallbackCount() {
+		return fallbackCount;
+	}
+
+	/**
+	 * Gets the number of units in this snapshot
+	 * @return The number of units in this snapshot
+	 */
+	public int getUnitCount() {
+		return units.length;
+	}
+
+	/**
+	 * Gets the number of methods in this snapshot
+	 * @return The number of methods in this snapshot
+	 */
+	public int getMethodCount() {
+		return methods.length;
+	}
+
+	/**
+	 * Gets the ID of the given unit if all of its edges are in the snapshot
+	 * @return The ID of the unit, or -1 if the original ICFG must be used
+	 */
+	private int frozenUnit(Unit u) {
+		int id = unitIndex.indexOf(u);
+		return id < 0 || fallbackUnits[id] ? -1 : id;
+	}
+
+	/**
+	 * Gets the ID of the given method if it has a body and all of its start
+	 * points, end points and callers are in the snapshot
+	 * @return The ID of the method, or -1 if the original ICFG must be used
+	 */
+	private int frozenMethod(SootMethod m) {
+		int id = methodIndex.indexOf(m);
+		return id < 0 || id >= numBodyMethods || fallbackMethods[id] ? -1 : id;
+	}
+
+	@Override
+	public SootMethod getMethodOf(Unit u) {
+		int id = unitIndex.indexOf(u);
+		return id < 0 ? delegate.getMethodOf(u) : methods[methodOf[id]];
+	}
+
+	@Override
+	public List<Unit> getSuccsOf(Unit u) {
+		int id = frozenUnit(u);
+		return id < 0 ? delegate.getSuccsOf(u) : view(units, succs, succStart[id], succStart[id + 1]);
+	}
+
+	@Override
+	public List<Unit> getPredsOf(Unit u) {
+		int id = frozenUnit(u);
+		return id < 0 ? delegate.getPredsOf(u) : view(units, preds, predStart[id], predStart[id + 1]);
+	}
+
+	@Override
+	public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+		int id = frozenUnit(u);
+		if (id < 0)
+			return delegate.getCalleesOfCallAt(u);
+		return view(methods, callees, calleeStart[id], calleeStart[id + 1]);
+	}
+
+	@Override
+	public Collection<Unit> getReturnSitesOfCallAt(Unit u) {
+		int id = frozenUnit(u);
+		if (id < 0)
+			return delegate.getReturnSitesOfCallAt(u);
+		return view(units, returnSites, returnSiteStart[id], returnSiteStart[id + 1]);
+	}
+
+	@Override
+	public Collection<Unit> getCallersOf(SootMethod m) {
+		int id = frozenMethod(m);
+		return id < 0 ? delegate.getCallersOf(m) : view(units, callers, callerStart[id], callerStart[id + 1]);
+	}
+
+	@Override
+	public Collection<Unit> getStartPointsOf(SootMethod m) {
+		int id = frozenMethod(m);
+		if (id < 0)
+			return delegate.getStartPointsOf(m);
+		return view(units, startPoints, startPointStart[id], startPointStart[id + 1]);
+	}
+
+	@Override
+	public Collection<Unit> getEndPointsOf(SootMethod m) {
+		int id = frozenMethod(m);
+		return id < 0 ? delegate.getEndPointsOf(m) : view(units, endPoints, endPointStart[id], endPointStart[id + 1]);
+	}
+
+	@Override
+	public boolean isCallStmt(Unit u) {
+		int id = unitIndex.indexOf(u);
+		return id < 0 ? delegate.isCallStmt(u) : (flags[id] & FLAG_CALL) != 0;
+	}
+
+	@Override
+	public boolean isExitStmt(Unit u) {
+		int id = unitIndex.indexOf(u);
+		return id < 0 ? delegate.isExitStmt(u) : (flags[id] & FLAG_EXIT) != 0;
+	}
+
+	@Override
+	public boolean isStartPoint(Unit u) {
+		int id = unitIndex.indexOf(u);
+		return id < 0 ? delegate.isStartPoint(u) : (flags[id] & FLAG_START) != 0;
+	}
+
+	@Override
+	public boolean isReturnSite(Unit n) {
+		int id = unitIndex.indexOf(n);
+		return id < 0 ? delegate.isReturnSite(n) : (flags[id] & FLAG_RETURN_SITE) != 0;
+	}
+
+	@Override
+	public List<Unit> getPredsOfCallAt(Unit u) {
+		return getPredsOf(u);
+	}
+
+	@Override
+	public boolean isReachable(Unit u) {
+		return unitIndex.indexOf(u) >= 0 || delegate.isReachable(u);
+	}
+
+	// The following queries are not on the hot path of the solvers
+
+	@Override
+	public boolean isFallThroughSuccessor(Unit u, Unit succ) {
+		return delegate.isFallThroughSuccessor(u, succ);
+	}
+
+	@Override
+	public boolean isBranchTarget(Unit u, Unit succ) {
+		return delegate.isBranchTarget(u, succ);
+	}
+
+	@Override
+	public Set<Unit> allNonCallStartNodes() {
+		return delegate.allNonCallStartNodes();
+	}
+
+	@Override
+	public Set<Unit> allNonCallEndNodes() {
+		return delegate.allNonCallEndNodes();
+	}
+
+	@Override
+	public Set<Unit> getCallsFromWithin(SootMethod m) {
+		return delegate.getCallsFromWithin(m);
+	}
+
+	@Override
+	public DirectedGraph<Unit> getOrCreateUnitGraph(SootMethod m) {
+		return delegate.getOrCreateUnitGraph(m);
+	}
+
+	@Override
+	public List<Value> getParameterRefs(SootMethod m) {
+		return delegate.getParameterRefs(m);
+	}
+
+	private static <T> List<T> view(T[] elements, int[] ids, int from, int to) {
+		if (from == to)
+			return Collections.emptyList();
+		return new IdListView<>(elements, ids, from, to);
+	}
+
+	/**
+	 * Read-only list of the objects whose IDs are stored in a slice of an int
+	 * array
+	 */
+	private static class IdListView<T> extends AbstractList<T> {
+
+		private final T[] elements;
+		private final int[] ids;
+		private final int from;
+		private final int size;
+
+		IdListView(T[] elements, int[] ids, int from, int to) {
+			this.elements = elements;
+			this.ids = ids;
+			this.from = from;
+			this.size = to - from;
+		}
+
+		@Override
+		public T get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return elements[ids[from + index]];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/**
+	 * Builder for adjacency lists in compressed row format. The entries of row
+	 * i are stored in the range from start[i] to start[i+1] of the data array.
+	 * Rows must be added in order.
+	 */
+	private static class Adjacency {
+
+		final int[] start;
+		final boolean[] incomplete;
+		private int[] data = new int[64];
+		private int size = 0;
+
+		Adjacency(int rows) {
+			this.start = new int[rows + 1];
+			this.incomplete = new boolean[rows];
+		}
+
+		<T> void addAll(int row, IdentityIndex<T> index, Collection<T> targets) {
+			start[row] = size;
+			if (targets != null) {
+				for (T target : targets) {
+					// Edges to objects outside the snapshot cannot be
+					// represented, so the whole row is dropped
+					int id = index.indexOf(target);
+					if (id < 0) {
+						incomplete[row] = true;
+						size = start[row];
+						break;
+					}
+					if (size == data.length)
+						data = Arrays.copyOf(data, size * 2);
+					data[size++] = id;
+				}
+			}
+			start[row + 1] = size;
+		}
+
+		int[] finish() {
+			return Arrays.copyOf(data, size);
+		}
+
+	}
+
+	/**
+	 * Immutable open-addressing hash table that maps objects to their index in
+	 * an array, based on object identity
+	 */
+	private static class IdentityIndex<T> {
+
+		private final Object[] keys;
+		private final int[] values;
+		private final int mask;
+
+		IdentityIndex(T[] elements) {
+			int capacity = Integer.highestOneBit(Math.max(4, elements.length * 2) - 1) << 1;
+			this.keys = new Object[capacity];
+			this.values = new int[capacity];
+			this.mask = capacity - 1;
+			for (int i = 0; i < elements.length; i++) {
+				int h = hash(elements[i]);
+				while (keys[h] != null) {
+					if (keys[h] == elements[i])
+						break;
+					h = (h + 1) & mask;
+				}
+				if (keys[h] == null) {
+					keys[h] = elements[i];
+					values[h] = i;
+				}
+			}
+		}
+
+		private int hash(Object o) {
+			int h = System.identityHashCode(o);
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		int indexOf(Object o) {
+			if (o == null)
+				return -1;
+			int h = hash(o);
+			while (true) {
+				Object k = keys[h];
+				if (k == o)
+					return values[h];
+				if (k == null)
+					return -1;
+				h = (h + 1) & mask;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that, like the {@link SetPoolExecutor}, avoids scheduling a task
+ * while an equal task is still pending. Instead of a concurrent hash set,
+ * the pending tasks are kept in a fixed-size {@link TaskDedupTable}, so that
+ * the deduplication does not allocate a map node for every task.
+ *
+ * @author wanglei
+ *
+ */
+public class DedupPoolExecutor extends InterruptableExecutor {
+
+	protected final TaskDedupTable waiting;
+
+	public DedupPoolExecutor(int corePoolSize, int maximumPoolSize,
+			long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+		this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, TaskDedupTable.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new deduplicating executor
+	 * @param tableCapacity The number of slots for tracking pending tasks.
+	 * Larger tables produce fewer redundant executions.
+	 */
+	public DedupPoolExecutor(int corePoolSize, int maximumPoolSize,
+			long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, int tableCapacity) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+		this.waiting = new TaskDedupTable(tableCapacity);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		// Make sure that we don't schedule a task for execution that is already
+		// pending
+		if (waiting.add(command))
+			super.execute(command);
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		waiting.remove(r);
+		super.afterExecute(r, t);
+	}
+
+	@Override
+	public void interrupt() {
+		super.interrupt();
+		this.waiting.clear();
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown();
+		this.waiting.clear();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> tasks = super.shutdownNow();
+		this.waiting.clear();
+		return tasks;
+	}
+
+}
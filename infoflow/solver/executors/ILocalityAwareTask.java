@@ -0,0 +1,21 @@
+package soot.jimple.infoflow.solver.executors;
+
+/**
+ * A task that tells the executor which tasks access the same data, so that
+ * they can be run on the same worker thread
+ *
+ * @author wanglei
+ *
+ */
+public interface ILocalityAwareTask extends Runnable {
+
+	/**
+	 * Gets the key of the data that this task mostly accesses, e.g., the
+	 * method to which a path edge belongs. Tasks with equal keys are
+	 * preferably run on the same worker.
+	 * @return The locality key of this task, or null if the task can run on
+	 * any worker
+	 */
+	public Object getLocalityKey();
+
+}
@@ -0,0 +1,88 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Common interface for all executors on which the data flow solvers schedule
+ * their path edges
+ *
+ * @author wanglei
+ *
+ */
+public interface ISolverExecutor extends Executor {
+
+	/**
+	 * Waits until all tasks that have been submitted to this executor have
+	 * been completed
+	 * @throws InterruptedException If the waiting thread was interrupted
+	 */
+	public void awaitCompletion() throws InterruptedException;
+
+	/**
+	 * Waits until all tasks that have been submitted to this executor have
+	 * been completed or the given timeout has expired
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of the timeout
+	 * @throws InterruptedException If the waiting thread was interrupted
+	 */
+	public void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Interrupts the executor. This will make the awaitCompletion() methods
+	 * return immediately and silently reject all new tasks.
+	 */
+	public void interrupt();
+
+	/**
+	 * Resets the executor to allow for new tasks once all previous tasks have
+	 * completed or after the executor has been interrupted.
+	 */
+	public void reset();
+
+	/**
+	 * Gets whether this executor has terminated all of its tasks
+	 * @return True if this executor has terminated all of its tasks, otherwise
+	 * false
+	 */
+	public boolean isFinished();
+
+	/**
+	 * Gets the first exception that was thrown by a task of this executor
+	 * @return The first exception thrown by a task, or null if no task has
+	 * failed
+	 */
+	public Throwable getException();
+
+	/**
+	 * Gets the number of threads that are currently running a task
+	 * @return The number of threads that are currently running a task
+	 */
+	public int getActiveCount();
+
+	/**
+	 * Gets the number of worker threads of this executor
+	 * @return The number of worker threads
+	 */
+	public int getNumThreads();
+
+	/**
+	 * Shuts down the executor. Tasks that have already been submitted are
+	 * still executed, but no new tasks are accepted.
+	 */
+	public void shutdown();
+
+	/**
+	 * Gets whether this executor has been shut down, but still has threads
+	 * that have not yet terminated
+	 * @return True if the executor is in the process of terminating
+	 */
+	public boolean isTerminating();
+
+	/**
+	 * Gets whether this executor has terminated
+	 * @return True if this executor has terminated, otherwise false
+	 */
+	public boolean isTerminated();
+
+}
@@ -7,7 +7,7 @@ import java.util.concurrent.TimeUnit;
 import heros.solver.CountingThreadPoolExecutor;
 import soot.jimple.infoflow.collect.BlackHoleCollection;
 
-public class InterruptableExecutor extends CountingThreadPoolExecutor {
+public class InterruptableExecutor extends CountingThreadPoolExecutor implements ISolverExecutor {
 	
 	private boolean interrupted = false;
 	private boolean terminated = false;
@@ -96,5 +96,10 @@ public class InterruptableExecutor extends CountingThreadPoolExecutor {
 	public boolean isTerminated() {
 		return terminated || super.isTerminated();
 	}
+
+	@Override
+	public int getNumThreads() {
+		return getCorePoolSize();
+	}
 	
 }
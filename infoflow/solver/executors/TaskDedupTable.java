@@ -0,0 +1,67 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size open-addressing table of the tasks that are currently queued or
+ * running. Every task has exactly one slot, which is derived from its hash
+ * code. Adding a task overwrites whatever task is in its slot, so two
+ * different tasks with colliding slots can both be queued and equal tasks
+ * can occasionally be scheduled twice. That only costs some redundant work,
+ * but a task is never dropped unless an equal task is still pending. In
+ * exchange, neither adding nor removing a task allocates any memory.
+ *
+ * @author wanglei
+ *
+ */
+class TaskDedupTable {
+
+	/**
+	 * The default number of slots
+	 */
+	static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final AtomicReferenceArray<Runnable> slots;
+	private final int mask;
+
+	TaskDedupTable(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	private int indexOf(Runnable task) {
+		int h = task.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Registers the given task as pending
+	 * @param task The task that is about to be scheduled
+	 * @return True if the task shall be scheduled, false if an equal task is
+	 * already pending
+	 */
+	boolean add(Runnable task) {
+		int idx = indexOf(task);
+		Runnable existing = slots.get(idx);
+		if (existing != null && existing.equals(task))
+			return false;
+		slots.set(idx, task);
+		return true;
+	}
+
+	/**
+	 * Removes the given task once it has been executed. The slot is only
+	 * cleared if it still holds this very task object.
+	 * @param task The task that has been executed
+	 */
+	void remove(Runnable task) {
+		slots.compareAndSet(indexOf(task), task, null);
+	}
+
+	void clear() {
+		for (int i = 0; i < slots.length(); i++)
+			slots.set(i, null);
+	}
+
+}
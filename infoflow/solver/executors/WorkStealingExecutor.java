@@ -0,0 +1,366 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executor that gives every worker thread its own deque instead of sharing a
+ * single work queue between all threads. Tasks that implement
+ * {@link ILocalityAwareTask} are sent to the worker that owns their locality
+ * key, so that the path edges of one method are processed by the same thread.
+ * A worker takes new tasks from the head of its own deque and steals batches
+ * of tasks with the same key from the tail of the other deques once it runs
+ * out of work.
+ *
+ * The executor counts the tasks that have been submitted, but not yet
+ * finished. The thread that finishes the last task wakes up the threads
+ * waiting in {@link #awaitCompletion()}.
+ *
+ * @author wanglei
+ *
+ */
+public class WorkStealingExecutor implements ISolverExecutor {
+
+	/**
+	 * The maximum number of tasks a worker steals from another worker at once
+	 */
+	private static final int STEAL_BATCH_SIZE = 16;
+
+	private final Worker[] workers;
+	private final AtomicBoolean started = new AtomicBoolean(false);
+	private final AtomicInteger nextWorker = new AtomicInteger();
+	private final AtomicInteger idleWorkers = new AtomicInteger();
+	private final AtomicInteger activeWorkers = new AtomicInteger();
+	private final AtomicInteger liveWorkers = new AtomicInteger();
+
+	private final AtomicLong pendingTasks = new AtomicLong();
+	private final Object completionLock = new Object();
+
+	private final TaskDedupTable waiting;
+
+	private volatile boolean interrupted = false;
+	private volatile boolean terminated = false;
+	private volatile boolean shutdown = false;
+	private volatile Throwable exception = null;
+
+	/**
+	 * Creates a new work stealing executor
+	 * @param numThreads The number of worker threads
+	 * @param allowSetSemantics True if the same task shall never be queued
+	 * twice at the same time, as in {@link DedupPoolExecutor}
+	 */
+	public WorkStealingExecutor(int numThreads, boolean allowSetSemantics) {
+		this.workers = new Worker[Math.max(1, numThreads)];
+		for (int i = 0; i < workers.length; i++)
+			workers[i] = new Worker(i);
+		this.waiting = allowSetSemantics ? new TaskDedupTable(TaskDedupTable.DEFAULT_CAPACITY) : null;
+	}
+
+	/**
+	 * A worker thread with its own deque
+	 */
+	private class Worker extends Thread {
+
+		private final int index;
+		private final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+		private volatile boolean idle = false;
+
+		Worker(int index) {
+			super("WorkStealingExecutor-" + index);
+			this.index = index;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!shutdown) {
+					Runnable task = deque.pollFirst();
+					if (task == null)
+						task = steal();
+					if (task == null) {
+						// Announce that we are idle before checking the deques
+						// again, so that a concurrent submission either sees
+						// the flag and wakes us up or is found by the check
+						idle = true;
+						idleWorkers.incrementAndGet();
+						task = deque.pollFirst();
+						if (task == null)
+							task = steal();
+						if (task == null && !shutdown)
+							LockSupport.park(this);
+						idle = false;
+						idleWorkers.decrementAndGet();
+						if (task == null)
+							continue;
+					}
+					runTask(task);
+				}
+			} finally {
+				liveWorkers.decrementAndGet();
+			}
+		}
+
+		/**
+		 * Steals a batch of tasks from the tail of another worker's deque.
+		 * All tasks of the batch share the locality key of the first one.
+		 * @return The first stolen task, or null if there was nothing to
+		 * steal
+		 */
+		private Runnable steal() {
+			for (int i = 1; i < workers.length; i++) {
+				Worker victim = workers[(index + i) % workers.length];
+				Runnable first = victim.deque.pollLast();
+				if (first == null)
+					continue;
+
+				Object key = getLocalityKey(first);
+				if (key != null) {
+					for (int j = 1; j < STEAL_BATCH_SIZE; j++) {
+						Runnable next = victim.deque.peekLast();
+						if (next == null || !key.equals(getLocalityKey(next)))
+							break;
+						next = victim.deque.pollLast();
+						if (next == null)
+							break;
+						// The owner may have taken the task we peeked at in
+						// the meantime. Whatever we got, we are responsible
+						// for it now.
+						deque.offerLast(next);
+					}
+				}
+				return first;
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * Runs a single task and keeps track of the pending tasks
+	 * @param task The task to run
+	 */
+	private void runTask(Runnable task) {
+		activeWorkers.incrementAndGet();
+		try {
+			if (!interrupted)
+				task.run();
+		} catch (Throwable t) {
+			if (exception == null)
+				exception = t;
+			interrupt();
+		} finally {
+			if (waiting != null)
+				waiting.remove(task);
+			activeWorkers.decrementAndGet();
+			taskFinished();
+		}
+	}
+
+	private void taskFinished() {
+		if (pendingTasks.decrementAndGet() <= 0) {
+			synchronized (completionLock) {
+				completionLock.notifyAll();
+			}
+		}
+	}
+
+	private static Object getLocalityKey(Runnable task) {
+		return task instanceof ILocalityAwareTask ? ((ILocalityAwareTask) task).getLocalityKey() : null;
+	}
+
+	/**
+	 * Gets the worker to which a task with the given locality key belongs
+	 * @param key The locality key
+	 * @return The worker that owns the given key
+	 */
+	private Worker getHomeWorker(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return workers[(h & 0x7fffffff) % workers.length];
+	}
+
+	private void startWorkers() {
+		if (started.compareAndSet(false, true)) {
+			liveWorkers.set(workers.length);
+			for (Worker worker : workers)
+				worker.start();
+		}
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		// If the executor was terminated, it must be reset explicitly
+		if (this.terminated)
+			throw new RuntimeException("Executor has terminated. Call reset() before submitting new tasks.");
+
+		// Discard all submitted tasks if the executor has been interrupted or
+		// shut down
+		if (interrupted)
+			return;
+		if (shutdown) {
+			interrupted = true;
+			return;
+		}
+
+		// Make sure that we don't schedule a task for execution that is
+		// already in the queue
+		if (waiting != null && !waiting.add(command))
+			return;
+
+		startWorkers();
+		pendingTasks.incrementAndGet();
+
+		// Tasks without a key stay with the submitting worker. Tasks that are
+		// submitted from outside are distributed round-robin.
+		Object key = getLocalityKey(command);
+		Thread current = Thread.currentThread();
+		Worker target;
+		if (key != null)
+			target = getHomeWorker(key);
+		else if (isOwnWorker(current))
+			target = (Worker) current;
+		else
+			target = workers[(nextWorker.getAndIncrement() & 0x7fffffff) % workers.length];
+		target.deque.offerFirst(command);
+
+		// Wake up the owner, or any idle worker that can steal the task. A
+		// worker that pushes onto its own deque will only run one task at a
+		// time, so the others must be woken up to steal the rest.
+		if (target != current && target.idle)
+			LockSupport.unpark(target);
+		else if (idleWorkers.get() > 0)
+			wakeIdleWorker();
+	}
+
+	private boolean isOwnWorker(Thread thread) {
+		if (!(thread instanceof Worker))
+			return false;
+		int index = ((Worker) thread).index;
+		return index < workers.length && workers[index] == thread;
+	}
+
+	private void wakeIdleWorker() {
+		for (Worker worker : workers)
+			if (worker.idle) {
+				LockSupport.unpark(worker);
+				return;
+			}
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		// If we already know that we're done, there's no need to wait
+		if (terminated)
+			return;
+
+		synchronized (completionLock) {
+			while (pendingTasks.get() > 0 && !interrupted)
+				completionLock.wait();
+		}
+		terminated = true;
+	}
+
+	@Override
+	public void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		// If we already know that we're done, there's no need to wait
+		if (terminated)
+			return;
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (completionLock) {
+			while (pendingTasks.get() > 0 && !interrupted) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					break;
+				TimeUnit.NANOSECONDS.timedWait(completionLock, remaining);
+			}
+		}
+		terminated = true;
+	}
+
+	/**
+	 * Interrupts the executor. This will make the awaitCompletion() methods
+	 * return immediately and silently reject all new tasks.
+	 */
+	@Override
+	public void interrupt() {
+		// Make sure that no new tasks are spawned
+		this.interrupted = true;
+
+		// Get rid of the queued tasks
+		for (Worker worker : workers) {
+			while (worker.deque.pollFirst() != null)
+				taskFinished();
+		}
+		if (waiting != null)
+			waiting.clear();
+
+		// Signal to the blocking threads that we are done
+		synchronized (completionLock) {
+			completionLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Resets the executor to allow for new tasks once all previous tasks have
+	 * completed or after the executor has been interrupted.
+	 */
+	@Override
+	public void reset() {
+		this.terminated = false;
+		this.interrupted = false;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return terminated || pendingTasks.get() <= 0;
+	}
+
+	@Override
+	public Throwable getException() {
+		return exception;
+	}
+
+	@Override
+	public int getActiveCount() {
+		return activeWorkers.get();
+	}
+
+	@Override
+	public int getNumThreads() {
+		return workers.length;
+	}
+
+	@Override
+	public void shutdown() {
+		this.shutdown = true;
+		for (Worker worker : workers)
+			LockSupport.unpark(worker);
+		if (waiting != null)
+			waiting.clear();
+	}
+
+	/**
+	 * Gets whether this executor has been shut down
+	 * @return True if this executor has been shut down, otherwise false
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return shutdown && liveWorkers.get() > 0;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return terminated || (shutdown && liveWorkers.get() == 0);
+	}
+
+}
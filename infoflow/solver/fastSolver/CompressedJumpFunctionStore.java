@@ -0,0 +1,93 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.PathEdge;
+
+/**
+ * Jump function store that does not keep any {@link PathEdge} objects. The
+ * nodes and facts are interned to dense int IDs, and every edge (d1, n, d2)
+ * is stored as a long key for (d1, n) plus an int for d2 in open-addressing
+ * tables. The tables are split into segments with one lock each, so threads
+ * only contend when they hit the same segment.
+ *
+ * An edge takes about 20 to 32 bytes including the reference to its target
+ * fact, while the map-based store needs a PathEdge, a hash map node and a
+ * table slot per edge. All facts that have been seen remain reachable
+ * through the intern table, just as they would through the keys of the map.
+ *
+ * Edges are compared by the interned IDs, i.e., by the equality of their
+ * facts. Like with the map-based store, the fact object that was recorded
+ * with the first equal edge is returned as the existing target fact, so
+ * that the solver merges the neighbors into that object.
+ *
+ * @author wanglei
+ *
+ */
+public class CompressedJumpFunctionStore<N, D> implements IJumpFunctionStore<N, D> {
+
+	private static final int NUM_SEGMENTS = 64;
+
+	private final IdInterner<N> nodes = new IdInterner<>();
+	private final IdInterner<D> facts = new IdInterner<>();
+	private final PackedEdgeTable[] segments = new PackedEdgeTable[NUM_SEGMENTS];
+
+	public CompressedJumpFunctionStore() {
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = new PackedEdgeTable();
+	}
+
+	private PackedEdgeTable segmentFor(int hash) {
+		// The segment uses the upper bits, the table inside the segment the
+		// lower ones
+		return segments[(hash >>> 26) & (NUM_SEGMENTS - 1)];
+	}
+
+	@Override
+	public D putIfAbsent(PathEdge<N, D> edge) {
+		int d1 = facts.getOrCreateId(edge.factAtSource());
+		int n = nodes.getOrCreateId(edge.getTarget());
+		int d2 = facts.getOrCreateId(edge.factAtTarget());
+		long key = PackedEdgeTable.pack(d1, n);
+		int hash = PackedEdgeTable.hash(key, d2);
+		@SuppressWarnings("unchecked")
+		D existing = (D) segmentFor(hash).add(key, d2, edge.factAtTarget(), hash);
+		return existing;
+	}
+
+	@Override
+	public boolean containsKey(PathEdge<N, D> edge) {
+		// Do not intern anything for a lookup
+		int d1 = facts.getId(edge.factAtSource());
+		int n = nodes.getId(edge.getTarget());
+		int d2 = facts.getId(edge.factAtTarget());
+		if (d1 < 0 || n < 0 || d2 < 0)
+			return false;
+		long key = PackedEdgeTable.pack(d1, n);
+		int hash = PackedEdgeTable.hash(key, d2);
+		return segmentFor(hash).contains(key, d2, hash);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (PackedEdgeTable segment : segments)
+			size += segment.size();
+		return size;
+	}
+
+	/**
+	 * Gets the number of distinct facts that have been interned
+	 * @return The number of distinct facts
+	 */
+	public int getFactCount() {
+		return facts.size();
+	}
+
+	@Override
+	public void clear() {
+		for (PackedEdgeTable segment : segments)
+			segment.clear();
+		nodes.clear();
+		facts.clear();
+	}
+
+}
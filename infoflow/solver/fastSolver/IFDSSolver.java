@@ -27,19 +27,26 @@ import soot.jimple.IfStmt;
 import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.memory.IMemoryBoundedSolver;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
-import soot.jimple.infoflow.solver.executors.SetPoolExecutor;
+import soot.jimple.infoflow.memory.ISpillableSolver;
+import soot.jimple.infoflow.solver.executors.DedupPoolExecutor;
+import soot.jimple.infoflow.solver.executors.ILocalityAwareTask;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.solver.memory.IMemoryManager;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolver;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.internal.AbstractOpStmt;
 import soot.jimple.internal.AbstractSwitchStmt;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 /**
@@ -52,7 +59,7 @@ import java.util.concurrent.TimeUnit;
  * @see IFDSTabulationProblem
  */
 public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInterproceduralCFG<N, SootMethod>>
-			implements IMemoryBoundedSolver {
+			implements IMemoryBoundedSolver, ISpillableSolver {
 	
 	public static CacheBuilder<Object, Object> DEFAULT_CACHE_BUILDER = CacheBuilder.newBuilder().concurrencyLevel
 			(Runtime.getRuntime().availableProcessors()).initialCapacity(10000).softValues();
@@ -62,29 +69,37 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
     //enable with -Dorg.slf4j.simpleLogger.defaultLogLevel=trace
     public static final boolean DEBUG = logger.isDebugEnabled();
 
-	protected InterruptableExecutor executor;
+	protected ISolverExecutor executor;
 	
 	@DontSynchronize("only used by single thread")
 	protected int numThreads;
 	
 	@SynchronizedBy("thread safe data structure, consistent locking when used")
-	protected MyConcurrentHashMap<PathEdge<N, D>,D> jumpFunctions =
-			new MyConcurrentHashMap<PathEdge<N,D>, D>();
+	protected IJumpFunctionStore<N, D> jumpFunctions = new MapJumpFunctionStore<N, D>();
 	
 	@SynchronizedBy("thread safe data structure, only modified internally")
 	protected final I icfg;
 	
 	//stores summaries that were queried before they were computed
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
-	@SynchronizedBy("consistent lock on 'incoming'")
-	protected final MyConcurrentHashMap<Pair<SootMethod,D>,Set<Pair<N,D>>> endSummary =
-			new MyConcurrentHashMap<Pair<SootMethod,D>, Set<Pair<N,D>>>();
+	@SynchronizedBy("thread safe data structure, one map per method")
+	protected final MethodFactTable<D, Set<Pair<N,D>>> endSummary =
+			new MethodFactTable<D, Set<Pair<N,D>>>(() -> new ConcurrentHashSet<Pair<N, D>>());
 	
 	//edges going along calls
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
-	@SynchronizedBy("consistent lock on field")
-	protected final MyConcurrentHashMap<Pair<SootMethod,D>,MyConcurrentHashMap<N,Map<D, D>>> incoming =
-			new MyConcurrentHashMap<Pair<SootMethod,D>,MyConcurrentHashMap<N,Map<D, D>>>();
+	@SynchronizedBy("thread safe data structure, one map per method")
+	protected final MethodFactTable<D, MyConcurrentHashMap<N,Map<D, D>>> incoming =
+			new MethodFactTable<D, MyConcurrentHashMap<N,Map<D, D>>>(() -> new MyConcurrentHashMap<N, Map<D, D>>());
+
+	//only used when the jump functions are spilled to disk. Spilling the
+	//end summaries and incoming edges takes the write lock, all other
+	//accesses to these tables take the read lock. The spill file is only
+	//created when memory runs low for the first time.
+	@SynchronizedBy("only set before the solver is started")
+	protected ReentrantReadWriteLock summaryLock = null;
+	@SynchronizedBy("write lock of summaryLock")
+	protected SpillFile summarySpillFile = null;
 
 	@SynchronizedBy("consistent lock on field")
 	protected final MyConcurrentHashMap<Pair<SootMethod,D>, N> aliasIncoming =
@@ -120,6 +135,14 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 
 	@DontSynchronize("readOnly")
 	protected IMemoryManager<D, N> memoryManager = null;
+
+	@DontSynchronize("readOnly")
+	private boolean batchedPropagation = false;
+	
+	//edges that wait for being processed together with the other edges of
+	//the same target statement
+	@SynchronizedBy("thread safe data structure")
+	protected final ConcurrentHashMap<N, EdgeBatch> pendingBatches = new ConcurrentHashMap<N, EdgeBatch>();
 	
 	protected boolean solverId;
 	
@@ -250,9 +273,30 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
     	if (killFlag || executor.isTerminating() || executor.isTerminated())
     		return;
     	
+    	if (batchedPropagation) {
+    		scheduleBatchedEdgeProcessing(edge);
+    		return;
+    	}
+    	
     	executor.execute(new PathEdgeProcessingTask(edge, solverId));
     	propagationCount++;
     }
+    
+    /**
+     * Adds the given edge to the batch of its target statement. The batch is
+     * submitted to the executor if it is not already waiting to be run.
+     * @param edge the edge to process
+     */
+    private void scheduleBatchedEdgeProcessing(PathEdge<N,D> edge) {
+    	N target = edge.getTarget();
+    	EdgeBatch batch = pendingBatches.get(target);
+    	if (batch == null)
+    		batch = pendingBatches.computeIfAbsent(target, t -> new EdgeBatch());
+    	batch.edges.add(edge);
+    	propagationCount++;
+    	if (batch.scheduled.compareAndSet(false, true))
+    		executor.execute(new EdgeBatchProcessingTask(target, batch));
+    }
 	
 	/**
 	 * Lines 13-20 of the algorithm; processing a call site in the caller's context.
@@ -528,15 +572,53 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 			
 	    	// Compute the flow function
 			FlowFunction<D> flowFunction = flowFunctions.getNormalFlowFunction(n,m);
-			Set<D> res = computeNormalFlowFunction(flowFunction, d1, d2);
-			for (D d3 : res) {
-//				if (memoryManager != null && d2 != d3)
-//					d3 = memoryManager.handleGeneratedMemoryObject(d2, d3);
-				if (d3 != null) {
-					if(d3.getUseStmts() == null)
-						throw new RuntimeException("normal abs should have a use stmt set");
-					propagateWapper(n, d1, m, d3, null, false);
-				}
+			propagateNormalFlow(n, m, flowFunction, d1, d2);
+		}
+	}
+	
+	/**
+	 * Propagates normal, intra-procedural flows for a set of edges that all
+	 * end at the same statement. The flow function for every successor is
+	 * only retrieved once, but it is still applied to each fact separately,
+	 * since the flow functions only take a single fact.
+	 * @param n The common target statement of all edges
+	 * @param edges The edges to process
+	 */
+	private void processNormalFlowBatch(N n, List<PathEdge<N,D>> edges) {
+		if((Unit)n instanceof GotoStmt|| (Unit)n instanceof IfStmt || (Unit)n instanceof AbstractSwitchStmt || (Unit)n instanceof AbstractOpStmt) {
+			return ;
+		}
+
+		for (N m : icfg.getSuccsOf(n)) {
+			FlowFunction<D> flowFunction = flowFunctions.getNormalFlowFunction(n,m);
+			for (PathEdge<N,D> edge : edges) {
+				// Early termination check
+		    	if (killFlag)
+		    		return;
+		    	
+				propagateNormalFlow(n, m, flowFunction, edge.factAtSource(), edge.factAtTarget());
+			}
+		}
+	}
+	
+	/**
+	 * Applies the normal flow function from n to its successor m to a single
+	 * fact and propagates the results
+	 * @param n The statement at which the fact holds
+	 * @param m The successor of n
+	 * @param flowFunction The normal flow function from n to m
+	 * @param d1 The abstraction at the method's start node
+	 * @param d2 The abstraction at n
+	 */
+	private void propagateNormalFlow(N n, N m, FlowFunction<D> flowFunction, D d1, D d2) {
+		Set<D> res = computeNormalFlowFunction(flowFunction, d1, d2);
+		for (D d3 : res) {
+//			if (memoryManager != null && d2 != d3)
+//				d3 = memoryManager.handleGeneratedMemoryObject(d2, d3);
+			if (d3 != null) {
+				if(d3.getUseStmts() == null)
+					throw new RuntimeException("normal abs should have a use stmt set");
+				propagateWapper(n, d1, m, d3, null, false);
 			}
 		}
 	}
@@ -660,7 +742,82 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 	 * @see PathEdge
 	 */
 	public D addFunction(PathEdge<N, D> edge) {
-		return jumpFunctions.putIfAbsent(edge, edge.factAtTarget());
+		return jumpFunctions.putIfAbsent(edge);
+	}
+	
+	/**
+	 * Sets the store in which this solver records its jump functions. This
+	 * must be done before the solver is started.
+	 * @param jumpFunctions The store for the jump functions
+	 */
+	public void setJumpFunctionStore(IJumpFunctionStore<N, D> jumpFunctions) {
+		this.jumpFunctions = jumpFunctions;
+		if (jumpFunctions instanceof SpillingJumpFunctionStore && summaryLock == null)
+			summaryLock = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Allows the end summaries and the incoming edges to be written to disk
+	 * together with the jump functions. Must be called while holding the
+	 * write lock of the summary tables.
+	 */
+	private void enableSummarySpilling() {
+		summarySpillFile = new SpillFile(null);
+		endSummary.enableSpilling(summarySpillFile, new MethodFactTable.ValueCodec<Set<Pair<N, D>>>() {
+
+			@Override
+			public void write(Set<Pair<N, D>> value, MethodFactTable.SpillOutput out) throws IOException {
+				out.writeInt(value.size());
+				for (Pair<N, D> pair : value) {
+					out.writeRef(pair.getO1());
+					out.writeRef(pair.getO2());
+				}
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Set<Pair<N, D>> read(MethodFactTable.SpillInput in) throws IOException {
+				int size = in.readInt();
+				Set<Pair<N, D>> value = new ConcurrentHashSet<Pair<N, D>>();
+				for (int i = 0; i < size; i++)
+					value.add(new Pair<N, D>((N) in.readRef(), (D) in.readRef()));
+				return value;
+			}
+
+		});
+		incoming.enableSpilling(summarySpillFile, new MethodFactTable.ValueCodec<MyConcurrentHashMap<N, Map<D, D>>>() {
+
+			@Override
+			public void write(MyConcurrentHashMap<N, Map<D, D>> value, MethodFactTable.SpillOutput out)
+					throws IOException {
+				out.writeInt(value.size());
+				for (Entry<N, Map<D, D>> callSite : value.entrySet()) {
+					out.writeRef(callSite.getKey());
+					out.writeInt(callSite.getValue().size());
+					for (Entry<D, D> d1d2 : callSite.getValue().entrySet()) {
+						out.writeRef(d1d2.getKey());
+						out.writeRef(d1d2.getValue());
+					}
+				}
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public MyConcurrentHashMap<N, Map<D, D>> read(MethodFactTable.SpillInput in) throws IOException {
+				int size = in.readInt();
+				MyConcurrentHashMap<N, Map<D, D>> value = new MyConcurrentHashMap<N, Map<D, D>>();
+				for (int i = 0; i < size; i++) {
+					N n = (N) in.readRef();
+					int count = in.readInt();
+					Map<D, D> d1d2 = new ConcurrentHashMap<D, D>();
+					for (int j = 0; j < count; j++)
+						d1d2.put((D) in.readRef(), (D) in.readRef());
+					value.put(n, d1d2);
+				}
+				return value;
+			}
+
+		});
 	}
 	
 	/**
@@ -689,29 +846,61 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 	}
 
 	protected Set<Pair<N, D>> endSummary(SootMethod m, D d3) {
-		Set<Pair<N, D>> map = endSummary.get(new Pair<SootMethod, D>(m, d3));
-		return map;
+		if (summaryLock == null)
+			return endSummary.get(m, d3);
+
+		// Spilling does not modify the set, it only drops it from the table.
+		// A caller that still iterates over the set afterwards sees the
+		// summaries as of the spill, just like with a copy.
+		summaryLock.readLock().lock();
+		try {
+			return endSummary.get(m, d3);
+		} finally {
+			summaryLock.readLock().unlock();
+		}
 	}
 
 	private boolean addEndSummary(SootMethod m, D d1, N eP, D d2) {
 		if (d1 == zeroValue)
 			return true;
 		
-		Set<Pair<N, D>> summaries = endSummary.putIfAbsentElseGet
-				(new Pair<SootMethod, D>(m, d1), new ConcurrentHashSet<Pair<N, D>>());
-		return summaries.add(new Pair<N, D>(eP, d2));
+		if (summaryLock != null)
+			summaryLock.readLock().lock();
+		try {
+			Set<Pair<N, D>> summaries = endSummary.getOrCreate(m, d1);
+			return summaries.add(new Pair<N, D>(eP, d2));
+		} finally {
+			if (summaryLock != null)
+				summaryLock.readLock().unlock();
+		}
 	}
 	
 	protected Map<N, Map<D, D>> incoming(D d1, SootMethod m) {
-		Map<N, Map<D, D>> map = incoming.get(new Pair<SootMethod, D>(m, d1));
-		return map;
+		if (summaryLock == null)
+			return incoming.get(m, d1);
+
+		// Like the end summaries, the map is left untouched by spilling
+		summaryLock.readLock().lock();
+		try {
+			return incoming.get(m, d1);
+		} finally {
+			summaryLock.readLock().unlock();
+		}
 	}
 	
 	protected boolean addIncoming(SootMethod m, D d3, N n, D d1, D d2) {
-		MyConcurrentHashMap<N, Map<D, D>> summaries = incoming.putIfAbsentElseGet
-				(new Pair<SootMethod, D>(m, d3), new MyConcurrentHashMap<N, Map<D, D>>());
-		Map<D, D> set = summaries.putIfAbsentElseGet(n, new ConcurrentHashMap<D, D>());
-		return set.put(d1, d2) == null;
+		if (summaryLock != null)
+			summaryLock.readLock().lock();
+		try {
+			MyConcurrentHashMap<N, Map<D, D>> summaries = incoming.getOrCreate(m, d3);
+			Map<D, D> set = summaries.get(n);
+			if (set == null)
+				set = summaries.putIfAbsentElseGet(n, new ConcurrentHashMap<D, D>());
+			return set.put(d1, d2) == null;
+		} finally {
+			if (summaryLock != null)
+				summaryLock.readLock().unlock();
+		}
 	}
 
 
@@ -728,8 +917,8 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 	/**
 	 * Factory method for this solver's thread-pool executor.
 	 */
-	protected InterruptableExecutor getExecutor() {
-		return new SetPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+	protected ISolverExecutor getExecutor() {
+		return new DedupPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 	}
 	
 	/**
@@ -740,6 +929,15 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 		return "FAST IFDS SOLVER";
 	}
 
+	/**
+	 * Gets the number of jump functions that are currently recorded by this
+	 * solver
+	 * @return The number of jump functions
+	 */
+	public int getJumpFunctionCount() {
+		return jumpFunctions.size();
+	}
+
 	public void printStats() {
 		if(logger.isDebugEnabled()) {
 			if(ffCache!=null)
@@ -749,25 +947,30 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 		}
 	}
 
-	public static long count= 0;
-	public static long countCall = 0;
-	public static long countNormal = 0;
-	public static long countExit = 0;
 
 	//static String st = "$r0.<com.flurry.android.aa: android.content.Context a> = $r1";
 	static String st = "$r8 = $r0.<com.wEditingHDVideo.MainNavigationActivity: com.wEditingHDVideo.ads.AdsLoader adsLoader>";
 	static int aaa = 0;
 	
-	private class PathEdgeProcessingTask implements Runnable {
+	private class PathEdgeProcessingTask implements ILocalityAwareTask {
 		
 		private final PathEdge<N,D> edge;
 		private final boolean solverId;
+		private Object localityKey;
 
 		public PathEdgeProcessingTask(PathEdge<N,D> edge, boolean solverId) {
 			this.edge = edge;
 			this.solverId = solverId;
 		}
 
+		@Override
+		public Object getLocalityKey() {
+			// Keep the edges of one method on the same worker
+			if (localityKey == null)
+				localityKey = icfg.getMethodOf(edge.getTarget());
+			return localityKey;
+		}
+
 		public void run() {
 			boolean found = false;
 			SootMethod m = (SootMethod)icfg.getMethodOf(edge.getTarget());
@@ -784,17 +987,17 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 			long beforeFsolver = System.nanoTime();
 			if(icfg.isCallStmt(edge.getTarget())) {
 				processCall(edge);
-				countCall += (System.nanoTime() - beforeFsolver);
+				TimingCounter.IFDS_CALL.add(System.nanoTime() - beforeFsolver);
 			} else {
 				//note that some statements, such as "throw" may be
 				//both an exit statement and a "normal" statement
 				if(icfg.isExitStmt(edge.getTarget())) {
 					processExit(edge);
-					countExit += (System.nanoTime() - beforeFsolver);
+					TimingCounter.IFDS_EXIT.add(System.nanoTime() - beforeFsolver);
 				}
 				if(!icfg.getSuccsOf(edge.getTarget()).isEmpty()) {
 					processNormalFlow(edge);
-					countNormal += (System.nanoTime() - beforeFsolver);
+					TimingCounter.IFDS_NORMAL.add(System.nanoTime() - beforeFsolver);
 				}
 			}
 
@@ -830,6 +1033,95 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 		
 	}
 	
+	/**
+	 * The edges that are waiting to be processed for one target statement
+	 */
+	protected class EdgeBatch {
+		
+		private final Queue<PathEdge<N,D>> edges = new ConcurrentLinkedQueue<PathEdge<N,D>>();
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		
+	}
+	
+	/**
+	 * Processes all edges that have been collected for one target statement
+	 */
+	private class EdgeBatchProcessingTask implements ILocalityAwareTask {
+		
+		private final N target;
+		private final EdgeBatch batch;
+		private Object localityKey;
+		
+		public EdgeBatchProcessingTask(N target, EdgeBatch batch) {
+			this.target = target;
+			this.batch = batch;
+		}
+		
+		@Override
+		public Object getLocalityKey() {
+			if (localityKey == null)
+				localityKey = icfg.getMethodOf(target);
+			return localityKey;
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				List<PathEdge<N,D>> edges = new ArrayList<PathEdge<N,D>>();
+				PathEdge<N,D> edge;
+				while ((edge = batch.edges.poll()) != null)
+					edges.add(edge);
+				if (!edges.isEmpty())
+					processBatch(edges);
+				
+				// Edges that were added while we were busy have not been
+				// scheduled, so we need to take care of them as well. A
+				// drained batch is removed, so that the map does not keep
+				// one batch for every statement ever reached. Edges that are
+				// added to it afterwards still get a task of their own.
+				batch.scheduled.set(false);
+				if (batch.edges.isEmpty())
+					pendingBatches.remove(target, batch);
+				if (batch.edges.isEmpty() || !batch.scheduled.compareAndSet(false, true))
+					return;
+			}
+		}
+		
+		private void processBatch(List<PathEdge<N,D>> edges) {
+			long beforeFsolver = System.nanoTime();
+			if(icfg.isCallStmt(target)) {
+				for (PathEdge<N,D> edge : edges)
+					processCall(edge);
+				TimingCounter.IFDS_CALL.add(System.nanoTime() - beforeFsolver);
+			} else {
+				//note that some statements, such as "throw" may be
+				//both an exit statement and a "normal" statement
+				if(icfg.isExitStmt(target)) {
+					for (PathEdge<N,D> edge : edges)
+						processExit(edge);
+					TimingCounter.IFDS_EXIT.add(System.nanoTime() - beforeFsolver);
+				}
+				if(!icfg.getSuccsOf(target).isEmpty()) {
+					processNormalFlowBatch(target, edges);
+					TimingCounter.IFDS_NORMAL.add(System.nanoTime() - beforeFsolver);
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Sets whether the edges that end at the same statement shall be
+	 * processed together. The normal flow functions are then retrieved once
+	 * per batch instead of once per fact, and one task handles all edges of
+	 * the statement.
+	 * @param batchedPropagation True to process edges in batches per target
+	 * statement, false to process every edge in its own task
+	 */
+	public void setBatchedPropagation(boolean batchedPropagation) {
+		this.batchedPropagation = batchedPropagation;
+	}
+	
 	/**
 	 * Sets whether abstractions on method returns shall be connected to the
 	 * respective call abstractions to shortcut paths.
@@ -876,6 +1168,26 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends BiDiInt
 		return this.memoryManager;
 	}
 
+	@Override
+	public long spillColdState() {
+		if (!(jumpFunctions instanceof SpillingJumpFunctionStore))
+			return 0;
+
+		long spilled = ((SpillingJumpFunctionStore<N, D>) jumpFunctions).spillColdMethods();
+		if (summaryLock != null) {
+			summaryLock.writeLock().lock();
+			try {
+				if (summarySpillFile == null)
+					enableSummarySpilling();
+				spilled += endSummary.spillColdMethods();
+				spilled += incoming.spillColdMethods();
+			} finally {
+				summaryLock.writeLock().unlock();
+			}
+		}
+		return spilled;
+	}
+
 	@Override
 	public void forceTerminate() {
 		this.killFlag = true;
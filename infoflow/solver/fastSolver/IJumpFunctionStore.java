@@ -0,0 +1,43 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.PathEdge;
+
+/**
+ * Stores the jump functions, i.e., the path edges, that an {@link IFDSSolver}
+ * has already seen
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ *
+ * @author wanglei
+ *
+ */
+public interface IJumpFunctionStore<N, D> {
+
+	/**
+	 * Records the given edge if no equal edge has been recorded before
+	 * @param edge The edge to record
+	 * @return The fact at the target of the equal edge that has already been
+	 * recorded, or null if the edge is new
+	 */
+	public D putIfAbsent(PathEdge<N, D> edge);
+
+	/**
+	 * Checks whether an edge equal to the given one has been recorded
+	 * @param edge The edge to look for
+	 * @return True if the edge has been recorded, otherwise false
+	 */
+	public boolean containsKey(PathEdge<N, D> edge);
+
+	/**
+	 * Gets the number of recorded edges
+	 * @return The number of recorded edges
+	 */
+	public int size();
+
+	/**
+	 * Removes all recorded edges
+	 */
+	public void clear();
+
+}
@@ -0,0 +1,107 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int IDs to objects and maps the IDs back to the objects
+ *
+ * @author wanglei
+ *
+ */
+class IdInterner<T> {
+
+	private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+	private final int initialCapacity;
+	private volatile Object[] values;
+	private int count = 0;
+
+	IdInterner() {
+		this(1024);
+	}
+
+	/**
+	 * Creates a new interner
+	 * @param initialCapacity The number of IDs for which room is reserved
+	 */
+	IdInterner(int initialCapacity) {
+		this.initialCapacity = initialCapacity;
+		this.values = new Object[initialCapacity];
+	}
+
+	/**
+	 * Creates a new interner that assigns the IDs as given by
+	 * {@link #toArray()}
+	 * @param values The objects in the order of their IDs
+	 */
+	@SuppressWarnings("unchecked")
+	IdInterner(Object[] values) {
+		this(Math.max(4, values.length));
+		for (Object value : values)
+			getOrCreateId((T) value);
+	}
+
+	/**
+	 * Gets the ID of the given object, assigning a new one if the object has
+	 * not been seen before
+	 */
+	int getOrCreateId(T obj) {
+		Integer id = ids.get(obj);
+		if (id != null)
+			return id;
+		return ids.computeIfAbsent(obj, this::register);
+	}
+
+	/**
+	 * Gets the ID of the given object
+	 * @return The ID of the object, or -1 if the object has not been seen
+	 * before
+	 */
+	int getId(T obj) {
+		Integer id = ids.get(obj);
+		return id == null ? -1 : id;
+	}
+
+	private synchronized int register(T obj) {
+		if (count == Integer.MAX_VALUE)
+			throw new RuntimeException("Too many distinct objects to assign int IDs");
+		int id = count++;
+		// Copying happens under the lock, so it includes all values written
+		// before, and readers only use IDs they got from the map
+		if (id >= values.length)
+			values = Arrays.copyOf(values, values.length * 2);
+		values[id] = obj;
+		return id;
+	}
+
+	/**
+	 * Gets the object with the given ID, i.e., the first object among all
+	 * equal ones that has been interned
+	 */
+	@SuppressWarnings("unchecked")
+	T get(int id) {
+		return (T) values[id];
+	}
+
+	void clear() {
+		// Not under the lock, a concurrent registration holds a lock of the
+		// map while it waits for ours
+		ids.clear();
+		synchronized (this) {
+			values = new Object[initialCapacity];
+			count = 0;
+		}
+	}
+
+	int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Gets all interned objects in the order of their IDs
+	 */
+	synchronized Object[] toArray() {
+		return Arrays.copyOf(values, count);
+	}
+
+}
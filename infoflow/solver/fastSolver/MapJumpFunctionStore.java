@@ -0,0 +1,37 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.PathEdge;
+import soot.jimple.infoflow.collect.MyConcurrentHashMap;
+
+/**
+ * Jump function store that keeps the path edges in a concurrent hash map.
+ * This is the default store of the {@link IFDSSolver}.
+ *
+ * @author wanglei
+ *
+ */
+public class MapJumpFunctionStore<N, D> implements IJumpFunctionStore<N, D> {
+
+	private final MyConcurrentHashMap<PathEdge<N, D>, D> jumpFunctions = new MyConcurrentHashMap<PathEdge<N, D>, D>();
+
+	@Override
+	public D putIfAbsent(PathEdge<N, D> edge) {
+		return jumpFunctions.putIfAbsent(edge, edge.factAtTarget());
+	}
+
+	@Override
+	public boolean containsKey(PathEdge<N, D> edge) {
+		return jumpFunctions.containsKey(edge);
+	}
+
+	@Override
+	public int size() {
+		return jumpFunctions.size();
+	}
+
+	@Override
+	public void clear() {
+		jumpFunctions.clear();
+	}
+
+}
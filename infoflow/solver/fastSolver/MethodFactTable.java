@@ -0,0 +1,294 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import soot.SootMethod;
+
+/**
+ * Concurrent table that maps a method and a fact to a value, as needed for
+ * the end summaries and the incoming edges of the {@link IFDSSolver}.
+ *
+ * The table is split into one concurrent map per method, so that lookups do
+ * not need to allocate a combined key. Most methods only ever see a handful
+ * of facts, so the map of a method starts small and is only created once the
+ * first fact for the method is added.
+ *
+ * The maps of the methods that have not been accessed for the longest time
+ * can be written to a {@link SpillFile}. The facts and nodes referenced by
+ * the map stay in memory in a flat array, only the map structure goes to
+ * disk. A spilled map is read back as soon as the method is accessed again.
+ * Spilling must not run concurrently with any other access to the table,
+ * and callers must not keep values across a spill, since changes to them
+ * would get lost.
+ *
+ * @param <D> The type of data-flow facts
+ * @param <V> The type of values stored for a method and a fact
+ *
+ * @author wanglei
+ *
+ */
+public class MethodFactTable<D, V> {
+
+	/**
+	 * Converts the values of the table to bytes and back
+	 */
+	interface ValueCodec<V> {
+
+		void write(V value, SpillOutput out) throws IOException;
+
+		V read(SpillInput in) throws IOException;
+
+	}
+
+	/**
+	 * Output for spilling a map. Objects are written as indices into an array
+	 * that stays in memory.
+	 */
+	static class SpillOutput {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private final IdentityHashMap<Object, Integer> refIds = new IdentityHashMap<>();
+		private final List<Object> refs = new ArrayList<>();
+
+		void writeInt(int value) throws IOException {
+			out.writeInt(value);
+		}
+
+		void writeRef(Object o) throws IOException {
+			Integer id = refIds.get(o);
+			if (id == null) {
+				id = refs.size();
+				refIds.put(o, id);
+				refs.add(o);
+			}
+			out.writeInt(id);
+		}
+
+	}
+
+	/**
+	 * Input for reading back a map that has been written to a
+	 * {@link SpillOutput}
+	 */
+	static class SpillInput {
+
+		private final DataInputStream in;
+		private final Object[] refs;
+
+		SpillInput(byte[] data, Object[] refs) {
+			this.in = new DataInputStream(new ByteArrayInputStream(data));
+			this.refs = refs;
+		}
+
+		int readInt() throws IOException {
+			return in.readInt();
+		}
+
+		Object readRef() throws IOException {
+			return refs[in.readInt()];
+		}
+
+	}
+
+	/**
+	 * The facts and values of one method, either in memory or in the spill
+	 * file
+	 */
+	private class MethodEntry {
+
+		private volatile ConcurrentHashMap<D, V> facts = new ConcurrentHashMap<D, V>(4);
+		private long spillOffset = -1;
+		private int spillLength = 0;
+		private int spillCount = 0;
+		private Object[] spilledRefs = null;
+		private volatile long lastAccess = 0;
+
+	}
+
+	private final ConcurrentHashMap<SootMethod, MethodEntry> methods = new ConcurrentHashMap<>();
+	private final Function<SootMethod, MethodEntry> entryFactory = m -> new MethodEntry();
+	private final Function<D, V> valueFactory;
+
+	private SpillFile spillFile = null;
+	private ValueCodec<V> codec = null;
+
+	private volatile long clock = 0;
+	private int accessCounter = 0;
+
+	/**
+	 * Creates a new table
+	 * @param valueFactory The factory that creates the value for a method and
+	 * a fact that are not yet in the table
+	 */
+	public MethodFactTable(final Supplier<V> valueFactory) {
+		this.valueFactory = d -> valueFactory.get();
+	}
+
+	/**
+	 * Allows this table to write the maps of cold methods into the given file
+	 * @param spillFile The file into which to write the maps
+	 * @param codec The codec that converts the values to bytes and back
+	 */
+	void enableSpilling(SpillFile spillFile, ValueCodec<V> codec) {
+		this.spillFile = spillFile;
+		this.codec = codec;
+	}
+
+	/**
+	 * Gets the in-memory map of the given entry, reading it back from the
+	 * spill file if necessary
+	 */
+	private ConcurrentHashMap<D, V> factsOf(MethodEntry entry) {
+		if (spillFile == null)
+			return entry.facts;
+
+		if ((++accessCounter & 0x3ff) == 0)
+			clock = System.nanoTime();
+		entry.lastAccess = clock;
+
+		ConcurrentHashMap<D, V> facts = entry.facts;
+		if (facts != null)
+			return facts;
+		synchronized (entry) {
+			if (entry.facts == null)
+				entry.facts = readBack(entry);
+			return entry.facts;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConcurrentHashMap<D, V> readBack(MethodEntry entry) {
+		byte[] data = spillFile.readAndFree(entry.spillOffset, entry.spillLength);
+		SpillInput in = new SpillInput(data, entry.spilledRefs);
+		ConcurrentHashMap<D, V> facts = new ConcurrentHashMap<>(Math.max(4, entry.spillCount * 2));
+		try {
+			for (int i = 0; i < entry.spillCount; i++) {
+				D d = (D) in.readRef();
+				facts.put(d, codec.read(in));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read spilled solver state", e);
+		}
+		entry.spillOffset = -1;
+		entry.spillLength = 0;
+		entry.spillCount = 0;
+		entry.spilledRefs = null;
+		return facts;
+	}
+
+	/**
+	 * Gets the value for the given method and fact
+	 * @param m The method
+	 * @param d The fact
+	 * @return The value for the given method and fact, or null if there is
+	 * none
+	 */
+	public V get(SootMethod m, D d) {
+		MethodEntry entry = methods.get(m);
+		if (entry == null)
+			return null;
+		return factsOf(entry).get(d);
+	}
+
+	/**
+	 * Gets the value for the given method and fact, and creates it if there
+	 * is none yet
+	 * @param m The method
+	 * @param d The fact
+	 * @return The value for the given method and fact
+	 */
+	public V getOrCreate(SootMethod m, D d) {
+		// Try the lock-free lookups first, since most calls find an existing
+		// value
+		MethodEntry entry = methods.get(m);
+		if (entry == null)
+			entry = methods.computeIfAbsent(m, entryFactory);
+		ConcurrentHashMap<D, V> facts = factsOf(entry);
+		V value = facts.get(d);
+		if (value == null)
+			value = facts.computeIfAbsent(d, valueFactory);
+		return value;
+	}
+
+	/**
+	 * Writes the maps of the least recently used methods to the spill file
+	 * until at least half of the facts that are currently in memory have
+	 * been spilled. Must not be called concurrently with any other method of
+	 * this table.
+	 * @return The number of facts that have been spilled
+	 */
+	long spillColdMethods() {
+		if (spillFile == null)
+			return 0;
+
+		List<MethodEntry> resident = new ArrayList<>();
+		long residentFacts = 0;
+		for (MethodEntry entry : methods.values()) {
+			ConcurrentHashMap<D, V> facts = entry.facts;
+			if (facts != null && !facts.isEmpty()) {
+				resident.add(entry);
+				residentFacts += facts.size();
+			}
+		}
+		Collections.sort(resident, new Comparator<MethodEntry>() {
+
+			@Override
+			public int compare(MethodEntry o1, MethodEntry o2) {
+				return Long.compare(o1.lastAccess, o2.lastAccess);
+			}
+
+		});
+
+		long spilled = 0;
+		try {
+			for (MethodEntry entry : resident) {
+				if (spilled * 2 >= residentFacts)
+					break;
+				synchronized (entry) {
+					ConcurrentHashMap<D, V> facts = entry.facts;
+					SpillOutput out = new SpillOutput();
+					int count = 0;
+					for (Map.Entry<D, V> fact : facts.entrySet()) {
+						out.writeRef(fact.getKey());
+						codec.write(fact.getValue(), out);
+						count++;
+					}
+					out.out.flush();
+					byte[] data = out.bytes.toByteArray();
+					entry.spillOffset = spillFile.write(data);
+					entry.spillLength = data.length;
+					entry.spillCount = count;
+					entry.spilledRefs = out.refs.toArray();
+					entry.facts = null;
+					spilled += entry.spillCount;
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not spill solver state to disk", e);
+		}
+		return spilled;
+	}
+
+	/**
+	 * Removes all entries from this table. The spill file has to be cleared
+	 * separately.
+	 */
+	public void clear() {
+		methods.clear();
+	}
+
+}
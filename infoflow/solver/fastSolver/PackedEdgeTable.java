@@ -0,0 +1,142 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing table with linear probing for path edges that have been
+ * packed into a long key for (d1, n) and an int for d2. A key of zero marks
+ * an empty slot. Next to the packed edge, every slot holds the target fact
+ * object that was actually recorded with the edge, since the solver attaches
+ * the neighbors of later equal edges to exactly this object.
+ *
+ * @author wanglei
+ *
+ */
+class PackedEdgeTable {
+
+	/**
+	 * The number of bytes that {@link #writeTo(ByteBuffer)} uses per edge
+	 */
+	static final int BYTES_PER_EDGE = 12;
+
+	private long[] keys = new long[64];
+	private int[] targets = new int[64];
+	private Object[] values = new Object[64];
+	private int size = 0;
+
+	/**
+	 * Packs the source fact and the target node into a non-zero key
+	 */
+	static long pack(int d1, int n) {
+		// d1 + 1 must neither overflow nor become zero
+		if (d1 < 0 || d1 == Integer.MAX_VALUE || n < 0)
+			throw new RuntimeException("Fact or node ID out of range for packed jump functions: " + d1 + ", " + n);
+		return ((long) (d1 + 1) << 32) | n;
+	}
+
+	static int hash(long key, int target) {
+		long h = key * 0x9E3779B97F4A7C15L + target;
+		h ^= (h >>> 29);
+		h *= 0xBF58476D1CE4E5B9L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Records the given edge together with its target fact object if no
+	 * equal edge has been recorded before
+	 * @return The target fact object of the equal edge that has already been
+	 * recorded, or null if the edge is new
+	 */
+	synchronized Object add(long key, int target, Object value, int hash) {
+		if ((size + 1) * 4 > keys.length * 3)
+			grow();
+		int mask = keys.length - 1;
+		for (int idx = hash & mask;; idx = (idx + 1) & mask) {
+			long k = keys[idx];
+			if (k == 0) {
+				keys[idx] = key;
+				targets[idx] = target;
+				values[idx] = value;
+				size++;
+				return null;
+			}
+			if (k == key && targets[idx] == target)
+				return values[idx];
+		}
+	}
+
+	synchronized boolean contains(long key, int target, int hash) {
+		int mask = keys.length - 1;
+		for (int idx = hash & mask;; idx = (idx + 1) & mask) {
+			long k = keys[idx];
+			if (k == 0)
+				return false;
+			if (k == key && targets[idx] == target)
+				return true;
+		}
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldTargets = targets;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		targets = new int[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == 0)
+				continue;
+			int idx = hash(oldKeys[i], oldTargets[i]) & mask;
+			while (keys[idx] != 0)
+				idx = (idx + 1) & mask;
+			keys[idx] = oldKeys[i];
+			targets[idx] = oldTargets[i];
+			values[idx] = oldValues[i];
+		}
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	synchronized void clear() {
+		keys = new long[64];
+		targets = new int[64];
+		values = new Object[64];
+		size = 0;
+	}
+
+	/**
+	 * Writes all edges of this table into the given buffer, which must have
+	 * room for {@link #size()} times {@link #BYTES_PER_EDGE} bytes. The target
+	 * fact objects cannot be written to disk and are returned in the order
+	 * of the written edges instead.
+	 */
+	synchronized Object[] writeTo(ByteBuffer buffer) {
+		Object[] written = new Object[size];
+		int pos = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == 0)
+				continue;
+			buffer.putLong(keys[i]);
+			buffer.putInt(targets[i]);
+			written[pos++] = values[i];
+		}
+		return written;
+	}
+
+	/**
+	 * Adds the edges from the given buffer, which has been filled by
+	 * {@link #writeTo(ByteBuffer)}, together with the target fact objects
+	 * that method has returned
+	 */
+	synchronized void readFrom(ByteBuffer buffer, Object[] written) {
+		for (int i = 0; i < written.length; i++) {
+			long key = buffer.getLong();
+			int target = buffer.getInt();
+			add(key, target, written[i], hash(key, target));
+		}
+	}
+
+}
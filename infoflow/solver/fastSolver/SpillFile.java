@@ -0,0 +1,174 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scratch file into which the solver writes state that it can read back
+ * later. Regions that have been read back are freed and reused by later
+ * writes. Free space at the end of the file is cut off, so the file does not
+ * grow beyond the state that is currently on disk plus fragmentation.
+ *
+ * The file is accessed through positional reads and writes of heap buffers.
+ * Memory-mapped buffers are avoided, since they cannot be unmapped
+ * explicitly and would keep the mapped regions alive until they are
+ * collected.
+ *
+ * @author wanglei
+ *
+ */
+class SpillFile {
+
+	private final File fileName;
+	private RandomAccessFile raf = null;
+
+	/**
+	 * The free regions before the end of the file, mapped from their offset
+	 * to their length. Adjacent regions are always merged.
+	 */
+	private final TreeMap<Long, Long> freeRegions = new TreeMap<>();
+	private long end = 0;
+
+	/**
+	 * Creates a new spill file
+	 * @param fileName The file to write into, or null to use a temporary file
+	 */
+	SpillFile(File fileName) {
+		this.fileName = fileName;
+	}
+
+	private FileChannel getChannel() throws IOException {
+		if (raf == null) {
+			File file = fileName;
+			if (file == null) {
+				file = File.createTempFile("solverstate", ".spill");
+				file.deleteOnExit();
+			}
+			raf = new RandomAccessFile(file, "rw");
+		}
+		return raf.getChannel();
+	}
+
+	/**
+	 * Writes the given data into a free region of the file
+	 * @param data The data to write
+	 * @return The offset at which the data has been written
+	 */
+	synchronized long write(byte[] data) {
+		long offset = allocate(data.length);
+		try {
+			FileChannel channel = getChannel();
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			long pos = offset;
+			while (buffer.hasRemaining())
+				pos += channel.write(buffer, pos);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write solver state to disk", e);
+		}
+		return offset;
+	}
+
+	/**
+	 * Reads the region at the given offset and frees it
+	 * @param offset The offset that {@link #write(byte[])} has returned
+	 * @param length The number of bytes that have been written
+	 * @return The data in the region
+	 */
+	synchronized byte[] readAndFree(long offset, int length) {
+		byte[] data = new byte[length];
+		try {
+			FileChannel channel = getChannel();
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			long pos = offset;
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, pos);
+				if (read < 0)
+					throw new IOException("Unexpected end of spill file");
+				pos += read;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read solver state from disk", e);
+		}
+		free(offset, length);
+		return data;
+	}
+
+	private long allocate(int length) {
+		// First fit among the free regions
+		for (Map.Entry<Long, Long> region : freeRegions.entrySet()) {
+			long offset = region.getKey();
+			long regionLength = region.getValue();
+			if (regionLength >= length) {
+				freeRegions.remove(offset);
+				if (regionLength > length)
+					freeRegions.put(offset + length, regionLength - length);
+				return offset;
+			}
+		}
+		long offset = end;
+		end += length;
+		return offset;
+	}
+
+	private void free(long offset, long length) {
+		if (length == 0)
+			return;
+
+		// Merge with the adjacent free regions
+		Map.Entry<Long, Long> before = freeRegions.floorEntry(offset);
+		if (before != null && before.getKey() + before.getValue() == offset) {
+			freeRegions.remove(before.getKey());
+			offset = before.getKey();
+			length += before.getValue();
+		}
+		Long afterLength = freeRegions.remove(offset + length);
+		if (afterLength != null)
+			length += afterLength;
+
+		if (offset + length == end) {
+			// Give the space at the end back to the file system
+			end = offset;
+			try {
+				if (raf != null)
+					getChannel().truncate(end);
+			} catch (IOException e) {
+				// The space is still reused by later writes
+			}
+		} else
+			freeRegions.put(offset, length);
+	}
+
+	/**
+	 * Gets the number of bytes that are currently in use
+	 * @return The number of bytes in use
+	 */
+	synchronized long getUsedBytes() {
+		long used = end;
+		for (long length : freeRegions.values())
+			used -= length;
+		return used;
+	}
+
+	/**
+	 * Discards all regions, truncates the file and closes it
+	 */
+	synchronized void clear() {
+		freeRegions.clear();
+		end = 0;
+		if (raf != null) {
+			try {
+				raf.getChannel().truncate(0);
+				raf.close();
+			} catch (IOException e) {
+				// The file is only scratch space, nothing gets lost
+			}
+			raf = null;
+		}
+	}
+
+}
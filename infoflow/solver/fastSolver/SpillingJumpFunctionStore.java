@@ -0,0 +1,247 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import heros.solver.PathEdge;
+import soot.SootMethod;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Jump function store that packs the edges like the
+ * {@link CompressedJumpFunctionStore}, but keeps one table per method. When
+ * memory runs low, the tables of the methods that have not been touched for
+ * the longest time are written to a {@link SpillFile} and dropped from the
+ * heap. A spilled table is read back as soon as an edge of its method is
+ * looked up or added again, and its region in the file is reused.
+ *
+ * The facts and nodes are interned per method, so that the intern tables of
+ * a method can be dropped together with its edges. The fact objects cannot
+ * be written to disk, and the solver and the path builders hold references
+ * to them anyway. A spilled method therefore only keeps flat arrays of its
+ * facts, its nodes and the fact objects recorded with its edges, which are
+ * turned back into intern tables when the method is read back.
+ *
+ * @author wanglei
+ *
+ */
+public class SpillingJumpFunctionStore<N, D> implements IJumpFunctionStore<N, D> {
+
+	/**
+	 * The table key for nodes that do not belong to any method
+	 */
+	private static final Object NO_METHOD = new Object();
+
+	/**
+	 * The edges of one method, either in memory or in the spill file
+	 */
+	private static class MethodTable {
+
+		private PackedEdgeTable edges = new PackedEdgeTable();
+		private IdInterner<Object> nodes = new IdInterner<>(16);
+		private IdInterner<Object> facts = new IdInterner<>(16);
+		private long spillOffset = -1;
+		private Object[] spilledValues = null;
+		private Object[] spilledNodes = null;
+		private Object[] spilledFacts = null;
+		private volatile long lastAccess = 0;
+
+		synchronized int size() {
+			return edges == null ? spilledValues.length : edges.size();
+		}
+
+	}
+
+	private final BiDiInterproceduralCFG<N, SootMethod> icfg;
+	private final ConcurrentHashMap<Object, MethodTable> tables = new ConcurrentHashMap<>();
+
+	private final SpillFile spillFile;
+
+	private volatile long clock = 0;
+	private int accessCounter = 0;
+
+	private final AtomicLong spilledEdges = new AtomicLong();
+	private final AtomicLong faultIns = new AtomicLong();
+
+	/**
+	 * Creates a new spilling jump function store that writes into a temporary
+	 * file
+	 * @param icfg The control flow graph that maps nodes to their methods
+	 */
+	public SpillingJumpFunctionStore(BiDiInterproceduralCFG<N, SootMethod> icfg) {
+		this(icfg, null);
+	}
+
+	/**
+	 * Creates a new spilling jump function store
+	 * @param icfg The control flow graph that maps nodes to their methods
+	 * @param spillFile The file into which to write cold tables, or null to
+	 * use a temporary file
+	 */
+	public SpillingJumpFunctionStore(BiDiInterproceduralCFG<N, SootMethod> icfg, File spillFile) {
+		this.icfg = icfg;
+		this.spillFile = new SpillFile(spillFile);
+	}
+
+	/**
+	 * Gets a coarse timestamp for the access to a table. Reading the clock on
+	 * every edge would be too expensive, so it is only advanced every 1024
+	 * accesses. Lost updates of the counter do not matter.
+	 */
+	private long tick() {
+		if ((++accessCounter & 0x3ff) == 0)
+			clock = System.nanoTime();
+		return clock;
+	}
+
+	private MethodTable tableFor(N n) {
+		SootMethod m = icfg.getMethodOf(n);
+		Object key = m == null ? NO_METHOD : m;
+		MethodTable table = tables.get(key);
+		if (table == null)
+			table = tables.computeIfAbsent(key, k -> new MethodTable());
+		table.lastAccess = tick();
+		return table;
+	}
+
+	/**
+	 * Reads the edges and the intern tables of the given table back from the
+	 * spill file if necessary. Must be called while holding the lock on the
+	 * table.
+	 */
+	private void load(MethodTable table) {
+		if (table.edges == null) {
+			PackedEdgeTable edges = new PackedEdgeTable();
+			byte[] data = spillFile.readAndFree(table.spillOffset,
+					table.spilledValues.length * PackedEdgeTable.BYTES_PER_EDGE);
+			edges.readFrom(ByteBuffer.wrap(data), table.spilledValues);
+			table.edges = edges;
+			table.nodes = new IdInterner<>(table.spilledNodes);
+			table.facts = new IdInterner<>(table.spilledFacts);
+			table.spillOffset = -1;
+			table.spilledValues = null;
+			table.spilledNodes = null;
+			table.spilledFacts = null;
+			faultIns.incrementAndGet();
+		}
+	}
+
+	@Override
+	public D putIfAbsent(PathEdge<N, D> edge) {
+		MethodTable table = tableFor(edge.getTarget());
+		Object existing;
+		synchronized (table) {
+			load(table);
+			int d1 = table.facts.getOrCreateId(edge.factAtSource());
+			int n = table.nodes.getOrCreateId(edge.getTarget());
+			int d2 = table.facts.getOrCreateId(edge.factAtTarget());
+			long key = PackedEdgeTable.pack(d1, n);
+			existing = table.edges.add(key, d2, edge.factAtTarget(), PackedEdgeTable.hash(key, d2));
+		}
+		@SuppressWarnings("unchecked")
+		D existingVal = (D) existing;
+		return existingVal;
+	}
+
+	@Override
+	public boolean containsKey(PathEdge<N, D> edge) {
+		MethodTable table = tableFor(edge.getTarget());
+		synchronized (table) {
+			load(table);
+			// Do not intern anything for a lookup
+			int d1 = table.facts.getId(edge.factAtSource());
+			int n = table.nodes.getId(edge.getTarget());
+			int d2 = table.facts.getId(edge.factAtTarget());
+			if (d1 < 0 || n < 0 || d2 < 0)
+				return false;
+			long key = PackedEdgeTable.pack(d1, n);
+			return table.edges.contains(key, d2, PackedEdgeTable.hash(key, d2));
+		}
+	}
+
+	/**
+	 * Writes the tables of the least recently used methods to the spill file
+	 * and drops their intern tables, until at least half of the edges that
+	 * are currently in memory have been spilled
+	 * @return The number of edges that have been spilled
+	 */
+	public synchronized long spillColdMethods() {
+		List<MethodTable> resident = new ArrayList<>();
+		long residentEdges = 0;
+		for (MethodTable table : tables.values()) {
+			synchronized (table) {
+				if (table.edges != null && table.edges.size() > 0) {
+					resident.add(table);
+					residentEdges += table.edges.size();
+				}
+			}
+		}
+		Collections.sort(resident, new Comparator<MethodTable>() {
+
+			@Override
+			public int compare(MethodTable o1, MethodTable o2) {
+				return Long.compare(o1.lastAccess, o2.lastAccess);
+			}
+
+		});
+
+		long spilled = 0;
+		for (MethodTable table : resident) {
+			if (spilled * 2 >= residentEdges)
+				break;
+			synchronized (table) {
+				if (table.edges == null)
+					continue;
+				int count = table.edges.size();
+				ByteBuffer buffer = ByteBuffer.allocate(count * PackedEdgeTable.BYTES_PER_EDGE);
+				table.spilledValues = table.edges.writeTo(buffer);
+				table.spilledNodes = table.nodes.toArray();
+				table.spilledFacts = table.facts.toArray();
+				table.spillOffset = spillFile.write(buffer.array());
+				table.edges = null;
+				table.nodes = null;
+				table.facts = null;
+				spilled += count;
+			}
+		}
+		spilledEdges.addAndGet(spilled);
+		return spilled;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (MethodTable table : tables.values())
+			size += table.size();
+		return size;
+	}
+
+	/**
+	 * Gets the total number of edges that have been written to disk
+	 * @return The number of spilled edges
+	 */
+	public long getSpilledEdgeCount() {
+		return spilledEdges.get();
+	}
+
+	/**
+	 * Gets how often a spilled table had to be read back
+	 * @return The number of tables that have been read back from disk
+	 */
+	public long getFaultInCount() {
+		return faultIns.get();
+	}
+
+	@Override
+	public synchronized void clear() {
+		tables.clear();
+		spillFile.clear();
+	}
+
+}
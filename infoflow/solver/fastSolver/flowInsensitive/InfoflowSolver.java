@@ -20,7 +20,7 @@ import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 import soot.jimple.infoflow.solver.IFollowReturnsPastSeedsHandler;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.solver.functions.SolverCallFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverCallToReturnFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverNormalFlowFunction;
@@ -42,7 +42,7 @@ public class InfoflowSolver extends FlowInsensitiveSolver<Unit, Abstraction, BiD
 	private IFollowReturnsPastSeedsHandler followReturnsPastSeedsHandler = null;
 	private final AbstractInfoflowProblem problem;
 	
-	public InfoflowSolver(AbstractInfoflowProblem problem, InterruptableExecutor executor) {
+	public InfoflowSolver(AbstractInfoflowProblem problem, ISolverExecutor executor) {
 		super(problem);
 		this.problem = problem;
 		this.executor = executor;
@@ -50,7 +50,7 @@ public class InfoflowSolver extends FlowInsensitiveSolver<Unit, Abstraction, BiD
 	}
 	
 	@Override
-	protected InterruptableExecutor getExecutor() {
+	protected ISolverExecutor getExecutor() {
 		return executor;
 	}
 
@@ -34,7 +34,8 @@ public  class BasicBlockGraph implements DirectedGraph<BasicBlock> {
     //通过每个unit找到基本块内部的index
     final protected Map<Unit, Integer> unitToInnerBBIndexMap = new HashMap<>();
 
-    final protected     Map<BasicBlock, Set<BasicBlock>> bbToReachableBbMap = new HashMap<>();
+    //基本块之间的可达性
+    protected BlockReachability reachability;
 
     public BasicBlockGraph(IInfoflowCFG unitGraph, SootMethod m) {
         mBody = m.getActiveBody();
@@ -44,7 +45,7 @@ public  class BasicBlockGraph implements DirectedGraph<BasicBlock> {
         buildBlocks(leaders, unitGraph);
 
         //计算unit序关系使用
-        computeBBReachableMap();
+        reachability = new BlockReachability(mBlocks);
     }
 
 
@@ -246,28 +247,6 @@ public  class BasicBlockGraph implements DirectedGraph<BasicBlock> {
     }
 
 
-    private Map<BasicBlock, Set<BasicBlock>> computeBBReachableMap() {
-
-        List<BasicBlock> bbList =  this.mBlocks;
-        for(BasicBlock bb : bbList) {
-            Set<BasicBlock> reached = new HashSet<>();
-            Queue<BasicBlock> worklist = new LinkedList<>();
-            worklist.add(bb);
-            while(!worklist.isEmpty()) {
-                BasicBlock cur = worklist.poll();
-                if(reached.contains(cur))
-                    continue;
-                reached.add(cur);
-                for(BasicBlock next : cur.getSuccs()) {
-                    worklist.offer(next);
-                }
-            }
-
-            bbToReachableBbMap.put(bb, reached);
-        }
-        return bbToReachableBbMap;
-
-    }
     private List<BaseInfoStmt> getEntryBaseStmtList() {
         List<BaseInfoStmt> entryStmtList = new ArrayList<>();
         for(BasicBlock bb  : mHeads) {
@@ -541,7 +520,7 @@ public  class BasicBlockGraph implements DirectedGraph<BasicBlock> {
             int idx2 = unitToInnerBBIndexMap.get(u2);
             return idx1 <= idx2;
         }else {
-            if(bbToReachableBbMap.get(bb1).contains(bb2))
+            if(reachability.isReachable(bb1, bb2))
                 return true;
         }
         return false;
@@ -559,13 +538,11 @@ public  class BasicBlockGraph implements DirectedGraph<BasicBlock> {
     }
 
     public int getInnerBlockId(Unit u) {
-
-        return 0;
-
+        return unitToInnerBBIndexMap.get(u);
     }
 
     public BasicBlock getBasicBlock(Unit u) {
-        return null;
+        return unitToBBMap.get(u);
     }
 
 
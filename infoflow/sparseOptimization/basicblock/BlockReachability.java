@@ -0,0 +1,158 @@
+package soot.jimple.infoflow.sparseOptimization.basicblock;
+
+import java.util.List;
+
+/**
+ * Reachability index over the basic blocks of one method.
+ *
+ * The blocks are first condensed into their strongly connected components,
+ * since all blocks of a loop reach each other anyway. Every component then
+ * gets one row of a bit matrix that holds the components reachable from it.
+ * The rows are filled in reverse topological order, so each row is just the
+ * union of the rows of its successors. A query is a single bit test.
+ *
+ * Compared to a hash set of reachable blocks per block, this needs one bit
+ * instead of a hash set entry per pair, and loops only cost one row in
+ * total.
+ *
+ * @author wanglei
+ */
+public class BlockReachability {
+
+    private final int[] componentOf;
+    private final long[][] reachable;
+
+    /**
+     * Builds the index for the given blocks
+     * @param blocks All blocks of the method. The successors of every block
+     * must be contained in this list.
+     */
+    public BlockReachability(List<BasicBlock> blocks) {
+        int maxIndex = -1;
+        for (BasicBlock bb : blocks)
+            maxIndex = Math.max(maxIndex, bb.getIndexInMethod());
+
+        // Block indices may have gaps where empty blocks have been removed
+        BasicBlock[] byIndex = new BasicBlock[maxIndex + 1];
+        for (BasicBlock bb : blocks)
+            byIndex[bb.getIndexInMethod()] = bb;
+
+        componentOf = new int[maxIndex + 1];
+        int numComponents = computeComponents(byIndex);
+
+        // Tarjan's algorithm numbers the components in reverse topological
+        // order, i.e., all successors of a component have a smaller number
+        int words = (numComponents + 63) >>> 6;
+        reachable = new long[numComponents][];
+        for (int c = 0; c < numComponents; c++)
+            reachable[c] = new long[words];
+        for (int c = 0; c < numComponents; c++)
+            reachable[c][c >>> 6] |= 1L << c;
+
+        // Visit the blocks component by component, so that the rows of all
+        // successors are complete before we use them
+        int[] order = new int[byIndex.length];
+        int[] start = new int[numComponents + 1];
+        for (int i = 0; i < byIndex.length; i++)
+            if (byIndex[i] != null)
+                start[componentOf[i] + 1]++;
+        for (int c = 0; c < numComponents; c++)
+            start[c + 1] += start[c];
+        int[] fill = start.clone();
+        for (int i = 0; i < byIndex.length; i++)
+            if (byIndex[i] != null)
+                order[fill[componentOf[i]]++] = i;
+
+        for (int c = 0; c < numComponents; c++) {
+            long[] row = reachable[c];
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                for (BasicBlock succ : byIndex[order[k]].getSuccs()) {
+                    int sc = componentOf[succ.getIndexInMethod()];
+                    if (sc == c)
+                        continue;
+                    long[] succRow = reachable[sc];
+                    for (int w = 0; w < words; w++)
+                        row[w] |= succRow[w];
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the strongly connected components with an iterative version
+     * of Tarjan's algorithm
+     * @param byIndex The blocks, indexed by their index in the method
+     * @return The number of components
+     */
+    private int computeComponents(BasicBlock[] byIndex) {
+        int n = byIndex.length;
+        int[] lowLink = new int[n];
+        int[] visitIndex = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callStack = new int[n];
+        int[] succPos = new int[n];
+        int nextVisit = 1;
+        int numComponents = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (byIndex[root] == null || visitIndex[root] != 0)
+                continue;
+
+            int depth = 0;
+            callStack[depth] = root;
+            visitIndex[root] = lowLink[root] = nextVisit++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callStack[depth];
+                List<BasicBlock> succs = byIndex[v].getSuccs();
+                if (succPos[v] < succs.size()) {
+                    int w = succs.get(succPos[v]++).getIndexInMethod();
+                    if (visitIndex[w] == 0) {
+                        visitIndex[w] = lowLink[w] = nextVisit++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callStack[++depth] = w;
+                    } else if (onStack[w])
+                        lowLink[v] = Math.min(lowLink[v], visitIndex[w]);
+                    continue;
+                }
+
+                // All successors are done, check whether v is a root
+                if (lowLink[v] == visitIndex[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        componentOf[w] = numComponents;
+                    } while (w != v);
+                    numComponents++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callStack[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+            }
+        }
+        return numComponents;
+    }
+
+    /**
+     * Checks whether there is a path from one block to another one. Every
+     * block reaches itself.
+     * @param from The start block
+     * @param to The target block
+     * @return True if the target block is reachable from the start block,
+     * otherwise false
+     */
+    public boolean isReachable(BasicBlock from, BasicBlock to) {
+        int c1 = componentOf[from.getIndexInMethod()];
+        int c2 = componentOf[to.getIndexInMethod()];
+        return (reachable[c1][c2 >>> 6] & (1L << c2)) != 0;
+    }
+
+}
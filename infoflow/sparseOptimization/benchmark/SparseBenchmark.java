@@ -0,0 +1,149 @@
+package soot.jimple.infoflow.sparseOptimization.benchmark;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowConfiguration.CodeEliminationMode;
+import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.results.InfoflowPerformanceData;
+import soot.jimple.infoflow.results.InfoflowPerformanceData.Phase;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.options.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark driver that runs every {@link SyntheticWorkload} with the stock
+ * InfoflowSolver and with the InfoflowSparseSolver and reports the time of
+ * the single analysis phases.
+ *
+ * Usage: SparseBenchmark [-warmup n] [-iterations n] [-scale f] [-libpath path]
+ * [workload ...]
+ *
+ * @author wanglei
+ */
+public class SparseBenchmark {
+
+    private static final String[] PHASES = { "DFG build", "Summary build", "Propagation", "Path building", "Total" };
+
+    /**
+     * The measured times of one configuration, in nanoseconds. The first
+     * index is the phase, the second one the iteration.
+     */
+    private static class Measurement {
+        final long[][] times;
+        int numResults = -1;
+        long propagations = -1;
+
+        Measurement(int iterations) {
+            this.times = new long[PHASES.length][iterations];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmup = 2;
+        int iterations = 5;
+        double scale = 1.0;
+        String libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+        List<SyntheticWorkload> workloads = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-warmup"))
+                warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-iterations"))
+                iterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-scale"))
+                scale = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-libpath"))
+                libPath = args[++i];
+            else
+                workloads.add(SyntheticWorkload.valueOf(args[i].toUpperCase()));
+        }
+        if (workloads.isEmpty())
+            workloads.addAll(Arrays.asList(SyntheticWorkload.values()));
+
+        File appDir = Files.createTempDirectory("sparse-benchmark").toFile();
+        appDir.deleteOnExit();
+
+        System.out.println(String.format("%-14s %-7s %-14s %12s %12s", "Workload", "Solver", "Phase",
+                "Median (ms)", "Min (ms)"));
+        for (SyntheticWorkload workload : workloads) {
+            int size = Math.max(1, (int) (workload.getDefaultSize() * scale));
+            workload.writeTo(appDir, size);
+
+            Measurement dense = measure(workload, appDir.getAbsolutePath(), libPath, false, warmup, iterations);
+            Measurement sparse = measure(workload, appDir.getAbsolutePath(), libPath, true, warmup, iterations);
+            print(workload, "dense", dense);
+            print(workload, "sparse", sparse);
+            if (dense.numResults != sparse.numResults)
+                System.out.println("WARNING: " + workload + " found " + dense.numResults + " results with the dense "
+                        + "solver, but " + sparse.numResults + " results with the sparse solver");
+            new File(appDir, workload.getClassName() + ".jimple").delete();
+        }
+    }
+
+    private static Measurement measure(SyntheticWorkload workload, String appPath, String libPath, boolean sparse,
+                                       int warmup, int iterations) {
+        Measurement measurement = new Measurement(iterations);
+        for (int i = 0; i < warmup + iterations; i++) {
+            Infoflow infoflow = createInfoflow(sparse);
+            ISourceSinkManager sourcesSinks = new DefaultSourceSinkManager(
+                    Collections.singleton(workload.sourceSig()), Collections.singleton(workload.sinkSig()));
+
+            long beforeRun = System.nanoTime();
+            infoflow.computeInfoflow(appPath, libPath, workload.getEntryPoint(), sourcesSinks);
+            long totalTime = System.nanoTime() - beforeRun;
+
+            if (i < warmup)
+                continue;
+            int iteration = i - warmup;
+            InfoflowPerformanceData data = infoflow.getResults() == null ? null
+                    : infoflow.getResults().getPerformanceData();
+            if (data == null)
+                throw new RuntimeException("The analysis of workload " + workload + " did not complete");
+            measurement.times[0][iteration] = data.getWallTime(Phase.DFG_BUILD);
+            measurement.times[1][iteration] = data.getWallTime(Phase.SUMMARY_BUILD);
+            measurement.times[2][iteration] = data.getWallTime(Phase.TAINT_PROPAGATION);
+            measurement.times[3][iteration] = data.getWallTime(Phase.PATH_RECONSTRUCTION);
+            measurement.times[4][iteration] = totalTime;
+            measurement.numResults = infoflow.getResults().size();
+            measurement.propagations = data.getForwardPropagationCount();
+        }
+        return measurement;
+    }
+
+    static Infoflow createInfoflow(boolean sparse) {
+        Infoflow infoflow = new Infoflow();
+        infoflow.getConfig().setSparseOptEnabled(sparse);
+        // Keep the synthetic code as it is, constant propagation would fold
+        // most of the workloads away
+        infoflow.getConfig().setCodeEliminationMode(CodeEliminationMode.NoCodeElimination);
+        infoflow.setSootConfig(new IInfoflowConfig() {
+            @Override
+            public void setSootOptions(Options options) {
+                options.set_src_prec(Options.src_prec_jimple);
+            }
+        });
+        return infoflow;
+    }
+
+    private static void print(SyntheticWorkload workload, String solver, Measurement measurement) {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            long[] times = measurement.times[phase].clone();
+            Arrays.sort(times);
+            // Phases that did not run in this configuration are reported as -1
+            if (times.length == 0 || times[0] < 0)
+                continue;
+            System.out.println(String.format("%-14s %-7s %-14s %12.3f %12.3f", workload, solver, PHASES[phase],
+                    times[times.length / 2] / 1E6, times[0] / 1E6));
+        }
+        System.out.println(String.format("%-14s %-7s %d forward propagations, %d results", workload, solver,
+                measurement.propagations, measurement.numResults));
+    }
+
+}
@@ -0,0 +1,237 @@
+package soot.jimple.infoflow.sparseOptimization.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic Jimple programs for comparing the sparse and the dense taint
+ * analysis. Every workload is a single class with a static source(), a static
+ * sink(String) and a main method as the entry point. The size parameter
+ * scales the part of the program that the workload stresses.
+ *
+ * @author wanglei
+ */
+public enum SyntheticWorkload {
+
+    /**
+     * One long method in which the taint is copied from local to local,
+     * interleaved with statements that do not touch the taint
+     */
+    STRAIGHT_LINE("BenchStraightLine", 2000) {
+        @Override
+        protected void writeMethods(StringBuilder sb, int size) {
+            sb.append("    public static void main(java.lang.String[])\n    {\n");
+            sb.append("        java.lang.String[] r0;\n");
+            for (int i = 0; i <= size; i++)
+                sb.append("        java.lang.String s").append(i).append(", t").append(i).append(";\n");
+            sb.append("        r0 := @parameter0: java.lang.String[];\n");
+            sb.append("        s0 = staticinvoke ").append(sourceSig()).append("();\n");
+            sb.append("        t0 = \"noise\";\n");
+            for (int i = 1; i <= size; i++) {
+                sb.append("        s").append(i).append(" = s").append(i - 1).append(";\n");
+                sb.append("        t").append(i).append(" = t").append(i - 1).append(";\n");
+            }
+            sb.append("        staticinvoke ").append(sinkSig()).append("(s").append(size).append(");\n");
+            sb.append("        staticinvoke ").append(sinkSig()).append("(t").append(size).append(");\n");
+            sb.append("        return;\n    }\n\n");
+        }
+    },
+
+    /**
+     * A linked list of the given depth. The taint is stored at the end of the
+     * list and read back by walking the list from its head, which stresses
+     * the alias analysis and access path handling.
+     */
+    FIELD_CHAIN("BenchFieldChain", 20) {
+        @Override
+        protected void writeFields(StringBuilder sb) {
+            sb.append("    public ").append(className).append(" next;\n\n");
+            sb.append("    public java.lang.String data;\n\n");
+        }
+
+        @Override
+        protected void writeMethods(StringBuilder sb, int size) {
+            String nextField = "<" + className + ": " + className + " next>";
+            String dataField = "<" + className + ": java.lang.String data>";
+
+            sb.append("    public static void main(java.lang.String[])\n    {\n");
+            sb.append("        java.lang.String[] r0;\n");
+            sb.append("        java.lang.String s0, s1;\n");
+            for (int i = 0; i <= size; i++)
+                sb.append("        ").append(className).append(" n").append(i).append(", w").append(i).append(";\n");
+            sb.append("        r0 := @parameter0: java.lang.String[];\n");
+            for (int i = 0; i <= size; i++) {
+                sb.append("        n").append(i).append(" = new ").append(className).append(";\n");
+                sb.append("        specialinvoke n").append(i).append(".<").append(className)
+                        .append(": void <init>()>();\n");
+                if (i > 0)
+                    sb.append("        n").append(i - 1).append('.').append(nextField).append(" = n").append(i)
+                            .append(";\n");
+            }
+            sb.append("        s0 = staticinvoke ").append(sourceSig()).append("();\n");
+            sb.append("        n").append(size).append('.').append(dataField).append(" = s0;\n");
+            sb.append("        w0 = n0;\n");
+            for (int i = 1; i <= size; i++)
+                sb.append("        w").append(i).append(" = w").append(i - 1).append('.').append(nextField)
+                        .append(";\n");
+            sb.append("        s1 = w").append(size).append('.').append(dataField).append(";\n");
+            sb.append("        staticinvoke ").append(sinkSig()).append("(s1);\n");
+            sb.append("        return;\n    }\n\n");
+        }
+    },
+
+    /**
+     * A main method that passes the taint through the given number of
+     * distinct callees and sinks every return value
+     */
+    CALL_FAN_OUT("BenchCallFanOut", 200) {
+        @Override
+        protected void writeMethods(StringBuilder sb, int size) {
+            sb.append("    public static void main(java.lang.String[])\n    {\n");
+            sb.append("        java.lang.String[] r0;\n");
+            sb.append("        java.lang.String s0");
+            for (int i = 0; i < size; i++)
+                sb.append(", c").append(i);
+            sb.append(";\n");
+            sb.append("        r0 := @parameter0: java.lang.String[];\n");
+            sb.append("        s0 = staticinvoke ").append(sourceSig()).append("();\n");
+            for (int i = 0; i < size; i++) {
+                sb.append("        c").append(i).append(" = staticinvoke ").append(passSig(i)).append("(s0);\n");
+                sb.append("        staticinvoke ").append(sinkSig()).append("(c").append(i).append(");\n");
+            }
+            sb.append("        return;\n    }\n\n");
+
+            for (int i = 0; i < size; i++) {
+                sb.append("    public static java.lang.String pass").append(i).append("(java.lang.String)\n    {\n");
+                sb.append("        java.lang.String p0, p1, p2, t0;\n");
+                sb.append("        p0 := @parameter0: java.lang.String;\n");
+                sb.append("        t0 = \"noise\";\n");
+                sb.append("        p1 = p0;\n");
+                sb.append("        p2 = p1;\n");
+                sb.append("        return p2;\n    }\n\n");
+            }
+        }
+
+        private String passSig(int i) {
+            return "<" + className + ": java.lang.String pass" + i + "(java.lang.String)>";
+        }
+    },
+
+    /**
+     * A cycle of the given number of mutually recursive methods through
+     * which the taint is passed before it reaches the sink
+     */
+    RECURSION("BenchRecursion", 50) {
+        @Override
+        protected void writeMethods(StringBuilder sb, int size) {
+            sb.append("    public static void main(java.lang.String[])\n    {\n");
+            sb.append("        java.lang.String[] r0;\n");
+            sb.append("        java.lang.String s0, s1;\n");
+            sb.append("        r0 := @parameter0: java.lang.String[];\n");
+            sb.append("        s0 = staticinvoke ").append(sourceSig()).append("();\n");
+            sb.append("        s1 = staticinvoke ").append(recSig(0)).append("(s0, ").append(size).append(");\n");
+            sb.append("        staticinvoke ").append(sinkSig()).append("(s1);\n");
+            sb.append("        return;\n    }\n\n");
+
+            for (int i = 0; i < size; i++) {
+                sb.append("    public static java.lang.String rec").append(i)
+                        .append("(java.lang.String, int)\n    {\n");
+                sb.append("        java.lang.String p0, p1;\n");
+                sb.append("        int i0, i1;\n");
+                sb.append("        p0 := @parameter0: java.lang.String;\n");
+                sb.append("        i0 := @parameter1: int;\n");
+                sb.append("        if i0 <= 0 goto label1;\n");
+                sb.append("        i1 = i0 - 1;\n");
+                sb.append("        p1 = staticinvoke ").append(recSig((i + 1) % size)).append("(p0, i1);\n");
+                sb.append("        return p1;\n\n");
+                sb.append("     label1:\n");
+                sb.append("        return p0;\n    }\n\n");
+            }
+        }
+
+        private String recSig(int i) {
+            return "<" + className + ": java.lang.String rec" + i + "(java.lang.String,int)>";
+        }
+    };
+
+    protected final String className;
+    private final int defaultSize;
+
+    SyntheticWorkload(String className, int defaultSize) {
+        this.className = className;
+        this.defaultSize = defaultSize;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public String getEntryPoint() {
+        return "<" + className + ": void main(java.lang.String[])>";
+    }
+
+    public String sourceSig() {
+        return "<" + className + ": java.lang.String source()>";
+    }
+
+    public String sinkSig() {
+        return "<" + className + ": void sink(java.lang.String)>";
+    }
+
+    protected void writeFields(StringBuilder sb) {
+    }
+
+    protected abstract void writeMethods(StringBuilder sb, int size);
+
+    /**
+     * Generates the Jimple code of this workload
+     *
+     * @param size The size of the workload
+     * @return The Jimple code of the workload class
+     */
+    public String generate(int size) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class ").append(className).append(" extends java.lang.Object\n{\n");
+        writeFields(sb);
+
+        sb.append("    public void <init>()\n    {\n");
+        sb.append("        ").append(className).append(" r0;\n");
+        sb.append("        r0 := @this: ").append(className).append(";\n");
+        sb.append("        specialinvoke r0.<java.lang.Object: void <init>()>();\n");
+        sb.append("        return;\n    }\n\n");
+
+        sb.append("    public static java.lang.String source()\n    {\n");
+        sb.append("        return \"secret\";\n    }\n\n");
+
+        sb.append("    public static void sink(java.lang.String)\n    {\n");
+        sb.append("        java.lang.String r0;\n");
+        sb.append("        r0 := @parameter0: java.lang.String;\n");
+        sb.append("        return;\n    }\n\n");
+
+        writeMethods(sb, size);
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes the Jimple file of this workload into the given directory
+     *
+     * @param dir The directory that is used as the application path
+     * @param size The size of the workload
+     */
+    public void writeTo(File dir, int size) throws IOException {
+        File file = new File(dir, className + ".jimple");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(generate(size));
+        }
+    }
+
+}
@@ -277,6 +277,8 @@ public class BaseInfoStmtSet {
        // System.out.println("CC4");
         computeDataFlow(tmpforward, seed,true);
         computeDataFlow(tmpbackward, seedbackward, false);
+        DataFlowNode.trimSuccs(seed);
+        DataFlowNode.trimSuccs(seedbackward);
        // System.out.println("CC5");
         return new Pair<Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>>(seed, seedbackward);
 
@@ -8,8 +8,10 @@ import soot.Value;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.sparseOptimization.basicblock.BasicBlockGraph;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.CompactDFGIndex;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DFGEntryKey;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
+import soot.jimple.infoflow.util.TimingCounter;
 
 import java.util.Map;
 
@@ -35,6 +37,8 @@ public class DataFlowGraphQuery {
 
     final private Map<SootMethod, BasicBlockGraph> methodToBasicBlockGraphMap ;
 
+     private CompactDFGIndex compactIndex = null;
+
 
     public static DataFlowGraphQuery v() {
         if(instance == null)
@@ -81,6 +85,21 @@ public class DataFlowGraphQuery {
         return this.methodToBasicBlockGraphMap;
     }
 
+    /**
+     * Replaces the DFGEntryKey-based maps by a compact index with a single
+     * open-addressing table per direction. Afterwards, lookups no longer
+     * create key objects and the old maps are no longer referenced by this
+     * query.
+     *
+     * @return The new index
+     */
+    public CompactDFGIndex useCompactIndex() {
+        compactIndex = new CompactDFGIndex(newdfg, newbackwardDfg);
+        newdfg = null;
+        newbackwardDfg = null;
+        return compactIndex;
+    }
+
     public DataFlowNode useApTofindDataFlowGraph(AccessPath ap, Unit stmt) {
         SootMethod caller = iCfg.getMethodOf(stmt);
         Value base = ap.getPlainValue();
@@ -88,6 +107,9 @@ public class DataFlowGraphQuery {
         if(field1 == null)
             field1 = DataFlowNode.baseField;
 
+        if(compactIndex != null)
+            return compactIndex.get(stmt, base, field1, true, true, true);
+
         DFGEntryKey key = new DFGEntryKey(stmt, base, field1);
 
 //        if(!dfg.containsKey(caller)) return null;
@@ -120,7 +142,6 @@ public class DataFlowGraphQuery {
     }
 
 
-    public static long count = 0;
 
     public  DataFlowNode useBaseAndFieldTofindDataFlowGraphOld(Value base, SootField field, Unit stmt, boolean isOriginal, boolean isForward) {
 
@@ -144,13 +165,20 @@ public class DataFlowGraphQuery {
         if(!l2.containsKey(key)) return null;
         Pair<BaseInfoStmt, DataFlowNode> pair = l2.get(key);
         if(pair == null) return null;
-        count += (System.nanoTime() - beforeFsolver);
+        TimingCounter.DFG_QUERY.add(System.nanoTime() - beforeFsolver);
         return pair.getO2();
     }
 
     public  DataFlowNode useBaseAndFieldTofindDataFlowGraph(Value base, SootField field, Unit stmt, boolean isOriginal,boolean isLeft , boolean isForward) {
 
         long beforeFsolver = System.nanoTime();
+        if(compactIndex != null) {
+            DataFlowNode node = compactIndex.get(stmt, base, field == null ? DataFlowNode.baseField : field,
+                    isOriginal, isLeft, isForward);
+            TimingCounter.DFG_QUERY.add(System.nanoTime() - beforeFsolver);
+            return node;
+        }
+
         Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg;
         if(isForward)
             dfg = this.newdfg;
@@ -165,7 +193,7 @@ public class DataFlowGraphQuery {
 
         Pair<BaseInfoStmt, DataFlowNode> pair = dfg.get(key);
         if(pair == null) return null;
-        count += (System.nanoTime() - beforeFsolver);
+        TimingCounter.DFG_QUERY.add(System.nanoTime() - beforeFsolver);
         return pair.getO2();
     }
 
@@ -17,10 +17,16 @@ import soot.jimple.infoflow.sparseOptimization.summary.SMBackwardFunction;
 import soot.jimple.infoflow.sparseOptimization.summary.SMForwardFunction;
 import soot.jimple.infoflow.sparseOptimization.summary.SummaryGraph;
 import soot.jimple.infoflow.sparseOptimization.summary.SummarySolver;
+import soot.jimple.infoflow.sparseOptimization.store.DFGStore;
 import soot.jimple.infoflow.util.SystemClassHandler;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * @author wanglei
@@ -52,6 +58,34 @@ public class InnerBBFastBuildDFGSolver {
         return unitOrderComputingMap;
     }
 
+    private DFGStore dfgStore = null;
+
+    private Set<SootMethod> cachedMethods = new HashSet<>();
+
+    /**
+     * Sets the persistent store from which the data flow graphs and summaries
+     * of unchanged methods are loaded instead of being rebuilt
+     *
+     * @param dfgStore The store to use, or null to always rebuild
+     */
+    public void setDFGStore(DFGStore dfgStore) {
+        this.dfgStore = dfgStore;
+    }
+
+    /**
+     * Adds the data flow graphs and summaries of all methods that have been
+     * built in this run to the persistent store. Must be called after
+     * {@link #solveSummary()}.
+     */
+    public void saveToDFGStore() {
+        if(dfgStore == null)
+            return;
+        Set<SootMethod> builtMethods = new HashSet<>(BaseInfoSetGroupMap.keySet());
+        builtMethods.removeAll(cachedMethods);
+        dfgStore.storeAll(iCfg, builtMethods, newDfg, newBackwardDfg,
+                forwardSummary, backwardsSummary);
+    }
+
     public InnerBBFastBuildDFGSolver(IInfoflowCFG iCfg ) {
         this.iCfg = iCfg;
     }
@@ -64,6 +98,37 @@ public class InnerBBFastBuildDFGSolver {
         return newBackwardDfg;
     }
 
+    /**
+     * Drops the references to the key-based data flow graph maps once they
+     * have been replaced by a compact index, so that the maps can be
+     * collected. The summaries and the unit order are kept.
+     */
+    public void releaseDataFlowGraph() {
+        newDfg = Collections.emptyMap();
+        newBackwardDfg = Collections.emptyMap();
+    }
+
+    /**
+     * Counts the distinct nodes of the forward and backward data flow graphs,
+     * including the nodes that are only reachable as successors
+     */
+    public int getDataFlowNodeCount() {
+        Set<DataFlowNode> visited = Collections.newSetFromMap(new IdentityHashMap<DataFlowNode, Boolean>());
+        Deque<DataFlowNode> worklist = new ArrayDeque<>();
+        for(Pair<BaseInfoStmt, DataFlowNode> pair : newDfg.values())
+            worklist.add(pair.getO2());
+        for(Pair<BaseInfoStmt, DataFlowNode> pair : newBackwardDfg.values())
+            worklist.add(pair.getO2());
+        while (!worklist.isEmpty()) {
+            DataFlowNode cur = worklist.poll();
+            if(!visited.add(cur))
+                continue;
+            for(DataFlowNode[] nexts : cur.getSuccTargets())
+                Collections.addAll(worklist, nexts);
+        }
+        return visited.size();
+    }
+
     public Map<SootMethod, Map<Value, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>>> getDfg() {
         return dfg;
     }
@@ -88,78 +153,201 @@ public class InnerBBFastBuildDFGSolver {
 
     public void solve() {
         for (SootMethod sm : getMethodsForSeeds(iCfg))
-            buildDFGForEachSootMethod(sm);
+            buildDFGForEachSootMethod(sm, newDfg, newBackwardDfg, unitOrderComputingMap, BaseInfoSetGroupMap,
+                    forwardSummary, backwardsSummary, cachedMethods);
     }
 
-    private Map<Pair<Unit, Value>, SummaryGraph> forwardSummary = new HashMap(256);
-    private Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary = new HashMap(256);
+    /**
+     * Builds the data flow graphs of all reachable methods on a fork-join pool.
+     * Every worker fills its own maps, the partial results are merged in the
+     * original method order, so the result equals the one of {@link #solve()}.
+     *
+     * @param numThreads The number of worker threads to use
+     */
+    public void solveParallel(int numThreads) {
+        if(numThreads <= 1) {
+            solve();
+            return;
+        }
 
-    public Map<Pair<Unit, Value>, SummaryGraph> getBackwardsSummary() {
-        return backwardsSummary;
+        final List<SootMethod> methods = new ArrayList<>(getMethodsForSeeds(iCfg));
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            PartialDFG res = pool.invoke(new BuildDFGTask(methods, 0, methods.size()));
+            newDfg.putAll(res.dfg);
+            newBackwardDfg.putAll(res.backwardDfg);
+            unitOrderComputingMap.putAll(res.unitOrderComputingMap);
+            BaseInfoSetGroupMap.putAll(res.baseInfoSetGroupMap);
+            forwardSummary.putAll(res.forwardSummary);
+            backwardsSummary.putAll(res.backwardsSummary);
+            cachedMethods.addAll(res.cachedMethods);
+        } finally {
+            pool.shutdown();
+        }
     }
 
-    public Map<Pair<Unit, Value>, SummaryGraph> getForwardSummary() {
-        return forwardSummary;
+    /**
+     * The thread-confined part of the data flow graph built by one worker
+     */
+    private static class PartialDFG {
+        final Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = new HashMap<>();
+        final Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg = new HashMap<>();
+        final Map<SootMethod, BasicBlockGraph> unitOrderComputingMap = new HashMap<>();
+        final Map<SootMethod, Map<Value, BaseInfoStmtSet>> baseInfoSetGroupMap = new HashMap<>();
+        final Map<Pair<Unit, Value>, SummaryGraph> forwardSummary = new HashMap<>();
+        final Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary = new HashMap<>();
+        final Set<SootMethod> cachedMethods = new HashSet<>();
+
+        void merge(PartialDFG other) {
+            dfg.putAll(other.dfg);
+            backwardDfg.putAll(other.backwardDfg);
+            unitOrderComputingMap.putAll(other.unitOrderComputingMap);
+            baseInfoSetGroupMap.putAll(other.baseInfoSetGroupMap);
+            forwardSummary.putAll(other.forwardSummary);
+            backwardsSummary.putAll(other.backwardsSummary);
+            cachedMethods.addAll(other.cachedMethods);
+        }
     }
 
-    String[] validFunc = {"main","func"};
+    /**
+     * Splits the method list into halves until the shard is small enough and
+     * builds the data flow graphs of one shard sequentially
+     */
+    private class BuildDFGTask extends RecursiveTask<PartialDFG> {
 
-    public void solveSummary() {
+        private static final int THRESHOLD = 16;
 
-        for(Map.Entry<SootMethod, Map<Value, BaseInfoStmtSet>> e : BaseInfoSetGroupMap.entrySet()) {
-            SootMethod m = e.getKey();
-            boolean found = false;
-            for(String f : validFunc)
-                if(m.toString().contains(f))
-                    found = true;
-            if(!found) continue;
-
-            Map<Value, BaseInfoStmtSet> group = e.getValue();
-            for(Map.Entry<Value, BaseInfoStmtSet> entry : group.entrySet()) {
-                Value base = entry.getKey();
-                BaseInfoStmtSet baseInfoStmtSet = entry.getValue();
+        private final List<SootMethod> methods;
+        private final int from;
+        private final int to;
 
-                SummarySolver summarySolver = new SummarySolver(newDfg, newBackwardDfg,  baseInfoStmtSet, m, iCfg,new BackwardsInfoflowCFG(iCfg));
-                Pair<SMForwardFunction, SMBackwardFunction> ret = summarySolver.solve();
-                forwardSummary.putAll(ret.getO1().getForwardSummary());
-                forwardSummary.putAll(ret.getO2().getForwardSummary());
-                backwardsSummary.putAll(ret.getO1().getBackwardsSummary());
-                backwardsSummary.putAll(ret.getO2().getBackwardsSummary());
+        BuildDFGTask(List<SootMethod> methods, int from, int to) {
+            this.methods = methods;
+            this.from = from;
+            this.to = to;
+        }
 
+        @Override
+        protected PartialDFG compute() {
+            if(to - from <= THRESHOLD) {
+                PartialDFG res = new PartialDFG();
+                for(int i = from; i < to; i++)
+                    buildDFGForEachSootMethod(methods.get(i), res.dfg, res.backwardDfg,
+                            res.unitOrderComputingMap, res.baseInfoSetGroupMap,
+                            res.forwardSummary, res.backwardsSummary, res.cachedMethods);
+                return res;
             }
 
+            int mid = (from + to) >>> 1;
+            BuildDFGTask left = new BuildDFGTask(methods, from, mid);
+            BuildDFGTask right = new BuildDFGTask(methods, mid, to);
+            right.fork();
+            PartialDFG res = left.compute();
+            // merge left before right to keep the sequential order
+            res.merge(right.join());
+            return res;
         }
+    }
+
+    private Map<Pair<Unit, Value>, SummaryGraph> forwardSummary = new HashMap<>(256);
+    private Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary = new HashMap<>(256);
 
+    public Map<Pair<Unit, Value>, SummaryGraph> getBackwardsSummary() {
+        return backwardsSummary;
+    }
 
+    public Map<Pair<Unit, Value>, SummaryGraph> getForwardSummary() {
+        return forwardSummary;
     }
 
+    public void solveSummary() {
+        final IInfoflowCFG backwardsICfg = new BackwardsInfoflowCFG(iCfg);
+        for(SummaryTask task : getSummaryTasks(backwardsICfg))
+            mergeSummary(task.call());
+    }
 
+    /**
+     * Computes the intra-procedural summaries of all (method, base) pairs as
+     * independent tasks on a fork-join pool. All tasks share one backwards
+     * CFG. The results are merged in the same order as in
+     * {@link #solveSummary()}, so the summary maps are identical.
+     *
+     * @param numThreads The number of worker threads to use
+     */
+    public void solveSummaryParallel(int numThreads) {
+        if(numThreads <= 1) {
+            solveSummary();
+            return;
+        }
 
-    public  Map<BasicBlock, Set<BasicBlock>> computeBBOrder(BasicBlockGraph bbg) {
+        final IInfoflowCFG backwardsICfg = new BackwardsInfoflowCFG(iCfg);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            for(Future<Pair<SMForwardFunction, SMBackwardFunction>> future : pool.invokeAll(getSummaryTasks(backwardsICfg)))
+                mergeSummary(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Intra-procedural summary building was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Intra-procedural summary building failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-        Map<BasicBlock, Set<BasicBlock>> bbToReachableBbMap = new HashMap<>();
-        List<BasicBlock> bbList =  bbg.getBlocks();
-        for(BasicBlock bb : bbList) {
-            Set<BasicBlock> reached = new HashSet<>();
-            Queue<BasicBlock> worklist = new LinkedList<>();
-            worklist.add(bb);
-            while(!worklist.isEmpty()) {
-                BasicBlock cur = worklist.poll();
-                if(reached.contains(cur))
-                    continue;
-                reached.add(cur);
-                for(BasicBlock next : cur.getSuccs()) {
-                    worklist.offer(next);
-                }
-            }
+    private List<SummaryTask> getSummaryTasks(IInfoflowCFG backwardsICfg) {
+        List<SummaryTask> tasks = new ArrayList<>();
+        for(Map.Entry<SootMethod, Map<Value, BaseInfoStmtSet>> e : BaseInfoSetGroupMap.entrySet()) {
+            SootMethod m = e.getKey();
+            // the summaries of cached methods have been loaded with their graphs
+            if(cachedMethods.contains(m))
+                continue;
+            for(BaseInfoStmtSet baseInfoStmtSet : e.getValue().values())
+                tasks.add(new SummaryTask(m, baseInfoStmtSet, backwardsICfg));
+        }
+        return tasks;
+    }
+
+    private void mergeSummary(Pair<SMForwardFunction, SMBackwardFunction> ret) {
+        forwardSummary.putAll(ret.getO1().getForwardSummary());
+        forwardSummary.putAll(ret.getO2().getForwardSummary());
+        backwardsSummary.putAll(ret.getO1().getBackwardsSummary());
+        backwardsSummary.putAll(ret.getO2().getBackwardsSummary());
+    }
+
+    /**
+     * Solves the summaries of a single base inside a single method
+     */
+    private class SummaryTask implements Callable<Pair<SMForwardFunction, SMBackwardFunction>> {
+
+        private final SootMethod m;
+        private final BaseInfoStmtSet baseInfoStmtSet;
+        private final IInfoflowCFG backwardsICfg;
 
-            bbToReachableBbMap.put(bb, reached);
+        SummaryTask(SootMethod m, BaseInfoStmtSet baseInfoStmtSet, IInfoflowCFG backwardsICfg) {
+            this.m = m;
+            this.baseInfoStmtSet = baseInfoStmtSet;
+            this.backwardsICfg = backwardsICfg;
         }
-        return bbToReachableBbMap;
 
+        @Override
+        public Pair<SMForwardFunction, SMBackwardFunction> call() {
+            SummarySolver summarySolver = new SummarySolver(newDfg, newBackwardDfg, baseInfoStmtSet, m, iCfg, backwardsICfg);
+            return summarySolver.solve();
+        }
     }
 
-    private void buildDFGForEachSootMethod(SootMethod m) {
+
+
+
+    private void buildDFGForEachSootMethod(SootMethod m,
+                                           Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> newDfg,
+                                           Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> newBackwardDfg,
+                                           Map<SootMethod, BasicBlockGraph> unitOrderComputingMap,
+                                           Map<SootMethod, Map<Value, BaseInfoStmtSet>> baseInfoSetGroupMap,
+                                           Map<Pair<Unit, Value>, SummaryGraph> forwardSummary,
+                                           Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary,
+                                           Set<SootMethod> cachedMethods) {
 
         if (m.hasActiveBody()) {
             // Check whether this is a system class we need to ignore
@@ -185,6 +373,20 @@ public class InnerBBFastBuildDFGSolver {
 
             final Map<Value, BaseInfoStmtSet> baseInfoStmtMapGbyBase = bbg.computeBaseInfo();
 
+            // reuse the graphs of a byte-identical method from an earlier run
+            if(dfgStore != null) {
+                DFGStore.CachedMethod cached = dfgStore.load(m, bbg);
+                if(cached != null) {
+                    newDfg.putAll(cached.getDfg());
+                    newBackwardDfg.putAll(cached.getBackwardDfg());
+                    forwardSummary.putAll(cached.getForwardSummary());
+                    backwardsSummary.putAll(cached.getBackwardsSummary());
+                    baseInfoSetGroupMap.put(m, baseInfoStmtMapGbyBase);
+                    cachedMethods.add(m);
+                    return;
+                }
+            }
+
             Map<Value, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>> baseToDfg = new HashMap<>();
 
             Map<Value, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>>> backwardBaseToDfg = new HashMap<>();
@@ -202,7 +404,7 @@ public class InnerBBFastBuildDFGSolver {
                 returnInfoMap.put(base, baseInfoStmtSet.getReturnInfo());
             }
 
-            BaseInfoSetGroupMap.put(m, baseInfoStmtMapGbyBase);
+            baseInfoSetGroupMap.put(m, baseInfoStmtMapGbyBase);
 
             //printer(m, baseToDfg, backwardBaseToDfg);
 
@@ -320,9 +522,11 @@ public class InnerBBFastBuildDFGSolver {
             sb.append("  ("+count +") ");
             count++;
             sb.append(cur.toString() + "\n");
-            if(cur.getSuccs() != null) {
-                for(Map.Entry<SootField, Set<DataFlowNode>> entry : cur.getSuccs().entrySet()) {
-                    SootField f = entry.getKey();
+            if(cur.hasSuccs()) {
+                SootField[] fields = cur.getSuccFields();
+                DataFlowNode[][] targets = cur.getSuccTargets();
+                for(int i = 0; i < fields.length; i++) {
+                    SootField f = fields[i];
                     String fs ;
                     if(f == DataFlowNode.baseField)
                         fs = "NULL";
@@ -330,8 +534,7 @@ public class InnerBBFastBuildDFGSolver {
                         fs = f.toString();
 
                     sb.append("      " + fs + "  ->  \n");
-                    Set<DataFlowNode> nextSet = entry.getValue();
-                    for(DataFlowNode next : nextSet) {
+                    for(DataFlowNode next : targets[i]) {
                         sb.append("         " + next + "\n");
                         if(!visited.contains(next)) {
                             list.offer(next);
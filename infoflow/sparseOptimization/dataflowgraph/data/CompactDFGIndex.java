@@ -0,0 +1,133 @@
+package soot.jimple.infoflow.sparseOptimization.dataflowgraph.data;
+
+import heros.solver.Pair;
+import soot.SootField;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.BaseInfoStmt;
+
+import java.util.Map;
+
+/**
+ * Replacement for the DFGEntryKey-based data flow graph maps. All parts of a
+ * lookup key (stmt, base, field, isOriginal, isLeft) are stored in parallel
+ * arrays of one open-addressing table with linear probing, so a lookup is a
+ * single probe sequence that neither creates a DFGEntryKey nor boxes any
+ * numbers. Keys are hashed and compared like DFGEntryKey.
+ *
+ * The index is built once and is read-only afterwards.
+ *
+ * @author wanglei
+ */
+public class CompactDFGIndex {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private static final byte FLAG_ORIGINAL = 1;
+    private static final byte FLAG_LEFT = 2;
+
+    /**
+     * The entries of one direction of the data flow graph
+     */
+    private static class Table {
+        final Unit[] stmts;
+        final Value[] bases;
+        final SootField[] fields;
+        final byte[] flags;
+        final DataFlowNode[] nodes;
+        final int mask;
+        int size = 0;
+
+        Table(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+            stmts = new Unit[capacity];
+            bases = new Value[capacity];
+            fields = new SootField[capacity];
+            flags = new byte[capacity];
+            nodes = new DataFlowNode[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(Unit stmt, Value base, SootField field, byte flag, DataFlowNode node) {
+            int idx = hash(stmt, base, field, flag) & mask;
+            while (nodes[idx] != null) {
+                if (matches(idx, stmt, base, field, flag)) {
+                    nodes[idx] = node;
+                    return;
+                }
+                idx = (idx + 1) & mask;
+            }
+            stmts[idx] = stmt;
+            bases[idx] = base;
+            fields[idx] = field;
+            flags[idx] = flag;
+            nodes[idx] = node;
+            size++;
+        }
+
+        DataFlowNode get(Unit stmt, Value base, SootField field, byte flag) {
+            int idx = hash(stmt, base, field, flag) & mask;
+            DataFlowNode node;
+            while ((node = nodes[idx]) != null) {
+                if (matches(idx, stmt, base, field, flag))
+                    return node;
+                idx = (idx + 1) & mask;
+            }
+            return null;
+        }
+
+        private boolean matches(int idx, Unit stmt, Value base, SootField field, byte flag) {
+            return flags[idx] == flag
+                    && (stmt == null ? stmts[idx] == null : stmt.equals(stmts[idx]))
+                    && (base == null ? bases[idx] == null : base.equals(bases[idx]))
+                    && (field == null ? fields[idx] == null : field.equals(fields[idx]));
+        }
+
+        private static int hash(Unit stmt, Value base, SootField field, byte flag) {
+            int h = stmt == null ? 0 : stmt.hashCode();
+            h = 31 * h + (base == null ? 0 : base.hashCode());
+            h = 31 * h + (field == null ? 0 : field.hashCode());
+            h = 31 * h + flag;
+            // spread the bits, the table size is a power of two
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private final Table forwardTable;
+    private final Table backwardTable;
+
+    public CompactDFGIndex(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                           Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg) {
+        this.forwardTable = buildTable(dfg);
+        this.backwardTable = buildTable(backwardDfg);
+    }
+
+    private static Table buildTable(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg) {
+        Table table = new Table(dfg.size());
+        for(Map.Entry<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> entry : dfg.entrySet()) {
+            DFGEntryKey key = entry.getKey();
+            table.put(key.getStmt(), key.getBase(), key.getField(), toFlag(key.isOriginal(), key.isLeft()),
+                    entry.getValue().getO2());
+        }
+        return table;
+    }
+
+    private static byte toFlag(boolean isOriginal, boolean isLeft) {
+        return (byte) ((isOriginal ? FLAG_ORIGINAL : 0) | (isLeft ? FLAG_LEFT : 0));
+    }
+
+    /**
+     * Looks up the data flow node for the given key
+     *
+     * @return The data flow node, or null if there is no node for the key
+     */
+    public DataFlowNode get(Unit stmt, Value base, SootField field, boolean isOriginal, boolean isLeft, boolean isForward) {
+        Table table = isForward ? forwardTable : backwardTable;
+        return table.get(stmt, base, field, toFlag(isOriginal, isLeft));
+    }
+
+    public int size() {
+        return forwardTable.size + backwardTable.size;
+    }
+
+}
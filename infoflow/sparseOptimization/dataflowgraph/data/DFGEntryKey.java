@@ -69,6 +69,26 @@ public class DFGEntryKey {
         this.hashCode = result;
     }
 
+    public Unit getStmt() {
+        return stmt;
+    }
+
+    public Value getBase() {
+        return base;
+    }
+
+    public SootField getField() {
+        return field;
+    }
+
+    public boolean isOriginal() {
+        return isOriginal;
+    }
+
+    public boolean isLeft() {
+        return isLeft;
+    }
+
     @Override
     public int hashCode() {
         return hashCode;
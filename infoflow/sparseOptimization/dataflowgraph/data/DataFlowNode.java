@@ -1,13 +1,21 @@
 package soot.jimple.infoflow.sparseOptimization.dataflowgraph.data;
 
+import heros.solver.Pair;
 import soot.*;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.BaseInfoStmt;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.internal.JimpleLocal;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,8 +37,22 @@ public class DataFlowNode {
 
     public int hashCode = 0;
 
-    private HashMap<SootField, Set<DataFlowNode>> succs ;
-    private Set<SootField> killFields ;
+    // Successors grouped by field as two parallel arrays: succTargets[i] holds
+    // the successors reached via succFields[i]. Most nodes only have one or two
+    // fields with one or two successors each, so exact-size arrays are much
+    // smaller and faster to traverse than a HashMap of HashSets. While the graph
+    // is built, the target arrays grow geometrically and succSizes holds their
+    // fill levels; trimSuccs() then removes duplicates and cuts the arrays to
+    // size once. Every accessor trims the node first, so the unused tails of
+    // the arrays are never visible outside of this class.
+    private static final SootField[] NO_FIELDS = new SootField[0];
+    private static final DataFlowNode[][] NO_TARGETS = new DataFlowNode[0][];
+
+    private static final int LINEAR_DEDUP_LIMIT = 8;
+
+    private SootField[] succFields = NO_FIELDS;
+    private DataFlowNode[][] succTargets = NO_TARGETS;
+    private int[] succSizes;
 
     DataFlowNode(Unit u, Value val, SootField f, boolean isLeft) {
         this.stmt = u;
@@ -59,40 +81,149 @@ public class DataFlowNode {
         return field;
     }
 
-    public HashMap<SootField, Set<DataFlowNode>> getSuccs() {
-        return this.succs;
+    public boolean hasSuccs() {
+        ensureTrimmed();
+        return succFields.length != 0;
+    }
+
+    /**
+     * Gets the fields via which this node has successors. The array is shared
+     * and must not be modified.
+     */
+    public SootField[] getSuccFields() {
+        ensureTrimmed();
+        return succFields;
+    }
+
+    /**
+     * Gets the successors of this node, grouped parallel to
+     * {@link #getSuccFields()}. The arrays are shared and must not be modified.
+     */
+    public DataFlowNode[][] getSuccTargets() {
+        ensureTrimmed();
+        return succTargets;
+    }
+
+    /**
+     * Gets the successors of this node via the given field
+     *
+     * @return The successors, or null if there are none for the field. The
+     * array is shared and must not be modified.
+     */
+    public DataFlowNode[] getSuccsOf(SootField field) {
+        ensureTrimmed();
+        final SootField[] fields = succFields;
+        for(int i = 0; i < fields.length; i++)
+            if(fields[i] == field || fields[i].equals(field))
+                return succTargets[i];
+        return null;
     }
 
     public Unit getStmt() {
         return this.stmt;
     }
 
+    /**
+     * Adds a successor via the given field. Duplicates are removed when the
+     * successors are trimmed, either for the whole graph by
+     * {@link #trimSuccs(Map)} or for this node when its successors are read.
+     */
     public void setSuccs(SootField field, DataFlowNode target) {
         if(field == null)
             field = baseField;
 
-        if(succs == null)
-            succs = new HashMap<>();
-        if(succs.containsKey(field)) {
-            succs.get(field).add(target);
-        } else {
-            Set<DataFlowNode> tmp = new HashSet<>();
-            tmp.add(target);
-            succs.put(field, tmp);
+        if(succSizes == null) {
+            succSizes = new int[succFields.length];
+            for(int i = 0; i < succFields.length; i++)
+                succSizes[i] = succTargets[i].length;
+        }
+
+        for(int i = 0; i < succFields.length; i++) {
+            if(succFields[i] == field || succFields[i].equals(field)) {
+                DataFlowNode[] targets = succTargets[i];
+                int size = succSizes[i];
+                if(size == targets.length) {
+                    targets = Arrays.copyOf(targets, Math.max(2, size * 2));
+                    succTargets[i] = targets;
+                }
+                targets[size] = target;
+                succSizes[i] = size + 1;
+                return;
+            }
         }
+
+        int len = succFields.length;
+        succFields = Arrays.copyOf(succFields, len + 1);
+        succFields[len] = field;
+        succTargets = Arrays.copyOf(succTargets, len + 1);
+        succTargets[len] = new DataFlowNode[] { target };
+        succSizes = Arrays.copyOf(succSizes, len + 1);
+        succSizes[len] = 1;
     }
 
-//    public void setKillField(SootField field) {
-//        if(killFields == null)
-//            killFields = new HashSet<>();
-//        killFields.add(field);
-//    }
-//
-//    public Set<SootField> getKillFields() {
-//        return killFields;
-//    }
-public static long count= 0;
+    /**
+     * Trims the successors of this node if successors have been added since
+     * the last trim. The graphs are trimmed as a whole once they are complete,
+     * so the solvers never take the lock.
+     */
+    private void ensureTrimmed() {
+        if(succSizes != null)
+            trimSuccs();
+    }
+
+    /**
+     * Removes the duplicate successors of this node and cuts the successor
+     * arrays to their exact size
+     */
+    private synchronized void trimSuccs() {
+        final int[] sizes = succSizes;
+        if(sizes == null)
+            return;
+
+        for(int i = 0; i < succTargets.length; i++) {
+            DataFlowNode[] targets = succTargets[i];
+            int size = sizes[i];
+            int unique = 0;
+            if(size <= LINEAR_DEDUP_LIMIT) {
+                outer:
+                for(int j = 0; j < size; j++) {
+                    DataFlowNode t = targets[j];
+                    for(int k = 0; k < unique; k++)
+                        if(targets[k] == t || targets[k].equals(t))
+                            continue outer;
+                    targets[unique++] = t;
+                }
+            } else {
+                Set<DataFlowNode> seen = new HashSet<>(size * 2);
+                for(int j = 0; j < size; j++)
+                    if(seen.add(targets[j]))
+                        targets[unique++] = targets[j];
+            }
+            if(unique != targets.length)
+                succTargets[i] = Arrays.copyOf(targets, unique);
+        }
+        succSizes = null;
+    }
 
+    /**
+     * Removes duplicate successors and trims the successor arrays of all nodes
+     * that are reachable from the given graph. This is called once the graph
+     * is complete, so that reading the successors later on never has to trim.
+     */
+    public static void trimSuccs(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg) {
+        Set<DataFlowNode> visited = Collections.newSetFromMap(new IdentityHashMap<DataFlowNode, Boolean>());
+        Deque<DataFlowNode> worklist = new ArrayDeque<>();
+        for(Pair<BaseInfoStmt, DataFlowNode> pair : dfg.values())
+            worklist.add(pair.getO2());
+        while (!worklist.isEmpty()) {
+            DataFlowNode cur = worklist.poll();
+            if(!visited.add(cur))
+                continue;
+            cur.trimSuccs();
+            for(DataFlowNode[] nexts : cur.succTargets)
+                Collections.addAll(worklist, nexts);
+        }
+    }
 
     public Abstraction deriveNewAbsbyAbs(Abstraction abs) {
         long beforeFsolver = System.nanoTime();
@@ -100,15 +231,15 @@ public static long count= 0;
         AccessPath ap = abs.getAccessPath();
         SootField firstField = ap.getFirstField();
 
-        if(succs != null) {
-            Set<DataFlowNode> next = succs.get(DataFlowNode.baseField);
+        if(hasSuccs()) {
+            DataFlowNode[] next = getSuccsOf(DataFlowNode.baseField);
             if(next != null)
                 for(DataFlowNode d : next) {
                     uses.add((Stmt)d.stmt);
                 }
 
             if(firstField != null) {
-                Set<DataFlowNode> next1 = succs.get(firstField);
+                DataFlowNode[] next1 = getSuccsOf(firstField);
                 if(next1 != null)
                     for(DataFlowNode d : next1) {
                         uses.add((Stmt)d.stmt);
@@ -116,7 +247,7 @@ public static long count= 0;
             }
         }
         abs.setUseStmts(uses);
-        count += (System.nanoTime() - beforeFsolver);
+        TimingCounter.DFG_USE_DEF.add(System.nanoTime() - beforeFsolver);
 
         return abs;
     }
@@ -124,8 +255,8 @@ public static long count= 0;
     public Abstraction deriveNewAbsAllInfo(Abstraction abs) {
         long beforeFsolver = System.nanoTime();
         Set<Unit> uses = new HashSet<>();
-        if(succs != null) {
-            for(Set<DataFlowNode> nexts : succs.values()) {
+        if(hasSuccs()) {
+            for(DataFlowNode[] nexts : getSuccTargets()) {
                 for(DataFlowNode n : nexts) {
                     if(n.getValue() == null || n.getValue() != null && n.getValue().equals(value)) {
 
@@ -135,7 +266,7 @@ public static long count= 0;
             }
         }
         abs.setUseStmts(uses);
-        count += (System.nanoTime() - beforeFsolver);
+        TimingCounter.DFG_USE_DEF.add(System.nanoTime() - beforeFsolver);
 
         return abs;
     }
@@ -144,15 +275,15 @@ public static long count= 0;
         Set<Unit> uses = new HashSet<>();
         AccessPath ap = abs.getAccessPath();
         SootField firstField = ap.getFirstField();
-        if(succs != null) {
-            Set<DataFlowNode> next = succs.get(DataFlowNode.baseField);
+        if(hasSuccs()) {
+            DataFlowNode[] next = getSuccsOf(DataFlowNode.baseField);
             if(next != null)
                 for(DataFlowNode d : next) {
                     uses.add((Stmt)d.stmt);
                 }
 
             if(firstField != null) {
-                Set<DataFlowNode> next1 = succs.get(firstField);
+                DataFlowNode[] next1 = getSuccsOf(firstField);
                 if(next1 != null)
                     for(DataFlowNode d : next1) {
                         uses.add((Stmt)d.stmt);
@@ -32,6 +32,7 @@ import soot.jimple.infoflow.sparseOptimization.dataflowgraph.DataFlowGraphQuery;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 import soot.jimple.infoflow.util.BaseSelector;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.infoflow.util.TypeUtils;
 
 import java.util.Collection;
@@ -53,9 +54,6 @@ public class BackwardsSparseInfoflowProblem extends AbstractInfoflowProblem {
 		super(manager);
 	}
 
-	public static long countNormal1 = 0;
-	public static long countNormal2 = 0;
-	public static long countNormal3 = 0;
 
 	@Override
 	public FlowFunctions<Unit, Abstraction, SootMethod> createFlowFunctionsFactory() {
@@ -414,15 +412,15 @@ public class BackwardsSparseInfoflowProblem extends AbstractInfoflowProblem {
 				DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(value, stmt, true, false);
 				AccessPath ap = abs.getAccessPath();
 				SootField firstField = ap.getFirstField();
-				if(dataFlowNode.getSuccs() != null) {
-					Set<DataFlowNode> next = dataFlowNode.getSuccs().get(DataFlowNode.baseField);
+				if(dataFlowNode.hasSuccs()) {
+					DataFlowNode[] next = dataFlowNode.getSuccsOf(DataFlowNode.baseField);
 					if(next != null)
 						for(DataFlowNode d : next) {
 							res.add(d.getStmt());
 						}
 
 					if(firstField != null) {
-						Set<DataFlowNode> next1 = dataFlowNode.getSuccs().get(firstField);
+						DataFlowNode[] next1 = dataFlowNode.getSuccsOf(firstField);
 						if(next1 != null)
 							for(DataFlowNode d : next1) {
 								res.add(d.getStmt());
@@ -437,15 +435,15 @@ public class BackwardsSparseInfoflowProblem extends AbstractInfoflowProblem {
 				DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(value, stmt);
 				AccessPath ap = abs.getAccessPath();
 				SootField firstField = ap.getFirstField();
-				if(dataFlowNode.getSuccs() != null) {
-					Set<DataFlowNode> next = dataFlowNode.getSuccs().get(DataFlowNode.baseField);
+				if(dataFlowNode.hasSuccs()) {
+					DataFlowNode[] next = dataFlowNode.getSuccsOf(DataFlowNode.baseField);
 					if(next != null)
 						for(DataFlowNode d : next) {
 							res.add(d.getStmt());
 						}
 
 					if(firstField != null) {
-						Set<DataFlowNode> next1 = dataFlowNode.getSuccs().get(firstField);
+						DataFlowNode[] next1 = dataFlowNode.getSuccsOf(firstField);
 						if(next1 != null)
 							for(DataFlowNode d : next1) {
 								res.add(d.getStmt());
@@ -484,13 +482,13 @@ public class BackwardsSparseInfoflowProblem extends AbstractInfoflowProblem {
 										FlowFunctionType.NormalFlowFunction);
 							long b1 = System.nanoTime();
 							Set<Abstraction> res = computeAliases(defStmt, leftValue, d1, source);
-							countNormal1 += System.nanoTime() - b1;
+							TimingCounter.BACKWARD_NORMAL1.add(System.nanoTime() - b1);
 							long b2 = System.nanoTime();
 							if (destDefStmt != null && interproceduralCFG().isExitStmt(destDefStmt))
 								for (Abstraction abs : res)
 									computeAliases(destDefStmt, destLeftValue, d1, abs);
 
-							countNormal2 += System.nanoTime() - b2;
+							TimingCounter.BACKWARD_NORMAL2.add(System.nanoTime() - b2);
 							return notifyOutFlowHandlers(src, d1, source, res,
 									FlowFunctionType.NormalFlowFunction);
 						}
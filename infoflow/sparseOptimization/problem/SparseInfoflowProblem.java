@@ -35,6 +35,7 @@ import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
 import soot.jimple.infoflow.sparseOptimization.summary.SummaryQuery;
 import soot.jimple.infoflow.util.BaseSelector;
 import soot.jimple.infoflow.util.ByReferenceBoolean;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.infoflow.util.TypeUtils;
 
 import java.util.*;
@@ -64,11 +65,6 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 				createZeroValue(), results);
 	}
 
-	public static long countCall = 0;
-	public static long countNormal1 = 0;
-	public static long countNormal2 = 0;
-	public static long countNormal3 = 0;
-	public static long countExit = 0;
 	
 	@Override
 	public FlowFunctions<Unit, Abstraction, SootMethod> createFlowFunctionsFactory() {
@@ -352,6 +348,20 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 				
 				return new NotifyingNormalFlowFunction((Stmt) src) {
 					
+					// The node of the left side only depends on the statement,
+					// so it is looked up once for all facts this function is
+					// applied to
+					private DataFlowNode leftDataFlowNode = null;
+					
+					private DataFlowNode getLeftDataFlowNode(Value left) {
+						DataFlowNode node = leftDataFlowNode;
+						if (node == null) {
+							node = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(left, stmt);
+							leftDataFlowNode = node;
+						}
+						return node;
+					}
+					
 					@Override
 					public Set<Abstraction> computeTargetsInternal(Abstraction d1, Abstraction source) {
 						// Check whether we must activate a taint
@@ -368,12 +378,13 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 								newSource, stmt, (Stmt) dest, killSource, killAll);
 						if (killAll.value)
 							return Collections.<Abstraction>emptySet();
-						countNormal3 += (System.nanoTime() - beforeFsolver3);
+						TimingCounter.FORWARD_NORMAL3.add(System.nanoTime() - beforeFsolver3);
 
-						if(getManager().getConfig().isSummaryOptEnabled()) {
-							SummaryQuery.v().propagateAbsUsingSummaries(Collections.singleton(d1), getManager().getForwardSolver() , aliasing.getBackwardsSolver(), source, stmt);
+						// Jump to the summary targets if there is a summary for
+						// the source at this statement, otherwise follow the DFG
+						if(getManager().getConfig().isSummaryOptEnabled()
+								&& SummaryQuery.v().propagateAbsUsingSummaries(Collections.singleton(d1), getManager().getForwardSolver() , aliasing.getBackwardsSolver(), source, stmt))
 							return Collections.emptySet();
-						}
 
 						// Propagate over an assignment
 						if (src instanceof AssignStmt) {
@@ -388,7 +399,7 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 							// Create the new taints that may be created by this assignment
 							Set<Abstraction> resAssign = createNewTaintOnAssignment(assignStmt,
 									rightVals, d1, newSource);
-							countNormal1 += (System.nanoTime() - beforeFsolver);
+							TimingCounter.FORWARD_NORMAL1.add(System.nanoTime() - beforeFsolver);
 
 							long beforeFsolver2 = System.nanoTime();
 							//我们不需要对source进行传播，因为source会直接传播到他的使用位置
@@ -404,9 +415,8 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 							//如果还剩其他的变量，这说明是通过left传递过来的，所以对left的值查找其use位置
 							if (resAssign != null && !resAssign.isEmpty()) {
 								Set<Abstraction> tmpSet = new HashSet<>();
+								DataFlowNode dfNode = getLeftDataFlowNode(left);
 								for(Abstraction resAbs : resAssign) {
-									DataFlowNode dfNode = DataFlowGraphQuery.v().
-											useValueTofindForwardDataFlowGraph(left, stmt);
 									tmpSet.add(dfNode.deriveNewAbsbyAbs(resAbs));
 								}
 
@@ -432,7 +442,7 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 										res = Collections.singleton(sourceDfn.deriveNewAbsbyAbs(newSource));
 								}
 							}
-							countNormal2 += (System.nanoTime() - beforeFsolver2);
+							TimingCounter.FORWARD_NORMAL2.add(System.nanoTime() - beforeFsolver2);
 
 						}
 
@@ -537,12 +547,7 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 											Unit idStmt = paramLocalToStmtMap.get(target);
 											if(idStmt == null)
 												throw new RuntimeException("no id stmt of thr param in OP");
-											if(getManager().getConfig().isSummaryOptEnabled()) {
-												newAbs.setUseStmts(Collections.singleton(idStmt));
-												resAbs.add(newAbs);
-											}else {
-												resAbs.add(callHelper(target, idStmt, newAbs));
-											}
+											resAbs.add(calleeHelper(target, idStmt, newAbs));
 										}
 											//resAbs.add(newAbs);
 									}
@@ -556,12 +561,7 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 										Unit idStmt = paramLocalToStmtMap.get(target);
 										if(idStmt == null)
 											throw new RuntimeException("no id stmt of thr param in OP");
-										if(getManager().getConfig().isSummaryOptEnabled()) {
-											newAbs.setUseStmts(Collections.singleton(idStmt));
-											resAbs.add(newAbs);
-										}else {
-											resAbs.add(callHelper(target, idStmt, newAbs));
-										}
+										resAbs.add(calleeHelper(target, idStmt, newAbs));
 
 									}
 									//resAbs.add(newAbs);
@@ -574,6 +574,23 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 				};
 			}
 
+			/**
+			 * Maps an abstraction into the callee. If the summary optimization
+			 * is enabled and the callee has a summary for the parameter, the
+			 * summary is applied right away and the abstraction is only
+			 * returned to register the incoming edge, so that the solver does
+			 * not descend into the callee body. Otherwise the abstraction is
+			 * propagated to the uses of the parameter inside the callee.
+			 */
+			private Abstraction calleeHelper(Value param, Unit idStmt, Abstraction input) {
+				if(getManager().getConfig().isSummaryOptEnabled()
+						&& SummaryQuery.v().applyCalleeSummary(getManager().getForwardSolver(), aliasing.getBackwardsSolver(), input, idStmt)) {
+					input.setUseStmts(Collections.<Unit>emptySet());
+					return input;
+				}
+				return callHelper(param, idStmt, input);
+			}
+
 			private Abstraction callHelper(Value op , Unit stmt , Abstraction input) {
 
 				DataFlowNode dfg = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(op, stmt);
@@ -678,12 +695,9 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 								Abstraction abs = newSource.deriveNewAbstraction(ap, (Stmt) exitStmt);
 								if (abs != null) {
 
-									if(getManager().getConfig().isSummaryOptEnabled()) {
-										SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite);
-
-									}else {
+									if(!getManager().getConfig().isSummaryOptEnabled()
+											|| !SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite))
 										res.add(callHelper(leftOp, callSite, abs));
-									}
 
 									// Aliases of implicitly tainted variables must be mapped back
 									// into the caller's context on return when we leave the last
@@ -770,12 +784,9 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 
 								if (abs != null) {
 									//res.add(abs);
-									if(getManager().getConfig().isSummaryOptEnabled()) {
-										SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite);
-
-									}else {
+									if(!getManager().getConfig().isSummaryOptEnabled()
+											|| !SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite))
 										res.add(callHelper(originalCallArg, callSite, abs));
-									}
 
 									// Aliases of implicitly tainted variables must be mapped back
 									// into the caller's context on return when we leave the last
@@ -825,11 +836,9 @@ public class SparseInfoflowProblem extends AbstractInfoflowProblem {
 									Abstraction abs = newSource.deriveNewAbstraction(ap, (Stmt) exitStmt);										
 									if (abs != null) {
 										//res.add(abs);
-										if(getManager().getConfig().isSummaryOptEnabled()) {
-											SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite);
-										}else {
+										if(!getManager().getConfig().isSummaryOptEnabled()
+												|| !SummaryQuery.v().propagateAbsUsingSummaries(callerD1s, getManager().getForwardSolver() , aliasing.getBackwardsSolver(), abs, callSite))
 											res.add(callHelper(callerBaseLocal, callSite, abs));
-										}
 
 										// Aliases of implicitly tainted variables must be mapped back
 										// into the caller's context on return when we leave the last
@@ -16,12 +16,12 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.sparseOptimization.utils.Utils;
 
 
 public class BackwardsInfoflowSparseSolver  extends InfoflowSparseSolver {
-	public BackwardsInfoflowSparseSolver(AbstractInfoflowProblem problem, InterruptableExecutor executor) {
+	public BackwardsInfoflowSparseSolver(AbstractInfoflowProblem problem, ISolverExecutor executor) {
 		super(problem, executor);
 	}
 
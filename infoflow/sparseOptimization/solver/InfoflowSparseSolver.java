@@ -15,12 +15,11 @@ import heros.solver.Pair;
 import heros.solver.PathEdge;
 import soot.SootMethod;
 import soot.Unit;
-import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 import soot.jimple.infoflow.solver.IFollowReturnsPastSeedsHandler;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.solver.fastSolver.IFDSSolver;
 import soot.jimple.infoflow.solver.functions.SolverCallFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverCallToReturnFlowFunction;
@@ -44,7 +43,7 @@ public class InfoflowSparseSolver extends IFDSSolver<Unit, Abstraction, BiDiInte
 	private IFollowReturnsPastSeedsHandler followReturnsPastSeedsHandler = null;
 	private final AbstractInfoflowProblem problem;
 
-	public InfoflowSparseSolver(AbstractInfoflowProblem problem, InterruptableExecutor executor) {
+	public InfoflowSparseSolver(AbstractInfoflowProblem problem, ISolverExecutor executor) {
 		super(problem);
 		this.problem = problem;
 		this.executor = executor;
@@ -52,7 +51,7 @@ public class InfoflowSparseSolver extends IFDSSolver<Unit, Abstraction, BiDiInte
 	}
 	
 	@Override
-	protected InterruptableExecutor getExecutor() {
+	protected ISolverExecutor getExecutor() {
 		return executor;
 	}
 
@@ -165,9 +164,12 @@ public class InfoflowSparseSolver extends IFDSSolver<Unit, Abstraction, BiDiInte
 	
 	@Override
 	public void cleanup() {
-		this.jumpFunctions = new MyConcurrentHashMap<PathEdge<Unit, Abstraction>, Abstraction>();
+		this.jumpFunctions.clear();
 		this.incoming.clear();
 		this.endSummary.clear();
+		this.pendingBatches.clear();
+		if (this.summarySpillFile != null)
+			this.summarySpillFile.clear();
 	}
 	
 	@Override
@@ -25,7 +25,7 @@ import soot.Unit;
 import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.memory.IMemoryBoundedSolver;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.solver.executors.SetPoolExecutor;
 import soot.jimple.infoflow.solver.fastSolver.FastSolverLinkedNode;
 import soot.jimple.infoflow.solver.memory.IMemoryManager;
@@ -58,7 +58,7 @@ public class SparseIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends B
     //enable with -Dorg.slf4j.simpleLogger.defaultLogLevel=trace
     public static final boolean DEBUG = logger.isDebugEnabled();
 
-	protected InterruptableExecutor executor;
+	protected ISolverExecutor executor;
 
 	@DontSynchronize("only used by single thread")
 	protected int numThreads;
@@ -671,7 +671,7 @@ public class SparseIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends B
 	/**
 	 * Factory method for this solver's thread-pool executor.
 	 */
-	protected InterruptableExecutor getExecutor() {
+	protected ISolverExecutor getExecutor() {
 		return new SetPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 	}
 	
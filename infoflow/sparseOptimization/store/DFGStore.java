@@ -0,0 +1,851 @@
+package soot.jimple.infoflow.sparseOptimization.store;
+
+import heros.solver.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import soot.*;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.sparseOptimization.basicblock.BasicBlockGraph;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.BaseInfoStmt;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DFGEntryKey;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNodeFactory;
+import soot.jimple.infoflow.sparseOptimization.summary.MyAccessPath;
+import soot.jimple.infoflow.sparseOptimization.summary.SummaryGraph;
+import soot.jimple.infoflow.sparseOptimization.summary.SummaryPath;
+import soot.jimple.infoflow.sparseOptimization.utils.Utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent store for the sparse data flow graphs and intra-procedural
+ * summaries of methods. Every method is keyed by a hash of its Jimple body,
+ * so a method that is byte-identical to one of an earlier run (e.g. the same
+ * library inside another app) is loaded instead of being rebuilt.
+ *
+ * Units are encoded by their index in the body, locals by their index in the
+ * local chain and fields by their index in a small per-method table. Each
+ * entry maps its field indices to the signatures in a string table shared by
+ * all entries of the store file, so that signatures no entry refers to any
+ * more can be dropped without touching the encoded data.
+ *
+ * Methods that have been built with and without summaries are stored under
+ * different keys. Every time the store is opened, a new generation starts.
+ * Entries that have not been used for {@link #MAX_UNUSED_GENERATIONS}
+ * generations are dropped when the store is saved.
+ *
+ * @author wanglei
+ */
+public class DFGStore {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int MAGIC = 0x44464753;
+    private static final int VERSION = 3;
+
+    /**
+     * The number of runs after which an entry that has neither been loaded
+     * nor stored is dropped from the store
+     */
+    public static final int MAX_UNUSED_GENERATIONS = 8;
+
+    private static final int NULL_ID = -1;
+    private static final int BASE_FIELD_ID = -2;
+    private static final int STATIC_VALUE_ID = -2;
+    private static final int UNKNOWN_STMT_ID = -2;
+
+    private final File file;
+    private final boolean withSummaries;
+    private int generation = 0;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringToId = new HashMap<>();
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private boolean isDirty = false;
+
+    /**
+     * The encoded data of one method together with the generation in which
+     * it has last been used
+     */
+    private static class Entry {
+        final byte[] blob;
+        volatile int lastUsed;
+
+        /**
+         * The ids in the string table of the fields used by the method,
+         * only accessed while holding the lock of the store
+         */
+        int[] stringIds;
+
+        Entry(byte[] blob, int[] stringIds, int lastUsed) {
+            this.blob = blob;
+            this.stringIds = stringIds;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * The data flow graph and summaries of one method loaded from the store
+     */
+    public static class CachedMethod {
+        private final Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = new HashMap<>();
+        private final Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg = new HashMap<>();
+        private final Map<Pair<Unit, Value>, SummaryGraph> forwardSummary = new HashMap<>();
+        private final Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary = new HashMap<>();
+
+        public Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> getDfg() {
+            return dfg;
+        }
+
+        public Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> getBackwardDfg() {
+            return backwardDfg;
+        }
+
+        public Map<Pair<Unit, Value>, SummaryGraph> getForwardSummary() {
+            return forwardSummary;
+        }
+
+        public Map<Pair<Unit, Value>, SummaryGraph> getBackwardsSummary() {
+            return backwardsSummary;
+        }
+    }
+
+    private DFGStore(File file, boolean withSummaries) {
+        this.file = file;
+        this.withSummaries = withSummaries;
+    }
+
+    /**
+     * Opens the store in the given file. If the file does not exist or was
+     * written by an incompatible version, an empty store is returned.
+     *
+     * @param fileName The file that contains the store
+     * @param withSummaries True if the current run builds intra-procedural
+     * summaries, false if it only builds data flow graphs
+     * @return The store
+     */
+    public static DFGStore open(String fileName, boolean withSummaries) {
+        DFGStore store = new DFGStore(new File(fileName), withSummaries);
+        if (store.file.exists()) {
+            try {
+                store.read();
+            } catch (IOException e) {
+                store.logger.warn("Could not read DFG store {}, starting with an empty store", fileName, e);
+                store.strings.clear();
+                store.stringToId.clear();
+                store.entries.clear();
+            }
+        }
+        store.generation++;
+        return store;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Computes the hash of the given method from its signature and its Jimple
+     * body, including the targets of all branches and the exception handlers
+     *
+     * @param m The method, must have an active body
+     * @return The hash of the method body
+     */
+    public static long computeBodyHash(SootMethod m) {
+        return computeHash(m, null);
+    }
+
+    /**
+     * Computes the key under which the given method is kept in this store.
+     * Besides the body, the key depends on whether summaries are built.
+     *
+     * @param m The method, must have an active body
+     * @return The key of the method
+     */
+    private long computeKey(SootMethod m) {
+        return computeHash(m, withSummaries ? "summaries" : "dfg");
+    }
+
+    private static long computeHash(SootMethod m, String mode) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        Body body = m.getActiveBody();
+        StringBuilder sb = new StringBuilder();
+        sb.append(m.getSignature()).append('\n');
+        for (Local l : body.getLocals())
+            sb.append(l.getName()).append(':').append(l.getType()).append('\n');
+        // Branch targets are printed as labels, which do not tell which unit
+        // they refer to
+        Map<Unit, Integer> unitToId = new IdentityHashMap<>();
+        for (Unit u : body.getUnits())
+            unitToId.put(u, unitToId.size());
+        for (Unit u : body.getUnits()) {
+            sb.append(u);
+            for (UnitBox box : u.getUnitBoxes())
+                sb.append(" ->").append(unitToId.get(box.getUnit()));
+            sb.append('\n');
+        }
+        // The data flow graphs are built on the exceptional CFG
+        for (Trap trap : body.getTraps())
+            sb.append("catch ").append(trap.getException().getName()).append(' ')
+                    .append(unitToId.get(trap.getBeginUnit())).append(' ')
+                    .append(unitToId.get(trap.getEndUnit())).append(' ')
+                    .append(unitToId.get(trap.getHandlerUnit())).append('\n');
+        if (mode != null)
+            sb.append(mode).append('\n');
+        byte[] digest = md.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        long hash = 0;
+        for (int i = 0; i < 8; i++)
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        return hash;
+    }
+
+    /**
+     * Removes the signatures that are no longer used by any entry from the
+     * string table and renumbers the remaining ones
+     */
+    private synchronized void pruneStrings() {
+        BitSet used = new BitSet(strings.size());
+        for (Entry entry : entries.values())
+            for (int id : entry.stringIds)
+                used.set(id);
+        if (used.cardinality() == strings.size())
+            return;
+
+        int[] newIds = new int[strings.size()];
+        List<String> oldStrings = new ArrayList<>(strings);
+        strings.clear();
+        stringToId.clear();
+        for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1))
+            newIds[id] = getStringId(oldStrings.get(id));
+        for (Entry entry : entries.values())
+            for (int i = 0; i < entry.stringIds.length; i++)
+                entry.stringIds[i] = newIds[entry.stringIds[i]];
+        logger.info("Dropped {} unused field signatures from the DFG store", oldStrings.size() - strings.size());
+    }
+
+    /**
+     * Loads the data flow graph and the summaries of the given method
+     *
+     * @param m The method to load
+     * @param bbg The basic block graph of the method, used to restore the
+     * basic blocks of the loaded base statements
+     * @return The cached data of the method, or null if the method is not in
+     * the store
+     */
+    public CachedMethod load(SootMethod m, BasicBlockGraph bbg) {
+        Entry entry = entries.get(computeKey(m));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            BodyIndex index = new BodyIndex(m.getActiveBody());
+            index.fieldSigs.addAll(resolveStrings(entry));
+            CachedMethod cached = decode(index, bbg, new DataInputStream(new ByteArrayInputStream(entry.blob)));
+            if (cached == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            entry.lastUsed = generation;
+            hits.incrementAndGet();
+            return cached;
+        } catch (IOException e) {
+            logger.warn("Could not decode cached DFG of method {}", m, e);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Adds the data flow graphs and summaries of all given methods to the
+     * store. The graphs are grouped by the method that contains the entry
+     * statement.
+     *
+     * @param iCfg The interprocedural control flow graph
+     * @param methods The methods to store
+     * @param dfg The forward data flow graph
+     * @param backwardDfg The backward data flow graph
+     * @param forwardSummary The forward summaries
+     * @param backwardsSummary The backward summaries
+     */
+    public synchronized void storeAll(IInfoflowCFG iCfg, Collection<SootMethod> methods,
+                                      Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                                      Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg,
+                                      Map<Pair<Unit, Value>, SummaryGraph> forwardSummary,
+                                      Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary) {
+        Map<SootMethod, CachedMethod> methodToData = new HashMap<>();
+        for (SootMethod m : methods)
+            methodToData.put(m, new CachedMethod());
+
+        for (Map.Entry<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> entry : dfg.entrySet()) {
+            CachedMethod data = methodToData.get(iCfg.getMethodOf(entry.getKey().getStmt()));
+            if (data != null)
+                data.dfg.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> entry : backwardDfg.entrySet()) {
+            CachedMethod data = methodToData.get(iCfg.getMethodOf(entry.getKey().getStmt()));
+            if (data != null)
+                data.backwardDfg.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Pair<Unit, Value>, SummaryGraph> entry : forwardSummary.entrySet()) {
+            CachedMethod data = methodToData.get(iCfg.getMethodOf(entry.getKey().getO1()));
+            if (data != null)
+                data.forwardSummary.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Pair<Unit, Value>, SummaryGraph> entry : backwardsSummary.entrySet()) {
+            CachedMethod data = methodToData.get(iCfg.getMethodOf(entry.getKey().getO1()));
+            if (data != null)
+                data.backwardsSummary.put(entry.getKey(), entry.getValue());
+        }
+
+        int stored = 0;
+        for (Map.Entry<SootMethod, CachedMethod> entry : methodToData.entrySet()) {
+            SootMethod m = entry.getKey();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            BodyIndex index = new BodyIndex(m.getActiveBody());
+            try {
+                if (encode(index, entry.getValue(), new DataOutputStream(bos))) {
+                    int[] stringIds = new int[index.fieldSigs.size()];
+                    for (int i = 0; i < stringIds.length; i++)
+                        stringIds[i] = getStringId(index.fieldSigs.get(i));
+                    entries.put(computeKey(m), new Entry(bos.toByteArray(), stringIds, generation));
+                    stored++;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not encode DFG of method {}", m, e);
+            }
+        }
+        if (stored > 0)
+            isDirty = true;
+        logger.info("Added {} methods to the DFG store", stored);
+    }
+
+    /**
+     * Writes the store back to its file if it has been changed
+     *
+     * @throws IOException Thrown if the file could not be written
+     */
+    public synchronized void save() throws IOException {
+        // Drop the entries that have not been used for a long time
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (generation - it.next().lastUsed > MAX_UNUSED_GENERATIONS) {
+                it.remove();
+                isDirty = true;
+            }
+        }
+        if (isDirty)
+            pruneStrings();
+        // The generation and the usage of the loaded entries need to be
+        // written back as well
+        if (!isDirty && hits.get() == 0)
+            return;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists())
+            parent.mkdirs();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(generation);
+            out.writeInt(strings.size());
+            for (String str : strings)
+                out.writeUTF(str);
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().lastUsed);
+                int[] stringIds = entry.getValue().stringIds;
+                out.writeInt(stringIds.length);
+                for (int id : stringIds)
+                    out.writeInt(id);
+                out.writeInt(entry.getValue().blob.length);
+                out.write(entry.getValue().blob);
+            }
+        }
+        isDirty = false;
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("DFG store {} has an incompatible format, ignoring it", file);
+                return;
+            }
+            generation = in.readInt();
+            int stringCount = in.readInt();
+            for (int i = 0; i < stringCount; i++)
+                getStringId(in.readUTF());
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                long hash = in.readLong();
+                int lastUsed = in.readInt();
+                int[] stringIds = new int[in.readInt()];
+                for (int j = 0; j < stringIds.length; j++)
+                    stringIds[j] = in.readInt();
+                byte[] blob = new byte[in.readInt()];
+                in.readFully(blob);
+                entries.put(hash, new Entry(blob, stringIds, lastUsed));
+            }
+        }
+    }
+
+    private synchronized int getStringId(String str) {
+        Integer id = stringToId.get(str);
+        if (id == null) {
+            id = strings.size();
+            strings.add(str);
+            stringToId.put(str, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the field signatures used by the given entry, in the order of
+     * their indices in the encoded data
+     */
+    private synchronized List<String> resolveStrings(Entry entry) {
+        List<String> sigs = new ArrayList<>(entry.stringIds.length);
+        for (int id : entry.stringIds)
+            sigs.add(strings.get(id));
+        return sigs;
+    }
+
+    /**
+     * Thrown if a method contains values that cannot be encoded, such methods
+     * are not stored
+     */
+    private static class UnsupportedValueException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Maps units, locals and fields of a method body to their indices and
+     * back
+     */
+    private static class BodyIndex {
+        final List<Unit> units;
+        final List<Local> locals;
+        final Map<Unit, Integer> unitToId = new IdentityHashMap<>();
+        final Map<Local, Integer> localToId = new IdentityHashMap<>();
+        final List<String> fieldSigs = new ArrayList<>();
+        final Map<String, Integer> fieldToId = new HashMap<>();
+
+        BodyIndex(Body body) {
+            units = new ArrayList<>(body.getUnits());
+            locals = new ArrayList<>(body.getLocals());
+            for (int i = 0; i < units.size(); i++)
+                unitToId.put(units.get(i), i);
+            for (int i = 0; i < locals.size(); i++)
+                localToId.put(locals.get(i), i);
+        }
+    }
+
+    private boolean encode(BodyIndex index, CachedMethod data, DataOutputStream out) throws IOException {
+        try {
+            // collect all nodes reachable from the entries and the summary
+            // targets, so that the targets are linked into the decoded graph
+            Map<DataFlowNode, Integer> nodeToId = new IdentityHashMap<>();
+            List<DataFlowNode> nodes = new ArrayList<>();
+            collectNodes(entryNodes(data.dfg), nodeToId, nodes);
+            collectNodes(entryNodes(data.backwardDfg), nodeToId, nodes);
+            collectNodes(targetNodes(data.forwardSummary), nodeToId, nodes);
+            collectNodes(targetNodes(data.backwardsSummary), nodeToId, nodes);
+
+            out.writeInt(nodes.size());
+            for (DataFlowNode node : nodes)
+                writeNode(index, node, out);
+            for (DataFlowNode node : nodes) {
+                SootField[] fields = node.getSuccFields();
+                DataFlowNode[][] targets = node.getSuccTargets();
+                out.writeInt(fields.length);
+                for (int i = 0; i < fields.length; i++) {
+                    out.writeInt(getFieldId(index, fields[i]));
+                    out.writeInt(targets[i].length);
+                    for (DataFlowNode next : targets[i])
+                        out.writeInt(nodeToId.get(next));
+                }
+            }
+
+            // the base statements are shared by many entries
+            Map<BaseInfoStmt, Integer> baseInfoToId = new IdentityHashMap<>();
+            List<BaseInfoStmt> baseInfos = new ArrayList<>();
+            collectBaseInfos(data.dfg, baseInfoToId, baseInfos);
+            collectBaseInfos(data.backwardDfg, baseInfoToId, baseInfos);
+            out.writeInt(baseInfos.size());
+            for (BaseInfoStmt baseInfo : baseInfos)
+                writeBaseInfo(index, baseInfo, out);
+
+            writeEntries(index, data.dfg, nodeToId, baseInfoToId, out);
+            writeEntries(index, data.backwardDfg, nodeToId, baseInfoToId, out);
+            writeSummaries(index, data.forwardSummary, nodeToId, out);
+            writeSummaries(index, data.backwardsSummary, nodeToId, out);
+        } catch (UnsupportedValueException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private CachedMethod decode(BodyIndex index, BasicBlockGraph bbg, DataInputStream in) throws IOException {
+        CachedMethod data = new CachedMethod();
+
+        int nodeCount = in.readInt();
+        DataFlowNode[] nodes = new DataFlowNode[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = readNode(index, in);
+            if (nodes[i] == null)
+                return null;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int fieldCount = in.readInt();
+            for (int j = 0; j < fieldCount; j++) {
+                int fieldId = in.readInt();
+                SootField f = readField(index, fieldId);
+                if (fieldId >= 0 && f == null)
+                    return null;
+                int targetCount = in.readInt();
+                for (int k = 0; k < targetCount; k++)
+                    nodes[i].setSuccs(f, nodes[in.readInt()]);
+            }
+        }
+
+        int baseInfoCount = in.readInt();
+        BaseInfoStmt[] baseInfos = new BaseInfoStmt[baseInfoCount];
+        for (int i = 0; i < baseInfoCount; i++) {
+            baseInfos[i] = readBaseInfo(index, bbg, in);
+            if (baseInfos[i] == null)
+                return null;
+        }
+
+        if (!readEntries(index, data.dfg, nodes, baseInfos, in)
+                || !readEntries(index, data.backwardDfg, nodes, baseInfos, in))
+            return null;
+        DataFlowNode.trimSuccs(data.dfg);
+        DataFlowNode.trimSuccs(data.backwardDfg);
+        if (!readSummaries(index, data.forwardSummary, nodes, in)
+                || !readSummaries(index, data.backwardsSummary, nodes, in))
+            return null;
+        return data;
+    }
+
+    private static List<DataFlowNode> entryNodes(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg) {
+        List<DataFlowNode> roots = new ArrayList<>(dfg.size());
+        for (Pair<BaseInfoStmt, DataFlowNode> pair : dfg.values())
+            roots.add(pair.getO2());
+        return roots;
+    }
+
+    private static List<DataFlowNode> targetNodes(Map<Pair<Unit, Value>, SummaryGraph> summaries) {
+        List<DataFlowNode> roots = new ArrayList<>();
+        for (SummaryGraph graph : summaries.values())
+            for (SummaryPath path : graph.getSummaryPaths())
+                if (path.getTargetNode() != null)
+                    roots.add(path.getTargetNode());
+        return roots;
+    }
+
+    private void collectNodes(Collection<DataFlowNode> roots,
+                              Map<DataFlowNode, Integer> nodeToId, List<DataFlowNode> nodes) {
+        Deque<DataFlowNode> worklist = new ArrayDeque<>(roots);
+        while (!worklist.isEmpty()) {
+            DataFlowNode cur = worklist.poll();
+            if (nodeToId.containsKey(cur))
+                continue;
+            nodeToId.put(cur, nodes.size());
+            nodes.add(cur);
+            if (cur.hasSuccs())
+                for(DataFlowNode[] nexts : cur.getSuccTargets())
+                    worklist.addAll(Arrays.asList(nexts));
+        }
+    }
+
+    private void collectBaseInfos(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                                  Map<BaseInfoStmt, Integer> baseInfoToId, List<BaseInfoStmt> baseInfos)
+            throws UnsupportedValueException {
+        for (Pair<BaseInfoStmt, DataFlowNode> pair : dfg.values()) {
+            BaseInfoStmt baseInfo = pair.getO1();
+            // an entry without a base statement could not be restored
+            if (baseInfo == null)
+                throw new UnsupportedValueException();
+            if (!baseInfoToId.containsKey(baseInfo)) {
+                baseInfoToId.put(baseInfo, baseInfos.size());
+                baseInfos.add(baseInfo);
+            }
+        }
+    }
+
+    private void writeNode(BodyIndex index, DataFlowNode node, DataOutputStream out)
+            throws IOException, UnsupportedValueException {
+        out.writeInt(getUnitId(index, node.getStmt()));
+        out.writeInt(getValueId(index, node.getValue()));
+        out.writeInt(getFieldId(index, node.getField()));
+        out.writeBoolean(node.getIsLeft());
+    }
+
+    private DataFlowNode readNode(BodyIndex index, DataInputStream in) throws IOException {
+        int unitId = in.readInt();
+        int valueId = in.readInt();
+        int fieldId = in.readInt();
+        boolean isLeft = in.readBoolean();
+        SootField f = readField(index, fieldId);
+        if (fieldId >= 0 && f == null)
+            return null;
+        return DataFlowNodeFactory.v().createDataFlowNode(readUnit(index, unitId), readValue(index, valueId), f, isLeft);
+    }
+
+    private void writeBaseInfo(BodyIndex index, BaseInfoStmt baseInfo, DataOutputStream out)
+            throws IOException, UnsupportedValueException {
+        out.writeInt(getUnitId(index, baseInfo.stmt));
+        out.writeInt(getValueId(index, baseInfo.base));
+        out.writeInt(getFieldId(index, baseInfo.leftField));
+        writeFields(index, baseInfo.rightFields, out);
+        writeFields(index, baseInfo.argsFields, out);
+    }
+
+    private BaseInfoStmt readBaseInfo(BodyIndex index, BasicBlockGraph bbg, DataInputStream in) throws IOException {
+        Stmt stmt = (Stmt) readUnit(index, in.readInt());
+        Value base = readValue(index, in.readInt());
+        int leftFieldId = in.readInt();
+        SootField leftField = readField(index, leftFieldId);
+        SootField[] rightFields = readFields(index, in);
+        SootField[] argsFields = readFields(index, in);
+        if ((leftFieldId >= 0 && leftField == null) || !isComplete(rightFields) || !isComplete(argsFields))
+            return null;
+        // the basic block and the index in it are recomputed for the
+        // current body, which is identical to the stored one
+        return new BaseInfoStmt(base, leftField, rightFields, argsFields,
+                bbg.getBasicBlock(stmt), bbg.getInnerBlockId(stmt), stmt);
+    }
+
+    private void writeEntries(BodyIndex index, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                              Map<DataFlowNode, Integer> nodeToId, Map<BaseInfoStmt, Integer> baseInfoToId,
+                              DataOutputStream out) throws IOException, UnsupportedValueException {
+        out.writeInt(dfg.size());
+        for (Map.Entry<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> entry : dfg.entrySet()) {
+            DFGEntryKey key = entry.getKey();
+            out.writeInt(getUnitId(index, key.getStmt()));
+            out.writeInt(getValueId(index, key.getBase()));
+            out.writeInt(getFieldId(index, key.getField()));
+            out.writeBoolean(key.isOriginal());
+            out.writeBoolean(key.isLeft());
+            out.writeInt(baseInfoToId.get(entry.getValue().getO1()));
+            out.writeInt(nodeToId.get(entry.getValue().getO2()));
+        }
+    }
+
+    private boolean readEntries(BodyIndex index, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                                DataFlowNode[] nodes, BaseInfoStmt[] baseInfos, DataInputStream in)
+            throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Unit u = readUnit(index, in.readInt());
+            Value base = readValue(index, in.readInt());
+            int fieldId = in.readInt();
+            SootField f = readField(index, fieldId);
+            if (fieldId >= 0 && f == null)
+                return false;
+            boolean isOriginal = in.readBoolean();
+            boolean isLeft = in.readBoolean();
+            BaseInfoStmt baseInfo = baseInfos[in.readInt()];
+            dfg.put(new DFGEntryKey(u, base, f, isOriginal, isLeft),
+                    new Pair<BaseInfoStmt, DataFlowNode>(baseInfo, nodes[in.readInt()]));
+        }
+        return true;
+    }
+
+    private void writeSummaries(BodyIndex index, Map<Pair<Unit, Value>, SummaryGraph> summaries,
+                                Map<DataFlowNode, Integer> nodeToId, DataOutputStream out)
+            throws IOException, UnsupportedValueException {
+        out.writeInt(summaries.size());
+        for (Map.Entry<Pair<Unit, Value>, SummaryGraph> entry : summaries.entrySet()) {
+            out.writeInt(getUnitId(index, entry.getKey().getO1()));
+            out.writeInt(getValueId(index, entry.getKey().getO2()));
+            List<SummaryPath> paths = entry.getValue().getSummaryPaths();
+            out.writeInt(paths.size());
+            for (SummaryPath path : paths) {
+                out.writeInt(getUnitId(index, path.getSrc()));
+                writeAccessPath(index, path.getSourceAccessPath(), out);
+                out.writeInt(getUnitId(index, path.getTarget()));
+                writeAccessPath(index, path.getTargetAccessPath(), out);
+                DataFlowNode targetNode = path.getTargetNode();
+                out.writeInt(targetNode == null ? NULL_ID : nodeToId.get(targetNode));
+                out.writeBoolean(path.isForward());
+                Set<SootField> killSet = path.getKillSet();
+                out.writeInt(killSet == null ? NULL_ID : killSet.size());
+                if (killSet != null)
+                    for (SootField f : killSet)
+                        out.writeInt(getFieldId(index, f));
+            }
+        }
+    }
+
+    private boolean readSummaries(BodyIndex index, Map<Pair<Unit, Value>, SummaryGraph> summaries,
+                                  DataFlowNode[] nodes, DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Unit u = readUnit(index, in.readInt());
+            Value base = readValue(index, in.readInt());
+            int pathCount = in.readInt();
+            List<SummaryPath> paths = new ArrayList<>(pathCount);
+            for (int j = 0; j < pathCount; j++) {
+                Unit src = readUnit(index, in.readInt());
+                MyAccessPath sourceAp = readAccessPath(index, in);
+                Unit target = readUnit(index, in.readInt());
+                MyAccessPath targetAp = readAccessPath(index, in);
+                int targetNodeId = in.readInt();
+                DataFlowNode targetNode = targetNodeId == NULL_ID ? null : nodes[targetNodeId];
+                boolean isForward = in.readBoolean();
+                int killCount = in.readInt();
+                Set<SootField> killSet = null;
+                if (killCount != NULL_ID) {
+                    killSet = new HashSet<>();
+                    for (int k = 0; k < killCount; k++) {
+                        int fieldId = in.readInt();
+                        SootField f = readField(index, fieldId);
+                        // the field may not exist in this scene anymore
+                        if (fieldId >= 0 && f == null)
+                            return false;
+                        killSet.add(f);
+                    }
+                }
+                if (sourceAp == null || targetAp == null)
+                    return false;
+                paths.add(new SummaryPath(src, sourceAp, target, targetAp, targetNode, isForward, killSet));
+            }
+            summaries.put(new Pair<Unit, Value>(u, base), SummaryGraph.fromSummaryPaths(paths));
+        }
+        return true;
+    }
+
+    private void writeAccessPath(BodyIndex index, MyAccessPath ap, DataOutputStream out)
+            throws IOException, UnsupportedValueException {
+        out.writeInt(getValueId(index, ap.getValue()));
+        writeFields(index, ap.getFields(), out);
+        out.writeInt(getUnitId(index, ap.getActiveStmt()));
+        out.writeBoolean(ap.isStrongUpdateSource());
+    }
+
+    private MyAccessPath readAccessPath(BodyIndex index, DataInputStream in) throws IOException {
+        Value value = readValue(index, in.readInt());
+        SootField[] fields = readFields(index, in);
+        Unit activeStmt = readUnit(index, in.readInt());
+        boolean isStrongUpdateSource = in.readBoolean();
+        return isComplete(fields) ? new MyAccessPath(value, fields, activeStmt, isStrongUpdateSource) : null;
+    }
+
+    private int getUnitId(BodyIndex index, Unit u) throws UnsupportedValueException {
+        if (u == null)
+            return NULL_ID;
+        if (u == Utils.unknownStmt)
+            return UNKNOWN_STMT_ID;
+        Integer id = index.unitToId.get(u);
+        if (id == null)
+            throw new UnsupportedValueException();
+        return id;
+    }
+
+    private Unit readUnit(BodyIndex index, int id) {
+        if (id == NULL_ID)
+            return null;
+        if (id == UNKNOWN_STMT_ID)
+            return Utils.unknownStmt;
+        return index.units.get(id);
+    }
+
+    private int getValueId(BodyIndex index, Value value) throws UnsupportedValueException {
+        if (value == null)
+            return NULL_ID;
+        if (value == DataFlowNode.staticValue)
+            return STATIC_VALUE_ID;
+        Integer id = value instanceof Local ? index.localToId.get(value) : null;
+        if (id == null)
+            throw new UnsupportedValueException();
+        return id;
+    }
+
+    private Value readValue(BodyIndex index, int id) {
+        if (id == NULL_ID)
+            return null;
+        if (id == STATIC_VALUE_ID)
+            return DataFlowNode.staticValue;
+        return index.locals.get(id);
+    }
+
+    private void writeFields(BodyIndex index, SootField[] fields, DataOutputStream out) throws IOException {
+        out.writeInt(fields == null ? NULL_ID : fields.length);
+        if (fields != null)
+            for (SootField f : fields)
+                out.writeInt(getFieldId(index, f));
+    }
+
+    /**
+     * Reads an array of fields. Fields that do not exist in the scene anymore
+     * are null, see {@link #isComplete(SootField[])}.
+     */
+    private SootField[] readFields(BodyIndex index, DataInputStream in) throws IOException {
+        int fieldCount = in.readInt();
+        if (fieldCount == NULL_ID)
+            return null;
+        SootField[] fields = new SootField[fieldCount];
+        for (int i = 0; i < fieldCount; i++)
+            fields[i] = readField(index, in.readInt());
+        return fields;
+    }
+
+    private static boolean isComplete(SootField[] fields) {
+        if (fields != null)
+            for (SootField f : fields)
+                if (f == null)
+                    return false;
+        return true;
+    }
+
+    private int getFieldId(BodyIndex index, SootField f) {
+        if (f == null)
+            return NULL_ID;
+        if (f == DataFlowNode.baseField)
+            return BASE_FIELD_ID;
+        String sig = f.getSignature();
+        Integer id = index.fieldToId.get(sig);
+        if (id == null) {
+            id = index.fieldSigs.size();
+            index.fieldSigs.add(sig);
+            index.fieldToId.put(sig, id);
+        }
+        return id;
+    }
+
+    private SootField readField(BodyIndex index, int id) {
+        if (id == NULL_ID)
+            return null;
+        if (id == BASE_FIELD_ID)
+            return DataFlowNode.baseField;
+        return Scene.v().grabField(index.fieldSigs.get(id));
+    }
+
+}
@@ -122,8 +122,8 @@ public class SMBackwardFunction {
         if(leftSideMatches) {
 
             DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(leftValue, defStmt);
-            if(dataFlowNode.getSuccs() != null) {
-                for(Set<DataFlowNode> tmpSet : dataFlowNode.getSuccs().values()) {
+            if(dataFlowNode.hasSuccs()) {
+                for(DataFlowNode[] tmpSet : dataFlowNode.getSuccTargets()) {
                     for(DataFlowNode nextNode : tmpSet) {
                         SummaryPath nextPath = path.deriveNewMyAccessPath(nextNode.getStmt(), targetAp, nextNode);
                         nextPath.setForward(true);
@@ -234,8 +234,8 @@ public class SMBackwardFunction {
                 //backward:
 
                 DataFlowNode backNode = DataFlowGraphQuery.v().useValueTofindBackwardDataFlowGraph(rightValue, defStmt);
-                if(backNode.getSuccs() != null) {
-                    for(Set<DataFlowNode> tmpSet : backNode.getSuccs().values()) {
+                if(backNode.hasSuccs()) {
+                    for(DataFlowNode[] tmpSet : backNode.getSuccTargets()) {
                         for(DataFlowNode nextNode : tmpSet) {
                             SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp, nextNode.getStmt(), newAp, nextNode);
                             res.add(nextPath);
@@ -245,8 +245,8 @@ public class SMBackwardFunction {
 
                 //forward:
                 DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(rightValue, defStmt, true, false);
-                if(dataFlowNode.getSuccs() != null) {
-                    for(Set<DataFlowNode> tmpSet : dataFlowNode.getSuccs().values()) {
+                if(dataFlowNode.hasSuccs()) {
+                    for(DataFlowNode[] tmpSet : dataFlowNode.getSuccTargets()) {
                         for(DataFlowNode nextNode : tmpSet) {
                             SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp, nextNode.getStmt(), newAp, nextNode);
                             nextPath.setForward(true);
@@ -343,8 +343,8 @@ public class SMBackwardFunction {
             //backward:
 
             DataFlowNode backNode = DataFlowGraphQuery.v().useValueTofindBackwardDataFlowGraph(leftValue, defStmt);
-            if(backNode.getSuccs() != null) {
-                for(Set<DataFlowNode> tmpSet : backNode.getSuccs().values()) {
+            if(backNode.hasSuccs()) {
+                for(DataFlowNode[] tmpSet : backNode.getSuccTargets()) {
                     for(DataFlowNode nextNode : tmpSet) {
                         SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp , nextNode.getStmt(), newLeftAp, nextNode);
                         res.add(nextPath);
@@ -354,8 +354,8 @@ public class SMBackwardFunction {
 
             //forward:
             DataFlowNode dataFlowNode = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(leftValue, defStmt);
-            if(dataFlowNode.getSuccs() != null) {
-                for(Set<DataFlowNode> tmpSet : dataFlowNode.getSuccs().values()) {
+            if(dataFlowNode.hasSuccs()) {
+                for(DataFlowNode[] tmpSet : dataFlowNode.getSuccTargets()) {
                     for(DataFlowNode nextNode : tmpSet) {
                         SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp, nextNode.getStmt(), newLeftAp, nextNode);
                         nextPath.setForward(true);
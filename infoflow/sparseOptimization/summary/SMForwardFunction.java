@@ -184,8 +184,8 @@ public class SMForwardFunction {
                     SummaryPath newPath = path.deriveNewPathWithKillSet(leftField);
                     DataFlowNode sourceDfn = DataFlowGraphQuery.v().
                             useBaseTofindForwardDataFlowGraph(targetAp.getValue(), src, false);
-                    if(sourceDfn.getSuccs() != null)
-                        for(Set<DataFlowNode> tmpSet : sourceDfn.getSuccs().values()) {
+                    if(sourceDfn.hasSuccs())
+                        for(DataFlowNode[] tmpSet : sourceDfn.getSuccTargets()) {
                             for(DataFlowNode nextNode : tmpSet) {
                                 SummaryPath nextPath = newPath.deriveNewMyAccessPath(newPath.getSourceAccessPath(), nextNode.getStmt(), newPath.getTargetAccessPath(), nextNode);
                                 res.add(nextPath);
@@ -300,8 +300,8 @@ public class SMForwardFunction {
 
                 DataFlowNode next = DataFlowGraphQuery.v().useValueTofindBackwardDataFlowGraph(left, src);
 
-                if(next.getSuccs() != null)
-                    for(Set<DataFlowNode> tmpSet : next.getSuccs().values()) {
+                if(next.hasSuccs())
+                    for(DataFlowNode[] tmpSet : next.getSuccTargets()) {
                         for(DataFlowNode nextNode : tmpSet) {
                             SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp, nextNode.getStmt(), newBackwardAp, nextNode);
                             nextPath.setForward(false);
@@ -314,8 +314,8 @@ public class SMForwardFunction {
 
             DataFlowNode next = DataFlowGraphQuery.v().useValueTofindForwardDataFlowGraph(left, src);
 
-            if(next.getSuccs() != null)
-                for(Set<DataFlowNode> tmpSet : next.getSuccs().values()) {
+            if(next.hasSuccs())
+                for(DataFlowNode[] tmpSet : next.getSuccTargets()) {
                     for(DataFlowNode nextNode : tmpSet) {
                         SummaryPath nextPath = path.deriveNewMyAccessPath(newSourceAp, nextNode.getStmt(), newLeftAp, nextNode);
                         res.add(nextPath);
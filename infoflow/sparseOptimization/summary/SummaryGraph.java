@@ -51,8 +51,12 @@ public class SummaryGraph {
 
     private GraphNode root ;
 
+    // all paths merged into this graph, in merge order, used to persist the graph
+    private final List<SummaryPath> summaryPaths = new ArrayList<>(4);
+
 
     SummaryGraph(SummaryPath path) {
+        summaryPaths.add(path);
         MyAccessPath source = path.getSourceAccessPath();
         boolean isSp = path.getSourceAccessPath().isStrongUpdateSource();
         if(isKillPath(path)) {
@@ -153,7 +157,25 @@ public class SummaryGraph {
     }
 
 
+    /**
+     * Rebuilds a summary graph by merging the given paths in order
+     *
+     * @param paths The paths as returned by {@link #getSummaryPaths()}
+     * @return The rebuilt summary graph
+     */
+    public static SummaryGraph fromSummaryPaths(List<SummaryPath> paths) {
+        SummaryGraph graph = new SummaryGraph(paths.get(0));
+        for(int i = 1; i < paths.size(); i++)
+            graph.merge(paths.get(i));
+        return graph;
+    }
+
+    public List<SummaryPath> getSummaryPaths() {
+        return summaryPaths;
+    }
+
     public void merge(SummaryPath path) {
+        summaryPaths.add(path);
         MyAccessPath source = path.getTargetAccessPath();
         if(isSpPath(path)) {
             mergeChildrenSummarySp(-1, root, source.getFields(), path);
@@ -336,10 +358,11 @@ public class SummaryGraph {
         SootField f = ((len > 0 && index < len) ? fields[index] : null);
         boolean isKilled = false;
         if(f != null) {
-            GraphNode next = node.childrens.get(f);
+            GraphNode next = node.childrens == null ? null : node.childrens.get(f);
             if(next == null || next.killSummaries == null)
                 isKilled = true;
-            recurPropagateAbs(d0s, forwardSolver, backwardsSolver, source, fields, index, next);
+            if(next != null)
+                recurPropagateAbs(d0s, forwardSolver, backwardsSolver, source, fields, index, next);
         }else {
             isKilled = true;
         }
@@ -484,10 +507,11 @@ public class SummaryGraph {
         SootField f = ((len > 0 && index < len) ? fields[index] : null);
         boolean isKilled = false;
         if(f != null) {
-            GraphNode next = node.childrens.get(f);
+            GraphNode next = node.childrens == null ? null : node.childrens.get(f);
             if(next == null || next.killSummaries == null)
                 isKilled = true;
-            recurGetAbs(source, fields, index, next, res);
+            if(next != null)
+                recurGetAbs(source, fields, index, next, res);
         }else {
             isKilled = true;
         }
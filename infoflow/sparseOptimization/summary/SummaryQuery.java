@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author wanglei
@@ -30,6 +31,9 @@ public class SummaryQuery {
     private Map<Pair<Unit, Value>, SummaryGraph> forwardSummary ;
     private Map<Pair<Unit, Value>, SummaryGraph> backwardsSummary ;
 
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
 
     public static SummaryQuery v() {
         if(instance == null)
@@ -70,28 +74,88 @@ public class SummaryQuery {
 
     public Set<Abstraction> getForwardAbs(Abstraction abs, Unit stmt) {
         Value base = abs.getAccessPath().getPlainValue();
-        SummaryGraph graph = forwardSummary.get(new Pair<Unit, Value>(stmt, base));
+        SummaryGraph graph = lookup(stmt, base);
         if(graph!= null)
             return graph.getForwardAbs(abs);
         return Collections.emptySet();
     }
 
-    public void propagateAbsUsingSummaries(Collection<Abstraction> d0s, IInfoflowSolver forwardSolver, IInfoflowSolver backwardsSolver,
+    /**
+     * Propagates the given abstraction from src to all targets of the summary
+     * of its base at src
+     *
+     * @return True if there is a summary for the base at src, false if the
+     * caller must propagate the abstraction itself
+     */
+    public boolean propagateAbsUsingSummaries(Collection<Abstraction> d0s, IInfoflowSolver forwardSolver, IInfoflowSolver backwardsSolver,
                                            Abstraction target, Unit src) {
         Value base = target.getAccessPath().getPlainValue();
-        SummaryGraph graph = forwardSummary.get(new Pair<Unit, Value>(src, base));
-        if(graph!= null)
-             graph.propagateAbsUsingSummaries(d0s, forwardSolver, backwardsSolver, target);
+        SummaryGraph graph = lookup(src, base);
+        if(graph == null)
+            return false;
+        graph.propagateAbsUsingSummaries(d0s, forwardSolver, backwardsSolver, target);
+        return true;
+    }
 
+    /**
+     * Applies the summary of a callee parameter at the call site. The
+     * abstraction that was mapped into the callee is directly propagated to
+     * the summary targets inside the callee with itself as the fact at the
+     * start point, so the solver does not need to walk the callee body from
+     * the identity statement of the parameter.
+     *
+     * @param calleeAbs The abstraction of the parameter inside the callee
+     * @param idStmt The identity statement that defines the parameter local
+     * @return True if the callee has a summary for the parameter, false if
+     * the solver must descend into the callee
+     */
+    public boolean applyCalleeSummary(IInfoflowSolver forwardSolver, IInfoflowSolver backwardsSolver,
+                                      Abstraction calleeAbs, Unit idStmt) {
+        return propagateAbsUsingSummaries(Collections.singleton(calleeAbs), forwardSolver, backwardsSolver,
+                calleeAbs, idStmt);
     }
 
     public void propagateBackwardsAbsUsingSummaries(Collection<Abstraction> d0s, IInfoflowSolver forwardSolver, IInfoflowSolver backwardsSolver,
                                            Abstraction target, Unit src) {
         Value base = target.getAccessPath().getPlainValue();
-        SummaryGraph graph = forwardSummary.get(new Pair<Unit, Value>(src, base));
+        SummaryGraph graph = lookup(src, base);
         if(graph!= null)
             graph.propagateAbsUsingSummaries(d0s, forwardSolver, backwardsSolver, target);
 
     }
 
+    private SummaryGraph lookup(Unit stmt, Value base) {
+        SummaryGraph graph = forwardSummary.get(new Pair<Unit, Value>(stmt, base));
+        if(graph != null)
+            hits.increment();
+        else
+            misses.increment();
+        return graph;
+    }
+
+    /**
+     * Gets the number of lookups that found a summary
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that did not find a summary
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Resets the lookup counters of the current instance, so that the counts
+     * of a previous run are not reported again
+     */
+    public static void resetStatistics() {
+        if (instance != null) {
+            instance.hits.reset();
+            instance.misses.reset();
+        }
+    }
+
 }
@@ -56,8 +56,8 @@ public class SummarySolver {
 
     private Set<SummaryPath> createSummaryPathFromNode(MyAccessPath source, DataFlowNode node) {
         Set<SummaryPath> ret = new HashSet<>();
-        if(node.getSuccs() != null) {
-            for(Set<DataFlowNode> tmpset : node.getSuccs().values()) {
+        if(node.hasSuccs()) {
+            for(DataFlowNode[] tmpset : node.getSuccTargets()) {
                 for(DataFlowNode next : tmpset) {
                     Unit nextStmt = next.getStmt();
                     MyAccessPath target = null;
@@ -78,8 +78,8 @@ public class SummarySolver {
 
     private Set<SummaryPath> createBackwardsSummaryPathFromNode(MyAccessPath source, DataFlowNode node) {
         Set<SummaryPath> ret = new HashSet<>();
-        if(node.getSuccs() != null) {
-            for(Set<DataFlowNode> tmpset : node.getSuccs().values()) {
+        if(node.hasSuccs()) {
+            for(DataFlowNode[] tmpset : node.getSuccTargets()) {
                 for(DataFlowNode next : tmpset) {
                     Unit nextStmt = next.getStmt();
                     MyAccessPath target = null;
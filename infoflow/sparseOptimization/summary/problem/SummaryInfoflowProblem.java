@@ -34,6 +34,7 @@ import soot.jimple.infoflow.sparseOptimization.dataflowgraph.DataFlowGraphQuery;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
 import soot.jimple.infoflow.util.BaseSelector;
 import soot.jimple.infoflow.util.ByReferenceBoolean;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.infoflow.util.TypeUtils;
 
 import java.util.*;
@@ -63,11 +64,6 @@ public class SummaryInfoflowProblem extends AbstractInfoflowProblem {
 				createZeroValue(), results);
 	}
 
-	public static long countCall = 0;
-	public static long countNormal1 = 0;
-	public static long countNormal2 = 0;
-	public static long countNormal3 = 0;
-	public static long countExit = 0;
 	
 	@Override
 	public FlowFunctions<Unit, Abstraction, SootMethod> createFlowFunctionsFactory() {
@@ -367,7 +363,7 @@ public class SummaryInfoflowProblem extends AbstractInfoflowProblem {
 								newSource, stmt, (Stmt) dest, killSource, killAll);
 						if (killAll.value)
 							return Collections.<Abstraction>emptySet();
-						countNormal3 += (System.nanoTime() - beforeFsolver3);
+						TimingCounter.SUMMARY_FORWARD_NORMAL3.add(System.nanoTime() - beforeFsolver3);
 
 						// Propagate over an assignment
 						if (src instanceof AssignStmt) {
@@ -382,7 +378,7 @@ public class SummaryInfoflowProblem extends AbstractInfoflowProblem {
 							// Create the new taints that may be created by this assignment
 							Set<Abstraction> resAssign = createNewTaintOnAssignment(assignStmt,
 									rightVals, d1, newSource);
-							countNormal1 += (System.nanoTime() - beforeFsolver);
+							TimingCounter.SUMMARY_FORWARD_NORMAL1.add(System.nanoTime() - beforeFsolver);
 
 							long beforeFsolver2 = System.nanoTime();
 							//我们不需要对source进行传播，因为source会直接传播到他的使用位置
@@ -426,7 +422,7 @@ public class SummaryInfoflowProblem extends AbstractInfoflowProblem {
 										res = Collections.singleton(sourceDfn.deriveNewAbsbyAbs(newSource));
 								}
 							}
-							countNormal2 += (System.nanoTime() - beforeFsolver2);
+							TimingCounter.SUMMARY_FORWARD_NORMAL2.add(System.nanoTime() - beforeFsolver2);
 
 						}
 
@@ -27,11 +27,12 @@ import soot.jimple.IfStmt;
 import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.memory.IMemoryBoundedSolver;
-import soot.jimple.infoflow.solver.executors.InterruptableExecutor;
+import soot.jimple.infoflow.solver.executors.ISolverExecutor;
 import soot.jimple.infoflow.solver.executors.SetPoolExecutor;
 import soot.jimple.infoflow.solver.fastSolver.FastSolverLinkedNode;
 import soot.jimple.infoflow.solver.memory.IMemoryManager;
 import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolver;
+import soot.jimple.infoflow.util.TimingCounter;
 import soot.jimple.internal.AbstractOpStmt;
 import soot.jimple.internal.AbstractSwitchStmt;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
@@ -63,7 +64,7 @@ public class SummaryIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends
     //enable with -Dorg.slf4j.simpleLogger.defaultLogLevel=trace
     public static final boolean DEBUG = logger.isDebugEnabled();
 
-	protected InterruptableExecutor executor;
+	protected ISolverExecutor executor;
 
 	@DontSynchronize("only used by single thread")
 	protected int numThreads;
@@ -707,7 +708,7 @@ public class SummaryIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends
 	/**
 	 * Factory method for this solver's thread-pool executor.
 	 */
-	protected InterruptableExecutor getExecutor() {
+	protected ISolverExecutor getExecutor() {
 		return new SetPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 	}
 	
@@ -728,10 +729,6 @@ public class SummaryIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends
 		}
 	}
 
-	public static long count= 0;
-	public static long countCall = 0;
-	public static long countNormal = 0;
-	public static long countExit = 0;
 
 	//static String st = "$r0.<com.flurry.android.aa: android.content.Context a> = $r1";
 	static String st = "$r8 = $r0.<com.wEditingHDVideo.MainNavigationActivity: com.wEditingHDVideo.ads.AdsLoader adsLoader>";
@@ -763,17 +760,17 @@ public class SummaryIFDSSolver<N,D extends FastSolverLinkedNode<D, N>,I extends
 			long beforeFsolver = System.nanoTime();
 			if(icfg.isCallStmt(edge.getTarget())) {
 				processCall(edge);
-				countCall += (System.nanoTime() - beforeFsolver);
+				TimingCounter.SUMMARY_IFDS_CALL.add(System.nanoTime() - beforeFsolver);
 			} else {
 				//note that some statements, such as "throw" may be
 				//both an exit statement and a "normal" statement
 				if(icfg.isExitStmt(edge.getTarget())) {
 					processExit(edge);
-					countExit += (System.nanoTime() - beforeFsolver);
+					TimingCounter.SUMMARY_IFDS_EXIT.add(System.nanoTime() - beforeFsolver);
 				}
 				if(!icfg.getSuccsOf(edge.getTarget()).isEmpty()) {
 					processNormalFlow(edge);
-					countNormal += (System.nanoTime() - beforeFsolver);
+					TimingCounter.SUMMARY_IFDS_NORMAL.add(System.nanoTime() - beforeFsolver);
 				}
 			}
 
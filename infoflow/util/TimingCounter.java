@@ -0,0 +1,69 @@
+package soot.jimple.infoflow.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulated times of hot code paths in the solvers and flow functions. The
+ * counters are safe to update from multiple threads and are reset at the
+ * beginning of every analysis run.
+ *
+ * @author wanglei
+ *
+ */
+public enum TimingCounter {
+
+	DFG_QUERY("Hash DataFlowGraphQuery"),
+	DFG_USE_DEF("Set usedef"),
+	FORWARD_NORMAL1("Forward Normal"),
+	FORWARD_NORMAL2("Forward Normal2"),
+	FORWARD_NORMAL3("Forward Normal3"),
+	BACKWARD_NORMAL1("Backward Normal1"),
+	BACKWARD_NORMAL2("Backward Normal2"),
+	SUMMARY_FORWARD_NORMAL1("Summary Forward Normal"),
+	SUMMARY_FORWARD_NORMAL2("Summary Forward Normal2"),
+	SUMMARY_FORWARD_NORMAL3("Summary Forward Normal3"),
+	SUMMARY_BACKWARD_NORMAL1("Summary Backward Normal1"),
+	SUMMARY_BACKWARD_NORMAL2("Summary Backward Normal2"),
+	IFDS_NORMAL("IFDS Normal"),
+	IFDS_CALL("IFDS Call"),
+	IFDS_EXIT("IFDS Exit"),
+	SUMMARY_IFDS_NORMAL("Summary IFDS Normal"),
+	SUMMARY_IFDS_CALL("Summary IFDS Call"),
+	SUMMARY_IFDS_EXIT("Summary IFDS Exit");
+
+	private final String description;
+	private final LongAdder time = new LongAdder();
+
+	private TimingCounter(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Adds the given time to this counter
+	 * @param nanos The time in nanoseconds
+	 */
+	public void add(long nanos) {
+		time.add(nanos);
+	}
+
+	/**
+	 * Gets the accumulated time of this counter
+	 * @return The accumulated time in nanoseconds
+	 */
+	public long get() {
+		return time.sum();
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Resets all counters to zero
+	 */
+	public static void resetAll() {
+		for (TimingCounter counter : values())
+			counter.time.reset();
+	}
+
+}
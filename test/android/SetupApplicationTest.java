@@ -0,0 +1,79 @@
+package soot.jimple.infoflow.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import soot.G;
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.infoflow.util.SystemClassHandler;
+
+/**
+ * Tests for the incremental callback analysis of the {@link SetupApplication}.
+ * Extending the callgraph while the callbacks are collected must end up with
+ * the same entry points and the same reachable code as rebuilding the
+ * callgraph in every iteration.
+ *
+ * The tests need a real app and the Android platforms. They are given by the
+ * system properties "apk" and "androidPlatforms". Apps whose callbacks
+ * register further callbacks exercise more than one iteration.
+ *
+ * @author wanglei
+ *
+ */
+public class SetupApplicationTest {
+
+	private final String apk = System.getProperty("apk");
+	private final String androidPlatforms = System.getProperty("androidPlatforms");
+
+	@After
+	public void resetSoot() {
+		G.reset();
+	}
+
+	/**
+	 * Builds the callgraph of the app
+	 *
+	 * @return The entry points and the reachable methods of the app, in a
+	 *         canonical order
+	 */
+	private List<String> constructCallgraph(boolean incremental) {
+		SetupApplication app = new SetupApplication(androidPlatforms, apk);
+		app.getConfig().setIncrementalCallbackAnalysisEnabled(incremental);
+		app.constructCallgraph();
+		Assert.assertNotNull(app.getDummyMainMethod());
+
+		List<String> result = new ArrayList<>();
+		for (SootClass sc : app.getEntrypointClasses())
+			result.add("entry point " + sc.getName());
+		for (Iterator<MethodOrMethodContext> rmIt = Scene.v().getReachableMethods().listener(); rmIt.hasNext();) {
+			SootMethod sm = rmIt.next().method();
+			// The dummy main methods have generated names
+			if (!SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName())
+					&& !sm.getDeclaringClass().getName().equals("dummyMainClass"))
+				result.add("reachable " + sm.getSignature());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test(timeout = 600000)
+	public void incrementalCallbackAnalysisFindsSameCallbacks() {
+		Assume.assumeNotNull(apk, androidPlatforms);
+
+		List<String> rebuilt = constructCallgraph(false);
+		Assert.assertFalse(rebuilt.isEmpty());
+		G.reset();
+		Assert.assertEquals(rebuilt, constructCallgraph(true));
+	}
+
+}
@@ -0,0 +1,138 @@
+package soot.jimple.infoflow.android.TestApps;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the driver side of the {@link BatchAnalysis}. The workers are
+ * replaced by a fake worker JVM, so that the tests do not need an Android
+ * platform.
+ *
+ * @author wanglei
+ *
+ */
+public class BatchAnalysisTest {
+
+	/**
+	 * Fake worker that reports every app as done together with the number of
+	 * apps it has analyzed so far. It dies without a status line on apps
+	 * whose name contains "crash", like a worker that ran out of memory.
+	 */
+	public static class FakeWorker {
+
+		public static void main(String[] args) throws IOException {
+			BufferedReader rdr = new BufferedReader(new InputStreamReader(System.in));
+			int served = 0;
+			String apk;
+			while ((apk = rdr.readLine()) != null) {
+				if (apk.isEmpty())
+					continue;
+				System.out.println("Analyzing " + apk);
+				if (apk.contains("crash"))
+					System.exit(1);
+				System.out.println("BATCH: DONE " + ++served);
+				System.out.flush();
+			}
+		}
+
+	}
+
+	private File apkDir;
+
+	@Before
+	public void createApps() throws IOException {
+		apkDir = Files.createTempDirectory("batch").toFile();
+	}
+
+	@After
+	public void deleteApps() {
+		File[] files = apkDir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		apkDir.delete();
+		new File(apkDir.getPath() + "-out").delete();
+	}
+
+	private void addApps(String... names) throws IOException {
+		for (String name : names)
+			Files.write(new File(apkDir, name).toPath(), new byte[0]);
+	}
+
+	/**
+	 * Runs the driver with the fake worker
+	 * @param threads The number of workers that run at the same time
+	 * @return The status of every app by its file name
+	 */
+	private Map<String, String> runBatch(int threads) throws InterruptedException {
+		BatchAnalysis batch = new BatchAnalysis() {
+
+			@Override
+			List<String> createWorkerCommand() {
+				return Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+						"-cp", System.getProperty("java.class.path"), FakeWorker.class.getName());
+			}
+
+		};
+		batch.parseOptions(new String[] { apkDir.getPath(), "android.jar", "--threads", Integer.toString(threads),
+				"--timeout", "10", "--output", apkDir.getPath() + "-out" });
+
+		PrintStream out = System.out;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(bos, true));
+		try {
+			batch.runBatch(apkDir);
+		} finally {
+			System.setOut(out);
+		}
+
+		Map<String, String> status = new HashMap<>();
+		for (String line : new String(bos.toByteArray()).split("\\r?\\n")) {
+			if (!line.startsWith("BATCH: ") || line.startsWith("BATCH: Analyzed "))
+				continue;
+			String[] parts = line.substring("BATCH: ".length()).split(" ", 2);
+			Assert.assertNull("Reported twice: " + parts[0], status.put(parts[0], parts[1]));
+		}
+		return status;
+	}
+
+	@Test(timeout = 120000)
+	public void workerIsReusedForAllApps() throws Exception {
+		addApps("a.apk", "b.apk", "c.apk", "d.apk", "notes.txt");
+		Map<String, String> status = runBatch(1);
+
+		// One worker analyzes all apps, so it counts up to the number of apps
+		Assert.assertEquals(4, status.size());
+		List<String> served = new ArrayList<>(status.values());
+		for (int i = 1; i <= 4; i++)
+			Assert.assertTrue(served.contains("DONE " + i));
+	}
+
+	@Test(timeout = 120000)
+	public void crashedWorkerIsReplaced() throws Exception {
+		addApps("a.apk", "crash1.apk", "b.apk", "crash2.apk", "c.apk", "d.apk");
+		Map<String, String> status = runBatch(2);
+
+		Assert.assertEquals(6, status.size());
+		Assert.assertEquals("CRASHED", status.get("crash1.apk"));
+		Assert.assertEquals("CRASHED", status.get("crash2.apk"));
+		for (String apk : Arrays.asList("a.apk", "b.apk", "c.apk", "d.apk"))
+			Assert.assertTrue(apk + " " + status.get(apk), status.get(apk).startsWith("DONE "));
+	}
+
+}
@@ -0,0 +1,317 @@
+package soot.jimple.infoflow.android.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.resources.ARSCFileParser.AbstractResource;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResConfig;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResPackage;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResType;
+
+/**
+ * Tests for the lazy mode of the {@link ARSCFileParser}. Looking up resources
+ * in a lazily loaded resource table must give the same results as in an
+ * eagerly loaded one.
+ *
+ * @author wanglei
+ *
+ */
+public class ARSCFileParserTest {
+
+	private static final int PACKAGE_ID = 0x7f;
+	private static final int STRING_TYPE = 1;
+	private static final int INTEGER_TYPE = 2;
+
+	private static final int NO_ENTRY = -1;
+
+	private static final String[] GLOBAL_STRINGS = { "Example", "Hello", "Beispiel", "Titel" };
+	private static final String[] KEY_STRINGS = { "app_name", "title", "greeting", "max_items", "timeout" };
+
+	private byte[] resourceTable;
+
+	/**
+	 * Builds a small resource table with a string type in a default and a
+	 * German configuration, and an integer type. The default configuration
+	 * of the string type has no entry for "title", so this resource is only
+	 * found in the second configuration.
+	 */
+	@Before
+	public void buildResourceTable() {
+		byte[] stringSpec = typeSpecChunk(STRING_TYPE, 3);
+		byte[] defaultStrings = typeChunk(STRING_TYPE, "",
+				new int[] { 0, NO_ENTRY, 2 },
+				new int[] { ARSCFileParser.TYPE_STRING, 0, ARSCFileParser.TYPE_STRING },
+				new int[] { 0, 0, 1 });
+		byte[] germanStrings = typeChunk(STRING_TYPE, "de",
+				new int[] { 0, 1 },
+				new int[] { ARSCFileParser.TYPE_STRING, ARSCFileParser.TYPE_STRING },
+				new int[] { 2, 3 });
+		byte[] integerSpec = typeSpecChunk(INTEGER_TYPE, 2);
+		byte[] defaultIntegers = typeChunk(INTEGER_TYPE, "",
+				new int[] { 3, 4 },
+				new int[] { ARSCFileParser.TYPE_INT_DEC, ARSCFileParser.TYPE_INT_DEC },
+				new int[] { 10, 30 });
+
+		byte[] pkg = packageChunk(PACKAGE_ID, "com.example", stringPool("string", "integer"),
+				stringPool(KEY_STRINGS), stringSpec, defaultStrings, germanStrings, integerSpec,
+				defaultIntegers);
+		resourceTable = tableChunk(stringPool(GLOBAL_STRINGS), pkg);
+	}
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts)
+			out.write(part, 0, part.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Creates a UTF-16 string pool chunk
+	 */
+	private static byte[] stringPool(String... strings) {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		int[] offsets = new int[strings.length];
+		for (int i = 0; i < strings.length; i++) {
+			offsets[i] = data.size();
+			byte[] chars = strings[i].getBytes(StandardCharsets.UTF_16LE);
+			ByteBuffer str = allocate(chars.length + 4);
+			str.putShort((short) strings[i].length());
+			str.put(chars);
+			str.putShort((short) 0);
+			data.write(str.array(), 0, str.capacity());
+		}
+		while (data.size() % 4 != 0)
+			data.write(0);
+
+		int stringsStart = 28 + strings.length * 4;
+		ByteBuffer chunk = allocate(stringsStart + data.size());
+		chunk.putShort((short) ARSCFileParser.RES_STRING_POOL_TYPE);
+		chunk.putShort((short) 28);
+		chunk.putInt(chunk.capacity());
+		chunk.putInt(strings.length);
+		chunk.putInt(0);
+		chunk.putInt(0);
+		chunk.putInt(stringsStart);
+		chunk.putInt(0);
+		for (int offset : offsets)
+			chunk.putInt(offset);
+		chunk.put(data.toByteArray());
+		return chunk.array();
+	}
+
+	private static byte[] typeSpecChunk(int typeId, int entryCount) {
+		ByteBuffer chunk = allocate(16 + entryCount * 4);
+		chunk.putShort((short) ARSCFileParser.RES_TABLE_TYPE_SPEC_TYPE);
+		chunk.putShort((short) 16);
+		chunk.putInt(chunk.capacity());
+		chunk.put((byte) typeId);
+		chunk.put((byte) 0);
+		chunk.putShort((short) 0);
+		chunk.putInt(entryCount);
+		return chunk.array();
+	}
+
+	/**
+	 * Creates a type chunk with simple entries
+	 * @param keys The indices of the entry names in the key string pool, or
+	 * {@link #NO_ENTRY} for a missing entry
+	 * @param dataTypes The types of the entry values
+	 * @param data The raw entry values
+	 */
+	private static byte[] typeChunk(int typeId, String language, int[] keys, int[] dataTypes, int[] data) {
+		// The shortest configuration that the parser accepts
+		int configSize = 28;
+		int headerSize = 20 + configSize;
+		int entriesStart = headerSize + keys.length * 4;
+		int entryCount = 0;
+		for (int key : keys)
+			if (key != NO_ENTRY)
+				entryCount++;
+
+		ByteBuffer chunk = allocate(entriesStart + entryCount * 16);
+		chunk.putShort((short) ARSCFileParser.RES_TABLE_TYPE_TYPE);
+		chunk.putShort((short) headerSize);
+		chunk.putInt(chunk.capacity());
+		chunk.put((byte) typeId);
+		chunk.put((byte) 0);
+		chunk.putShort((short) 0);
+		chunk.putInt(keys.length);
+		chunk.putInt(entriesStart);
+
+		chunk.putInt(configSize);
+		chunk.putInt(0);
+		chunk.put(language.isEmpty() ? new byte[2] : language.getBytes(StandardCharsets.US_ASCII));
+		chunk.position(chunk.position() + configSize - 10);
+
+		int entryOffset = 0;
+		for (int key : keys) {
+			chunk.putInt(key == NO_ENTRY ? NO_ENTRY : entryOffset);
+			if (key != NO_ENTRY)
+				entryOffset += 16;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == NO_ENTRY)
+				continue;
+			chunk.putShort((short) 8);
+			chunk.putShort((short) 0);
+			chunk.putInt(keys[i]);
+			chunk.putShort((short) 8);
+			chunk.put((byte) 0);
+			chunk.put((byte) dataTypes[i]);
+			chunk.putInt(data[i]);
+		}
+		return chunk.array();
+	}
+
+	private static byte[] packageChunk(int id, String name, byte[] typeStrings, byte[] keyStrings,
+			byte[]... chunks) {
+		int headerSize = 284;
+		byte[] body = concat(chunks);
+		ByteBuffer chunk = allocate(headerSize + typeStrings.length + keyStrings.length + body.length);
+		chunk.putShort((short) ARSCFileParser.RES_TABLE_PACKAGE_TYPE);
+		chunk.putShort((short) headerSize);
+		chunk.putInt(chunk.capacity());
+		chunk.putInt(id);
+		for (int i = 0; i < 128; i++)
+			chunk.putShort((short) (i < name.length() ? name.charAt(i) : 0));
+		chunk.putInt(headerSize);
+		chunk.putInt(0);
+		chunk.putInt(headerSize + typeStrings.length);
+		chunk.putInt(0);
+		chunk.put(typeStrings);
+		chunk.put(keyStrings);
+		chunk.put(body);
+		return chunk.array();
+	}
+
+	private static byte[] tableChunk(byte[] globalStrings, byte[] pkg) {
+		ByteBuffer chunk = allocate(12 + globalStrings.length + pkg.length);
+		chunk.putShort((short) ARSCFileParser.RES_TABLE_TYPE);
+		chunk.putShort((short) 12);
+		chunk.putInt(chunk.capacity());
+		chunk.putInt(1);
+		chunk.put(globalStrings);
+		chunk.put(pkg);
+		return chunk.array();
+	}
+
+	private ARSCFileParser parse(boolean lazy) throws IOException {
+		ARSCFileParser parser = new ARSCFileParser();
+		parser.setLazyLoading(lazy);
+		parser.parse(new ByteArrayInputStream(resourceTable));
+		return parser;
+	}
+
+	private static String describe(AbstractResource res) {
+		if (res == null)
+			return "null";
+		return Integer.toHexString(res.getResourceID()) + " " + res.getResourceName() + " = " + res;
+	}
+
+	/**
+	 * Gets all resource IDs of the test table, including the missing entry
+	 * and IDs behind the last entry of a type
+	 */
+	private static List<Integer> getResourceIds() {
+		List<Integer> ids = new ArrayList<>();
+		for (int type = STRING_TYPE; type <= INTEGER_TYPE + 1; type++)
+			for (int idx = 0; idx < 4; idx++)
+				ids.add((PACKAGE_ID << 24) + (type << 16) + idx);
+		return ids;
+	}
+
+	/**
+	 * Describes all configurations of all types of the given parser
+	 */
+	private static List<String> describeConfigurations(ARSCFileParser parser) {
+		List<String> result = new ArrayList<>();
+		for (ResPackage pkg : parser.getPackages()) {
+			result.add(Integer.toHexString(pkg.getPackageId()) + " " + pkg.getPackageName());
+			for (ResType type : pkg.getDeclaredTypes()) {
+				result.add(type.getTypeName());
+				for (ResConfig config : type.getConfigurations()) {
+					result.add("config " + config.getConfig().getLanguage().trim());
+					for (AbstractResource res : config.getResources())
+						result.add(describe(res));
+				}
+
+				List<String> all = new ArrayList<>();
+				for (AbstractResource res : type.getAllResources())
+					all.add(describe(res));
+				Collections.sort(all);
+				result.add("all " + all);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void lazyLookupsMatchEagerLookups() throws IOException {
+		ARSCFileParser eager = parse(false);
+		ARSCFileParser lazy = parse(true);
+
+		for (int id : getResourceIds())
+			Assert.assertEquals(Integer.toHexString(id), describe(eager.findResource(id)),
+					describe(lazy.findResource(id)));
+	}
+
+	@Test
+	public void lookupFallsBackToLaterConfiguration() throws IOException {
+		int titleId = (PACKAGE_ID << 24) + (STRING_TYPE << 16) + 1;
+		for (boolean lazy : new boolean[] { false, true }) {
+			ARSCFileParser parser = parse(lazy);
+			AbstractResource title = parser.findResource(titleId);
+			Assert.assertTrue(title instanceof ARSCFileParser.StringResource);
+			Assert.assertEquals("title", title.getResourceName());
+			Assert.assertEquals("Titel", ((ARSCFileParser.StringResource) title).getValue());
+
+			AbstractResource timeout = parser.findResource((PACKAGE_ID << 24) + (INTEGER_TYPE << 16) + 1);
+			Assert.assertEquals(30, ((ARSCFileParser.IntegerResource) timeout).getValue());
+		}
+	}
+
+	@Test
+	public void lazyConfigurationsMatchEagerConfigurations() throws IOException {
+		ARSCFileParser eager = parse(false);
+		ARSCFileParser lazy = parse(true);
+
+		// Decode some single entries first, the configurations must still be
+		// complete afterwards
+		lazy.findResource((PACKAGE_ID << 24) + (STRING_TYPE << 16) + 2);
+		lazy.findResource((PACKAGE_ID << 24) + (INTEGER_TYPE << 16));
+
+		List<String> expected = describeConfigurations(eager);
+		Assert.assertEquals(expected, describeConfigurations(lazy));
+		Assert.assertTrue(expected.contains("config de"));
+
+		// Lookups after the configurations have been loaded must not change
+		for (int id : getResourceIds())
+			Assert.assertEquals(Integer.toHexString(id), describe(eager.findResource(id)),
+					describe(lazy.findResource(id)));
+	}
+
+	@Test
+	public void lazyStringPoolMatchesEagerStringPool() throws IOException {
+		ARSCFileParser eager = parse(false);
+		ARSCFileParser lazy = parse(true);
+
+		Assert.assertEquals(GLOBAL_STRINGS.length, eager.getGlobalStringPool().size());
+		Assert.assertEquals(eager.getGlobalStringPool(), lazy.getGlobalStringPool());
+	}
+
+}
@@ -0,0 +1,299 @@
+package soot.jimple.infoflow.android.resources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pxb.android.axml.AxmlVisitor;
+import pxb.android.axml.AxmlWriter;
+import pxb.android.axml.NodeVisitor;
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.android.axml.AXmlHandler;
+import soot.options.Options;
+import soot.util.MultiMap;
+
+/**
+ * Tests for the parallel mode of the {@link LayoutFileParser}. Parsing the
+ * layout files of an APK on several threads must give the same user
+ * controls, callbacks, and fragments as parsing them sequentially.
+ *
+ * @author wanglei
+ *
+ */
+public class LayoutFileParserTest {
+
+	private static final String PACKAGE_NAME = "com.example";
+
+	/**
+	 * The view classes of the test app. Every class only needs to exist, the
+	 * parser only checks the hierarchy.
+	 */
+	private static final String[][] CLASSES = {
+			{ "android.view.View", "java.lang.Object" },
+			{ "android.view.ViewGroup", "android.view.View" },
+			{ "android.webkit.WebView", "android.view.View" },
+			{ "android.widget.Button", "android.view.View" },
+			{ "android.widget.EditText", "android.view.View" },
+			{ "android.widget.LinearLayout", "android.view.ViewGroup" },
+			{ "com.example.CustomView", "android.widget.Button" },
+			{ "com.example.MainFragment", "java.lang.Object" } };
+
+	/**
+	 * The resource IDs of the layout files that are included by others
+	 */
+	private static final Map<Integer, String> LAYOUT_RESOURCES = new HashMap<>();
+	static {
+		LAYOUT_RESOURCES.put(0x7f030001, "res/layout/footer.xml");
+		LAYOUT_RESOURCES.put(0x7f030002, "res/layout/inner.xml");
+		LAYOUT_RESOURCES.put(0x7f030003, "res/layout/cycle_a.xml");
+		LAYOUT_RESOURCES.put(0x7f030004, "res/layout/cycle_b.xml");
+	}
+
+	/**
+	 * Enough generated layout files to split them into several shards
+	 */
+	private static final int GENERATED_LAYOUTS = 40;
+
+	private static final int TYPE_TEXT_PASSWORD = 0x00000081;
+
+	private File workDir;
+	private File apkFile;
+
+	@Before
+	public void createApp() throws IOException {
+		workDir = Files.createTempDirectory("lfp").toFile();
+
+		File classDir = new File(workDir, "classes");
+		classDir.mkdir();
+		for (String[] cls : CLASSES) {
+			String jimple = "public class " + cls[0] + " extends " + cls[1] + "\n{\n}\n";
+			Files.write(new File(classDir, cls[0] + ".jimple").toPath(), jimple.getBytes(StandardCharsets.UTF_8));
+		}
+
+		apkFile = new File(workDir, "app.apk");
+		writeApk();
+
+		G.reset();
+		Options.v().set_src_prec(Options.src_prec_jimple);
+		Options.v().set_process_dir(Collections.singletonList(classDir.getAbsolutePath()));
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_output_format(Options.output_format_none);
+		Scene.v().loadNecessaryClasses();
+	}
+
+	@After
+	public void deleteApp() {
+		File classDir = new File(workDir, "classes");
+		for (String[] cls : CLASSES)
+			new File(classDir, cls[0] + ".jimple").delete();
+		classDir.delete();
+		apkFile.delete();
+		workDir.delete();
+		G.reset();
+	}
+
+	/**
+	 * Writes the layout files into the APK. Including files come before the
+	 * files they include, which is the order in which the sequential parser
+	 * finds all callbacks.
+	 */
+	private void writeApk() throws IOException {
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(apkFile))) {
+			addEntry(zip, "res/layout/main.xml", mainLayout("doSubmit"));
+			addEntry(zip, "res/layout/footer.xml", includingLayout("doFooter", 0x7f030002));
+			addEntry(zip, "res/layout/inner.xml", includingLayout("doInner", -1));
+			addEntry(zip, "res/layout/cycle_a.xml", includingLayout("doCycleA", 0x7f030004));
+			addEntry(zip, "res/layout/cycle_b.xml", includingLayout("doCycleB", 0x7f030003));
+			for (int i = 0; i < GENERATED_LAYOUTS; i++)
+				addEntry(zip, String.format("res/layout/generated_%02d.xml", i), generatedLayout(i));
+			addEntry(zip, "res/layout-large/main.xml", mainLayout("doSubmitLarge"));
+
+			// Files that the parser must skip
+			addEntry(zip, "res/layout/notes.txt", "not a layout".getBytes(StandardCharsets.UTF_8));
+			addEntry(zip, "res/drawable/icon.png", new byte[] { 1, 2, 3 });
+		}
+	}
+
+	private static void addEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(data);
+		zip.closeEntry();
+	}
+
+	private static NodeVisitor startLayout(AxmlWriter writer, String tag) {
+		writer.ns("android", AXmlHandler.ANDROID_NAMESPACE, -1);
+		return writer.child(null, tag);
+	}
+
+	private static void addButton(NodeVisitor parent, String tag, int id, String onClick) {
+		NodeVisitor button = parent.child(null, tag);
+		if (id >= 0)
+			button.attr(AXmlHandler.ANDROID_NAMESPACE, "id", -1, AxmlVisitor.TYPE_REFERENCE, id);
+		if (onClick != null)
+			button.attr(AXmlHandler.ANDROID_NAMESPACE, "onClick", -1, AxmlVisitor.TYPE_STRING, onClick);
+		button.end();
+	}
+
+	private static void addInclude(NodeVisitor parent, int layoutId) {
+		NodeVisitor include = parent.child(null, "include");
+		include.attr(null, "layout", -1, AxmlVisitor.TYPE_REFERENCE, layoutId);
+		include.end();
+	}
+
+	/**
+	 * A layout with a password field, a button, a fragment, and the footer
+	 */
+	private static byte[] mainLayout(String onClick) throws IOException {
+		AxmlWriter writer = new AxmlWriter();
+		NodeVisitor root = startLayout(writer, "LinearLayout");
+
+		NodeVisitor password = root.child(null, "EditText");
+		password.attr(AXmlHandler.ANDROID_NAMESPACE, "id", -1, AxmlVisitor.TYPE_REFERENCE, 0x7f0b0001);
+		password.attr(AXmlHandler.ANDROID_NAMESPACE, "inputType", -1, AxmlVisitor.TYPE_INT_HEX,
+				TYPE_TEXT_PASSWORD);
+		password.end();
+
+		addButton(root, "Button", 0x7f0b0002, onClick);
+
+		NodeVisitor fragment = root.child(null, "fragment");
+		fragment.attr(AXmlHandler.ANDROID_NAMESPACE, "name", -1, AxmlVisitor.TYPE_STRING,
+				"com.example.MainFragment");
+		fragment.end();
+
+		addInclude(root, 0x7f030001);
+		root.end();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * A layout with a custom view that optionally includes another layout
+	 */
+	private static byte[] includingLayout(String onClick, int includedLayout) throws IOException {
+		AxmlWriter writer = new AxmlWriter();
+		NodeVisitor root = startLayout(writer, "LinearLayout");
+		addButton(root, "CustomView", -1, onClick);
+		if (includedLayout >= 0)
+			addInclude(root, includedLayout);
+		root.end();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * A layout with a button and an unknown view. Every fifth layout includes
+	 * the footer.
+	 */
+	private static byte[] generatedLayout(int idx) throws IOException {
+		AxmlWriter writer = new AxmlWriter();
+		NodeVisitor root = startLayout(writer, "LinearLayout");
+		addButton(root, idx % 2 == 0 ? "Button" : "com.example.CustomView", 0x7f0c0000 + idx, "click" + idx);
+		addButton(root, "UnknownWidget", 0x7f0d0000 + idx, null);
+		if (idx % 5 == 0)
+			addInclude(root, 0x7f030001);
+		root.end();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Creates a resource parser that only knows the included layout files
+	 */
+	private static ARSCFileParser createResourceParser() {
+		return new ARSCFileParser() {
+
+			@Override
+			public AbstractResource findResource(int resourceId) {
+				String layoutFile = LAYOUT_RESOURCES.get(resourceId);
+				return layoutFile == null ? null : new StringResource(layoutFile);
+			}
+
+		};
+	}
+
+	private LayoutFileParser parse(int numThreads) {
+		LayoutFileParser lfp = new LayoutFileParser(PACKAGE_NAME, createResourceParser());
+		lfp.setNumThreads(numThreads);
+		lfp.parseLayoutFileDirect(apkFile.getAbsolutePath());
+		return lfp;
+	}
+
+	/**
+	 * Describes all results of the given parser in a canonical order
+	 */
+	private static List<String> describe(LayoutFileParser lfp) {
+		List<String> result = new ArrayList<>();
+		MultiMap<String, LayoutControl> controls = lfp.getUserControls();
+		for (String layoutFile : controls.keySet())
+			for (LayoutControl control : controls.get(layoutFile))
+				result.add("control " + layoutFile + " " + Integer.toHexString(control.getID()) + " "
+						+ control.getViewClass().getName() + " " + control.isSensitive());
+		MultiMap<String, String> callbacks = lfp.getCallbackMethods();
+		for (String layoutFile : callbacks.keySet())
+			for (String callback : callbacks.get(layoutFile))
+				result.add("callback " + layoutFile + " " + callback);
+		MultiMap<String, SootClass> fragments = lfp.getFragments();
+		for (String layoutFile : fragments.keySet())
+			for (SootClass fragment : fragments.get(layoutFile))
+				result.add("fragment " + layoutFile + " " + fragment.getName());
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test(timeout = 300000)
+	public void parallelParsingMatchesSerialParsing() {
+		List<String> serial = describe(parse(1));
+		Assert.assertFalse(serial.isEmpty());
+
+		// Repeat the parallel run, since the order of the tasks varies
+		for (int i = 0; i < 5; i++)
+			Assert.assertEquals(serial, describe(parse(4)));
+	}
+
+	@Test(timeout = 300000)
+	public void parallelParsingResolvesIncludes() {
+		LayoutFileParser lfp = parse(4);
+		MultiMap<String, String> callbacks = lfp.getCallbackMethods();
+
+		// Callbacks reach the including file over several inclusions, and the
+		// large layout is merged into the default one
+		Assert.assertTrue(callbacks.get("res/layout/main.xml").contains("doInner"));
+		Assert.assertTrue(callbacks.get("res/layout/main.xml").contains("doSubmitLarge"));
+		Assert.assertTrue(callbacks.get("res/layout/generated_05.xml").contains("doFooter"));
+		Assert.assertFalse(callbacks.get("res/layout/generated_06.xml").contains("doFooter"));
+
+		// Cyclic inclusions share their callbacks
+		Assert.assertEquals(callbacks.get("res/layout/cycle_a.xml"), callbacks.get("res/layout/cycle_b.xml"));
+		Assert.assertEquals(2, callbacks.get("res/layout/cycle_a.xml").size());
+
+		Assert.assertEquals(1, lfp.getFragments().get("res/layout/main.xml").size());
+	}
+
+	@Test(timeout = 300000)
+	public void parallelParsingFindsSensitiveControls() {
+		LayoutFileParser lfp = parse(4);
+		LayoutControl password = lfp.getUserControlsByID().get(0x7f0b0001);
+		Assert.assertNotNull(password);
+		Assert.assertTrue(password.isSensitive());
+		Assert.assertEquals("android.widget.EditText", password.getViewClass().getName());
+
+		// Unknown views are not reported
+		Assert.assertNull(lfp.getUserControlsByID().get(0x7f0d0000));
+		Assert.assertEquals("com.example.CustomView",
+				lfp.getUserControlsByID().get(0x7f0c0001).getViewClass().getName());
+	}
+
+}
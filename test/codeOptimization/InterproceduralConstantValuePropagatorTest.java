@@ -0,0 +1,201 @@
+package soot.jimple.infoflow.codeOptimization;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.FastHierarchy;
+import soot.G;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.InfoflowManager;
+import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.options.Options;
+
+/**
+ * Tests for the {@link InterproceduralConstantValuePropagator}. Processing
+ * the worklist in parallel rounds must produce the same code as processing
+ * it sequentially.
+ *
+ * @author wanglei
+ *
+ */
+public class InterproceduralConstantValuePropagatorTest {
+
+	/**
+	 * A program in which the constants only reach the last method after
+	 * several rounds: twice(21) becomes 42, which together with seven() is
+	 * passed to add, whose result is passed to sink. The entry point is
+	 * excluded from the propagation, so the actual code is in run().
+	 */
+	private static final String PROGRAM = "public class Main extends java.lang.Object\n"
+			+ "{\n"
+			+ "    public static void main(java.lang.String[])\n"
+			+ "    {\n"
+			+ "        java.lang.String[] args;\n"
+			+ "        args := @parameter0: java.lang.String[];\n"
+			+ "        staticinvoke <Main: void run()>();\n"
+			+ "        return;\n"
+			+ "    }\n"
+			+ "    public static void run()\n"
+			+ "    {\n"
+			+ "        int a, b, c;\n"
+			+ "        a = staticinvoke <Main: int twice(int)>(21);\n"
+			+ "        b = staticinvoke <Main: int seven()>();\n"
+			+ "        c = staticinvoke <Main: int add(int,int)>(a, b);\n"
+			+ "        staticinvoke <Main: void sink(int)>(c);\n"
+			+ "        return;\n"
+			+ "    }\n"
+			+ "    public static int twice(int)\n"
+			+ "    {\n"
+			+ "        int x, y;\n"
+			+ "        x := @parameter0: int;\n"
+			+ "        y = x + x;\n"
+			+ "        return y;\n"
+			+ "    }\n"
+			+ "    public static int seven()\n"
+			+ "    {\n"
+			+ "        return 7;\n"
+			+ "    }\n"
+			+ "    public static int add(int, int)\n"
+			+ "    {\n"
+			+ "        int x, y, z;\n"
+			+ "        x := @parameter0: int;\n"
+			+ "        y := @parameter1: int;\n"
+			+ "        z = x + y;\n"
+			+ "        return z;\n"
+			+ "    }\n"
+			+ "    public static void sink(int)\n"
+			+ "    {\n"
+			+ "        int x;\n"
+			+ "        java.io.PrintStream out;\n"
+			+ "        x := @parameter0: int;\n"
+			+ "        out = <java.lang.System: java.io.PrintStream out>;\n"
+			+ "        virtualinvoke out.<java.io.PrintStream: void println(int)>(x);\n"
+			+ "        return;\n"
+			+ "    }\n"
+			+ "}\n";
+
+	private File programDir;
+
+	@Before
+	public void writeProgram() throws IOException {
+		programDir = Files.createTempDirectory("ipcvp").toFile();
+		Files.write(new File(programDir, "Main.jimple").toPath(), PROGRAM.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteProgram() {
+		new File(programDir, "Main.jimple").delete();
+		programDir.delete();
+		G.reset();
+	}
+
+	/**
+	 * Loads the program into a fresh Scene and builds its callgraph
+	 */
+	private void loadProgram() {
+		G.reset();
+		Options.v().set_src_prec(Options.src_prec_jimple);
+		Options.v().set_process_dir(Collections.singletonList(programDir.getAbsolutePath()));
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_whole_program(true);
+		Options.v().set_output_format(Options.output_format_none);
+		Options.v().setPhaseOption("cg.cha", "on");
+		Scene.v().loadNecessaryClasses();
+
+		SootClass mainClass = Scene.v().getSootClass("Main");
+		Scene.v().setEntryPoints(Collections.singletonList(mainClass.getMethodByName("main")));
+		PackManager.v().getPack("cg").apply();
+	}
+
+	/**
+	 * Creates the manager in the same way as the data flow analysis does for
+	 * its code optimizers. The constructor is only visible to the analysis.
+	 */
+	private InfoflowManager createManager() throws ReflectiveOperationException {
+		InfoflowConfiguration config = new InfoflowConfiguration();
+		Constructor<InfoflowManager> constructor = InfoflowManager.class.getDeclaredConstructor(
+				InfoflowConfiguration.class, IInfoflowSolver.class, IInfoflowCFG.class, ISourceSinkManager.class,
+				ITaintPropagationWrapper.class, FastHierarchy.class, AccessPathFactory.class);
+		constructor.setAccessible(true);
+		return constructor.newInstance(config, null, new InfoflowCFG(), null, null, null,
+				new AccessPathFactory(config));
+	}
+
+	/**
+	 * Gets the code of all methods of the program, ordered by their signature
+	 */
+	private static List<String> getCode() {
+		List<String> code = new ArrayList<>();
+		List<SootMethod> methods = new ArrayList<>(Scene.v().getSootClass("Main").getMethods());
+		Collections.sort(methods, new Comparator<SootMethod>() {
+
+			@Override
+			public int compare(SootMethod o1, SootMethod o2) {
+				return o1.getSignature().compareTo(o2.getSignature());
+			}
+
+		});
+		for (SootMethod sm : methods)
+			code.add(sm.getSignature() + "\n" + sm.retrieveActiveBody());
+		return code;
+	}
+
+	/**
+	 * Runs the constant propagation with the given number of threads on a
+	 * freshly loaded copy of the program
+	 * @return The code of the program after the propagation
+	 */
+	private List<String> propagate(int numThreads) throws ReflectiveOperationException {
+		loadProgram();
+		InterproceduralConstantValuePropagator ipcvp = new InterproceduralConstantValuePropagator(
+				createManager(), Scene.v().getEntryPoints(), null, null);
+		ipcvp.setNumThreads(numThreads);
+		ipcvp.transform();
+		return getCode();
+	}
+
+	@Test(timeout = 300000)
+	public void parallelRoundsMatchSequentialPropagation() throws ReflectiveOperationException {
+		loadProgram();
+		List<String> original = getCode();
+
+		List<String> sequential = propagate(1);
+		Assert.assertNotEquals(original, sequential);
+
+		// Repeat the parallel run, since the order of the tasks varies
+		for (int i = 0; i < 5; i++)
+			Assert.assertEquals(sequential, propagate(4));
+	}
+
+	@Test(timeout = 300000)
+	public void propagatesConstantsOverSeveralRounds() throws ReflectiveOperationException {
+		propagate(4);
+
+		// The constant 49 can only reach sink after twice and add have been
+		// folded in earlier rounds
+		String sink = Scene.v().getSootClass("Main").getMethodByName("sink").retrieveActiveBody().toString();
+		Assert.assertTrue(sink, sink.contains("49"));
+	}
+
+}
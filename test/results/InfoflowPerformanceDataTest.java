@@ -0,0 +1,181 @@
+package soot.jimple.infoflow.results;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.infoflow.results.InfoflowPerformanceData.Phase;
+import soot.jimple.infoflow.results.InfoflowPerformanceData.PhaseTimer;
+import soot.jimple.infoflow.util.TimingCounter;
+
+/**
+ * Tests for the {@link InfoflowPerformanceData}. Values that have not been
+ * recorded must be reported as -1, recorded values must be combined correctly
+ * over several solver runs and threads, and the JSON export must contain
+ * every value.
+ *
+ * @author wanglei
+ *
+ */
+public class InfoflowPerformanceDataTest {
+
+	@Before
+	public void resetCounters() {
+		TimingCounter.resetAll();
+	}
+
+	/**
+	 * Gets the number that is written for the given key in the given JSON
+	 * text
+	 */
+	private static long jsonValue(String json, String key) {
+		Matcher m = Pattern.compile("\"" + key + "\": (-?\\d+)").matcher(json);
+		Assert.assertTrue("Missing key " + key, m.find());
+		long value = Long.parseLong(m.group(1));
+		Assert.assertFalse("Duplicate key " + key, m.find());
+		return value;
+	}
+
+	@Test
+	public void unrecordedValuesAreMinusOne() {
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+		for (Phase phase : Phase.values()) {
+			Assert.assertEquals(-1, data.getWallTime(phase));
+			Assert.assertEquals(-1, data.getCpuTime(phase));
+		}
+		Assert.assertEquals(-1, data.getForwardPropagationCount());
+		Assert.assertEquals(-1, data.getBackwardJumpFunctionCount());
+		Assert.assertEquals(-1, data.getDfgNodeCount());
+		Assert.assertEquals(-1, data.getSummaryHits());
+		Assert.assertEquals(-1, data.getSummaryHitRate(), 0);
+		Assert.assertEquals(-1, data.getTimingCounter(TimingCounter.IFDS_NORMAL));
+		Assert.assertEquals(-1, data.getMaxMemoryConsumption());
+		Assert.assertEquals(-1, data.getResultCount());
+	}
+
+	@Test
+	public void repeatedPhasesAreSummedUp() {
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+		data.addPhaseTime(Phase.TAINT_PROPAGATION, 100, 300);
+		data.addPhaseTime(Phase.TAINT_PROPAGATION, 50, -1);
+		Assert.assertEquals(150, data.getWallTime(Phase.TAINT_PROPAGATION));
+		Assert.assertEquals(300, data.getCpuTime(Phase.TAINT_PROPAGATION));
+		Assert.assertEquals(-1, data.getWallTime(Phase.DFG_BUILD));
+
+		PhaseTimer timer = data.startPhase(Phase.DFG_BUILD);
+		long wallTime = timer.stop();
+		Assert.assertTrue(wallTime >= 0);
+		Assert.assertEquals(wallTime, data.getWallTime(Phase.DFG_BUILD));
+	}
+
+	@Test
+	public void phasesCanBeTimedConcurrently() throws InterruptedException {
+		final InfoflowPerformanceData data = new InfoflowPerformanceData();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++)
+						data.addPhaseTime(Phase.SUMMARY_BUILD, 1, 2);
+				}
+
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(80000, data.getWallTime(Phase.SUMMARY_BUILD));
+		Assert.assertEquals(160000, data.getCpuTime(Phase.SUMMARY_BUILD));
+	}
+
+	@Test
+	public void solverCountsAreCombined() {
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+
+		// Propagations of several solver runs add up, the jump function tables
+		// are reported with their largest size
+		data.addPropagationCounts(10, 4);
+		data.addPropagationCounts(5, 0);
+		data.updateJumpFunctionCounts(30, -1);
+		data.updateJumpFunctionCounts(20, 7);
+		Assert.assertEquals(15, data.getForwardPropagationCount());
+		Assert.assertEquals(4, data.getBackwardPropagationCount());
+		Assert.assertEquals(30, data.getForwardJumpFunctionCount());
+		Assert.assertEquals(7, data.getBackwardJumpFunctionCount());
+	}
+
+	@Test
+	public void summaryHitRate() {
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+		data.setSummaryLookups(0, 0);
+		Assert.assertEquals(-1, data.getSummaryHitRate(), 0);
+		data.setSummaryLookups(3, 1);
+		Assert.assertEquals(0.75, data.getSummaryHitRate(), 1E-9);
+	}
+
+	@Test
+	public void timingCountersAreCapturedOnce() {
+		TimingCounter.DFG_QUERY.add(40);
+		TimingCounter.DFG_QUERY.add(2);
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+		data.captureTimingCounters();
+
+		// Later updates, e.g. by the next run, do not change the captured data
+		TimingCounter.DFG_QUERY.add(1000);
+		TimingCounter.resetAll();
+		Assert.assertEquals(42, data.getTimingCounter(TimingCounter.DFG_QUERY));
+		Assert.assertEquals(0, data.getTimingCounter(TimingCounter.IFDS_CALL));
+		Assert.assertEquals(0, TimingCounter.DFG_QUERY.get());
+	}
+
+	@Test
+	public void jsonContainsAllValues() {
+		InfoflowPerformanceData data = new InfoflowPerformanceData();
+		data.addPhaseTime(Phase.CALLGRAPH_CONSTRUCTION, 123, 456);
+		data.addPropagationCounts(7, 8);
+		data.updateJumpFunctionCounts(9, 10);
+		data.setDfgSize(11, 12);
+		data.setDfgStoreStatistics(13, 14);
+		data.setSummaryCounts(15, 16);
+		data.setSummaryLookups(17, 18);
+		data.setMaxMemoryConsumption(19);
+		data.setResultCount(20);
+		TimingCounter.IFDS_EXIT.add(21);
+		data.captureTimingCounters();
+
+		String json = data.toJson();
+		Assert.assertTrue(json.contains("\"CALLGRAPH_CONSTRUCTION\": { \"wallTimeNanos\": 123, \"cpuTimeNanos\": 456 }"));
+		Assert.assertTrue(json.contains("\"DFG_BUILD\": { \"wallTimeNanos\": -1, \"cpuTimeNanos\": -1 }"));
+		Assert.assertEquals(7, jsonValue(json, "forwardPropagationCount"));
+		Assert.assertEquals(8, jsonValue(json, "backwardPropagationCount"));
+		Assert.assertEquals(9, jsonValue(json, "forwardJumpFunctionCount"));
+		Assert.assertEquals(10, jsonValue(json, "backwardJumpFunctionCount"));
+		Assert.assertEquals(11, jsonValue(json, "dfgEntryCount"));
+		Assert.assertEquals(12, jsonValue(json, "dfgNodeCount"));
+		Assert.assertEquals(13, jsonValue(json, "dfgStoreHits"));
+		Assert.assertEquals(14, jsonValue(json, "dfgStoreMisses"));
+		Assert.assertEquals(15, jsonValue(json, "forwardSummaryCount"));
+		Assert.assertEquals(16, jsonValue(json, "backwardsSummaryCount"));
+		Assert.assertEquals(17, jsonValue(json, "summaryHits"));
+		Assert.assertEquals(18, jsonValue(json, "summaryMisses"));
+		Assert.assertEquals(19, jsonValue(json, "maxMemoryConsumptionBytes"));
+		Assert.assertEquals(20, jsonValue(json, "resultCount"));
+		Assert.assertEquals(21, jsonValue(json, TimingCounter.IFDS_EXIT.name()));
+		for (TimingCounter counter : TimingCounter.values())
+			jsonValue(json, counter.name());
+
+		// The objects must be well-formed
+		Assert.assertFalse(Pattern.compile(",\\s*}").matcher(json).find());
+		Assert.assertEquals(json.replace("{", "").length(), json.replace("}", "").length());
+	}
+
+}
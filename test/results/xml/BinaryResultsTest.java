@@ -0,0 +1,180 @@
+package soot.jimple.infoflow.results.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.infoflow.results.util.ResultFormatConverter;
+
+/**
+ * Tests for the {@link BinaryResultsWriter} and the
+ * {@link BinaryResultsReader}
+ *
+ * @author wanglei
+ *
+ */
+public class BinaryResultsTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("results", ".bin");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static SerializedAccessPath accessPath(String base, String... fieldsAndTypes) {
+		String[] fields = new String[fieldsAndTypes.length / 2];
+		String[] types = new String[fieldsAndTypes.length / 2];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = fieldsAndTypes[i * 2];
+			types[i] = fieldsAndTypes[i * 2 + 1];
+		}
+		return new SerializedAccessPath(base, "java.lang.String", fields.length == 0, fields, types);
+	}
+
+	/**
+	 * Creates results with and without paths, repeated strings, and enough
+	 * distinct strings to need string references of more than one byte
+	 */
+	private static SerializedInfoflowResults createResults() {
+		SerializedInfoflowResults results = new SerializedInfoflowResults();
+		results.setFileFormatVersion(InfoflowResultsSerializer.FILE_FORMAT_VERSION);
+
+		SerializedSinkInfo sink = new SerializedSinkInfo(accessPath("$r1"),
+				"virtualinvoke $r0.<Log: int i(java.lang.String)>($r1)", "<Main: void onCreate()>");
+		results.addResult(new SerializedSourceInfo(accessPath("$r1"),
+				"$r1 = virtualinvoke $r0.<TelephonyManager: java.lang.String getDeviceId()>()",
+				"<Main: void onCreate()>"), sink);
+
+		List<SerializedPathElement> path = new ArrayList<>();
+		path.add(new SerializedPathElement(accessPath("$r2", "<Data: java.lang.String secret>", "java.lang.String"),
+				"$r2.<Data: java.lang.String secret> = $r3", "<Main: void store(Data)>"));
+		path.add(new SerializedPathElement(accessPath("$r1"), "$r1 = $r2.<Data: java.lang.String secret>",
+				"<Main: void onCreate()>"));
+		results.addResult(new SerializedSourceInfo(accessPath("$r3"), "$r3 = äöü 中文",
+				"<Main: void store(Data)>", path), sink);
+
+		for (int i = 0; i < 300; i++) {
+			SerializedSinkInfo s = new SerializedSinkInfo(accessPath("$r" + i), "sink" + i, "<Main: void m" + i + "()>");
+			results.addResult(new SerializedSourceInfo(accessPath("$r" + i), "source" + i, "<Main: void m" + i + "()>"),
+					s);
+		}
+		return results;
+	}
+
+	private void write(SerializedInfoflowResults results) throws IOException {
+		try (BinaryResultsWriter writer = new BinaryResultsWriter(file.getAbsolutePath(),
+				results.getFileFormatVersion())) {
+			writer.writeResults(results);
+		}
+	}
+
+	@Test
+	public void roundTripsResults() throws IOException {
+		SerializedInfoflowResults results = createResults();
+		write(results);
+
+		Assert.assertTrue(BinaryResultsReader.isBinaryResultFile(file.getAbsolutePath()));
+		SerializedInfoflowResults read = BinaryResultsReader.readResults(file.getAbsolutePath());
+		Assert.assertEquals(results.getResultCount(), read.getResultCount());
+		Assert.assertEquals(results, read);
+	}
+
+	@Test
+	public void iteratesOverResults() throws IOException {
+		SerializedInfoflowResults results = createResults();
+		write(results);
+
+		int count = 0;
+		try (BinaryResultsReader rdr = new BinaryResultsReader(file.getAbsolutePath())) {
+			Assert.assertEquals(InfoflowResultsSerializer.FILE_FORMAT_VERSION, rdr.getFileFormatVersion());
+			while (rdr.next()) {
+				Assert.assertTrue(results.getResults().get(rdr.getSink()).contains(rdr.getSource()));
+				count++;
+			}
+			Assert.assertNull(rdr.getSink());
+			Assert.assertFalse(rdr.next());
+		}
+		Assert.assertEquals(results.getResultCount(), count);
+	}
+
+	@Test
+	public void readsTruncatedFileUpToLastCompleteResult() throws IOException {
+		SerializedAccessPath ap = accessPath("$r0");
+		long completeLength;
+		try (BinaryResultsWriter writer = new BinaryResultsWriter(file.getAbsolutePath(), 1)) {
+			writer.writeResult(new SerializedSinkInfo(ap, "sink1", "m"), new SerializedSourceInfo(ap, "source1", "m"));
+			writer.writeResult(new SerializedSinkInfo(ap, "sink2", "m"), new SerializedSourceInfo(ap, "source2", "m"));
+			writer.flush();
+			completeLength = file.length();
+			writer.writeResult(new SerializedSinkInfo(ap, "sink3", "m"), new SerializedSourceInfo(ap, "source3", "m"));
+		}
+
+		// Cut the file in the middle of the third result, as if the analysis
+		// had been killed while writing it
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(completeLength + 5);
+		}
+		Assert.assertEquals(2, BinaryResultsReader.readResults(file.getAbsolutePath()).getResultCount());
+	}
+
+	@Test
+	public void recognizesOtherFiles() throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><DataFlowResults/>".getBytes(StandardCharsets.UTF_8));
+		}
+		Assert.assertFalse(BinaryResultsReader.isBinaryResultFile(file.getAbsolutePath()));
+		try {
+			new BinaryResultsReader(file.getAbsolutePath()).close();
+			Assert.fail("XML file accepted as binary result file");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void convertsBetweenXmlAndBinary() throws IOException, XMLStreamException {
+		SerializedInfoflowResults results = createResults();
+		File xmlFile = File.createTempFile("results", ".xml");
+		File xmlCopy = File.createTempFile("results", ".xml");
+		try {
+			new InfoflowResultsSerializer().serialize(results, xmlFile.getAbsolutePath());
+			SerializedInfoflowResults fromXml = new InfoflowResultsReader().readResults(xmlFile.getAbsolutePath());
+			Assert.assertEquals(results, fromXml);
+
+			ResultFormatConverter.xmlToBinary(xmlFile.getAbsolutePath(), file.getAbsolutePath());
+			Assert.assertEquals(fromXml, BinaryResultsReader.readResults(file.getAbsolutePath()));
+
+			ResultFormatConverter.binaryToXml(file.getAbsolutePath(), xmlCopy.getAbsolutePath());
+			Assert.assertEquals(fromXml, new InfoflowResultsReader().readResults(xmlCopy.getAbsolutePath()));
+		} finally {
+			xmlFile.delete();
+			xmlCopy.delete();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsWritesAfterClose() throws IOException {
+		BinaryResultsWriter writer = new BinaryResultsWriter(file.getAbsolutePath(), 1);
+		writer.close();
+		SerializedAccessPath ap = accessPath("$r0");
+		writer.writeResult(new SerializedSinkInfo(ap, "sink", "m"), new SerializedSourceInfo(ap, "source", "m"));
+	}
+
+}
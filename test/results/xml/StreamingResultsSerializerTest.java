@@ -0,0 +1,149 @@
+package soot.jimple.infoflow.results.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.Local;
+import soot.RefType;
+import soot.jimple.Jimple;
+import soot.jimple.NullConstant;
+import soot.jimple.Stmt;
+import soot.jimple.StringConstant;
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.InfoflowConfiguration.StreamingResultsFormat;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.results.util.InfoflowResultComparator;
+
+/**
+ * Tests for the {@link StreamingResultsSerializer}
+ *
+ * @author wanglei
+ *
+ */
+public class StreamingResultsSerializerTest {
+
+	private final InfoflowConfiguration config = new InfoflowConfiguration();
+
+	private ResultSinkInfo sink;
+	private ResultSourceInfo plainSource;
+	private ResultSourceInfo pathSource;
+
+	private File xmlFile;
+	private File binaryFile;
+	private File jsonFile;
+
+	@Before
+	public void createResults() throws IOException {
+		Local r1 = Jimple.v().newLocal("r1", RefType.v("java.lang.String"));
+		Local r2 = Jimple.v().newLocal("r2", RefType.v("java.lang.String"));
+		AccessPathFactory apFactory = new AccessPathFactory(config);
+		AccessPath ap1 = apFactory.createAccessPath(r1, true);
+		AccessPath ap2 = apFactory.createAccessPath(r2, true);
+
+		Stmt source1 = Jimple.v().newAssignStmt(r1, StringConstant.v("secret"));
+		Stmt source2 = Jimple.v().newAssignStmt(r2, NullConstant.v());
+		Stmt copy = Jimple.v().newAssignStmt(r1, r2);
+		Stmt sinkStmt = Jimple.v().newReturnStmt(r1);
+
+		sink = new ResultSinkInfo(ap1, sinkStmt);
+		plainSource = new ResultSourceInfo(ap1, source1);
+		pathSource = new ResultSourceInfo(ap2, source2, null, Arrays.<Stmt>asList(source2, copy, sinkStmt),
+				Arrays.asList(ap2, ap1, ap1));
+
+		xmlFile = File.createTempFile("results", ".xml");
+		binaryFile = File.createTempFile("results", ".bin");
+		jsonFile = File.createTempFile("results", ".jsonl");
+	}
+
+	@After
+	public void deleteFiles() {
+		xmlFile.delete();
+		binaryFile.delete();
+		jsonFile.delete();
+	}
+
+	private void stream(File file, StreamingResultsFormat format) throws IOException {
+		try (StreamingResultsSerializer serializer = new StreamingResultsSerializer(file.getAbsolutePath(), format,
+				null, config)) {
+			serializer.onSingleResultAvailable(plainSource, sink);
+			serializer.onSingleResultAvailable(pathSource, sink);
+			Assert.assertEquals(2, serializer.getResultCount());
+		}
+	}
+
+	@Test
+	public void xmlAndBinaryStreamsContainTheSameResults() throws IOException, XMLStreamException {
+		stream(xmlFile, StreamingResultsFormat.Xml);
+		stream(binaryFile, StreamingResultsFormat.Binary);
+
+		InfoflowResultComparator comparator = new InfoflowResultComparator();
+		SerializedInfoflowResults fromXml = comparator.readResults(xmlFile.getAbsolutePath());
+		SerializedInfoflowResults fromBinary = comparator.readResults(binaryFile.getAbsolutePath());
+
+		// Both sources reach the same sink, so the two result elements in
+		// the XML file have to be merged again
+		Assert.assertEquals(1, fromXml.getResults().keySet().size());
+		Assert.assertEquals(2, fromXml.getResultCount());
+		Assert.assertEquals(fromXml, fromBinary);
+		Assert.assertTrue(comparator.resultEquals(xmlFile.getAbsolutePath(), binaryFile.getAbsolutePath()));
+	}
+
+	@Test
+	public void keepsPropagationPaths() throws IOException, XMLStreamException {
+		stream(xmlFile, StreamingResultsFormat.Xml);
+
+		SerializedInfoflowResults results = new InfoflowResultComparator().readResults(xmlFile.getAbsolutePath());
+		SerializedSinkInfo serializedSink = results.getResults().keySet().iterator().next();
+		int withPath = 0;
+		for (SerializedSourceInfo source : results.getResults().get(serializedSink)) {
+			if (source.getPropagationPath() != null) {
+				Assert.assertEquals(3, source.getPropagationPath().size());
+				Assert.assertEquals(sink.getSink().toString(), source.getPropagationPath().get(2).getStatement());
+				withPath++;
+			}
+		}
+		Assert.assertEquals(1, withPath);
+	}
+
+	@Test
+	public void writesOneJsonObjectPerLine() throws IOException {
+		stream(jsonFile, StreamingResultsFormat.JsonLines);
+
+		List<String> lines = Files.readAllLines(jsonFile.toPath(), StandardCharsets.UTF_8);
+		Assert.assertEquals(2, lines.size());
+		for (String line : lines) {
+			Assert.assertTrue(line.startsWith("{\"sink\":"));
+			Assert.assertTrue(line.endsWith("}"));
+		}
+		Assert.assertFalse(lines.get(0).contains("\"path\":["));
+		Assert.assertTrue(lines.get(1).contains("\"path\":["));
+	}
+
+	@Test
+	public void ignoresResultsAfterClose() throws IOException, XMLStreamException {
+		StreamingResultsSerializer serializer = new StreamingResultsSerializer(binaryFile.getAbsolutePath(),
+				StreamingResultsFormat.Binary, null, config);
+		serializer.onSingleResultAvailable(plainSource, sink);
+		serializer.onResultsAvailable(null, null);
+		serializer.onSingleResultAvailable(pathSource, sink);
+
+		Assert.assertEquals(1, serializer.getResultCount());
+		Assert.assertEquals(1,
+				new InfoflowResultComparator().readResults(binaryFile.getAbsolutePath()).getResultCount());
+	}
+
+}
@@ -0,0 +1,218 @@
+package soot.jimple.infoflow.solver.cfg;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Tests for the {@link FrozenInterproceduralCFG}. The snapshot must answer
+ * every query exactly like the ICFG it has been taken of.
+ *
+ * @author wanglei
+ *
+ */
+public class FrozenInterproceduralCFGTest {
+
+	/**
+	 * The answers of the original ICFG, by query name and argument
+	 */
+	private final Map<String, Map<Object, Object>> answers = new HashMap<>();
+
+	private BiDiInterproceduralCFG<Unit, SootMethod> original;
+
+	private SootMethod main;
+	private SootMethod callee;
+	private SootMethod nativeMethod;
+	private SootMethod unreachable;
+	private List<Unit> mainUnits;
+	private List<Unit> calleeUnits;
+	private List<Unit> unreachableUnits;
+
+	private static SootMethod createMethod(String name, int numUnits) {
+		SootMethod m = new SootMethod(name, Collections.<Type>emptyList(), VoidType.v());
+		if (numUnits > 0) {
+			JimpleBody body = Jimple.v().newBody(m);
+			for (int i = 0; i < numUnits; i++)
+				body.getUnits().add(Jimple.v().newNopStmt());
+			m.setActiveBody(body);
+		}
+		return m;
+	}
+
+	private void answer(String query, Object argument, Object result) {
+		Map<Object, Object> results = answers.get(query);
+		if (results == null) {
+			results = new HashMap<>();
+			answers.put(query, results);
+		}
+		results.put(argument, result);
+	}
+
+	/**
+	 * Creates an ICFG that only knows the answers that have been registered
+	 * through {@link #answer(String, Object, Object)}
+	 */
+	@SuppressWarnings("unchecked")
+	private BiDiInterproceduralCFG<Unit, SootMethod> createICFG() {
+		return (BiDiInterproceduralCFG<Unit, SootMethod>) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BiDiInterproceduralCFG.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						Map<Object, Object> results = answers.get(method.getName());
+						Object result = results == null ? null : results.get(args[0]);
+						if (result != null)
+							return result;
+						if (method.getReturnType() == boolean.class)
+							return false;
+						if (method.getReturnType() == List.class || method.getReturnType() == Collection.class)
+							return Collections.emptyList();
+						return null;
+					}
+
+				});
+	}
+
+	/**
+	 * Creates a program in which main calls a method with a body and a native
+	 * method. The exit of main leads to a unit of a method that is not part
+	 * of the snapshot.
+	 */
+	@Before
+	public void createProgram() {
+		main = createMethod("main", 3);
+		callee = createMethod("callee", 2);
+		nativeMethod = createMethod("nativeMethod", 0);
+		unreachable = createMethod("unreachable", 1);
+		mainUnits = new ArrayList<>(main.getActiveBody().getUnits());
+		calleeUnits = new ArrayList<>(callee.getActiveBody().getUnits());
+		unreachableUnits = new ArrayList<>(unreachable.getActiveBody().getUnits());
+
+		for (Unit u : mainUnits)
+			answer("getMethodOf", u, main);
+		for (Unit u : calleeUnits)
+			answer("getMethodOf", u, callee);
+		for (Unit u : unreachableUnits)
+			answer("getMethodOf", u, unreachable);
+
+		Unit call = mainUnits.get(0);
+		Unit returnSite = mainUnits.get(1);
+		Unit mainExit = mainUnits.get(2);
+		answer("getSuccsOf", call, Arrays.asList(returnSite));
+		answer("getSuccsOf", returnSite, Arrays.asList(mainExit));
+		answer("getSuccsOf", mainExit, Arrays.asList(unreachableUnits.get(0)));
+		answer("getPredsOf", returnSite, Arrays.asList(call));
+		answer("getPredsOf", mainExit, Arrays.asList(returnSite));
+		answer("getSuccsOf", calleeUnits.get(0), Arrays.asList(calleeUnits.get(1)));
+		answer("getPredsOf", calleeUnits.get(1), Arrays.asList(calleeUnits.get(0)));
+
+		answer("isCallStmt", call, true);
+		answer("isReturnSite", returnSite, true);
+		answer("isExitStmt", mainExit, true);
+		answer("isExitStmt", calleeUnits.get(1), true);
+		answer("isStartPoint", call, true);
+		answer("isStartPoint", calleeUnits.get(0), true);
+		answer("isReachable", unreachableUnits.get(0), true);
+
+		answer("getCalleesOfCallAt", call, Arrays.asList(callee, nativeMethod));
+		answer("getReturnSitesOfCallAt", call, Arrays.asList(returnSite));
+		answer("getCallersOf", callee, Arrays.asList(call));
+		answer("getCallersOf", nativeMethod, Arrays.asList(call));
+		answer("getStartPointsOf", main, Arrays.asList(call));
+		answer("getStartPointsOf", callee, Arrays.asList(calleeUnits.get(0)));
+		answer("getEndPointsOf", main, Arrays.asList(mainExit));
+		answer("getEndPointsOf", callee, Arrays.asList(calleeUnits.get(1)));
+
+		original = createICFG();
+	}
+
+	private void assertSameAnswers(FrozenInterproceduralCFG frozen, Collection<Unit> units,
+			Collection<SootMethod> methods) {
+		for (Unit u : units) {
+			Assert.assertSame(original.getMethodOf(u), frozen.getMethodOf(u));
+			Assert.assertEquals(original.getSuccsOf(u), frozen.getSuccsOf(u));
+			Assert.assertEquals(original.getPredsOf(u), frozen.getPredsOf(u));
+			Assert.assertEquals(original.getPredsOf(u), frozen.getPredsOfCallAt(u));
+			Assert.assertEquals(new ArrayList<>(original.getCalleesOfCallAt(u)),
+					new ArrayList<>(frozen.getCalleesOfCallAt(u)));
+			Assert.assertEquals(new ArrayList<>(original.getReturnSitesOfCallAt(u)),
+					new ArrayList<>(frozen.getReturnSitesOfCallAt(u)));
+			Assert.assertEquals(original.isCallStmt(u), frozen.isCallStmt(u));
+			Assert.assertEquals(original.isExitStmt(u), frozen.isExitStmt(u));
+			Assert.assertEquals(original.isStartPoint(u), frozen.isStartPoint(u));
+			Assert.assertEquals(original.isReturnSite(u), frozen.isReturnSite(u));
+		}
+		for (SootMethod m : methods) {
+			Assert.assertEquals(new ArrayList<>(original.getCallersOf(m)), new ArrayList<>(frozen.getCallersOf(m)));
+			Assert.assertEquals(new ArrayList<>(original.getStartPointsOf(m)),
+					new ArrayList<>(frozen.getStartPointsOf(m)));
+			Assert.assertEquals(new ArrayList<>(original.getEndPointsOf(m)),
+					new ArrayList<>(frozen.getEndPointsOf(m)));
+		}
+	}
+
+	@Test
+	public void answersLikeTheOriginalICFG() {
+		FrozenInterproceduralCFG frozen = new FrozenInterproceduralCFG(original,
+				Arrays.asList(main, callee, nativeMethod));
+
+		List<Unit> allUnits = new ArrayList<>(mainUnits);
+		allUnits.addAll(calleeUnits);
+		allUnits.addAll(unreachableUnits);
+		assertSameAnswers(frozen, allUnits, Arrays.asList(main, callee, nativeMethod, unreachable));
+
+		Assert.assertEquals(5, frozen.getUnitCount());
+		Assert.assertEquals(3, frozen.getMethodCount());
+	}
+
+	@Test
+	public void delegatesEdgesLeavingTheSnapshot() {
+		FrozenInterproceduralCFG frozen = new FrozenInterproceduralCFG(original,
+				Arrays.asList(main, callee, nativeMethod));
+
+		// Only the exit of main has an edge to a unit outside the snapshot
+		Assert.assertEquals(1, frozen.getFallbackCount());
+		Assert.assertEquals(Arrays.asList(unreachableUnits.get(0)), frozen.getSuccsOf(mainUnits.get(2)));
+		Assert.assertTrue(frozen.isReachable(unreachableUnits.get(0)));
+		Assert.assertTrue(frozen.isReachable(mainUnits.get(0)));
+	}
+
+	@Test
+	public void includesEveryMethodOnce() {
+		FrozenInterproceduralCFG frozen = new FrozenInterproceduralCFG(original,
+				Arrays.asList(main, callee, main, nativeMethod, unreachable));
+		Assert.assertEquals(6, frozen.getUnitCount());
+		Assert.assertEquals(0, frozen.getFallbackCount());
+
+		List<Unit> allUnits = new ArrayList<>(mainUnits);
+		allUnits.addAll(calleeUnits);
+		allUnits.addAll(unreachableUnits);
+		assertSameAnswers(frozen, allUnits, Arrays.asList(main, callee, nativeMethod, unreachable));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void returnsReadOnlyLists() {
+		FrozenInterproceduralCFG frozen = new FrozenInterproceduralCFG(original, Arrays.asList(main, callee));
+		frozen.getSuccsOf(mainUnits.get(0)).add(mainUnits.get(2));
+	}
+
+}
@@ -0,0 +1,90 @@
+package soot.jimple.infoflow.solver.executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TaskDedupTable}
+ *
+ * @author wanglei
+ *
+ */
+public class TaskDedupTableTest {
+
+	/**
+	 * Task with a fixed hash code and an id for equality
+	 */
+	private static class Task implements Runnable {
+
+		private final int hash;
+		private final int id;
+
+		Task(int hash, int id) {
+			this.hash = hash;
+			this.id = id;
+		}
+
+		@Override
+		public void run() {
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Task && ((Task) obj).id == id;
+		}
+
+	}
+
+	@Test
+	public void rejectsEqualPendingTask() {
+		TaskDedupTable table = new TaskDedupTable(16);
+		Assert.assertTrue(table.add(new Task(1, 1)));
+		Assert.assertFalse(table.add(new Task(1, 1)));
+	}
+
+	@Test
+	public void acceptsTaskAgainAfterRemoval() {
+		TaskDedupTable table = new TaskDedupTable(16);
+		Task task = new Task(1, 1);
+		Assert.assertTrue(table.add(task));
+		table.remove(task);
+		Assert.assertTrue(table.add(new Task(1, 1)));
+	}
+
+	@Test
+	public void removeOnlyClearsTheSameObject() {
+		TaskDedupTable table = new TaskDedupTable(16);
+		Task first = new Task(1, 1);
+		Task second = new Task(1, 2);
+		Assert.assertTrue(table.add(first));
+		Assert.assertTrue(table.add(second));
+
+		// The first task has been overwritten by the colliding second one and
+		// must not clear its slot
+		table.remove(first);
+		Assert.assertFalse(table.add(new Task(1, 2)));
+	}
+
+	@Test
+	public void neverDropsCollidingTasks() {
+		TaskDedupTable table = new TaskDedupTable(2);
+		for (int i = 0; i < 100; i++)
+			Assert.assertTrue(table.add(new Task(i, i)));
+	}
+
+	@Test
+	public void clearForgetsAllTasks() {
+		TaskDedupTable table = new TaskDedupTable(16);
+		for (int i = 0; i < 10; i++)
+			table.add(new Task(i, i));
+		table.clear();
+		for (int i = 0; i < 10; i++)
+			Assert.assertTrue(table.add(new Task(i, i)));
+	}
+
+}
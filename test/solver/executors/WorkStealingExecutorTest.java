@@ -0,0 +1,208 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link WorkStealingExecutor}
+ *
+ * @author wanglei
+ *
+ */
+public class WorkStealingExecutorTest {
+
+	private WorkStealingExecutor executor = null;
+
+	@After
+	public void shutdownExecutor() {
+		if (executor != null)
+			executor.shutdown();
+	}
+
+	/**
+	 * Task that submits a number of child tasks until the given depth is
+	 * reached, like a path edge that produces new edges
+	 */
+	private class FanOutTask implements Runnable {
+
+		private final int depth;
+		private final AtomicInteger counter;
+
+		FanOutTask(int depth, AtomicInteger counter) {
+			this.depth = depth;
+			this.counter = counter;
+		}
+
+		@Override
+		public void run() {
+			counter.incrementAndGet();
+			if (depth > 0)
+				for (int i = 0; i < 3; i++)
+					executor.execute(new FanOutTask(depth - 1, counter));
+		}
+
+	}
+
+	@Test(timeout = 30000)
+	public void runsAllSpawnedTasks() throws InterruptedException {
+		executor = new WorkStealingExecutor(4, false);
+		AtomicInteger counter = new AtomicInteger();
+		executor.execute(new FanOutTask(7, counter));
+		executor.awaitCompletion();
+
+		// 1 + 3 + 9 + ... + 3^7 tasks
+		Assert.assertEquals(3280, counter.get());
+		Assert.assertTrue(executor.isFinished());
+		Assert.assertNull(executor.getException());
+	}
+
+	@Test(timeout = 30000)
+	public void wakesIdleWorkersForTasksPushedByAWorker() throws InterruptedException {
+		executor = new WorkStealingExecutor(2, false);
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final AtomicInteger timedOut = new AtomicInteger();
+
+		// Both children land on the deque of the worker that runs the parent.
+		// They can only finish if the other worker is woken up and steals one
+		// of them.
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 2; i++)
+					executor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							threads.add(Thread.currentThread());
+							bothRunning.countDown();
+							try {
+								if (!bothRunning.await(10, TimeUnit.SECONDS))
+									timedOut.incrementAndGet();
+							} catch (InterruptedException e) {
+								timedOut.incrementAndGet();
+							}
+						}
+
+					});
+			}
+
+		});
+		executor.awaitCompletion();
+
+		Assert.assertEquals(0, timedOut.get());
+		Assert.assertEquals(2, threads.size());
+	}
+
+	@Test(timeout = 30000)
+	public void runsTasksOfOneKeyOnTheirHomeWorker() throws InterruptedException {
+		executor = new WorkStealingExecutor(4, false);
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final Object key = new Object();
+
+		// The tasks are submitted from outside and all go to the home worker
+		// of their key. Nobody else has work, so they may be stolen, but only
+		// in batches of the same key. Without stealing, a single thread runs
+		// them all.
+		for (int i = 0; i < 100; i++)
+			executor.execute(new ILocalityAwareTask() {
+
+				@Override
+				public void run() {
+					threads.add(Thread.currentThread());
+				}
+
+				@Override
+				public Object getLocalityKey() {
+					return key;
+				}
+
+			});
+		executor.awaitCompletion();
+
+		Assert.assertFalse(threads.isEmpty());
+		Assert.assertTrue(threads.size() <= executor.getNumThreads());
+	}
+
+	@Test(timeout = 30000)
+	public void deduplicatesPendingTasks() throws InterruptedException {
+		executor = new WorkStealingExecutor(1, true);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger runs = new AtomicInteger();
+
+		// Blocks the only worker, so that the equal tasks below are all
+		// pending at the same time
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		for (int i = 0; i < 10; i++)
+			executor.execute(new EqualTask(runs));
+		release.countDown();
+		executor.awaitCompletion();
+
+		Assert.assertEquals(1, runs.get());
+	}
+
+	/**
+	 * Task that is equal to all other instances of its class
+	 */
+	private static class EqualTask implements Runnable {
+
+		private final AtomicInteger runs;
+
+		EqualTask(AtomicInteger runs) {
+			this.runs = runs;
+		}
+
+		@Override
+		public void run() {
+			runs.incrementAndGet();
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof EqualTask;
+		}
+
+	}
+
+	@Test(timeout = 30000)
+	public void reportsExceptionsAndStops() throws InterruptedException {
+		executor = new WorkStealingExecutor(2, false);
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException("test");
+			}
+
+		});
+		executor.awaitCompletion();
+
+		Assert.assertTrue(executor.getException() instanceof IllegalStateException);
+	}
+
+}
@@ -0,0 +1,96 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import heros.solver.PathEdge;
+
+/**
+ * Tests for the {@link CompressedJumpFunctionStore}
+ *
+ * @author wanglei
+ *
+ */
+public class CompressedJumpFunctionStoreTest {
+
+	/**
+	 * Fact that is equal to all facts with the same name, but can be told
+	 * apart by identity
+	 */
+	static class Fact {
+
+		private final String name;
+
+		Fact(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Fact && ((Fact) obj).name.equals(name);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	@Test
+	public void returnsFactRecordedWithFirstEqualEdge() {
+		CompressedJumpFunctionStore<String, Fact> store = new CompressedJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		Fact first = new Fact("a");
+		Fact second = new Fact("a");
+
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n1", first)));
+		Assert.assertSame(first, store.putIfAbsent(new PathEdge<>(zero, "n1", second)));
+		Assert.assertEquals(1, store.size());
+	}
+
+	@Test
+	public void distinguishesEdges() {
+		CompressedJumpFunctionStore<String, Fact> store = new CompressedJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		Fact a = new Fact("a");
+		Fact b = new Fact("b");
+
+		store.putIfAbsent(new PathEdge<>(zero, "n1", a));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n2", a)));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n1", b)));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(a, "n1", a)));
+		Assert.assertEquals(4, store.size());
+
+		Assert.assertTrue(store.containsKey(new PathEdge<>(new Fact("0"), "n2", new Fact("a"))));
+		Assert.assertFalse(store.containsKey(new PathEdge<>(b, "n2", a)));
+	}
+
+	@Test
+	public void lookupsDoNotInternFacts() {
+		CompressedJumpFunctionStore<String, Fact> store = new CompressedJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		store.putIfAbsent(new PathEdge<>(zero, "n1", zero));
+		Assert.assertEquals(1, store.getFactCount());
+
+		Assert.assertFalse(store.containsKey(new PathEdge<>(zero, "n1", new Fact("x"))));
+		Assert.assertEquals(1, store.getFactCount());
+	}
+
+	@Test
+	public void clearForgetsAllEdges() {
+		CompressedJumpFunctionStore<String, Fact> store = new CompressedJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		store.putIfAbsent(new PathEdge<>(zero, "n1", zero));
+		store.clear();
+		Assert.assertEquals(0, store.size());
+		Assert.assertEquals(0, store.getFactCount());
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n1", zero)));
+	}
+
+}
@@ -0,0 +1,117 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowConfiguration.CodeEliminationMode;
+import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.sparseOptimization.benchmark.SyntheticWorkload;
+import soot.options.Options;
+
+/**
+ * Tests for the batched propagation of the {@link IFDSSolver}. Processing the
+ * pending edges of a statement together must find the same leaks as
+ * processing every edge on its own.
+ *
+ * @author wanglei
+ *
+ */
+public class IFDSSolverTest {
+
+	/**
+	 * Small enough to keep the test fast, large enough to have several facts
+	 * per statement
+	 */
+	private static final int SIZE = 5;
+
+	private final String libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator
+			+ "rt.jar";
+
+	private File appDir;
+
+	@Before
+	public void createDirectory() throws IOException {
+		appDir = Files.createTempDirectory("batching").toFile();
+	}
+
+	@After
+	public void deleteDirectory() {
+		for (SyntheticWorkload workload : SyntheticWorkload.values())
+			new File(appDir, workload.getClassName() + ".jimple").delete();
+		appDir.delete();
+		G.reset();
+	}
+
+	/**
+	 * Runs the given workload
+	 *
+	 * @return The leaks as source and sink statements, in a canonical order
+	 */
+	private List<String> analyze(SyntheticWorkload workload, boolean sparse, boolean batched) {
+		Infoflow infoflow = new Infoflow();
+		infoflow.getConfig().setSparseOptEnabled(sparse);
+		infoflow.getConfig().setBatchedPropagationEnabled(batched);
+		infoflow.getConfig().setMaxThreadNum(4);
+		infoflow.getConfig().setCodeEliminationMode(CodeEliminationMode.NoCodeElimination);
+		infoflow.setSootConfig(new IInfoflowConfig() {
+
+			@Override
+			public void setSootOptions(Options options) {
+				options.set_src_prec(Options.src_prec_jimple);
+			}
+
+		});
+		infoflow.computeInfoflow(appDir.getAbsolutePath(), libPath, workload.getEntryPoint(),
+				new DefaultSourceSinkManager(Collections.singleton(workload.sourceSig()),
+						Collections.singleton(workload.sinkSig())));
+
+		InfoflowResults results = infoflow.getResults();
+		Assert.assertNotNull(results);
+		List<String> leaks = new ArrayList<>();
+		if (!results.isEmpty())
+			for (ResultSinkInfo sink : results.getResults().keySet())
+				for (ResultSourceInfo source : results.getResults().get(sink))
+					leaks.add(source.getSource() + " -> " + sink.getSink());
+		Collections.sort(leaks);
+		return leaks;
+	}
+
+	private void checkBatchingMatches(boolean sparse) throws IOException {
+		for (SyntheticWorkload workload : SyntheticWorkload.values()) {
+			workload.writeTo(appDir, SIZE);
+			List<String> single = analyze(workload, sparse, false);
+			Assert.assertFalse(workload + " has no leaks", single.isEmpty());
+
+			// Repeat the batched run, since the composition of the batches
+			// depends on the scheduling
+			for (int i = 0; i < 3; i++)
+				Assert.assertEquals(workload.toString(), single, analyze(workload, sparse, true));
+		}
+	}
+
+	@Test(timeout = 600000)
+	public void batchedPropagationMatchesSingleEdges() throws IOException {
+		checkBatchingMatches(false);
+	}
+
+	@Test(timeout = 600000)
+	public void batchedSparsePropagationMatchesSingleEdges() throws IOException {
+		checkBatchingMatches(true);
+	}
+
+}
@@ -0,0 +1,90 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import heros.solver.PathEdge;
+import soot.jimple.infoflow.solver.fastSolver.CompressedJumpFunctionStoreTest.Fact;
+
+/**
+ * Tests for the {@link MapJumpFunctionStore}. The jump functions only grow:
+ * an edge that has been recorded once must be recognized whenever an equal
+ * edge is derived again, otherwise the solver would not terminate.
+ *
+ * @author wanglei
+ *
+ */
+public class MapJumpFunctionStoreTest {
+
+	/**
+	 * Records edges whose facts are only referenced by the store afterwards
+	 */
+	private static void recordEdges(IJumpFunctionStore<String, Fact> store, int count) {
+		for (int i = 0; i < count; i++)
+			Assert.assertNull(store.putIfAbsent(new PathEdge<>(new Fact("0"), "n" + i, new Fact("f" + i))));
+	}
+
+	/**
+	 * Derives all edges of {@link #recordEdges(IJumpFunctionStore, int)} again
+	 * from new fact objects, after the garbage collector had the chance to
+	 * collect facts that are no longer referenced
+	 */
+	private static void checkEdgesAreKept(IJumpFunctionStore<String, Fact> store, int count) {
+		System.gc();
+		for (int i = 0; i < count; i++) {
+			PathEdge<String, Fact> edge = new PathEdge<>(new Fact("0"), "n" + i, new Fact("f" + i));
+			Assert.assertTrue(store.containsKey(edge));
+			Fact recorded = store.putIfAbsent(edge);
+			Assert.assertEquals(new Fact("f" + i), recorded);
+			Assert.assertNotSame(edge.factAtTarget(), recorded);
+		}
+		Assert.assertEquals(count, store.size());
+	}
+
+	@Test
+	public void returnsFactRecordedWithFirstEqualEdge() {
+		MapJumpFunctionStore<String, Fact> store = new MapJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		Fact first = new Fact("a");
+		Fact second = new Fact("a");
+
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n1", first)));
+		Assert.assertSame(first, store.putIfAbsent(new PathEdge<>(zero, "n1", second)));
+		Assert.assertSame(first, store.putIfAbsent(new PathEdge<>(new Fact("0"), "n1", new Fact("a"))));
+		Assert.assertEquals(1, store.size());
+	}
+
+	@Test
+	public void distinguishesEdges() {
+		MapJumpFunctionStore<String, Fact> store = new MapJumpFunctionStore<>();
+		Fact zero = new Fact("0");
+		Fact a = new Fact("a");
+		Fact b = new Fact("b");
+
+		store.putIfAbsent(new PathEdge<>(zero, "n1", a));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n2", a)));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, "n1", b)));
+		Assert.assertNull(store.putIfAbsent(new PathEdge<>(a, "n1", a)));
+		Assert.assertEquals(4, store.size());
+		Assert.assertFalse(store.containsKey(new PathEdge<>(b, "n2", a)));
+
+		store.clear();
+		Assert.assertEquals(0, store.size());
+		Assert.assertFalse(store.containsKey(new PathEdge<>(zero, "n1", a)));
+	}
+
+	@Test
+	public void mapStoreKeepsEdgesOfUnreferencedFacts() {
+		MapJumpFunctionStore<String, Fact> store = new MapJumpFunctionStore<>();
+		recordEdges(store, 10000);
+		checkEdgesAreKept(store, 10000);
+	}
+
+	@Test
+	public void compressedStoreKeepsEdgesOfUnreferencedFacts() {
+		CompressedJumpFunctionStore<String, Fact> store = new CompressedJumpFunctionStore<>();
+		recordEdges(store, 10000);
+		checkEdgesAreKept(store, 10000);
+	}
+
+}
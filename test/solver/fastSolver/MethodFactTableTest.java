@@ -0,0 +1,149 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+
+/**
+ * Tests for the {@link MethodFactTable}
+ *
+ * @author wanglei
+ *
+ */
+public class MethodFactTableTest {
+
+	private static SootMethod method(String name) {
+		return new SootMethod(name, Collections.<Type>emptyList(), VoidType.v());
+	}
+
+	/**
+	 * Creates an empty list of facts for every new method and fact
+	 */
+	private static Supplier<List<Object>> listFactory() {
+		return new Supplier<List<Object>>() {
+
+			@Override
+			public List<Object> get() {
+				return new ArrayList<>();
+			}
+
+		};
+	}
+
+	/**
+	 * Writes the lists of facts as references
+	 */
+	private static class ListCodec implements MethodFactTable.ValueCodec<List<Object>> {
+
+		@Override
+		public void write(List<Object> value, MethodFactTable.SpillOutput out) throws IOException {
+			out.writeInt(value.size());
+			for (Object o : value)
+				out.writeRef(o);
+		}
+
+		@Override
+		public List<Object> read(MethodFactTable.SpillInput in) throws IOException {
+			int size = in.readInt();
+			List<Object> value = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				value.add(in.readRef());
+			return value;
+		}
+
+	}
+
+	@Test
+	public void createsValueOnce() {
+		final AtomicInteger created = new AtomicInteger();
+		MethodFactTable<String, Object> table = new MethodFactTable<>(new Supplier<Object>() {
+
+			@Override
+			public Object get() {
+				created.incrementAndGet();
+				return new Object();
+			}
+
+		});
+		SootMethod m = method("m");
+
+		Assert.assertNull(table.get(m, "a"));
+		Object value = table.getOrCreate(m, "a");
+		Assert.assertSame(value, table.getOrCreate(m, "a"));
+		Assert.assertSame(value, table.get(m, "a"));
+		Assert.assertEquals(1, created.get());
+	}
+
+	@Test
+	public void separatesMethodsAndFacts() {
+		MethodFactTable<String, List<Object>> table = new MethodFactTable<>(listFactory());
+		SootMethod m1 = method("m1");
+		SootMethod m2 = method("m2");
+
+		List<Object> v1 = table.getOrCreate(m1, "a");
+		Assert.assertNotSame(v1, table.getOrCreate(m2, "a"));
+		Assert.assertNotSame(v1, table.getOrCreate(m1, "b"));
+		Assert.assertNull(table.get(m2, "b"));
+
+		table.clear();
+		Assert.assertNull(table.get(m1, "a"));
+	}
+
+	@Test
+	public void readsBackSpilledMethods() {
+		MethodFactTable<String, List<Object>> table = new MethodFactTable<>(listFactory());
+		SpillFile spillFile = new SpillFile(null);
+		table.enableSpilling(spillFile, new ListCodec());
+		try {
+			List<SootMethod> methods = new ArrayList<>();
+			List<Object> contents = new ArrayList<>();
+			for (int m = 0; m < 10; m++) {
+				SootMethod method = method("m" + m);
+				methods.add(method);
+				for (int d = 0; d < 10; d++) {
+					Object o = new Object();
+					contents.add(o);
+					table.getOrCreate(method, "d" + d).add(o);
+				}
+			}
+
+			Assert.assertTrue(table.spillColdMethods() >= 50);
+			Assert.assertTrue(spillFile.getUsedBytes() > 0);
+
+			// The values are rebuilt, but refer to the very same objects
+			for (int m = 0; m < 10; m++)
+				for (int d = 0; d < 10; d++) {
+					List<Object> value = table.get(methods.get(m), "d" + d);
+					Assert.assertEquals(1, value.size());
+					Assert.assertSame(contents.get(m * 10 + d), value.get(0));
+				}
+			Assert.assertEquals(0, spillFile.getUsedBytes());
+
+			// A value that has been read back can be changed again
+			Object o = new Object();
+			table.getOrCreate(methods.get(0), "d0").add(o);
+			table.spillColdMethods();
+			Assert.assertSame(o, table.get(methods.get(0), "d0").get(1));
+		} finally {
+			spillFile.clear();
+		}
+	}
+
+	@Test
+	public void doesNotSpillWithoutSpillFile() {
+		MethodFactTable<String, List<Object>> table = new MethodFactTable<>(listFactory());
+		table.getOrCreate(method("m"), "a");
+		Assert.assertEquals(0, table.spillColdMethods());
+	}
+
+}
@@ -0,0 +1,93 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PackedEdgeTable}
+ *
+ * @author wanglei
+ *
+ */
+public class PackedEdgeTableTest {
+
+	private static Object add(PackedEdgeTable table, int d1, int n, int d2, Object value) {
+		long key = PackedEdgeTable.pack(d1, n);
+		return table.add(key, d2, value, PackedEdgeTable.hash(key, d2));
+	}
+
+	private static boolean contains(PackedEdgeTable table, int d1, int n, int d2) {
+		long key = PackedEdgeTable.pack(d1, n);
+		return table.contains(key, d2, PackedEdgeTable.hash(key, d2));
+	}
+
+	@Test
+	public void returnsValueOfFirstEqualEdge() {
+		PackedEdgeTable table = new PackedEdgeTable();
+		Object first = new Object();
+		Assert.assertNull(add(table, 0, 0, 1, first));
+		Assert.assertSame(first, add(table, 0, 0, 1, new Object()));
+		Assert.assertEquals(1, table.size());
+	}
+
+	@Test
+	public void distinguishesAllParts() {
+		PackedEdgeTable table = new PackedEdgeTable();
+		add(table, 1, 2, 3, "a");
+		Assert.assertTrue(contains(table, 1, 2, 3));
+		Assert.assertFalse(contains(table, 0, 2, 3));
+		Assert.assertFalse(contains(table, 1, 0, 3));
+		Assert.assertFalse(contains(table, 1, 2, 0));
+	}
+
+	@Test
+	public void keepsEdgesWhenGrowing() {
+		PackedEdgeTable table = new PackedEdgeTable();
+		for (int i = 0; i < 10000; i++)
+			Assert.assertNull(add(table, i % 97, i, i % 13, Integer.valueOf(i)));
+		Assert.assertEquals(10000, table.size());
+		for (int i = 0; i < 10000; i++)
+			Assert.assertEquals(Integer.valueOf(i), add(table, i % 97, i, i % 13, null));
+	}
+
+	@Test
+	public void roundTripsThroughBuffer() {
+		PackedEdgeTable table = new PackedEdgeTable();
+		for (int i = 0; i < 1000; i++)
+			add(table, i, i * 7, i % 5, "v" + i);
+
+		ByteBuffer buffer = ByteBuffer.allocate(table.size() * PackedEdgeTable.BYTES_PER_EDGE);
+		Object[] values = table.writeTo(buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		Assert.assertEquals(1000, values.length);
+
+		PackedEdgeTable copy = new PackedEdgeTable();
+		buffer.flip();
+		copy.readFrom(buffer, values);
+		Assert.assertEquals(1000, copy.size());
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals("v" + i, add(copy, i, i * 7, i % 5, null));
+	}
+
+	@Test
+	public void clearRemovesAllEdges() {
+		PackedEdgeTable table = new PackedEdgeTable();
+		add(table, 1, 2, 3, "a");
+		table.clear();
+		Assert.assertEquals(0, table.size());
+		Assert.assertFalse(contains(table, 1, 2, 3));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void rejectsNegativeIds() {
+		PackedEdgeTable.pack(-1, 0);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void rejectsSourceFactIdThatWouldOverflow() {
+		PackedEdgeTable.pack(Integer.MAX_VALUE, 0);
+	}
+
+}
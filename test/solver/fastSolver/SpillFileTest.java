@@ -0,0 +1,58 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SpillFile}
+ *
+ * @author wanglei
+ *
+ */
+public class SpillFileTest {
+
+	private static byte[] data(int length, int seed) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+			data[i] = (byte) (seed + i);
+		return data;
+	}
+
+	@Test
+	public void readsBackWrittenData() {
+		SpillFile file = new SpillFile(null);
+		try {
+			long a = file.write(data(100, 1));
+			long b = file.write(data(50, 2));
+			Assert.assertEquals(150, file.getUsedBytes());
+
+			Assert.assertArrayEquals(data(50, 2), file.readAndFree(b, 50));
+			Assert.assertArrayEquals(data(100, 1), file.readAndFree(a, 100));
+			Assert.assertEquals(0, file.getUsedBytes());
+		} finally {
+			file.clear();
+		}
+	}
+
+	@Test
+	public void reusesFreedRegions() {
+		SpillFile file = new SpillFile(null);
+		try {
+			long a = file.write(data(100, 1));
+			long b = file.write(data(100, 2));
+			file.readAndFree(a, 100);
+
+			// The freed region at the start of the file fits the new data
+			long c = file.write(data(60, 3));
+			Assert.assertEquals(a, c);
+			Assert.assertEquals(160, file.getUsedBytes());
+
+			Assert.assertArrayEquals(data(100, 2), file.readAndFree(b, 100));
+			Assert.assertArrayEquals(data(60, 3), file.readAndFree(c, 60));
+			Assert.assertEquals(0, file.getUsedBytes());
+		} finally {
+			file.clear();
+		}
+	}
+
+}
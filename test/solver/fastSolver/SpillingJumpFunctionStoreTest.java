@@ -0,0 +1,143 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import heros.solver.PathEdge;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.infoflow.solver.fastSolver.CompressedJumpFunctionStoreTest.Fact;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Tests for the {@link SpillingJumpFunctionStore}
+ *
+ * @author wanglei
+ *
+ */
+public class SpillingJumpFunctionStoreTest {
+
+	private static final int NUM_METHODS = 10;
+	private static final int EDGES_PER_METHOD = 100;
+
+	private final Map<String, SootMethod> methodOf = new HashMap<>();
+	private SpillingJumpFunctionStore<String, Fact> store;
+
+	/**
+	 * Creates a control flow graph that only knows which method each node
+	 * belongs to
+	 */
+	@SuppressWarnings("unchecked")
+	private BiDiInterproceduralCFG<String, SootMethod> createICFG() {
+		return (BiDiInterproceduralCFG<String, SootMethod>) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BiDiInterproceduralCFG.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getMethodOf"))
+							return methodOf.get(args[0]);
+						throw new UnsupportedOperationException(method.getName());
+					}
+
+				});
+	}
+
+	@Before
+	public void createStore() {
+		for (int m = 0; m < NUM_METHODS; m++) {
+			SootMethod method = new SootMethod("m" + m, Collections.<Type>emptyList(), VoidType.v());
+			for (int i = 0; i < EDGES_PER_METHOD; i++)
+				methodOf.put(node(m, i), method);
+		}
+		store = new SpillingJumpFunctionStore<>(createICFG());
+	}
+
+	@After
+	public void clearStore() {
+		store.clear();
+	}
+
+	private static String node(int m, int i) {
+		return "m" + m + "n" + i;
+	}
+
+	/**
+	 * Adds an edge for every node and returns the recorded target facts
+	 */
+	private Fact[][] fill() {
+		Fact zero = new Fact("0");
+		Fact[][] targets = new Fact[NUM_METHODS][EDGES_PER_METHOD];
+		for (int m = 0; m < NUM_METHODS; m++)
+			for (int i = 0; i < EDGES_PER_METHOD; i++) {
+				targets[m][i] = new Fact("f" + (i % 10));
+				Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, node(m, i), targets[m][i])));
+			}
+		return targets;
+	}
+
+	@Test
+	public void keepsEdgesAcrossSpilling() {
+		Fact[][] targets = fill();
+		long spilled = store.spillColdMethods();
+		Assert.assertTrue(spilled >= NUM_METHODS * EDGES_PER_METHOD / 2);
+		Assert.assertEquals(spilled, store.getSpilledEdgeCount());
+		Assert.assertEquals(NUM_METHODS * EDGES_PER_METHOD, store.size());
+
+		// Every edge is still known, and equal edges get the fact object
+		// that was recorded before the spill
+		Fact zero = new Fact("0");
+		for (int m = 0; m < NUM_METHODS; m++)
+			for (int i = 0; i < EDGES_PER_METHOD; i++) {
+				Assert.assertTrue(store.containsKey(new PathEdge<>(zero, node(m, i), new Fact("f" + (i % 10)))));
+				Assert.assertSame(targets[m][i],
+						store.putIfAbsent(new PathEdge<>(zero, node(m, i), new Fact("f" + (i % 10)))));
+			}
+		Assert.assertTrue(store.getFaultInCount() > 0);
+		Assert.assertEquals(NUM_METHODS * EDGES_PER_METHOD, store.size());
+	}
+
+	@Test
+	public void acceptsNewEdgesForSpilledMethods() {
+		fill();
+		store.spillColdMethods();
+
+		Fact zero = new Fact("0");
+		for (int m = 0; m < NUM_METHODS; m++) {
+			Fact fresh = new Fact("new");
+			Assert.assertNull(store.putIfAbsent(new PathEdge<>(zero, node(m, 0), fresh)));
+			Assert.assertSame(fresh, store.putIfAbsent(new PathEdge<>(zero, node(m, 0), new Fact("new"))));
+		}
+		Assert.assertEquals(NUM_METHODS * (EDGES_PER_METHOD + 1), store.size());
+	}
+
+	@Test
+	public void spillsAgainAfterFaultIn() {
+		Fact[][] targets = fill();
+		Fact zero = new Fact("0");
+		for (int round = 0; round < 3; round++) {
+			store.spillColdMethods();
+			for (int m = 0; m < NUM_METHODS; m++)
+				Assert.assertSame(targets[m][1], store.putIfAbsent(new PathEdge<>(zero, node(m, 1), new Fact("f1"))));
+		}
+		Assert.assertEquals(NUM_METHODS * EDGES_PER_METHOD, store.size());
+	}
+
+	@Test
+	public void unknownEdgesAreNotContained() {
+		fill();
+		store.spillColdMethods();
+		Assert.assertFalse(store.containsKey(new PathEdge<>(new Fact("0"), node(0, 0), new Fact("other"))));
+		Assert.assertFalse(store.containsKey(new PathEdge<>(new Fact("x"), node(0, 0), new Fact("f0"))));
+	}
+
+}
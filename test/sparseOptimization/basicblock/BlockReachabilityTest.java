@@ -0,0 +1,128 @@
+package soot.jimple.infoflow.sparseOptimization.basicblock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link BlockReachability}
+ *
+ * @author wanglei
+ */
+public class BlockReachabilityTest {
+
+    /**
+     * Creates blocks with the given indices and no successors
+     */
+    private static List<BasicBlock> createBlocks(int... indices) {
+        List<BasicBlock> blocks = new ArrayList<>();
+        for (int index : indices) {
+            BasicBlock bb = new BasicBlock(null, null, null, index, 1, null);
+            bb.setSuccs(new ArrayList<BasicBlock>());
+            blocks.add(bb);
+        }
+        return blocks;
+    }
+
+    private static void addEdge(List<BasicBlock> blocks, int from, int to) {
+        blocks.get(from).getSuccs().add(blocks.get(to));
+    }
+
+    /**
+     * Checks the index against a depth-first search from every block
+     */
+    private static void assertMatchesSearch(List<BasicBlock> blocks) {
+        BlockReachability reachability = new BlockReachability(blocks);
+        for (BasicBlock from : blocks) {
+            List<BasicBlock> reached = new ArrayList<>();
+            Deque<BasicBlock> work = new ArrayDeque<>();
+            work.push(from);
+            reached.add(from);
+            while (!work.isEmpty())
+                for (BasicBlock succ : work.pop().getSuccs())
+                    if (!reached.contains(succ)) {
+                        reached.add(succ);
+                        work.push(succ);
+                    }
+            for (BasicBlock to : blocks)
+                Assert.assertEquals(from.toShortString() + " -> " + to.toShortString(), reached.contains(to),
+                        reachability.isReachable(from, to));
+        }
+    }
+
+    @Test
+    public void followsStraightLineCode() {
+        List<BasicBlock> blocks = createBlocks(0, 1, 2);
+        addEdge(blocks, 0, 1);
+        addEdge(blocks, 1, 2);
+        BlockReachability reachability = new BlockReachability(blocks);
+
+        Assert.assertTrue(reachability.isReachable(blocks.get(0), blocks.get(2)));
+        Assert.assertTrue(reachability.isReachable(blocks.get(1), blocks.get(1)));
+        Assert.assertFalse(reachability.isReachable(blocks.get(2), blocks.get(0)));
+    }
+
+    @Test
+    public void loopBlocksReachEachOther() {
+        // 0 -> 1 -> 2 -> 1, 2 -> 3
+        List<BasicBlock> blocks = createBlocks(0, 1, 2, 3);
+        addEdge(blocks, 0, 1);
+        addEdge(blocks, 1, 2);
+        addEdge(blocks, 2, 1);
+        addEdge(blocks, 2, 3);
+        BlockReachability reachability = new BlockReachability(blocks);
+
+        Assert.assertTrue(reachability.isReachable(blocks.get(2), blocks.get(1)));
+        Assert.assertTrue(reachability.isReachable(blocks.get(1), blocks.get(3)));
+        Assert.assertFalse(reachability.isReachable(blocks.get(1), blocks.get(0)));
+        Assert.assertFalse(reachability.isReachable(blocks.get(3), blocks.get(2)));
+    }
+
+    @Test
+    public void handlesGapsInBlockIndices() {
+        List<BasicBlock> blocks = createBlocks(0, 3, 7);
+        addEdge(blocks, 0, 2);
+        addEdge(blocks, 2, 1);
+        assertMatchesSearch(blocks);
+    }
+
+    @Test
+    public void matchesSearchOnRandomGraphs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            // More than 64 blocks, so that the rows span several words
+            int size = 1 + random.nextInt(150);
+            int[] indices = new int[size];
+            for (int i = 0; i < size; i++)
+                indices[i] = i;
+            List<BasicBlock> blocks = createBlocks(indices);
+            int edges = random.nextInt(size * 2);
+            for (int e = 0; e < edges; e++)
+                addEdge(blocks, random.nextInt(size), random.nextInt(size));
+            assertMatchesSearch(blocks);
+        }
+    }
+
+    @Test
+    public void doesNotOverflowTheStackOnLongChains() {
+        int size = 100000;
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++)
+            indices[i] = i;
+        List<BasicBlock> blocks = createBlocks(indices);
+        for (int i = 0; i + 1 < size; i++)
+            addEdge(blocks, i, i + 1);
+        // Close the chain into one big loop, so that the matrix stays small
+        addEdge(blocks, size - 1, 0);
+
+        BlockReachability reachability = new BlockReachability(blocks);
+        Assert.assertTrue(reachability.isReachable(blocks.get(size - 1), blocks.get(1)));
+        Assert.assertTrue(reachability.isReachable(blocks.get(0), blocks.get(size - 1)));
+    }
+
+}
@@ -0,0 +1,112 @@
+package soot.jimple.infoflow.sparseOptimization.benchmark;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.G;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the {@link SyntheticWorkload}s of the {@link SparseBenchmark}. The
+ * dense and the sparse solver must find the same leaks in every workload, or
+ * the benchmark compares analyses that do different work.
+ *
+ * @author wanglei
+ */
+public class SparseBenchmarkTest {
+
+    /**
+     * Small enough to keep the test fast, large enough to have several
+     * callees, list elements, and recursive methods
+     */
+    private static final int SIZE = 5;
+
+    private final String libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator
+            + "rt.jar";
+
+    private File appDir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        appDir = Files.createTempDirectory("sparse-benchmark").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (SyntheticWorkload workload : SyntheticWorkload.values())
+            new File(appDir, workload.getClassName() + ".jimple").delete();
+        appDir.delete();
+        G.reset();
+    }
+
+    /**
+     * Runs the given workload with the configuration of the benchmark
+     *
+     * @return The leaks as source and sink statements, in a canonical order
+     */
+    private List<String> analyze(SyntheticWorkload workload, boolean sparse) {
+        Infoflow infoflow = SparseBenchmark.createInfoflow(sparse);
+        infoflow.computeInfoflow(appDir.getAbsolutePath(), libPath, workload.getEntryPoint(),
+                new DefaultSourceSinkManager(Collections.singleton(workload.sourceSig()),
+                        Collections.singleton(workload.sinkSig())));
+
+        InfoflowResults results = infoflow.getResults();
+        Assert.assertNotNull(results);
+        Assert.assertNotNull(results.getPerformanceData());
+        List<String> leaks = new ArrayList<>();
+        if (!results.isEmpty())
+            for (ResultSinkInfo sink : results.getResults().keySet())
+                for (ResultSourceInfo source : results.getResults().get(sink))
+                    leaks.add(source.getSource() + " -> " + sink.getSink());
+        Collections.sort(leaks);
+        return leaks;
+    }
+
+    @Test(timeout = 600000)
+    public void sparseSolverFindsSameLeaksAsDenseSolver() throws IOException {
+        for (SyntheticWorkload workload : SyntheticWorkload.values()) {
+            workload.writeTo(appDir, SIZE);
+            List<String> dense = analyze(workload, false);
+            Assert.assertFalse(workload + " has no leaks", dense.isEmpty());
+            Assert.assertEquals(workload.toString(), dense, analyze(workload, true));
+        }
+    }
+
+    @Test(timeout = 600000)
+    public void onlyTaintedValuesLeak() throws IOException {
+        // The untainted chain of the straight-line workload reaches a sink as
+        // well, but must not be reported
+        SyntheticWorkload.STRAIGHT_LINE.writeTo(appDir, SIZE);
+        Assert.assertEquals(1, analyze(SyntheticWorkload.STRAIGHT_LINE, true).size());
+
+        // Every callee passes the taint back to its own sink call
+        SyntheticWorkload.CALL_FAN_OUT.writeTo(appDir, SIZE);
+        Assert.assertEquals(SIZE, analyze(SyntheticWorkload.CALL_FAN_OUT, true).size());
+    }
+
+    @Test
+    public void sizeScalesWorkload() {
+        for (SyntheticWorkload workload : SyntheticWorkload.values()) {
+            String small = workload.generate(SIZE);
+            String large = workload.generate(SIZE * 4);
+            Assert.assertTrue(small.startsWith("public class " + workload.getClassName() + " "));
+            Assert.assertTrue(large.length() > small.length());
+            Assert.assertTrue(small.contains("public static void main(java.lang.String[])"));
+            Assert.assertTrue(small.contains("staticinvoke " + workload.sourceSig() + "()"));
+            Assert.assertTrue(small.contains("staticinvoke " + workload.sinkSig() + "("));
+        }
+    }
+
+}
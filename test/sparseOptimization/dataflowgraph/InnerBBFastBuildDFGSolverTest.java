@@ -0,0 +1,232 @@
+package soot.jimple.infoflow.sparseOptimization.dataflowgraph;
+
+import heros.solver.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.G;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DFGEntryKey;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.data.DataFlowNode;
+import soot.jimple.infoflow.sparseOptimization.summary.MyAccessPath;
+import soot.jimple.infoflow.sparseOptimization.summary.SummaryGraph;
+import soot.jimple.infoflow.sparseOptimization.summary.SummaryPath;
+import soot.options.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the parallel modes of the {@link InnerBBFastBuildDFGSolver}.
+ * Building the data flow graphs and the summaries on several threads must
+ * give the same results as building them sequentially.
+ *
+ * @author wanglei
+ */
+public class InnerBBFastBuildDFGSolverTest {
+
+    /**
+     * Enough methods to split them into several shards
+     */
+    public static final int METHOD_COUNT = 40;
+
+    private File programDir;
+
+    /**
+     * Creates a program in which main calls a chain of methods that load and
+     * store fields of their argument and of a new object
+     */
+    public static String createProgram() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class Main extends java.lang.Object\n{\n");
+        sb.append("    public java.lang.Object f;\n");
+        sb.append("    public java.lang.Object g;\n");
+        sb.append("    public static void main(java.lang.String[])\n    {\n");
+        sb.append("        java.lang.String[] args;\n");
+        sb.append("        Main m;\n");
+        sb.append("        args := @parameter0: java.lang.String[];\n");
+        sb.append("        m = new Main;\n");
+        sb.append("        staticinvoke <Main: void m0(Main)>(m);\n");
+        sb.append("        return;\n    }\n");
+        for (int i = 0; i < METHOD_COUNT; i++) {
+            sb.append("    public static void m").append(i).append("(Main)\n    {\n");
+            sb.append("        Main a, b;\n");
+            sb.append("        java.lang.Object x, y;\n");
+            sb.append("        a := @parameter0: Main;\n");
+            sb.append("        x = a.<Main: java.lang.Object f>;\n");
+            sb.append("        if x == null goto label1;\n");
+            sb.append("        a.<Main: java.lang.Object g> = x;\n");
+            sb.append("     label1:\n");
+            sb.append("        y = a.<Main: java.lang.Object g>;\n");
+            sb.append("        b = new Main;\n");
+            sb.append("        b.<Main: java.lang.Object f> = y;\n");
+            if (i + 1 < METHOD_COUNT)
+                sb.append("        staticinvoke <Main: void m").append(i + 1).append("(Main)>(b);\n");
+            sb.append("        return;\n    }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Loads the program in the given directory into a fresh Scene and builds
+     * its callgraph
+     */
+    public static void loadProgram(File programDir) {
+        G.reset();
+        Options.v().set_src_prec(Options.src_prec_jimple);
+        Options.v().set_process_dir(Collections.singletonList(programDir.getAbsolutePath()));
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_whole_program(true);
+        Options.v().set_output_format(Options.output_format_none);
+        Options.v().setPhaseOption("cg.cha", "on");
+        Scene.v().loadNecessaryClasses();
+
+        SootClass mainClass = Scene.v().getSootClass("Main");
+        Scene.v().setEntryPoints(Collections.singletonList(mainClass.getMethodByName("main")));
+        PackManager.v().getPack("cg").apply();
+    }
+
+    @Before
+    public void writeProgram() throws IOException {
+        programDir = Files.createTempDirectory("dfg").toFile();
+        Files.write(new File(programDir, "Main.jimple").toPath(), createProgram().getBytes(StandardCharsets.UTF_8));
+        loadProgram(programDir);
+    }
+
+    @After
+    public void deleteProgram() {
+        new File(programDir, "Main.jimple").delete();
+        programDir.delete();
+        G.reset();
+    }
+
+    /**
+     * Builds the data flow graphs of the program with the given number of
+     * threads
+     */
+    private static InnerBBFastBuildDFGSolver buildDfg(int numThreads) {
+        InnerBBFastBuildDFGSolver solver = new InnerBBFastBuildDFGSolver(new InfoflowCFG());
+        if (numThreads > 1)
+            solver.solveParallel(numThreads);
+        else
+            solver.solve();
+        return solver;
+    }
+
+    /**
+     * Describes the given data flow graph including the successors of the
+     * nodes, in a canonical order
+     */
+    public static List<String> describeDfg(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> entry : dfg.entrySet()) {
+            DataFlowNode node = entry.getValue().getO2();
+            List<String> succs = new ArrayList<>();
+            if (node.hasSuccs()) {
+                SootField[] fields = node.getSuccFields();
+                DataFlowNode[][] targets = node.getSuccTargets();
+                for (int i = 0; i < fields.length; i++)
+                    for (DataFlowNode target : targets[i])
+                        succs.add(fields[i] + " -> " + target);
+            }
+            Collections.sort(succs);
+            result.add(entry.getKey() + " = " + node + " " + succs);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> describeMethods(InnerBBFastBuildDFGSolver solver) {
+        List<String> result = new ArrayList<>();
+        for (SootMethod m : solver.getUnitOrderComputingMap().keySet())
+            result.add(m.getSignature());
+        Collections.sort(result);
+        return result;
+    }
+
+    private static String describe(MyAccessPath ap) {
+        if (ap == null)
+            return "null";
+        return ap.getValue() + " " + Arrays.toString(ap.getFields()) + " @" + ap.getActiveStmt();
+    }
+
+    private static List<String> describe(Set<SootField> fields) {
+        List<String> result = new ArrayList<>();
+        if (fields != null)
+            for (SootField field : fields)
+                result.add(field.getSignature());
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Describes the given summaries with all their paths, in a canonical
+     * order
+     */
+    public static List<String> describeSummaries(Map<Pair<Unit, Value>, SummaryGraph> summaries) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<Pair<Unit, Value>, SummaryGraph> entry : summaries.entrySet()) {
+            List<String> paths = new ArrayList<>();
+            for (SummaryPath path : entry.getValue().getSummaryPaths())
+                paths.add(path.getSrc() + " " + describe(path.getSourceAccessPath()) + " -> "
+                        + path.getTarget() + " " + describe(path.getTargetAccessPath()) + " "
+                        + path.getTargetNode() + " " + path.isForward() + " " + describe(path.getKillSet()));
+            Collections.sort(paths);
+            result.add(entry.getKey().getO1() + " " + entry.getKey().getO2() + " = " + paths);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test(timeout = 300000)
+    public void parallelDfgMatchesSequentialDfg() {
+        InnerBBFastBuildDFGSolver sequential = buildDfg(1);
+        Assert.assertFalse(sequential.getNewDfg().isEmpty());
+        Assert.assertTrue(sequential.getUnitOrderComputingMap().size() >= METHOD_COUNT + 1);
+
+        // Repeat the parallel run, since the order of the tasks varies
+        for (int i = 0; i < 5; i++) {
+            InnerBBFastBuildDFGSolver parallel = buildDfg(4);
+            Assert.assertEquals(describeDfg(sequential.getNewDfg()), describeDfg(parallel.getNewDfg()));
+            Assert.assertEquals(describeDfg(sequential.getNewBackwardDfg()),
+                    describeDfg(parallel.getNewBackwardDfg()));
+            Assert.assertEquals(describeMethods(sequential), describeMethods(parallel));
+            Assert.assertEquals(sequential.getDataFlowNodeCount(), parallel.getDataFlowNodeCount());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void parallelSummariesMatchSequentialSummaries() {
+        InnerBBFastBuildDFGSolver sequential = buildDfg(1);
+        sequential.solveSummary();
+        List<String> forward = describeSummaries(sequential.getForwardSummary());
+        List<String> backward = describeSummaries(sequential.getBackwardsSummary());
+        Assert.assertFalse(forward.isEmpty());
+
+        // Repeat the parallel run, since the order of the tasks varies
+        for (int i = 0; i < 5; i++) {
+            InnerBBFastBuildDFGSolver parallel = buildDfg(1);
+            parallel.solveSummaryParallel(4);
+            Assert.assertEquals(forward, describeSummaries(parallel.getForwardSummary()));
+            Assert.assertEquals(backward, describeSummaries(parallel.getBackwardsSummary()));
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package soot.jimple.infoflow.sparseOptimization.dataflowgraph.data;
+
+import heros.solver.Pair;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.IntType;
+import soot.SootField;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.internal.JimpleLocal;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.BaseInfoStmt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the {@link CompactDFGIndex}. Every lookup in the index must give
+ * the same node as a lookup with a {@link DFGEntryKey} in the maps from which
+ * the index has been built.
+ *
+ * @author wanglei
+ */
+public class CompactDFGIndexTest {
+
+    private final List<Unit> stmts = new ArrayList<>();
+    private final List<Value> bases = new ArrayList<>();
+    private final List<SootField> fields = new ArrayList<>();
+
+    @Before
+    public void createElements() {
+        for (int i = 0; i < 20; i++)
+            stmts.add(Jimple.v().newNopStmt());
+        for (int i = 0; i < 6; i++)
+            bases.add(new JimpleLocal("l" + i, IntType.v()));
+        bases.add(IntConstant.v(1));
+        bases.add(IntConstant.v(2));
+        for (int i = 0; i < 4; i++)
+            fields.add(new SootField("f" + i, IntType.v()));
+        fields.add(DataFlowNode.baseField);
+        fields.add(null);
+    }
+
+    /**
+     * Copies constants, so that the lookups do not rely on the identity of
+     * the values
+     */
+    private static Value copy(Value base) {
+        if (base instanceof IntConstant)
+            return IntConstant.v(((IntConstant) base).value);
+        return base;
+    }
+
+    private <T> T pick(List<T> list, Random rnd) {
+        return list.get(rnd.nextInt(list.size()));
+    }
+
+    private Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> createDfg(Random rnd, int size) {
+        Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Unit stmt = pick(stmts, rnd);
+            Value base = pick(bases, rnd);
+            SootField field = pick(fields, rnd);
+            DataFlowNode node = DataFlowNodeFactory.v().createDataFlowNode(stmt, base, field, rnd.nextBoolean());
+            dfg.put(new DFGEntryKey(stmt, copy(base), field, rnd.nextBoolean(), rnd.nextBoolean()),
+                    new Pair<BaseInfoStmt, DataFlowNode>(null, node));
+        }
+        return dfg;
+    }
+
+    private static DataFlowNode lookup(Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg, Unit stmt,
+                                       Value base, SootField field, boolean isOriginal, boolean isLeft) {
+        Pair<BaseInfoStmt, DataFlowNode> pair = dfg.get(new DFGEntryKey(stmt, base, field, isOriginal, isLeft));
+        return pair == null ? null : pair.getO2();
+    }
+
+    /**
+     * Looks up every possible key in the index and in the maps
+     *
+     * @return The number of keys that have been found
+     */
+    private int checkAllKeys(CompactDFGIndex index, Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg,
+                             Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg) {
+        int found = 0;
+        boolean[] flags = { false, true };
+        for (Unit stmt : stmts)
+            for (Value base : bases)
+                for (SootField field : fields)
+                    for (boolean isOriginal : flags)
+                        for (boolean isLeft : flags) {
+                            DataFlowNode forward = lookup(dfg, stmt, base, field, isOriginal, isLeft);
+                            Assert.assertSame(forward,
+                                    index.get(stmt, copy(base), field, isOriginal, isLeft, true));
+                            DataFlowNode backward = lookup(backwardDfg, stmt, base, field, isOriginal, isLeft);
+                            Assert.assertSame(backward,
+                                    index.get(stmt, copy(base), field, isOriginal, isLeft, false));
+                            if (forward != null)
+                                found++;
+                            if (backward != null)
+                                found++;
+                        }
+        return found;
+    }
+
+    @Test
+    public void lookupsMatchMaps() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 10; round++) {
+            Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = createDfg(rnd, 50 + round * 100);
+            Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg = createDfg(rnd, 30 + round * 80);
+            CompactDFGIndex index = new CompactDFGIndex(dfg, backwardDfg);
+
+            Assert.assertEquals(dfg.size() + backwardDfg.size(), index.size());
+            Assert.assertEquals(index.size(), checkAllKeys(index, dfg, backwardDfg));
+        }
+    }
+
+    @Test
+    public void directionsAreSeparate() {
+        Unit stmt = stmts.get(0);
+        Value base = bases.get(0);
+        SootField field = fields.get(0);
+        DataFlowNode node = DataFlowNodeFactory.v().createDataFlowNode(stmt, base, field, true);
+        Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = new HashMap<>();
+        dfg.put(new DFGEntryKey(stmt, base, field, true, true), new Pair<BaseInfoStmt, DataFlowNode>(null, node));
+        Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> backwardDfg = Collections.emptyMap();
+
+        CompactDFGIndex index = new CompactDFGIndex(dfg, backwardDfg);
+        Assert.assertSame(node, index.get(stmt, base, field, true, true, true));
+        Assert.assertNull(index.get(stmt, base, field, true, true, false));
+        Assert.assertNull(index.get(stmt, base, field, false, true, true));
+        Assert.assertNull(index.get(stmt, base, field, true, false, true));
+        Assert.assertNull(index.get(stmt, bases.get(1), field, true, true, true));
+        Assert.assertNull(index.get(stmts.get(1), base, field, true, true, true));
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> empty = Collections.emptyMap();
+        CompactDFGIndex index = new CompactDFGIndex(empty, empty);
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(0, checkAllKeys(index, empty, empty));
+    }
+
+}
@@ -0,0 +1,163 @@
+package soot.jimple.infoflow.sparseOptimization.dataflowgraph.data;
+
+import heros.solver.Pair;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.IntType;
+import soot.SootField;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.Jimple;
+import soot.jimple.internal.JimpleLocal;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.BaseInfoStmt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for the successor arrays of the {@link DataFlowNode}. The successors
+ * must be the same as the ones of a map from fields to sets of nodes, in which
+ * the successors were stored before.
+ *
+ * @author wanglei
+ */
+public class DataFlowNodeTest {
+
+    private final List<Unit> stmts = new ArrayList<>();
+    private final List<Value> values = new ArrayList<>();
+    private final List<SootField> fields = new ArrayList<>();
+
+    @Before
+    public void createElements() {
+        for (int i = 0; i < 10; i++)
+            stmts.add(Jimple.v().newNopStmt());
+        for (int i = 0; i < 3; i++)
+            values.add(new JimpleLocal("l" + i, IntType.v()));
+        for (int i = 0; i < 3; i++)
+            fields.add(new SootField("f" + i, IntType.v()));
+    }
+
+    private <T> T pick(List<T> list, Random rnd) {
+        return list.get(rnd.nextInt(list.size()));
+    }
+
+    /**
+     * Creates a random node. Nodes are created anew every time, so equal
+     * nodes are not necessarily the same object.
+     */
+    private DataFlowNode createNode(Random rnd) {
+        return DataFlowNodeFactory.v().createDataFlowNode(pick(stmts, rnd), pick(values, rnd),
+                DataFlowNode.baseField, rnd.nextBoolean());
+    }
+
+    /**
+     * Adds a successor to the node and to the map that models its successors
+     */
+    private static void addSucc(DataFlowNode node, Map<SootField, Set<DataFlowNode>> model, SootField field,
+                                DataFlowNode target) {
+        node.setSuccs(field, target);
+        SootField key = field == null ? DataFlowNode.baseField : field;
+        Set<DataFlowNode> targets = model.get(key);
+        if (targets == null) {
+            targets = new LinkedHashSet<>();
+            model.put(key, targets);
+        }
+        targets.add(target);
+    }
+
+    private void assertSuccsMatch(Map<SootField, Set<DataFlowNode>> model, DataFlowNode node) {
+        Assert.assertEquals(!model.isEmpty(), node.hasSuccs());
+        SootField[] succFields = node.getSuccFields();
+        DataFlowNode[][] succTargets = node.getSuccTargets();
+        Assert.assertArrayEquals(model.keySet().toArray(), succFields);
+        Assert.assertEquals(succFields.length, succTargets.length);
+
+        int i = 0;
+        for (Map.Entry<SootField, Set<DataFlowNode>> entry : model.entrySet()) {
+            Assert.assertArrayEquals(entry.getValue().toArray(), succTargets[i++]);
+            Assert.assertArrayEquals(entry.getValue().toArray(), node.getSuccsOf(entry.getKey()));
+        }
+        for (SootField field : fields)
+            if (!model.containsKey(field))
+                Assert.assertNull(node.getSuccsOf(field));
+    }
+
+    @Test
+    public void successorsMatchSetModel() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            DataFlowNode node = createNode(rnd);
+            Map<SootField, Set<DataFlowNode>> model = new LinkedHashMap<>();
+
+            // Some nodes get enough successors to be deduplicated through a set
+            int succCount = rnd.nextInt(round % 10 == 0 ? 60 : 6);
+            for (int i = 0; i < succCount; i++) {
+                SootField field = rnd.nextInt(4) == 0 ? null : pick(fields, rnd);
+                addSucc(node, model, field, createNode(rnd));
+            }
+            assertSuccsMatch(model, node);
+        }
+    }
+
+    @Test
+    public void successorsCanBeAddedAfterReading() {
+        Random rnd = new Random(7);
+        DataFlowNode node = createNode(rnd);
+        Map<SootField, Set<DataFlowNode>> model = new LinkedHashMap<>();
+        assertSuccsMatch(model, node);
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < round; i++)
+                addSucc(node, model, pick(fields, rnd), createNode(rnd));
+            assertSuccsMatch(model, node);
+        }
+    }
+
+    @Test
+    public void nullFieldIsBaseField() {
+        Random rnd = new Random(1);
+        DataFlowNode node = createNode(rnd);
+        DataFlowNode target = createNode(rnd);
+        node.setSuccs(null, target);
+        node.setSuccs(DataFlowNode.baseField, target);
+
+        Assert.assertArrayEquals(new SootField[] { DataFlowNode.baseField }, node.getSuccFields());
+        Assert.assertArrayEquals(new DataFlowNode[] { target }, node.getSuccsOf(DataFlowNode.baseField));
+    }
+
+    @Test
+    public void graphIsTrimmedAsWhole() {
+        Random rnd = new Random(3);
+        List<DataFlowNode> nodes = new ArrayList<>();
+        List<Map<SootField, Set<DataFlowNode>>> models = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            nodes.add(createNode(rnd));
+            models.add(new LinkedHashMap<SootField, Set<DataFlowNode>>());
+        }
+
+        // Random edges including cycles, but only the first node is in the graph
+        for (int i = 0; i < 300; i++) {
+            int source = rnd.nextInt(nodes.size());
+            addSucc(nodes.get(source), models.get(source), pick(fields, rnd), nodes.get(rnd.nextInt(nodes.size())));
+        }
+        for (int i = 0; i + 1 < nodes.size(); i++)
+            addSucc(nodes.get(i), models.get(i), null, nodes.get(i + 1));
+
+        Map<DFGEntryKey, Pair<BaseInfoStmt, DataFlowNode>> dfg = new HashMap<>();
+        DataFlowNode root = nodes.get(0);
+        dfg.put(new DFGEntryKey(root.getStmt(), root.getValue(), root.getField()),
+                new Pair<BaseInfoStmt, DataFlowNode>(null, root));
+        DataFlowNode.trimSuccs(dfg);
+
+        for (int i = 0; i < nodes.size(); i++)
+            assertSuccsMatch(models.get(i), nodes.get(i));
+    }
+
+}
@@ -0,0 +1,229 @@
+package soot.jimple.infoflow.sparseOptimization.problem;
+
+import heros.solver.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.G;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowConfiguration.CodeEliminationMode;
+import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.results.InfoflowPerformanceData;
+import soot.jimple.infoflow.results.InfoflowPerformanceData.Phase;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolver;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolverTest;
+import soot.jimple.infoflow.sparseOptimization.summary.SummaryGraph;
+import soot.options.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the use of the intra-procedural summaries in the
+ * {@link SparseInfoflowProblem}. Applying the summaries of the callees at the
+ * call sites must find the same leaks as walking the callee bodies.
+ *
+ * @author wanglei
+ */
+public class SparseInfoflowProblemTest {
+
+    /**
+     * A program with two leaks, one through a chain of callees and one
+     * through a setter and a getter, and a callee that overwrites the taint.
+     * None of the methods is called main or func apart from the entry point.
+     */
+    private static final String PROGRAM = "public class Main extends java.lang.Object\n"
+            + "{\n"
+            + "    public java.lang.String data;\n"
+            + "    public void <init>()\n"
+            + "    {\n"
+            + "        Main r0;\n"
+            + "        r0 := @this: Main;\n"
+            + "        specialinvoke r0.<java.lang.Object: void <init>()>();\n"
+            + "        return;\n"
+            + "    }\n"
+            + "    public static java.lang.String source()\n"
+            + "    {\n"
+            + "        return \"secret\";\n"
+            + "    }\n"
+            + "    public static void sink(java.lang.String)\n"
+            + "    {\n"
+            + "        java.lang.String p0;\n"
+            + "        p0 := @parameter0: java.lang.String;\n"
+            + "        return;\n"
+            + "    }\n"
+            + "    public static java.lang.String copy(java.lang.String)\n"
+            + "    {\n"
+            + "        java.lang.String p0, p1, p2;\n"
+            + "        p0 := @parameter0: java.lang.String;\n"
+            + "        p1 = p0;\n"
+            + "        p2 = staticinvoke <Main: java.lang.String pass(java.lang.String)>(p1);\n"
+            + "        return p2;\n"
+            + "    }\n"
+            + "    public static java.lang.String pass(java.lang.String)\n"
+            + "    {\n"
+            + "        java.lang.String p0;\n"
+            + "        p0 := @parameter0: java.lang.String;\n"
+            + "        return p0;\n"
+            + "    }\n"
+            + "    public static java.lang.String clean(java.lang.String)\n"
+            + "    {\n"
+            + "        java.lang.String p0, p1;\n"
+            + "        p0 := @parameter0: java.lang.String;\n"
+            + "        p1 = \"clean\";\n"
+            + "        return p1;\n"
+            + "    }\n"
+            + "    public void set(java.lang.String)\n"
+            + "    {\n"
+            + "        Main r0;\n"
+            + "        java.lang.String p0;\n"
+            + "        r0 := @this: Main;\n"
+            + "        p0 := @parameter0: java.lang.String;\n"
+            + "        r0.<Main: java.lang.String data> = p0;\n"
+            + "        return;\n"
+            + "    }\n"
+            + "    public java.lang.String get()\n"
+            + "    {\n"
+            + "        Main r0;\n"
+            + "        java.lang.String s0;\n"
+            + "        r0 := @this: Main;\n"
+            + "        s0 = r0.<Main: java.lang.String data>;\n"
+            + "        return s0;\n"
+            + "    }\n"
+            + "    public static void main(java.lang.String[])\n"
+            + "    {\n"
+            + "        java.lang.String[] r0;\n"
+            + "        java.lang.String s0, s1, s2, s3;\n"
+            + "        Main o;\n"
+            + "        r0 := @parameter0: java.lang.String[];\n"
+            + "        s0 = staticinvoke <Main: java.lang.String source()>();\n"
+            + "        s1 = staticinvoke <Main: java.lang.String copy(java.lang.String)>(s0);\n"
+            + "        staticinvoke <Main: void sink(java.lang.String)>(s1);\n"
+            + "        s2 = staticinvoke <Main: java.lang.String clean(java.lang.String)>(s0);\n"
+            + "        staticinvoke <Main: void sink(java.lang.String)>(s2);\n"
+            + "        o = new Main;\n"
+            + "        specialinvoke o.<Main: void <init>()>();\n"
+            + "        virtualinvoke o.<Main: void set(java.lang.String)>(s0);\n"
+            + "        s3 = virtualinvoke o.<Main: java.lang.String get()>();\n"
+            + "        staticinvoke <Main: void sink(java.lang.String)>(s3);\n"
+            + "        return;\n"
+            + "    }\n"
+            + "}\n";
+
+    private final String libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator
+            + "rt.jar";
+
+    private File appDir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        appDir = Files.createTempDirectory("summaries").toFile();
+    }
+
+    @After
+    public void deleteProgram() {
+        new File(appDir, "Main.jimple").delete();
+        appDir.delete();
+        G.reset();
+    }
+
+    private void writeProgram(String program) throws IOException {
+        Files.write(new File(appDir, "Main.jimple").toPath(), program.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Infoflow analyze(String program, boolean sparse, boolean summaries) throws IOException {
+        writeProgram(program);
+
+        Infoflow infoflow = new Infoflow();
+        infoflow.getConfig().setSparseOptEnabled(sparse);
+        infoflow.getConfig().setSummaryOptEnabled(summaries);
+        infoflow.getConfig().setCodeEliminationMode(CodeEliminationMode.NoCodeElimination);
+        infoflow.setSootConfig(new IInfoflowConfig() {
+            @Override
+            public void setSootOptions(Options options) {
+                options.set_src_prec(Options.src_prec_jimple);
+            }
+        });
+        infoflow.computeInfoflow(appDir.getAbsolutePath(), libPath, "<Main: void main(java.lang.String[])>",
+                new DefaultSourceSinkManager(Collections.singleton("<Main: java.lang.String source()>"),
+                        Collections.singleton("<Main: void sink(java.lang.String)>")));
+        Assert.assertNotNull(infoflow.getResults());
+        return infoflow;
+    }
+
+    /**
+     * Describes the leaks as source and sink statements, in a canonical order
+     */
+    private static List<String> describeLeaks(InfoflowResults results) {
+        List<String> leaks = new ArrayList<>();
+        if (!results.isEmpty())
+            for (ResultSinkInfo sink : results.getResults().keySet())
+                for (ResultSourceInfo source : results.getResults().get(sink))
+                    leaks.add(source.getSource() + " -> " + sink.getSink());
+        Collections.sort(leaks);
+        return leaks;
+    }
+
+    @Test(timeout = 300000)
+    public void summariesFindSameLeaksAsCalleeBodies() throws IOException {
+        List<String> dense = describeLeaks(analyze(PROGRAM, false, false).getResults());
+        Assert.assertEquals(2, dense.size());
+
+        Infoflow withoutSummaries = analyze(PROGRAM, true, false);
+        Assert.assertEquals(dense, describeLeaks(withoutSummaries.getResults()));
+        Assert.assertEquals(-1,
+                withoutSummaries.getResults().getPerformanceData().getWallTime(Phase.SUMMARY_BUILD));
+
+        Infoflow withSummaries = analyze(PROGRAM, true, true);
+        Assert.assertEquals(dense, describeLeaks(withSummaries.getResults()));
+        InfoflowPerformanceData data = withSummaries.getResults().getPerformanceData();
+        Assert.assertTrue(data.getForwardSummaryCount() > 0);
+        Assert.assertTrue(data.getSummaryHits() > 0);
+    }
+
+    @Test(timeout = 300000)
+    public void overwrittenTaintDoesNotLeakThroughSummary() throws IOException {
+        // Without the copy and the getter, only the overwritten value is sunk
+        String program = PROGRAM
+                .replace("        staticinvoke <Main: void sink(java.lang.String)>(s1);\n", "")
+                .replace("        staticinvoke <Main: void sink(java.lang.String)>(s3);\n", "");
+        Assert.assertTrue(describeLeaks(analyze(program, true, true).getResults()).isEmpty());
+        Assert.assertTrue(describeLeaks(analyze(program, false, false).getResults()).isEmpty());
+    }
+
+    @Test(timeout = 300000)
+    public void everyReachableMethodGetsSummaries() throws IOException {
+        writeProgram(InnerBBFastBuildDFGSolverTest.createProgram());
+        InnerBBFastBuildDFGSolverTest.loadProgram(appDir);
+        InfoflowCFG iCfg = new InfoflowCFG();
+        InnerBBFastBuildDFGSolver solver = new InnerBBFastBuildDFGSolver(iCfg);
+        solver.solve();
+        solver.solveSummary();
+
+        Set<String> methods = new HashSet<>();
+        for (Map.Entry<Pair<Unit, Value>, SummaryGraph> entry : solver.getForwardSummary().entrySet()) {
+            SootMethod m = iCfg.getMethodOf(entry.getKey().getO1());
+            methods.add(m.getName());
+        }
+        for (int i = 0; i < InnerBBFastBuildDFGSolverTest.METHOD_COUNT; i++)
+            Assert.assertTrue("No summary for m" + i, methods.contains("m" + i));
+    }
+
+}
@@ -0,0 +1,171 @@
+package soot.jimple.infoflow.sparseOptimization.store;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import soot.G;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolver;
+import soot.jimple.infoflow.sparseOptimization.dataflowgraph.InnerBBFastBuildDFGSolverTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the {@link DFGStore}. Data flow graphs and summaries that are
+ * loaded from the store must be the same as the ones built from scratch.
+ *
+ * @author wanglei
+ */
+public class DFGStoreTest {
+
+    private File workDir;
+    private File programDir;
+    private File storeFile;
+
+    @Before
+    public void createDirectories() throws IOException {
+        workDir = Files.createTempDirectory("dfgstore").toFile();
+        programDir = new File(workDir, "program");
+        programDir.mkdir();
+        storeFile = new File(workDir, "dfg.store");
+    }
+
+    @After
+    public void deleteDirectories() {
+        new File(programDir, "Main.jimple").delete();
+        programDir.delete();
+        storeFile.delete();
+        workDir.delete();
+        G.reset();
+    }
+
+    /**
+     * Writes the given program and loads it into a fresh Scene, as a new run
+     * of the analysis would
+     */
+    private void loadProgram(String program) throws IOException {
+        Files.write(new File(programDir, "Main.jimple").toPath(), program.getBytes(StandardCharsets.UTF_8));
+        InnerBBFastBuildDFGSolverTest.loadProgram(programDir);
+    }
+
+    /**
+     * Builds the data flow graphs and summaries of the loaded program,
+     * optionally through the given store
+     *
+     * @return The description of the graphs and the summaries
+     */
+    private static List<String> build(DFGStore store) throws IOException {
+        InnerBBFastBuildDFGSolver solver = new InnerBBFastBuildDFGSolver(new InfoflowCFG());
+        solver.setDFGStore(store);
+        solver.solve();
+        solver.solveSummary();
+        if (store != null) {
+            solver.saveToDFGStore();
+            store.save();
+        }
+
+        List<String> result = new ArrayList<>();
+        result.addAll(InnerBBFastBuildDFGSolverTest.describeDfg(solver.getNewDfg()));
+        result.addAll(InnerBBFastBuildDFGSolverTest.describeDfg(solver.getNewBackwardDfg()));
+        result.addAll(InnerBBFastBuildDFGSolverTest.describeSummaries(solver.getForwardSummary()));
+        result.addAll(InnerBBFastBuildDFGSolverTest.describeSummaries(solver.getBackwardsSummary()));
+        return result;
+    }
+
+    @Test(timeout = 300000)
+    public void loadedMethodsMatchRebuiltMethods() throws IOException {
+        String program = InnerBBFastBuildDFGSolverTest.createProgram();
+        loadProgram(program);
+        DFGStore store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        List<String> expected = build(store);
+        Assert.assertEquals(0, store.getHits());
+        Assert.assertTrue(storeFile.exists());
+
+        // The next run loads all methods from the file
+        loadProgram(program);
+        store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        Assert.assertEquals(expected, build(store));
+        Assert.assertEquals(0, store.getMisses());
+        Assert.assertTrue(store.getHits() > InnerBBFastBuildDFGSolverTest.METHOD_COUNT);
+    }
+
+    @Test(timeout = 300000)
+    public void changedMethodIsRebuilt() throws IOException {
+        String program = InnerBBFastBuildDFGSolverTest.createProgram();
+        loadProgram(program);
+        DFGStore store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        build(store);
+        int methodCount = store.getMisses();
+
+        // Pass the argument instead of the new object in one method
+        String changed = program.replace("staticinvoke <Main: void m6(Main)>(b);",
+                "staticinvoke <Main: void m6(Main)>(a);");
+        Assert.assertNotEquals(program, changed);
+        loadProgram(changed);
+        List<String> expected = build(null);
+
+        loadProgram(changed);
+        store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        Assert.assertEquals(expected, build(store));
+        Assert.assertEquals(1, store.getMisses());
+        Assert.assertEquals(methodCount - 1, store.getHits());
+    }
+
+    @Test(timeout = 600000)
+    public void oldVersionOfChangedMethodExpires() throws IOException {
+        String program = InnerBBFastBuildDFGSolverTest.createProgram();
+        loadProgram(program);
+        DFGStore store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        build(store);
+        int size = store.size();
+
+        // Analyze the next version of the app several times. The entry of
+        // the old version of the changed method is kept for a few runs, in
+        // case the change is reverted, and then dropped.
+        String changed = program.replace("staticinvoke <Main: void m6(Main)>(b);",
+                "staticinvoke <Main: void m6(Main)>(a);");
+        for (int run = 1; run <= DFGStore.MAX_UNUSED_GENERATIONS + 1; run++) {
+            loadProgram(changed);
+            store = DFGStore.open(storeFile.getAbsolutePath(), true);
+            build(store);
+            Assert.assertEquals(run == 1 ? 1 : 0, store.getMisses());
+            if (run <= DFGStore.MAX_UNUSED_GENERATIONS)
+                Assert.assertEquals(size + 1, store.size());
+            else
+                Assert.assertEquals(size, store.size());
+        }
+
+        // Reverting the change now rebuilds the method
+        loadProgram(program);
+        store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        build(store);
+        Assert.assertEquals(1, store.getMisses());
+    }
+
+    @Test(timeout = 300000)
+    public void graphsWithoutSummariesAreStoredSeparately() throws IOException {
+        loadProgram(InnerBBFastBuildDFGSolverTest.createProgram());
+        DFGStore store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        build(store);
+
+        InnerBBFastBuildDFGSolver solver = new InnerBBFastBuildDFGSolver(new InfoflowCFG());
+        store = DFGStore.open(storeFile.getAbsolutePath(), false);
+        solver.setDFGStore(store);
+        solver.solve();
+        Assert.assertEquals(0, store.getHits());
+    }
+
+    @Test
+    public void unreadableFileGivesEmptyStore() throws IOException {
+        Files.write(storeFile.toPath(), "not a store".getBytes(StandardCharsets.UTF_8));
+        DFGStore store = DFGStore.open(storeFile.getAbsolutePath(), true);
+        Assert.assertEquals(0, store.size());
+    }
+
+}